@@ -0,0 +1,301 @@
+package agentIO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import controllers.PlayAgent;
+import controllers.TD.ntuple2.NTuple2ValueFunc;
+
+/**
+ * The binary agent format {@code .agt.bin}: a versioned container where the agent's object graph (the
+ * <em>metadata</em>: parameters, n-tuple definitions, ...) is Java-serialized without its n-tuple weights and
+ * the LUT weights of each {@link NTuple2ValueFunc} are stored as a separate raw block of little-endian
+ * doubles (or floats).
+ * <p>
+ * File layout (all numbers little-endian):
+ * <pre>
+ *   int    MAGIC ("GBGA")
+ *   int    VERSION
+ *   int    flags            (FLAG_META_DEFLATED, FLAG_FLOAT_WEIGHTS)
+ *   int    nBlocks          (number of weight blocks = number of NTuple2ValueFunc's in the agent)
+ *   long   metaLength       (bytes of the metadata on disk)
+ *   byte[] meta             (serialized agent without weights, optionally deflated)
+ *   [padding to a multiple of 8]
+ *   nBlocks x (long count, long offset)   the block table
+ *   nBlocks x weight block  (count doubles or floats, starting at offset, 8-byte aligned)
+ * </pre>
+ * Loading maps each weight block read-only into memory and copies it with one bulk transfer into the weight
+ * store of its value function. Thus there is no GZIP inflation of the weights and no temporary per-tuple LUT
+ * arrays (which double the heap when loading an {@code .agt.zip}).
+ * <p>
+ * Agents without n-tuple networks are stored with metadata only. Sparse LUTs (see
+ * {@link params.ParNT#getSparseLut()}) and frozen LUTs (see {@link NTuple2ValueFunc#freeze(NTuple2ValueFunc.Precision)})
+ * are part of the metadata, their weight blocks are empty.
+ *
+ * @see LoadSaveGBG#saveGBGAgent(PlayAgent, String)
+ * @see LoadSaveGBG#loadGBGAgent(String)
+ */
+public class AgentBinaryIO {
+	public static final String SUFFIX = ".agt.bin";
+
+	public static final int MAGIC = 0x41474247;		// "GBGA" as little-endian int
+	public static final int VERSION = 1;
+	public static final int FLAG_META_DEFLATED = 1;
+	public static final int FLAG_FLOAT_WEIGHTS = 2;
+
+	private static final int HEADER_LENGTH = 24;
+	private static final int CHUNK = 1 << 20;			// elements per write chunk / map chunk
+	private static final double[] NO_WEIGHTS = new double[0];
+
+	/**
+	 * @return the weight store of {@code vf}, an empty array if its LUTs are sparse or frozen
+	 */
+	private static double[] weights(NTuple2ValueFunc vf) {
+		return (vf.getWeightStore()==null) ? NO_WEIGHTS : vf.getWeightStore();
+	}
+
+	public static boolean isBinaryAgentFile(String filePath) {
+		return filePath.toLowerCase().endsWith(SUFFIX);
+	}
+
+	/**
+	 * Save agent {@code pa} in the binary format with double weights and fast-deflated metadata.
+	 */
+	public static void saveAgent(PlayAgent pa, String filePath) throws IOException {
+		saveAgent(pa, filePath, false, true);
+	}
+
+	/**
+	 * Save agent {@code pa} in the binary format.
+	 *
+	 * @param pa			the agent
+	 * @param filePath		the file (suffix {@link #SUFFIX})
+	 * @param floatWeights	if true, store the weights as float (half the size, but lossy)
+	 * @param deflateMeta	if true, compress the metadata with {@link Deflater#BEST_SPEED}
+	 * @throws IOException
+	 */
+	public static void saveAgent(PlayAgent pa, String filePath, boolean floatWeights, boolean deflateMeta)
+			throws IOException {
+		ArrayList<NTuple2ValueFunc> vfs = new ArrayList<>();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		OutputStream os = bos;
+		if (deflateMeta)
+			os = new DeflaterOutputStream(bos, new Deflater(Deflater.BEST_SPEED));
+		NTuple2ValueFunc.setDetachedWeights(vfs);
+		try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+			oos.writeObject(pa);
+		} finally {
+			NTuple2ValueFunc.setDetachedWeights(null);
+		}
+		byte[] meta = bos.toByteArray();
+
+		int elemSize = floatWeights ? 4 : 8;
+		int nBlocks = vfs.size();
+		long[] offset = new long[nBlocks];
+		long pos = align8(HEADER_LENGTH + meta.length) + 16L*nBlocks;
+		for (int b=0; b<nBlocks; b++) {
+			offset[b] = pos;
+			pos = align8(pos + (long) elemSize*weights(vfs.get(b)).length);
+		}
+
+		try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer hd = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+			hd.putInt(MAGIC).putInt(VERSION);
+			hd.putInt((deflateMeta ? FLAG_META_DEFLATED : 0) | (floatWeights ? FLAG_FLOAT_WEIGHTS : 0));
+			hd.putInt(nBlocks).putLong(meta.length);
+			hd.flip();
+			writeFully(ch, hd);
+			writeFully(ch, ByteBuffer.wrap(meta));
+
+			ByteBuffer tab = ByteBuffer.allocate(16*nBlocks).order(ByteOrder.LITTLE_ENDIAN);
+			for (int b=0; b<nBlocks; b++)
+				tab.putLong(weights(vfs.get(b)).length).putLong(offset[b]);
+			tab.flip();
+			ch.position(align8(HEADER_LENGTH + meta.length));
+			writeFully(ch, tab);
+
+			ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK*elemSize).order(ByteOrder.LITTLE_ENDIAN);
+			for (int b=0; b<nBlocks; b++) {
+				double[] w = weights(vfs.get(b));
+				ch.position(offset[b]);
+				for (int i=0; i<w.length; i+=CHUNK) {
+					int n = Math.min(CHUNK, w.length-i);
+					buf.clear();
+					if (floatWeights) {
+						FloatBuffer fb = buf.asFloatBuffer();
+						for (int k=0; k<n; k++) fb.put((float) w[i+k]);
+					} else {
+						buf.asDoubleBuffer().put(w, i, n);
+					}
+					buf.limit(n*elemSize);
+					writeFully(ch, buf);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Load an agent from a binary agent file. The agent is not yet instantiated (see
+	 * {@link PlayAgent#instantiateAfterLoading()}).
+	 *
+	 * @param filePath	the file (suffix {@link #SUFFIX})
+	 * @return the object read, usually a {@link PlayAgent}
+	 * @throws IOException if the file is not a (compatible) binary agent file or cannot be read
+	 * @throws ClassNotFoundException
+	 */
+	public static Object loadAgent(String filePath) throws IOException, ClassNotFoundException {
+		try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+			ByteBuffer hd = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(ch, hd);
+			hd.flip();
+			if (hd.getInt() != MAGIC)
+				throw new IOException(filePath + " is not a binary GBG agent file");
+			int version = hd.getInt();
+			if (version > VERSION)
+				throw new IOException(filePath + " has version " + version + ", only versions <= " + VERSION
+						+ " are supported");
+			int flags = hd.getInt();
+			int nBlocks = hd.getInt();
+			long metaLength = hd.getLong();
+
+			ByteBuffer meta = ByteBuffer.allocate((int) metaLength);
+			readFully(ch, meta);
+			ByteArrayInputStream bis = new ByteArrayInputStream(meta.array());
+			ArrayList<NTuple2ValueFunc> vfs = new ArrayList<>();
+			Object obj;
+			NTuple2ValueFunc.setDetachedWeights(vfs);
+			try (ObjectInputStream ois = new ObjectInputStream((flags & FLAG_META_DEFLATED)!=0
+					? new InflaterInputStream(bis) : bis)) {
+				obj = ois.readObject();
+			} finally {
+				NTuple2ValueFunc.setDetachedWeights(null);
+			}
+			if (vfs.size() != nBlocks)
+				throw new IOException(filePath + ": " + nBlocks + " weight blocks for " + vfs.size()
+						+ " n-tuple value functions");
+
+			ByteBuffer tab = ByteBuffer.allocate(16*nBlocks).order(ByteOrder.LITTLE_ENDIAN);
+			ch.position(align8(HEADER_LENGTH + metaLength));
+			readFully(ch, tab);
+			tab.flip();
+			int elemSize = ((flags & FLAG_FLOAT_WEIGHTS)!=0) ? 4 : 8;
+			for (int b=0; b<nBlocks; b++) {
+				long count = tab.getLong();
+				long offset = tab.getLong();
+				double[] w = weights(vfs.get(b));
+				if (count != w.length)
+					throw new IOException(filePath + ": weight block " + b + " has " + count
+							+ " weights, but the n-tuple network needs " + w.length);
+				// map in chunks, since a single mapping is limited to 2 GB
+				for (int i=0; i<w.length; i+=CHUNK) {
+					int n = Math.min(CHUNK, w.length-i);
+					MappedByteBuffer mb = ch.map(FileChannel.MapMode.READ_ONLY, offset + (long) i*elemSize,
+							(long) n*elemSize);
+					mb.order(ByteOrder.LITTLE_ENDIAN);
+					if (elemSize==4) {
+						FloatBuffer fb = mb.asFloatBuffer();
+						for (int k=0; k<n; k++) w[i+k] = fb.get(k);
+					} else {
+						DoubleBuffer db = mb.asDoubleBuffer();
+						db.get(w, i, n);
+					}
+				}
+			}
+			return obj;
+		}
+	}
+
+	/**
+	 * Convert an agent file {@code .agt.zip} into a binary agent file {@code .agt.bin}.
+	 * <p>
+	 * As in {@link LoadSaveGBG}, the agent in {@code .agt.zip} is an object stream nested in the 
+	 * object stream {@link ProgressTrackingObjectInputStream}.
+	 */
+	public static void convertToBinary(String zipPath, String binPath, boolean floatWeights, boolean deflateMeta)
+			throws IOException, ClassNotFoundException {
+		Object obj;
+		try (ObjectInputStream ois = new ObjectInputStream(new ProgressTrackingObjectInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(zipPath))), new IOProgress(0)))) {
+			obj = ois.readObject();
+		}
+		if (!(obj instanceof PlayAgent))
+			throw new IOException(zipPath + " holds no agent, but a " + obj.getClass().getName());
+		saveAgent((PlayAgent) obj, binPath, floatWeights, deflateMeta);
+	}
+
+	/**
+	 * Convert a binary agent file {@code .agt.bin} into an agent file {@code .agt.zip} (nested object streams 
+	 * as in {@link LoadSaveGBG#saveGBGAgent(PlayAgent, String)}).
+	 */
+	public static void convertToZip(String binPath, String zipPath) throws IOException, ClassNotFoundException {
+		Object obj = loadAgent(binPath);
+		try (ObjectOutputStream oos = new ObjectOutputStream(new ProgressTrackingOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(zipPath)) {
+					{
+						def.setLevel(Deflater.BEST_COMPRESSION);
+					}
+				}), new IOProgress(0)))) {
+			oos.writeObject(obj);
+		}
+	}
+
+	private static long align8(long pos) {
+		return (pos + 7) & ~7L;
+	}
+
+	private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) ch.write(buf);
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining())
+			if (ch.read(buf) < 0) throw new IOException("Unexpected end of binary agent file");
+	}
+
+	/**
+	 * Convert agent files on the command line:
+	 * <pre>
+	 *   AgentBinaryIO [-float] in.agt.zip out.agt.bin
+	 *   AgentBinaryIO in.agt.bin out.agt.zip
+	 * </pre>
+	 * The game classes of the agent have to be on the classpath.
+	 */
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		boolean floatWeights = (args.length==3 && args[0].equals("-float"));
+		int a = floatWeights ? 1 : 0;
+		if (args.length-a != 2) {
+			System.out.println("Usage: AgentBinaryIO [-float] in.agt.zip out.agt.bin  |  AgentBinaryIO in.agt.bin out.agt.zip");
+			return;
+		}
+		long start = System.currentTimeMillis();
+		if (isBinaryAgentFile(args[a]))
+			convertToZip(args[a], args[a+1]);
+		else
+			convertToBinary(args[a], args[a+1], floatWeights, true);
+		System.out.println("Converted " + args[a] + " to " + args[a+1] + " in "
+				+ (System.currentTimeMillis()-start) + " ms");
+	}
+}
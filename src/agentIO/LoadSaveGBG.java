@@ -27,6 +27,7 @@ import java.util.zip.GZIPOutputStream;
 public class LoadSaveGBG {
 	private JFileChooserApprove fc = null;
 	private final FileFilter tdAgentExt = new ExtensionFilter("agt.zip", "TD-Agents");
+	private final FileFilter tdAgentBinExt = new ExtensionFilter("agt.bin", "TD-Agents (binary)");
 	private final FileFilter tdTSRExt = new ExtensionFilter("tsr.zip", "Tournament-Result");
 	private final FileFilter txtExt = new ExtensionFilter(".txt.zip", "Compressed Text-Files (.txt.zip)");
 	private final Arena arenaGame;
@@ -102,7 +103,8 @@ public class LoadSaveGBG {
 	 * Save agent to disk without file chooser dialog
 	 * 
 	 * @param pa	the agent
-	 * @param filePath the location on disk
+	 * @param filePath the location on disk. If it has suffix {@code .agt.bin}, the agent is saved 
+	 * 			in the binary format of {@link AgentBinaryIO}.
 	 * @throws IOException
 	 */
 	public void saveGBGAgent(PlayAgent pa, String filePath) throws IOException {
@@ -112,6 +114,22 @@ public class LoadSaveGBG {
 			throw new IOException("ERROR: pa=null, there is no agent to save to disk");
 		}
 		
+		if (AgentBinaryIO.isBinaryAgentFile(filePath)) {
+			try {
+				AgentBinaryIO.saveAgent(pa, filePath);
+			} catch (NotSerializableException e) {
+				arenaGame.showMessage("ERROR: Object pa of class "+pa.getClass().getName()
+					+" is not serializable", "LoadSaveGBG", JOptionPane.ERROR_MESSAGE);
+				arenaGame.setStatusMessage("[ERROR: Could not write to file " + filePath + " !]");
+				throw e;
+			} catch (IOException e) {
+				arenaGame.setStatusMessage("[ERROR: Could not write to file " + filePath + " !]");
+				throw e;
+			}
+			arenaGame.setStatusMessage("Done.");
+			return;
+		}
+		
 		try {
 			fos = new FileOutputStream(filePath);
 		} catch (FileNotFoundException e2) {
@@ -230,8 +248,12 @@ public class LoadSaveGBG {
 		if (fc==null) throw new IOException("No JFileChooser present!");
 
 		fc.removeChoosableFileFilter(txtExt);
-		if (pa != null)
+		if (pa != null) {
+			fc.addChoosableFileFilter(tdAgentBinExt);
 			fc.setFileFilter(tdAgentExt);
+		} else {
+			fc.removeChoosableFileFilter(tdAgentBinExt);
+		}
 		if (tsr != null)
 			fc.setFileFilter(tdTSRExt);
 		fc.setCurrentDirectory(new File(strDir));
@@ -257,6 +279,12 @@ public class LoadSaveGBG {
 				path = fc.getSelectedFile().getPath();
 
 			if (pa != null) {
+				if (fc.getFileFilter()==tdAgentBinExt || AgentBinaryIO.isBinaryAgentFile(path)) {
+					if (!AgentBinaryIO.isBinaryAgentFile(path)) 
+						path += AgentBinaryIO.SUFFIX;
+					saveGBGAgent(pa, path);
+					return;
+				}
 				if (!path.toLowerCase().endsWith(".agt.zip")) {
 					path += ".agt.zip";
 				}
@@ -401,7 +429,7 @@ public class LoadSaveGBG {
 	 * not yet have certain elements, which are then filled in from defaults)
 	 * 
 	 * @param filePath		if null, open a file choose dialog. If not null, open this fully 
-	 * 						qualified file with suffix .agt.zip.
+	 * 						qualified file with suffix .agt.zip or .agt.bin (see {@link AgentBinaryIO}).
 	 * @return				the agent loaded
 	 * @throws IOException
 	 */
@@ -422,6 +450,7 @@ public class LoadSaveGBG {
 			if (fc==null) throw new IOException("No JFileChooser present!");
 			
 			fc.removeChoosableFileFilter(txtExt);
+			fc.addChoosableFileFilter(tdAgentBinExt);
 			fc.setFileFilter(tdAgentExt);
 			fc.setCurrentDirectory(new File(strDir));
 			fc.setAcceptAllFileFilterUsed(false);
@@ -452,7 +481,18 @@ public class LoadSaveGBG {
 			}
 		}
 		
-		if (fis != null) {
+		if (fis != null && AgentBinaryIO.isBinaryAgentFile(filePath)) {
+			fis.close();
+			try {
+				pa = toPlayAgent(AgentBinaryIO.loadAgent(filePath), filePath);
+				arenaGame.setStatusMessage("Done.");
+			} catch (IOException | ClassNotFoundException | AssertionError e) {
+				arenaGame.showMessage("ERROR: " + e.getMessage(),
+						e.getClass().getName(), JOptionPane.ERROR_MESSAGE);
+				arenaGame.setStatusMessage("[ERROR: Could not load agent from " + filePath + " !]");
+				pa = null;
+			}
+		} else if (fis != null) {
 			GZIPInputStream gs;
 			try {
 				gs = new GZIPInputStream(fis);
@@ -699,6 +739,33 @@ public class LoadSaveGBG {
 		return output;
 	}
 
+	/**
+	 * Instantiate the object {@code obj} read from {@code filePath} as agent.
+	 * 
+	 * @throws ClassNotFoundException if {@code obj} is not a {@link PlayAgent}
+	 */
+	private PlayAgent toPlayAgent(Object obj, String filePath) throws ClassNotFoundException {
+		PlayAgent pa;
+		if (obj instanceof PlayAgent) {
+			pa = (PlayAgent) obj;
+			pa.instantiateAfterLoading();	// special treatment of agents after loading (if necessary)
+			// [instantiateAfterLoading replaces completely the long and complicated switch statement we had here before (!)]
+		} else {
+			arenaGame.showMessage("ERROR: Agent class "+obj.getClass().getName()+" loaded from "
+					+ filePath + " not processable", "Unknown Agent Class", JOptionPane.ERROR_MESSAGE);
+			arenaGame.setStatusMessage("[ERROR: Could not load agent from "
+							+ filePath + "!]");
+			throw new ClassNotFoundException("ERROR: Unknown agent class");
+		}
+			
+		// Some older agents on disk might not have ParOther m_oPar.
+		// If this is the case, replace the null value with a default ParOther.
+		if (pa.getParOther() == null) {
+			((AgentBase) pa).setDefaultParOther();
+		}
+		return pa;
+	}
+
 	/**
 	 *
 	 * @param ois	from where to read
@@ -712,25 +779,7 @@ public class LoadSaveGBG {
 	{
 		PlayAgent pa;
 		try {
-			Object obj = ois.readObject();
-			if (obj instanceof PlayAgent) {
-				pa = (PlayAgent) obj;
-				pa.instantiateAfterLoading();	// special treatment of agents after loading (if necessary)
-				// [instantiateAfterLoading replaces completely the long and complicated switch statement we had here before (!)]
-			} else {
-//				disposeProgressDialog(dlg);
-				arenaGame.showMessage("ERROR: Agent class "+obj.getClass().getName()+" loaded from "
-						+ filePath + " not processable", "Unknown Agent Class", JOptionPane.ERROR_MESSAGE);
-				arenaGame.setStatusMessage("[ERROR: Could not load agent from "
-								+ filePath + "!]");
-				throw new ClassNotFoundException("ERROR: Unknown agent class");
-			}
-				
-			// Some older agents on disk might not have ParOther m_oPar.
-			// If this is the case, replace the null value with a default ParOther.
-			if (pa.getParOther() == null) {
-				((AgentBase) pa).setDefaultParOther();
-			}						
+			pa = toPlayAgent(ois.readObject(), filePath);
 
 //			disposeProgressDialog(dlg);
 //			arenaGame.setProgress(null);
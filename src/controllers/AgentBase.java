@@ -159,6 +159,19 @@ abstract public class AgentBase implements PlayAgent, Serializable {
 	 */
     @Override
 	public boolean isTrainable() { return true; }
+
+	/**
+	 * Default: not thread-safe. Agents whose play methods do not modify the agent's state may override this.
+	 */
+	@Override
+	public boolean isThreadSafe() { return false; }
+
+	/**
+	 * Default: {@code this} for thread-safe agents, else {@code null}. Agents which are not thread-safe, but 
+	 * cheap to copy, may override this.
+	 */
+	@Override
+	public PlayAgent getThreadInstance() { return isThreadSafe() ? this : null; }
 	
 	/**
 	 * 'Train' the agent for one complete game episode using self-play. This base training is valid for <b>all</b> agents 
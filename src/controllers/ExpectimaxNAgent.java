@@ -9,6 +9,7 @@ import params.MaxNParams;
 import params.ParMaxN;
 import params.ParOther;
 import tools.ScoreTuple;
+import tools.TranspositionTable;
 import tools.Types;
 import tools.Types.ACTIONS;
 import tools.Types.ACTIONS_ST;
@@ -19,12 +20,25 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The Expectimax-N agent implements the Expectimax-N algorithm via interface {@link PlayAgent}. 
  * Expectimax-N  is the generalization {@link MaxNAgent} to nondeterministic games. It works on  
  * {@link ScoreTuple}, an N-tuple of game scores. It traverses the game tree up to a prescribed 
- * depth (default: 10, see {@link ParMaxN}).   
+ * depth (default: 10, see {@link ParMaxN}). Within one search, the score tuples of visited states 
+ * are stored in a {@link TranspositionTable} (if the hashmap flag of {@link ParMaxN} is set). The table is
+ * bounded and depth-aware, its keys are the 64-bit hashes {@link StateObservation#getHash()} (for 2048 they are 
+ * derived from the board number, so afterstates reached via different move orders share their entry).
+ * <p>
+ * Chance nodes which are reached from the root with a probability below {@link ParOther#getChanceCutoff()}
+ * (e.g. a rare sequence of 4-tiles in 2048) are not expanded, but evaluated like leaves with
+ * {@link #estimateGameValueTuple(StateObservation, ScoreTuple)}. 
  * <p>
  * {@link ExpectimaxNAgent} is for <b>non-deterministic</b> games. For deterministic games see 
  * {@link MaxNAgent}.
@@ -37,11 +51,19 @@ import java.util.Random;
  */
 public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializable
 {
-	private Random rand;
+	protected Random rand;
 	protected int m_depth=10;
 //	protected boolean m_rgs=true;  // use now AgentBase::m_oPar.getRewardIsGameScore()
-	//private boolean m_useHashMap=true;		// don't use HashMap in ExpectimaxNAgent!
-	//private HashMap<String,ScoreTuple> hm;
+	protected boolean m_useHashMap=true;
+	// The former 'don't use HashMap in ExpectimaxNAgent!' was because stringDescr() does not distinguish
+	// between states before and after the nondeterministic action (e.g. in 2048). getHash() does.
+	private transient TranspositionTable tt;	// created on demand, see newSearch()
+	private transient AtomicInteger numCutoffs;	// number of leaves evaluated at depth m_depth (not game over)
+	/**
+	 * the executors for the parallel search at the root, one for each number of threads, 
+	 * shared by all {@link ExpectimaxNAgent} objects (and copies)
+	 */
+	private static final HashMap<Integer, ExecutorService> executors = new HashMap<>();
 	
 	/**
 	 * change the version ID for serialization only if a newer version is no longer 
@@ -64,6 +86,7 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 	{
 		this(name);
 		m_depth = mpar.getMaxNDepth();
+		m_useHashMap = mpar.getMaxNUseHashmap();
 		m_oPar = opar;		// AgentBase::m_oPar
 	}
 	
@@ -112,7 +135,8 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 			throw new RuntimeException("Error, Expectimax-N only usable for nondeterministic games");
 		StateObsNondeterministic soND = (StateObsNondeterministic) so;
 		
-		ACTIONS_ST act_best = getBestAction(soND, so,  random,  VTable,  silent, 1);
+		newSearch();
+		ACTIONS_ST act_best = getBestAction(soND, so,  random,  VTable,  silent, 1, 1.0, true);
 		
         return new ACTIONS_VT(act_best.toInt(), act_best.isRandomAction(), VTable);
 	}
@@ -127,10 +151,12 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 	 * @param VTable	size soND.getAvailableActions()+1
 	 * @param silent
 	 * @param depth		tree depth
+	 * @param probab	probability to reach {@code soND} from the root
+	 * @param isRoot	whether {@code soND} is the root of the search (its actions may be searched in parallel)
 	 * @return		best action + score tuple
 	 */
 	private ACTIONS_ST getBestAction(StateObsNondeterministic soND, StateObservation refer, boolean random, 
-			double[] VTable, boolean silent, int depth) 
+			double[] VTable, boolean silent, int depth, double probab, boolean isRoot) 
 	{
 		int i,j;
 		ScoreTuple currScoreTuple=null;
@@ -150,18 +176,24 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
             ArrayList<ACTIONS> acts = soND.getAvailableActions();
             ACTIONS[] actions = new ACTIONS[acts.size()];
         	scBest=new ScoreTuple(soND);		// make a new ScoreTuple with lowest possible maxValue
+        	for(i = 0; i < acts.size(); ++i) actions[i] = acts.get(i);
+        	ScoreTuple[] childTuples = null;
+        	if (isRoot && silent && actions.length>1 && getNumThreads()>1 && isLeafThreadSafe())
+        		childTuples = parallelChildScores(soND, actions, refer, depth);
             for(i = 0; i < acts.size(); ++i)
             {
-            	actions[i] = acts.get(i);
             	NewSO = soND.copy();
             	NewSO.advanceDeterministic(actions[i]);
             	
-            	if (depth<this.m_depth) {
+            	if (childTuples!=null) {
+            		currScoreTuple = childTuples[i];
+            	} else if (depth<this.m_depth) {
     				// here is the recursion: getAllScores may call getBestAction back:
-    				currScoreTuple = getAllScores(NewSO,refer,silent,depth+1);						
+    				currScoreTuple = getAllScores(NewSO,refer,silent,depth+1,probab);						
     			} else {
     				// this terminates the recursion:
     				// (after finishing the for-loop for every element of acts)
+    				numCutoffs.incrementAndGet();
     				currScoreTuple = estimateGameValueTuple(NewSO, null);
     				// For derived class ExpectimaxWrapper, estimateGameValueTuple returns
     				// the score tuple of the wrapped agent. 
@@ -208,11 +240,11 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
             	actions[i] = rans.get(i);
             	NewSO = soND.copy();
             	NewSO.advanceNondeterministic(actions[i]);
+				currProbab = soND.getProbability(actions[i]);
             	
 				// here is the recursion: getAllScores may call getBestAction back:
-				currScoreTuple = getAllScores(NewSO,refer,silent,depth+1);		
+				currScoreTuple = getAllScores(NewSO,refer,silent,depth+1,probab*currProbab);		
 				
-				currProbab = soND.getProbability(actions[i]);
             	if (!silent) printNondet(NewSO,currScoreTuple,currProbab,depth);
 				sumProbab += currProbab;
 				// if cOP==AVG, expecScoreTuple will contain the average ScoreTuple
@@ -233,7 +265,8 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
         return act_st;         
 	}
 
-	private ScoreTuple getAllScores(StateObsNondeterministic sob, StateObservation refer, boolean silent, int depth) {
+	private ScoreTuple getAllScores(StateObsNondeterministic sob, StateObservation refer, boolean silent, int depth,
+			double probab) {
         ACTIONS_ST act_st = null;
 		if (sob.isGameOver())
 		{
@@ -244,15 +277,163 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 //			return new ScoreTuple(res); 	
 		}
 				
+		// remaining search depth below sob: getBestAction recurses for depth<m_depth 
+		int remaining = this.m_depth-depth;
+		long hash = 0;
+		if (m_useHashMap && tt!=null && sob.isCacheable()) {
+			hash = sob.getHash();
+			ScoreTuple sc = tt.get(hash, remaining);
+			if (sc!=null) {
+				if (tt.getLastDepth()!=TranspositionTable.EXACT) numCutoffs.incrementAndGet();
+				return sc;
+			}
+		}
+		if (!sob.isNextActionDeterministic() && probab < getChanceCutoff()) {
+			// probability cutoff: the chance node sob is too unlikely to be expanded
+			numCutoffs.incrementAndGet();
+			return estimateGameValueTuple(sob, null);
+		}
+		int cutoffs = numCutoffs.get();
+				
 		int n=sob.getNumAvailableActions();
 		double[] vtable	= new double[n+1];
 		
 		// here is the recursion: getBestAction calls getAllScores(...,depth+1):
-		act_st = getBestAction(sob, refer, false,  vtable,  silent, depth);  // sets vtable[n]=iMaxScore
+		act_st = getBestAction(sob, refer, false,  vtable,  silent, depth, probab, depth==0);  // sets vtable[n]=iMaxScore
 		
+		if (m_useHashMap && tt!=null && sob.isCacheable()) {
+			// if no leaf below sob was cut off by depth (or probability), the score tuple is exact.
+			// A score tuple with probability cutoffs is stored for its depth, although it may be less accurate 
+			// when sob is reached later on a more likely path (as in other Expectimax programs for 2048).
+			// (with a parallel search, cutoffs by other threads may make this test fail: then the entry is just
+			// not marked as exact)
+			tt.put(hash, (numCutoffs.get()==cutoffs) ? TranspositionTable.EXACT : remaining, act_st.m_st);
+		}
 		return act_st.m_st;		// return ScoreTuple for best action
 	}
 
+	/**
+	 * Clear the transposition table at the start of each search, since derived classes (e.g. 
+	 * {@link ExpectimaxWrapper}) may return different leaf values between calls.
+	 */
+	protected void newSearch() {
+		numCutoffs = new AtomicInteger();
+		if (!m_useHashMap) return;
+		if (tt==null) tt = new TranspositionTable();
+		tt.newSearch();
+	}
+
+	/**
+	 * Parallel root search: the subtrees of all actions {@code actions} in the root state {@code soND} are 
+	 * searched concurrently by the threads of a work-stealing (fork-join) pool. If an action leads to a 
+	 * nondeterministic state, each of its random actions is a task of its own (for games with few actions 
+	 * like 2048). The tasks share the transposition table. The results are combined in the same order as
+	 * in the sequential search.
+	 * 
+	 * @return the score tuples for all {@code actions} 
+	 */
+	private ScoreTuple[] parallelChildScores(StateObsNondeterministic soND, ACTIONS[] actions, 
+			StateObservation refer, int depth) {
+		StateObsNondeterministic[] afterstates = new StateObsNondeterministic[actions.length];
+		int[] firstTask = new int[actions.length+1];		// the tasks of actions[i] are firstTask[i],...,firstTask[i+1]-1
+		List<ACTIONS> rans = new ArrayList<>();			// the random action of each task (if any)
+		List<Callable<ScoreTuple>> callables = new ArrayList<>();
+		for (int i=0; i<actions.length; i++) {
+			firstTask[i] = callables.size();
+			StateObsNondeterministic NewSO = soND.copy();
+			NewSO.advanceDeterministic(actions[i]);
+			afterstates[i] = NewSO;
+			if (depth>=this.m_depth) {
+				callables.add(() -> {
+					numCutoffs.incrementAndGet();
+					return estimateGameValueTuple(NewSO, null);
+				});
+			} else if (!NewSO.isGameOver() && !NewSO.isNextActionDeterministic()) {
+				for (ACTIONS r : NewSO.getAvailableRandoms()) {
+					rans.add(r);
+					callables.add(() -> {
+						StateObsNondeterministic RanSO = NewSO.copy();
+						RanSO.advanceNondeterministic(r);
+						return getAllScores(RanSO,refer,true,depth+2,NewSO.getProbability(r));
+					});
+				}
+			} else {
+				rans.add(null);
+				callables.add(() -> getAllScores(NewSO,refer,true,depth+1,1.0));
+			}
+		}
+		firstTask[actions.length] = callables.size();
+
+		ScoreTuple[] taskTuples = new ScoreTuple[callables.size()];
+		try {
+			List<Future<ScoreTuple>> futures = getExecutor(getNumThreads()).invokeAll(callables);
+			for (int k=0; k<futures.size(); k++) 
+				taskTuples[k] = futures.get(k).get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+
+		ScoreTuple[] childTuples = new ScoreTuple[actions.length];
+		for (int i=0; i<actions.length; i++) {
+			StateObsNondeterministic NewSO = afterstates[i];
+			if (depth<this.m_depth && !NewSO.isGameOver() && !NewSO.isNextActionDeterministic()) {
+				// the same average as in the nondeterministic branch of getBestAction:
+				ScoreTuple expecScoreTuple = new ScoreTuple(NewSO);
+				for (int k=firstTask[i]; k<firstTask[i+1]; k++) 
+					expecScoreTuple.combine(taskTuples[k], ScoreTuple.CombineOP.AVG, NewSO.getPlayer(), 
+							NewSO.getProbability(rans.get(k)));
+				childTuples[i] = expecScoreTuple;
+			} else {
+				childTuples[i] = taskTuples[firstTask[i]];
+			}
+		}
+		return childTuples;
+	}
+
+	private int getNumThreads() {
+		return m_oPar.getWrapperThreads();
+	}
+
+	private double getChanceCutoff() {
+		return m_oPar.getChanceCutoff();
+	}
+
+	/**
+	 * @return true, if {@link #estimateGameValueTuple(StateObservation, ScoreTuple)} may be called concurrently.
+	 * 		Derived classes override this (see {@link ExpectimaxWrapper}).
+	 */
+	protected boolean isLeafThreadSafe() {
+		return true;
+	}
+
+	/**
+	 * The executors are never shut down, since another agent may still use them. Their worker 
+	 * threads are daemon threads which terminate when idle.
+	 */
+	private static synchronized ExecutorService getExecutor(int numThreads) {
+		return executors.computeIfAbsent(numThreads, Executors::newWorkStealingPool);
+	}
+
+	/**
+	 * {@link ExpectimaxNAgent} is not thread-safe (transposition table, cutoff counter), but cheap to copy.
+	 * The copy gets its own random generator, seeded from this agent's generator.
+	 */
+	@Override
+	public PlayAgent getThreadInstance() {
+		ExpectimaxNAgent ea = new ExpectimaxNAgent(getName(), m_depth);
+		ea.m_useHashMap = m_useHashMap;
+		ea.m_oPar = new ParOther(m_oPar);
+		ea.rand = new Random(rand.nextLong());
+		return ea;
+	}
+
+	/**
+	 * @return the fraction of transposition table lookups which were hits (0, if no hashmap is used)
+	 */
+	public double getTTHitRate() {
+		return (tt==null) ? 0 : tt.getHitRate();
+	}
+
 	/**
 	 * Return the agent's score for that after state.
 	 * @param sob			the current game state;
@@ -266,14 +447,16 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 		assert sob instanceof StateObsNondeterministic : "Error, sob must be of class StateObservationNondet";
 		StateObsNondeterministic soND = (StateObsNondeterministic) sob;
 		
-		return getAllScores(soND,sob,true,0).scTup[sob.getPlayer()];
+		newSearch();
+		return getAllScores(soND,sob,true,0,1.0).scTup[sob.getPlayer()];
 	}
 	@Override
 	public ScoreTuple getScoreTuple(StateObservation sob, ScoreTuple prevTuple) {
 		assert sob instanceof StateObsNondeterministic : "Error, sob must be of class StateObservationNondet";
 		StateObsNondeterministic soND = (StateObsNondeterministic) sob;
 		
-		return getAllScores(soND,sob,true,0);
+		newSearch();
+		return getAllScores(soND,sob,true,0,1.0);
 	}
 	
 //	/**
@@ -1,6 +1,7 @@
 package controllers;
 
 import java.io.Serializable;
+import java.util.Random;
 
 import games.StateObservation;
 import params.ParOther;
@@ -25,6 +26,17 @@ public class ExpectimaxWrapper extends ExpectimaxNAgent implements Serializable
 		this.wrapped_pa = pa;
 	}
 	
+	/**
+	 * @param oPar	the search params are taken from here: the number of threads for the parallel root search 
+	 * 				(only used if {@code pa} is thread-safe, see {@link PlayAgent#isThreadSafe()}) and the
+	 * 				chance cutoff (see {@link ParOther#getChanceCutoff()})
+	 */
+	public ExpectimaxWrapper(PlayAgent pa, int nply, ParOther oPar) {
+		this(pa, nply);
+		this.m_oPar.setWrapperThreads(oPar.getWrapperThreads());
+		this.m_oPar.setChanceCutoff(oPar.getChanceCutoff());
+	}
+	
 //	/**
 //	 * When the recursion tree has reached its maximal depth m_depth, then return
 //	 * an estimate of the game score.
@@ -54,6 +66,25 @@ public class ExpectimaxWrapper extends ExpectimaxNAgent implements Serializable
 		return wrapped_pa.getScoreTuple(sob, prevTuple);
 	}
 	
+	@Override
+	protected boolean isLeafThreadSafe() {
+		return wrapped_pa.isThreadSafe();
+	}
+
+	/**
+	 * @return a new wrapper (with its own random generator) around the thread instance of the wrapped agent 
+	 * 		(or {@code null}, if the wrapped agent has none)
+	 */
+	@Override
+	public PlayAgent getThreadInstance() {
+		PlayAgent pa = wrapped_pa.getThreadInstance();
+		if (pa==null) return null;
+		ExpectimaxWrapper ew = new ExpectimaxWrapper(pa, m_depth, m_oPar);
+		ew.m_useHashMap = m_useHashMap;
+		ew.rand = new Random(rand.nextLong());
+		return ew;
+	}
+
 	public PlayAgent getWrappedPlayAgent() {
 		return wrapped_pa;
 	}
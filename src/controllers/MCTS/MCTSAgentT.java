@@ -224,11 +224,7 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
 	
 		assert so.isLegalState() 
 			: "Not a legal state"; // e.g. player to move does not fit to Table
-		if (m_Timer==null) {
-			m_Timer = new ElapsedCpuTimer(TimerType.CPU_TIME);
-			m_Timer.setMaxTimeMillis(40);
-		}
-		m_Timer.reset();
+		resetTimer();
 		
 		// Ask MCTS for the best action ...
 		actBest = act(so,m_Timer,VTable);
@@ -254,6 +250,20 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
 //	}
 
 
+	/**
+	 * Reset {@link #m_Timer} before a new search. If a time budget {@link ParMCTS#getMaxTimeMillis()} &gt; 0 
+	 * is set, the timer measures wall-clock time (valid also for parallel search) with this budget as max 
+	 * time. Otherwise it is the CPU timer with max time 40 ms (not relevant for the iteration-based search).
+	 */
+	private void resetTimer() {
+		int maxTime = getParMCTS().getMaxTimeMillis();
+		TimerType type = (maxTime > 0) ? TimerType.WALL_TIME : TimerType.CPU_TIME;
+		if (m_Timer==null || m_Timer.type!=type) 
+			m_Timer = new ElapsedCpuTimer(type);
+		m_Timer.setMaxTimeMillis((maxTime > 0) ? maxTime : 40);
+		m_Timer.reset();
+	}
+
 	@Override
 	public double getScore(StateObservation so) {
 		int nAct = so.getNumAvailableActions();
@@ -272,6 +282,7 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
         } else {
         	
     		// Ask MCTS for the best action ...
+    		resetTimer();
     		act(so,m_Timer,vtable);
 
             return vtable[nAct];
@@ -328,6 +339,12 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
 				+ ", rollout depth:" + getParMCTS().getRolloutDepth()
 				+ ", K_UCT:"+ getParMCTS().getK_UCT()
 				+ ", tree depth:" + getParMCTS().getTreeDepth();
+		if (getParMCTS().getNumThreads() > 1) 
+			str = str + ", parallel:" + (getParMCTS().getParallelMode()==ParMCTS.PARALLEL_TREE ? "tree" : 
+										(getParMCTS().getParallelMode()==ParMCTS.PARALLEL_ROOT ? "root" : "none"))
+					+ ", threads:" + getParMCTS().getNumThreads();
+		if (getParMCTS().getMaxTimeMillis() > 0) 
+			str = str + ", time:" + getParMCTS().getMaxTimeMillis() + "ms";
 		return str;
 	}
 
@@ -342,6 +359,13 @@ public class MCTSAgentT extends AgentBase implements PlayAgent, Serializable
     public int getNIterations() {
         return mctsPlayer.getNUM_ITERS();
     }
+
+    /**
+     * @return the iterations per second of the last move (or the last call to {@link #getScore(StateObservation)})
+     */
+    public double getLastIterationsPerSecond() {
+        return mctsPlayer.getLastIterationsPerSecond();
+    }
 	public double getK() {
 		return mctsPlayer.getK();
 	}
@@ -8,7 +8,12 @@ import tools.Types;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * This is adapted from Diego Perez MCTS reference implementation<br>
@@ -40,6 +45,36 @@ public class SingleMCTSPlayer implements Serializable
 //    private double K = DEFAULT_K;
 //    private int verbose = DEFAULT_VERBOSITY; 
     int nRolloutFinished = 0;		// counts the number of rollouts ending with isGameOver==true
+    
+    /**
+     * true while a tree-parallel search is running (see {@link #run(ElapsedCpuTimer, double[])})
+     */
+    private transient volatile boolean treeParallel = false;
+    
+    /**
+     * the executors for root- and tree-parallel search (see {@link #run(ElapsedCpuTimer, double[])}), 
+     * one for each number of threads, shared by all SingleMCTSPlayer objects
+     */
+    private static final HashMap<Integer, ExecutorService> executors = new HashMap<>();
+    
+    /**
+     * number of iterations and elapsed (wall-clock) time of the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    private transient int lastIterations = 0;
+    private transient long lastElapsedNanos = 0;
+    
+    /**
+     * number of nodes of the subtree retained by the last call to {@link #init(StateObservation)} 
+     * (0, if the tree was not reused)
+     */
+    private transient int lastReusedNodes = 0;
+    
+    /**
+     * for tree reuse: the index of the action returned by the last call to {@link #run(ElapsedCpuTimer, double[])} 
+     * (-1, if none) and, if it was a root-parallel search, the roots of all its trees ({@code m_roots[0]==m_root})
+     */
+    private transient int lastAction = -1;
+    private transient SingleTreeNode[] m_roots = null;
 	
 	/**
 	 * Member {@code m_parMCTS} is only needed for saving and loading the agent
@@ -112,6 +147,16 @@ public class SingleMCTSPlayer implements Serializable
     /**
      * Initializes the tree with the new observation state in the root.
      * Called from {@link MCTSAgentT#act(StateObservation, ElapsedCpuTimer)}.
+     * <p>
+     * If tree reuse is on ({@link ParMCTS#getReuseNodes()} &gt; 0), the tree of the previous search is 
+     * searched for a node with state {@code so} below the action taken, e.g. the grandchild reached by our 
+     * last move and the opponent's reply in a 2-player game (see {@link SingleTreeNode#findDescendant(StateObservation, int, int)}). 
+     * If found and if its subtree has not more than {@link ParMCTS#getReuseNodes()} nodes, it is promoted  
+     * to the new root with all its statistics. Otherwise a new root node is created. After a root-parallel 
+     * search, this is done for all trees: either all of them are reused (with not more than 
+     * {@link ParMCTS#getReuseNodes()} nodes in total) or none, so that no tree gets more weight in the merge. 
+     * States which are not {@link StateObservation#isCacheable() cacheable} are never reused.
+     * 
      * @param so current state of the game.
      */
     public void init(StateObservation so)
@@ -119,16 +164,51 @@ public class SingleMCTSPlayer implements Serializable
     	//--- only for debug ---
     	//System.out.println(a_gameState.toString());
 
+    	lastReusedNodes = 0;
+    	if (m_parMCTS.getReuseNodes() > 0 && so.isCacheable() && m_root != null && m_root.m_state != null) {
+    		SingleTreeNode[] prev = (m_roots != null) ? m_roots : new SingleTreeNode[] { m_root };
+    		SingleTreeNode[] next = new SingleTreeNode[prev.length];
+    		int nodes = 0;
+    		for (int t=0; t<prev.length && nodes <= m_parMCTS.getReuseNodes(); t++) {
+    			next[t] = prev[t].findDescendant(so, lastAction, so.getNumPlayers());
+    			nodes = (next[t] == null) ? Integer.MAX_VALUE : nodes + next[t].numDescendants();
+    		}
+    		if (nodes <= m_parMCTS.getReuseNodes()) {
+    			for (SingleTreeNode node : next) node.promoteToRoot();
+    			m_root = next[0];
+    			m_roots = (next.length > 1) ? next : null;
+    			lastReusedNodes = nodes;
+    			lastAction = -1;
+    			return;
+    		}
+    	}
+    	
     	//Set the game observation to a newly root node.
         //m_root = new SingleTreeNode(m_rnd,this);
         //m_root.state = so;
     	m_root = new SingleTreeNode(so,null,null,m_rnd,this);// /WK/ bug fix: needed if a_gameState  
     														 // allows fewer actions than MCTSAgentT.NUM_ACTIONS 
+    	m_roots = null;
+    	lastAction = -1;
     }
 
     /**
      * Runs MCTS to decide the action to take. It does not reset the tree.
-     * @param elapsedTimer Timer when the action returned is due.
+     * <p>
+     * If {@link ParMCTS#getNumThreads()} &gt; 1, the search is done in parallel, depending on 
+     * {@link ParMCTS#getParallelMode()}:
+     * <ul>
+     * <li> <b>root parallelization</b>: each thread builds its own tree for the root state with 
+     * 		its own share of the iterations; the root statistics of all trees are merged by visit 
+     * 		counts (see {@link SingleTreeNode#mergeRoots(SingleTreeNode[], double[])})
+     * <li> <b>tree parallelization</b>: all threads work on the same tree with virtual loss and 
+     * 		atomic counters (see {@link SingleTreeNode#mctsSearchParallel})
+     * </ul>
+     * If {@link ParMCTS#getMaxTimeMillis()} &gt; 0, the search is time-budgeted: it runs until the 
+     * remaining time of {@code elapsedTimer} is (nearly) used up, irrespective of {@link ParMCTS#getNumIter()}.
+     * 
+     * @param elapsedTimer Timer when the action returned is due (its max time has to be set, 
+     * 		if the search is time-budgeted).
 	 * @param vtable		the score for each available action (corresponding
 	 * 						to sob.getAvailableActions())
      * @return the action to execute in the game.
@@ -136,16 +216,99 @@ public class SingleMCTSPlayer implements Serializable
     public int run(ElapsedCpuTimer elapsedTimer, double[] vtable)
     {
     	this.nRolloutFinished=0;
+    	int numThreads = m_parMCTS.getNumThreads();
+    	int mode = (numThreads > 1) ? m_parMCTS.getParallelMode() : ParMCTS.PARALLEL_NONE; 
+    	long start = System.nanoTime();
+    	int visits0 = m_root.getNVisits();		// > 0, if the tree is reused
+    	int action;
+    	if (mode != ParMCTS.PARALLEL_ROOT) m_roots = null;		// only m_root is searched (and may be reused)
     	
-        //Do the search within the available time.
-        m_root.mctsSearch(elapsedTimer, vtable);
-
-        //Determine the best action to take and return it.
-        //(Choose one of the following two lines)
-        //int action = m_root.mostVisitedAction();
-        int action = m_root.bestAction();
-        
-        return action;
+    	switch (mode) {
+    	case ParMCTS.PARALLEL_ROOT:
+    		action = runRootParallel(elapsedTimer, vtable, numThreads);
+    		break;
+    	case ParMCTS.PARALLEL_TREE:
+    		treeParallel = true;
+    		try {
+    			m_root.mctsSearchParallel(elapsedTimer, vtable, numThreads, getExecutor(numThreads));
+    		} finally {
+    			treeParallel = false;
+    		}
+    		action = m_root.bestAction();
+    		lastIterations = m_root.getNVisits() - visits0;
+    		break;
+    	default:
+	        //Do the search within the available time.
+	        m_root.mctsSearch(elapsedTimer, vtable);
+	
+	        //Determine the best action to take and return it.
+	        //(Choose one of the following two lines)
+	        //int action = m_root.mostVisitedAction();
+	        action = m_root.bestAction();
+	        lastIterations = m_root.getNVisits() - visits0;
+    	}
+    	lastElapsedNanos = System.nanoTime() - start;
+    	lastAction = action;
+    	return action;
+    }
+    
+    /**
+     * Root-parallel search: {@code numThreads} independent trees for the root state, each with its own
+     * random generator and with {@code 1/numThreads} of the iterations (or, if time-budgeted, with the 
+     * whole remaining time of {@code elapsedTimer}). {@link #m_root} is the first of them.
+     * 
+     * @return the index of the best action according to the merged root statistics
+     */
+    private int runRootParallel(ElapsedCpuTimer elapsedTimer, double[] vtable, int numThreads) {
+    	SingleTreeNode[] roots = new SingleTreeNode[numThreads];
+    	if (m_roots == null || m_roots.length != numThreads) {
+    		// no reused trees for all threads: start all trees anew (a reused m_root alone would get more 
+    		// weight in the merge than the others)
+    		if (m_root.getNVisits() > 0) m_root = new SingleTreeNode(m_root.m_state,null,null,m_rnd,this);
+    		m_roots = null;
+    	}
+    	List<Callable<Integer>> callables = new ArrayList<>();
+    	int numIters = getNUM_ITERS();
+    	long budgetNanos = (getMaxTimeMillis() > 0) ? elapsedTimer.remainingTimeMillis()*1000000L : 0;
+    	for (int t=0; t<numThreads; t++) {
+    		roots[t] = (t==0) ? m_root 
+    				 : (m_roots != null) ? m_roots[t]
+    				 : new SingleTreeNode(m_root.m_state,null,null,new Random(m_rnd.nextLong()),this);
+    		final SingleTreeNode root = roots[t];
+    		final int iters = numIters/numThreads + ((t < numIters%numThreads) ? 1 : 0);
+    		callables.add(() -> root.mctsSearchLoop(iters, budgetNanos));
+    	}
+    	lastIterations = 0;
+        try {
+            getExecutor(numThreads).invokeAll(callables).stream().forEach(future -> {
+                try {
+                    lastIterations += future.get();
+                }
+                catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    	m_roots = roots;
+    	return SingleTreeNode.mergeRoots(roots, vtable);
+    }
+    
+    /**
+     * The executors are never shut down, since another agent may still use them. Their worker 
+     * threads are daemon threads which terminate when idle.
+     */
+    private static synchronized ExecutorService getExecutor(int numThreads) {
+    	return executors.computeIfAbsent(numThreads, Executors::newWorkStealingPool);
+    }
+    
+    boolean isTreeParallel() {
+    	return treeParallel;
+    }
+    
+    synchronized void incrementRolloutFinished() {
+    	nRolloutFinished++;
     }
 
     public int getNUM_ACTIONS() {
@@ -164,6 +327,13 @@ public class SingleMCTSPlayer implements Serializable
 		return m_parMCTS.getNumIter();
 	}
 
+    /**
+     * @return the time budget per move in ms (0: iteration-based search)
+     */
+    public int getMaxTimeMillis() {
+		return m_parMCTS.getMaxTimeMillis();
+	}
+
 	public double getK() {
 		return m_parMCTS.getK_UCT();
 	}
@@ -180,6 +350,28 @@ public class SingleMCTSPlayer implements Serializable
         return nRolloutFinished;
     }
 
+    /**
+     * @return the number of iterations of the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @return the iterations per second (wall-clock) of the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    public double getLastIterationsPerSecond() {
+        return (lastElapsedNanos > 0) ? lastIterations*1e9/lastElapsedNanos : 0;
+    }
+
+    /**
+     * @return the number of nodes retained from the previous search by the last call to 
+     * 		{@link #init(StateObservation)} (0, if the tree was not reused)
+     */
+    public int getLastReusedNodes() {
+        return lastReusedNodes;
+    }
+
     public ParMCTS getParMCTS() {
 		return m_parMCTS;
 	}
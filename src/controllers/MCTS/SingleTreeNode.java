@@ -7,7 +7,17 @@ import tools.Types;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 //import controllers.MCTS0.SingleTreeNode0;
 
@@ -29,12 +39,36 @@ public class SingleTreeNode implements Serializable
 	 */
 	public Types.ACTIONS m_act = null; 
 	/**
-	 * the total value of {@code this} as a child for the parent of {@code this}
+	 * the total value of {@code this} as a child for the parent of {@code this}, stored as 
+	 * double bits, so that it can be updated atomically in tree-parallel search (see {@link #getTotValue()})
 	 */
-	public double totValue;
-	private int nVisits=0;
-	public static Random m_rnd = null;
+	private volatile long totValueBits = Double.doubleToRawLongBits(0.0);
+	private volatile int nVisits=0;
+	/**
+	 * number of non-null elements in {@link #children} (written after the child is set, so that a 
+	 * thread which reads {@code nExpanded==children.length} sees all children)
+	 */
+	private volatile int nExpanded=0;
+	/**
+	 * number of nodes in the subtree of {@code this} (including {@code this}), incremented for all 
+	 * ancestors in {@link #expand()}
+	 */
+	private volatile int nNodes=1;
+	/**
+	 * the random generator of this node, passed in by the constructor (from {@link SingleMCTSPlayer}, which 
+	 * is where to seed it). This was once a public static field, shared by the nodes of all MCTS agents. Now 
+	 * each tree has its own generator, so that parallel searches and several agents do not share one; use 
+	 * {@link #getRandom()} to read it.
+	 */
+	private Random m_rnd = null;
 	private int m_depth;
+	
+	private static final AtomicIntegerFieldUpdater<SingleTreeNode> VISITS =
+			AtomicIntegerFieldUpdater.newUpdater(SingleTreeNode.class, "nVisits");
+	private static final AtomicLongFieldUpdater<SingleTreeNode> TOTVALUE =
+			AtomicLongFieldUpdater.newUpdater(SingleTreeNode.class, "totValueBits");
+	private static final AtomicIntegerFieldUpdater<SingleTreeNode> NODES =
+			AtomicIntegerFieldUpdater.newUpdater(SingleTreeNode.class, "nNodes");
 //	private static double[] lastBounds = new double[] { 0, 1 };
 //	private static double[] curBounds = new double[] { 0, 1 };
 	/**
@@ -93,7 +127,6 @@ public class SingleTreeNode implements Serializable
 		}
 		assert (children != null ) : "Oops, children == null!";
 		
-		totValue = 0.0;
 		if (parent == null)
 			m_depth = 0;
 		else
@@ -105,7 +138,9 @@ public class SingleTreeNode implements Serializable
 	 * the state in {@code this}, the root node of the tree. <br>
 	 * <p>
 	 *
-	 * MCTS search: Do for {@code m_player.NUM_ITERS} iterations:
+	 * MCTS search: Do for {@code m_player.NUM_ITERS} iterations (or, if a time budget 
+	 * {@link SingleMCTSPlayer#getMaxTimeMillis()} &gt; 0 is set, as long as the remaining time of 
+	 * {@code elapsedTimer} is larger than twice the average iteration time):
 	 * <ul>
 	 * <li>select a leaf node via {@link #treePolicy()} (this includes UCT or other select modes and 
 	 *    {@link #expand()} of not fully expanded nodes, as long as the maximum
@@ -127,7 +162,7 @@ public class SingleTreeNode implements Serializable
 	 * </pre>
 	 * 
 	 * @param elapsedTimer
-	 *            currently not used
+	 *            only used if a time budget is set: the timer with the budget as max time
 	 * @param VTable
 	 *            on input an array of length K+1, where K is the number of
 	 *            available moves for the root state. Contains on output
@@ -145,12 +180,13 @@ public class SingleTreeNode implements Serializable
 		double acumTimeTaken = 0;
 		long remaining = elapsedTimer.remainingTimeMillis();
 		int numIters = 0;
+		int visits0 = this.nVisits;		// > 0, if this is a reused subtree (tree reuse)
 
-		int remainingLimit = 5;
-		while (numIters < m_player.getNUM_ITERS()) { // /WK/ fixed number of
-														// iterations while
-														// debugging
-			// while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
+		int maxTime = m_player.getMaxTimeMillis();
+		int remainingLimit = (maxTime > 0) ? Math.min(5, maxTime/10) : 5;
+		while ((maxTime > 0) 
+				? (numIters==0 || (remaining > 2*avgTimeTaken && remaining > remainingLimit))	// time budget
+				: (numIters < m_player.getNUM_ITERS())) { 		// /WK/ fixed number of iterations
 			ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
 			SingleTreeNode selected = treePolicy();
 			
@@ -180,7 +216,7 @@ public class SingleTreeNode implements Serializable
 			// elapsedMillis="+elapsedTimer.elapsedMillis());
 
 			numIters++;
-			acumTimeTaken += (elapsedTimerIteration.elapsedMillis());
+			acumTimeTaken += (elapsedTimerIteration.elapsed()/1e6);	// in ms, not truncated
 
 			avgTimeTaken = acumTimeTaken / numIters;
 			remaining = elapsedTimer.remainingTimeMillis();
@@ -188,6 +224,151 @@ public class SingleTreeNode implements Serializable
 			// " + acumTimeTaken + " (" + remaining + ")");
 		}
 
+		finishSearch(VTable, numIters, visits0, avgTimeTaken);
+	}
+
+	/**
+	 * Perform a tree-parallel MCTS search: {@code numThreads} threads run the iterations of 
+	 * {@link #mctsSearch(ElapsedCpuTimer, double[])} concurrently on the tree rooted at {@code this}. 
+	 * Each thread adds a virtual loss to the nodes it selects in {@link #treePolicy(boolean)} (one visit 
+	 * with the worst possible value), so that concurrent threads are steered to different paths. The virtual 
+	 * loss is replaced by the real rollout value in {@link #backUp(SingleTreeNode, double[], boolean)}. Visit  
+	 * and value counters are updated atomically. 
+	 * 
+	 * @param elapsedTimer	only used if a time budget is set: its remaining time is the (wall-clock) 
+	 * 						budget shared by all threads
+	 * @param VTable		see {@link #mctsSearch(ElapsedCpuTimer, double[])}
+	 * @param numThreads	number of threads
+	 * @param executorService	the executor running the threads
+	 * 
+	 * @see SingleMCTSPlayer#run(ElapsedCpuTimer, double[])
+	 */
+	public void mctsSearchParallel(ElapsedCpuTimer elapsedTimer, double[] VTable, int numThreads, 
+			ExecutorService executorService) {
+		final boolean timeBudget = (m_player.getMaxTimeMillis() > 0);
+		final int maxIters = timeBudget ? Integer.MAX_VALUE : m_player.getNUM_ITERS();
+		final long budgetNanos = timeBudget ? elapsedTimer.remainingTimeMillis()*1000000L : 0;
+		final AtomicInteger iterCounter = new AtomicInteger(0);
+		ElapsedCpuTimer searchTimer = new ElapsedCpuTimer();
+		final long start = System.nanoTime();
+		int visits0 = this.nVisits;
+		List<Callable<Integer>> callables = new ArrayList<>();
+		for (int t=0; t<numThreads; t++) {
+			callables.add(() -> {
+				int count=0;
+				while ((!timeBudget || hasTimeFor(start, budgetNanos, count)) 
+						&& iterCounter.getAndIncrement() < maxIters) {
+					SingleTreeNode selected = treePolicy(true);
+					double [] delta = selected.rollOut();
+					backUp(selected,delta,true);
+					count++;
+				}
+				return count;
+			});
+		}
+		int numIters = 0;
+		try {
+			for (Future<Integer> future : executorService.invokeAll(callables)) 
+				numIters += future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("[SingleTreeNode.mctsSearchParallel] "+e.getMessage(), e);
+		}
+		
+		finishSearch(VTable, numIters, visits0, (numIters==0) ? 0 : searchTimer.elapsedMillis()/(double)numIters);
+	}
+	
+	/**
+	 * Root-parallel MCTS: merge the root statistics of {@code roots}, which are independent trees 
+	 * (searched by {@link #mctsSearchLoop(int, long)}) for the same state. For each action, the values and 
+	 * visit counts of the corresponding root children are summed up over all trees (i.e. the 
+	 * trees are merged weighted by visit counts).
+	 *  
+	 * @param roots		the root nodes, all for the same state
+	 * @param VTable	see {@link #mctsSearch(ElapsedCpuTimer, double[])}, here filled with the merged values
+	 * @return the index of the action with the highest merged value
+	 */
+	public static int mergeRoots(SingleTreeNode[] roots, double[] VTable) {
+		SingleTreeNode r0 = roots[0];
+		int K = r0.children.length;
+		double[] totV = new double[K];
+		int[] visits = new int[K];
+		for (SingleTreeNode r : roots) {
+			for (int i = 0; i < K; i++) {
+				if (r.children[i]!=null) {
+					totV[i] += r.children[i].getTotValue();
+					visits[i] += r.children[i].nVisits;
+				}
+			}
+		}
+		double bestValue = -Double.MAX_VALUE;
+		double deltaGS = (r0.m_state.getMaxGameScore()-r0.m_state.getMinGameScore());
+		double minGS = r0.m_state.getMinGameScore();
+		int selected = -1;
+		for (int i = 0; i < K; i++) {
+			if (visits[i]==0) continue;
+			double v = totV[i]/visits[i];
+			VTable[i] = (r0.m_player.getNormalize()) ? v*deltaGS + minGS : v;
+			double dTotVal = v + r0.m_rnd.nextDouble() * epsilon;
+			if (dTotVal > bestValue) {
+				bestValue = dTotVal;
+				selected = i;
+			}
+		}
+		assert (selected != -1) : "Selection in mergeRoots() did not work!";
+		VTable[K] = VTable[selected];
+		
+		if (r0.m_player.getVerbosity() > 0) {
+			int numIters = 0;
+			for (SingleTreeNode r : roots) numIters += r.nVisits;
+			System.out.println("--  iter=" + numIters + " -- "+" "+r0.m_state.stringDescr()+" ( root-parallel, trees="
+					+ roots.length + ")  bestAction="+selected);
+		}
+		return selected;
+	}
+	
+	/**
+	 * Run {@code maxIters} MCTS iterations (tree policy, rollout, backup) on the tree rooted at {@code this}
+	 * 
+	 * @param maxIters	number of iterations
+	 * @param budgetNanos	if &gt; 0, the (wall-clock) time budget in ns: run until it is (nearly) used 
+	 * 					up, see {@link #hasTimeFor(long, long, int)}, and ignore {@code maxIters}
+	 * @return the number of iterations done
+	 */
+	public int mctsSearchLoop(int maxIters, long budgetNanos) {
+		int numIters = 0;
+		long start = System.nanoTime();
+		while ((budgetNanos > 0) ? hasTimeFor(start, budgetNanos, numIters) : (numIters < maxIters)) {
+			SingleTreeNode selected = treePolicy();
+			double [] delta = selected.rollOut();
+			backUp(selected,delta);
+			numIters++;
+		}
+		return numIters;
+	}
+	
+	/**
+	 * The stopping rule of a time-budgeted search, as in {@link #mctsSearch(ElapsedCpuTimer, double[])}: 
+	 * another iteration is started if the remaining time is larger than twice the average iteration 
+	 * time so far and larger than a safety limit (5 ms or 1/10 of the budget, whatever is smaller). 
+	 * The first iteration is always done. 
+	 * 
+	 * @param start		start time of the search ({@link System#nanoTime()})
+	 * @param budgetNanos	time budget in ns
+	 * @param numIters	number of iterations done so far (by the calling thread)
+	 */
+	static boolean hasTimeFor(long start, long budgetNanos, int numIters) {
+		if (numIters==0) return true;
+		long elapsed = System.nanoTime() - start;
+		long remaining = budgetNanos - elapsed;
+		return remaining > 2*elapsed/numIters && remaining > Math.min(5000000L, budgetNanos/10);
+	}
+	
+	/**
+	 * Fill {@code VTable} from the children of {@code this} and do diagnostic checks and printouts
+	 * 
+	 * @param visits0	the visits of {@code this} before the search (&gt; 0 only for a reused subtree)
+	 */
+	private void finishSearch(double[] VTable, int numIters, int visits0, double avgTimeTaken) {
 		// fill VTable
 		double bestValue = -Double.MAX_VALUE;
 		double v;
@@ -198,7 +379,7 @@ public class SingleTreeNode implements Serializable
 			for (int i = 0; i < children.length; i++) {
 				if (children[i]!=null) {	// needed for safety (RubiksCube & default start state)
 					if (children[i].m_act == m_state.getAction(k)) {
-						v = children[i].totValue / children[i].nVisits;
+						v = children[i].getTotValue() / children[i].nVisits;
 						if (m_player.getNormalize()) {
 							VTable[k] = v*deltaGS + minGS;		// map back to interval [minGS,maxGS]
 						} else {
@@ -213,7 +394,7 @@ public class SingleTreeNode implements Serializable
 
 		// /WK/ here follow some diagnostic checks (not required for normal operation)
 		
-		assert this.nVisits == numIters : "mroot's visits do not match numIters!";
+		assert this.nVisits == visits0 + numIters : "mroot's visits do not match numIters!";
 		this.printChildInfo(0, true);
 
 		/*
@@ -237,8 +418,9 @@ public class SingleTreeNode implements Serializable
 					"--  iter=" + numIters + " -- "+
 							
 					" "+m_state.stringDescr()+" "+
-					"( nodes=" + this.numDescendants() + ", time=" + avgTimeTaken + ")"+
-					"  value = "+this.totValue/this.nVisits + "this total value " + this.totValue );
+					"( nodes=" + this.numDescendants() + ", time=" + avgTimeTaken 
+					+ ", iter/s=" + ((avgTimeTaken > 0) ? Math.round(1000/avgTimeTaken) : "--") + ")"+
+					"  value = "+this.getTotValue()/this.nVisits + "this total value " + this.getTotValue() );
 			// for UCT and more than 10.000 iteration, bestAction() and  
 			// mostVisitedAction() are normally the same:
 			System.out.println("-- bestAction="+this.bestAction()+
@@ -262,10 +444,10 @@ public class SingleTreeNode implements Serializable
 			if (c != null) {
 				cVisits += c.nVisits;
 				if (verbose > 1) { 	// =2: print direct child info
-					double uct_exploit = c.totValue / (c.nVisits + this.epsilon);
+					double uct_exploit = c.getTotValue() / (c.nVisits + SingleTreeNode.epsilon);
 					double uct_explore = m_player.getK()
-							* Math.sqrt(2*Math.log(this.nVisits + 1) / (c.nVisits + this.epsilon));
-//							* Math.pow(Math.log(this.nVisits + 1) / (c.nVisits + this.epsilon),4.0);
+							* Math.sqrt(2*Math.log(this.nVisits + 1) / (c.nVisits + SingleTreeNode.epsilon));
+//							* Math.pow(Math.log(this.nVisits + 1) / (c.nVisits + SingleTreeNode.epsilon),4.0);
 					double c_value = c.allChildrenValue();
 					if (c.m_state.getNumPlayers()==2) c_value = negate(c_value);
 					// Why is uct_exploit=c.totValue/c.nVisits not the same as c.allChildrenvalue()? - 
@@ -303,7 +485,7 @@ public class SingleTreeNode implements Serializable
 		double visits = 0;
 		for (SingleTreeNode c : this.children) {
 			if (c!=null) {
-				val+=c.totValue;
+				val+=c.getTotValue();
 				visits+=c.nVisits;
 			}
 		}
@@ -312,32 +494,98 @@ public class SingleTreeNode implements Serializable
 	}
 
 	public SingleTreeNode treePolicy() {
+		return treePolicy(false);
+	}
+
+	/**
+	 * @param virtualLoss	if true, add a virtual loss to each node on the selected path 
+	 * 						(needed for tree-parallel search, see {@link #mctsSearchParallel})
+	 * @return the selected leaf node
+	 */
+	private SingleTreeNode treePolicy(boolean virtualLoss) {
 
 		SingleTreeNode cur = this;
+		if (virtualLoss) cur.addVirtualLoss();
 		while (!cur.m_state.isGameOver() && cur.m_depth < m_player.getTREE_DEPTH()) 
 		{
 			if (cur.notFullyExpanded()) {
-				return cur.expand();
-
-			} else {
-				switch(m_player.getParMCTS().getSelectMode()) {
-				case 0: 
-					cur = cur.uct();
-					break;
-				case 1: 
-					cur = cur.egreedy();
-					break; 
-				case 2: 
-					cur = cur.rouletteWheel();
-					break; 
-				default: 
-					throw new RuntimeException("this selectMode ("+m_player.getParMCTS().getSelectMode()+")is not implemented");
+				SingleTreeNode tn = cur.expand();
+				if (tn != null) {
+					if (virtualLoss) tn.addVirtualLoss();
+					return tn;
 				}
+				// tn==null can only happen in tree-parallel search: another thread has expanded  
+				// the last child of cur in the meantime --> continue with selection
+			} 
+			switch(m_player.getParMCTS().getSelectMode()) {
+			case 0: 
+				cur = cur.uct();
+				break;
+			case 1: 
+				cur = cur.egreedy();
+				break; 
+			case 2: 
+				cur = cur.rouletteWheel();
+				break; 
+			default: 
+				throw new RuntimeException("this selectMode ("+m_player.getParMCTS().getSelectMode()+")is not implemented");
 			}
+			if (virtualLoss) cur.addVirtualLoss();
 		}
 		
 		return cur;
 	}
+	
+	/**
+	 * Add a virtual loss to {@code this}: one visit with the worst possible value
+	 * 
+	 * @see #backUp(SingleTreeNode, double[], boolean)
+	 */
+	private void addVirtualLoss() {
+		VISITS.incrementAndGet(this);
+		if (parent != null) addTotValue(virtualLossValue());
+	}
+	
+	private double virtualLossValue() {
+		return (m_player.getNormalize()) ? 0.0 : m_state.getMinGameScore();
+	}
+	
+	/**
+	 * @return the total value of {@code this} as a child for the parent of {@code this}
+	 */
+	public double getTotValue() {
+		return Double.longBitsToDouble(totValueBits);
+	}
+	
+	/**
+	 * @return the number of visits of {@code this} (for the root node: the number of iterations done)
+	 */
+	public int getNVisits() {
+		return nVisits;
+	}
+	
+	private void addTotValue(double delta) {
+		long prev, next;
+		do {
+			prev = totValueBits;
+			next = Double.doubleToRawLongBits(Double.longBitsToDouble(prev) + delta);
+		} while (!TOTVALUE.compareAndSet(this, prev, next));
+	}
+	
+	/**
+	 * @return the random generator {@link #m_rnd} of this node
+	 */
+	public Random getRandom() {
+		return m_rnd;
+	}
+
+	/**
+	 * @return the random generator for this node: the node's generator {@link #m_rnd} or, in tree-parallel
+	 * search, a thread-local generator (to avoid contention on a shared generator)
+	 */
+	private Random rnd() {
+		return (m_player.isTreeParallel()) ? ThreadLocalRandom.current() : m_rnd;
+	}
 
 	/**
 	 * Expand the current node {@code this}, i. e. select randomly one of those
@@ -347,15 +595,18 @@ public class SingleTreeNode implements Serializable
 	 * 
 	 * @return {@code children[i]}
 	 */
-	public SingleTreeNode expand() {
+	public synchronized SingleTreeNode expand() {
 
 		int bestAction = 0;
 		double bestValue = -1;
+		Random rnd = rnd();
+		
+		if (nExpanded == children.length) return null;		// only possible in tree-parallel search
 
 		//System.out.println("expand() for m_state.actions.length = "+m_state.getNumAvailableActions());
 
         for (int i = 0; i < children.length; i++) {
-            double x = m_rnd.nextDouble();
+            double x = rnd.nextDouble();
             if (x > bestValue && children[i] == null) {
                 bestAction = i;
                 bestValue = x;
@@ -372,6 +623,9 @@ public class SingleTreeNode implements Serializable
 
 		SingleTreeNode tn = new SingleTreeNode(nextState, actBest, this, this.m_rnd, this.m_player);
 		children[bestAction] = tn;
+		nExpanded++;
+		for (SingleTreeNode n = this; n != null; n = n.parent) 
+			NODES.incrementAndGet(n);
 		return tn;
 
 	}
@@ -392,12 +646,12 @@ public class SingleTreeNode implements Serializable
 		for (SingleTreeNode child : this.children) 
 		{
 			if (child != null) {
-				double childValue = child.totValue / (child.nVisits + this.epsilon);
+				double childValue = child.getTotValue() / (child.nVisits + SingleTreeNode.epsilon);
 				if (m_player.getNormalize()) assert (childValue >= 0) : "childValue is negative";
 					
 				double uctValue = childValue
-						+ m_player.getK() * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + this.epsilon))
-						+ this.m_rnd.nextDouble() * this.epsilon;
+						+ m_player.getK() * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + SingleTreeNode.epsilon))
+						+ rnd().nextDouble() * SingleTreeNode.epsilon;
 						// small random numbers: break ties in unexpanded nodes
 
 				if (uctValue > bestValue) {
@@ -427,9 +681,10 @@ public class SingleTreeNode implements Serializable
 		SingleTreeNode selected = null;
 		double epsGreedy = m_player.getParMCTS().getEpsGreedy();
 
-		if (m_rnd.nextDouble() < epsGreedy) {
+		Random rnd = rnd();
+		if (rnd.nextDouble() < epsGreedy) {
 			// Choose randomly
-			int selectedIdx = m_rnd.nextInt(children.length);
+			int selectedIdx = rnd.nextInt(children.length);
 			selected = this.children[selectedIdx];
 
 		} else {
@@ -437,8 +692,8 @@ public class SingleTreeNode implements Serializable
 			double bestValue = -Double.MAX_VALUE;
 			for (SingleTreeNode child : this.children) {
 				if (child != null) {
-					double eVal = child.totValue / (child.nVisits + this.epsilon)
-							+ this.m_rnd.nextDouble() * this.epsilon;
+					double eVal = child.getTotValue() / (child.nVisits + SingleTreeNode.epsilon)
+							+ rnd.nextDouble() * SingleTreeNode.epsilon;
 							// small sampleRandom numbers: break ties in unexpanded nodes
 				
 					if (eVal > bestValue) {
@@ -476,7 +731,7 @@ public class SingleTreeNode implements Serializable
      */
     public SingleTreeNode rouletteWheel() {
     	// TODO: implement one-move wins and one-move losses acc. to [Swiechowski15]
-        double rnd = m_rnd.nextDouble();
+        double rnd = rnd().nextDouble();
         double vTotal = 0.0;
         double vMin = 0.0;
         double cumProb = 0.0;		// cumulative probability of all children up to current child
@@ -492,12 +747,12 @@ public class SingleTreeNode implements Serializable
 		vMin = (m_player.getNormalize()) ? 0.0 : m_state.getMinGameScore();
         for (SingleTreeNode child : this.children) {
         	if (child != null) {
-            	vTotal += (child.totValue/child.nVisits)-vMin; 
+            	vTotal += (child.getTotValue()/child.nVisits)-vMin; 
         	}
         }
         for (SingleTreeNode child : this.children) {
         	if (child != null) {
-            	cumProb = cumProb + ((child.totValue/child.nVisits)-vMin)/vTotal;
+            	cumProb = cumProb + ((child.getTotValue()/child.nVisits)-vMin)/vTotal;
             	child.cumProb = cumProb;
             	// We do not really need child.cumProb, we could just work with the local variable
             	// cumProb. We have child.cumProb only for debugging purposes in order to have in 
@@ -530,6 +785,7 @@ public class SingleTreeNode implements Serializable
 	{
 		StateObservation rollerState = m_state.copy();
 		int thisDepth = this.m_depth;
+		Random rnd = rnd();
 
 		while (!finishRollout(rollerState, thisDepth)) {
 			//rollerState.setAvailableActions();	// /WK/ commented out since every advance() includes setAvailableActions()
@@ -539,12 +795,12 @@ public class SingleTreeNode implements Serializable
 			if (rollerState.getNumAvailableActions()==0) {
 				throw new RuntimeException("Oops, there are no available actions for current player!");
 			}
-			int action = m_rnd.nextInt(rollerState.getNumAvailableActions());
+			int action = rnd.nextInt(rollerState.getNumAvailableActions());
 			rollerState.advance(rollerState.getAction(action));
 			thisDepth++;
 		}
 		if (rollerState.isGameOver())
-			m_player.nRolloutFinished++;
+			m_player.incrementRolloutFinished();
 		double[] delta = value(rollerState);
 		// // /WK/ not really clear what the following normalizations are for.
 		// // Is it part of MCTS or part of the special GVGP implementation?
@@ -802,11 +1058,22 @@ public class SingleTreeNode implements Serializable
 	 * @param delta the reward vector returned from {@link #rollOut()}
 	 */
 	public void backUp(SingleTreeNode selected, double [] delta) 
+	{
+		backUp(selected, delta, false);
+	}
+	
+	/**
+	 * @param selected	the leaf selected by {@link #treePolicy(boolean)}
+	 * @param delta 	the reward vector returned from {@link #rollOut()}
+	 * @param virtualLoss	if true, replace the virtual loss added in {@link #treePolicy(boolean)} 
+	 * 					by {@code delta} (the visits were already counted there)
+	 */
+	private void backUp(SingleTreeNode selected, double [] delta, boolean virtualLoss) 
 	{
 		SingleTreeNode n = selected;
 		int pPlayer;
 		while (n != null) {
-			n.nVisits++;
+			if (!virtualLoss) VISITS.incrementAndGet(n);
 			
 			if (n.parent != null) {
 				// Why do we test on n.parent here? - Because we need n.parent to know the player
@@ -816,7 +1083,7 @@ public class SingleTreeNode implements Serializable
 				// node is not the child of anyone.  
 				// [Note that uct() needs mroot.nVisits, that's why we increment nVisits for all n.]
 				pPlayer = n.parent.m_state.getPlayer();	// pPlayer: the player preceding n's player
-				n.totValue += delta[pPlayer];	// backup delta for pPlayer
+				n.addTotValue(virtualLoss ? delta[pPlayer]-n.virtualLossValue() : delta[pPlayer]);	// backup delta for pPlayer
 			}
 			// Why pPlayer? - This is for the same reason why we call in backUp2Player() negate *before* the  
 			// first '+=' to n.totValue is made: If the result of a random roll-out from n as a leaf is a loss  
@@ -902,7 +1169,7 @@ public class SingleTreeNode implements Serializable
 		for (int i = 0; i < children.length; i++) {
 			if (children[i] != null) {
 				tieBreaker = m_rnd.nextDouble() * epsilon;
-				dTotVal = children[i].totValue / children[i].nVisits + tieBreaker;
+				dTotVal = children[i].getTotValue() / children[i].nVisits + tieBreaker;
 				// /WK/: bug fix: '/children[i].nVisits' added (!)
 				if (children[i] != null && dTotVal > bestValue) {
 					bestValue = dTotVal;
@@ -917,27 +1184,70 @@ public class SingleTreeNode implements Serializable
 	}
 
 	public boolean notFullyExpanded() {
-		for (SingleTreeNode tn : children) {
-			if (tn == null) {
-				return true;
+		return nExpanded < children.length;
+	}
+
+	/**
+	 * Tree reuse: search the subtree of child {@code children[action]} (the action taken from the root 
+	 * {@code this} of the previous search) down to {@code maxLevel} levels below {@code this} (breadth-first) 
+	 * for a node whose state equals {@code so}: it has the same {@link StateObservation#getHash()}, the same 
+	 * player to move and the same move counter. The caller has to check that {@code so} is 
+	 * {@link StateObservation#isCacheable() cacheable}.
+	 * 
+	 * @param so		the state to find
+	 * @param action	the index of the action taken from {@code this}
+	 * @param maxLevel	the maximum number of levels to search (e.g. the number of players, if {@code so} 
+	 * 					is the state after all opponents' replies)
+	 * @return the matching node or {@code null}, if there is none
+	 */
+	public SingleTreeNode findDescendant(StateObservation so, int action, int maxLevel) {
+		if (action < 0 || action >= children.length || children[action] == null) return null;
+		long hash = so.getHash();
+		List<SingleTreeNode> level = new ArrayList<>();
+		level.add(children[action]);
+		for (int l=1; l<=maxLevel && !level.isEmpty(); l++) {
+			List<SingleTreeNode> next = new ArrayList<>();
+			for (SingleTreeNode n : level) {
+				if (n.m_state.getHash()==hash && n.m_state.getPlayer()==so.getPlayer() 
+						&& n.m_state.getMoveCounter()==so.getMoveCounter())
+					return n;
+				for (SingleTreeNode c : n.children) 
+					if (c != null) next.add(c);
 			}
+			level = next;
 		}
-
-		return false;
+		return null;
+	}
+	
+	/**
+	 * Tree reuse: make {@code this} the root of a new tree. It is detached from its parent and the depth 
+	 * of all nodes in its subtree is shifted, so that {@code this} has depth 0. The visit counts and values 
+	 * of the subtree are retained, except for the 'birth' visit of {@code this} (a root node has as many 
+	 * visits as all its children, see {@link #printChildInfo(int, boolean)}).
+	 */
+	public void promoteToRoot() {
+		this.parent = null;
+		this.m_act = null;
+		int cVisits = 0;
+		for (SingleTreeNode c : this.children)
+			if (c != null) cVisits += c.nVisits;
+		this.nVisits = cVisits;
+		shiftDepth(-this.m_depth);
+	}
+	
+	private void shiftDepth(int delta) {
+		this.m_depth += delta;
+		for (SingleTreeNode c : this.children)
+			if (c != null)
+				c.shiftDepth(delta);
 	}
 
 	/**
-	 * just for diagnostics:
-	 * 
-	 * @return number of nodes in the MCTS tree from {@code this} downwards. <br>
+	 * @return number of nodes in the MCTS tree from {@code this} downwards (a counter, O(1)). <br>
 	 * 		   If {@code this} is the root node, it is the number of nodes in the whole tree. 
 	 */
 	public int numDescendants() {
-		int N = 1; // include this
-		for (SingleTreeNode c : this.children)
-			if (c != null)
-				N += c.numDescendants();
-		return N;
+		return nNodes;
 	}
 
 }
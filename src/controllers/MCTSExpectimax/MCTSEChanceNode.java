@@ -5,6 +5,7 @@ import games.ZweiTausendAchtundVierzig.ConfigGame;
 import games.ZweiTausendAchtundVierzig.Heuristic.HeuristicSettings2048;
 import params.ParMCTSE;
 import games.ZweiTausendAchtundVierzig.StateObserver2048;
+import tools.ElapsedCpuTimer;
 import tools.Types;
 
 import java.text.DecimalFormat;
@@ -87,9 +88,10 @@ public class MCTSEChanceNode
      * in the root node of the tree. The tree consists of alternating layers of {@link MCTSETreeNode}
      * and {@link MCTSEChanceNode}.
      * <p>
-     * Called by {@link MCTSEPlayer#run(double[])}.
+     * Called by {@link MCTSEPlayer#run(ElapsedCpuTimer, double[])}.
      * <p>
-     * Do for {@code player.NUM_ITERS} iterations:
+     * Do for {@code player.NUM_ITERS} iterations (or, if {@code elapsedTimer} is not null, as long as 
+     * its remaining time is larger than twice the average iteration time):
      * <ul>
      * <li> select a {@link MCTSEChanceNode} leaf node via {@link #treePolicy()} (this
      *      includes {@link #expand()} of not fully expanded nodes, as long as the maximum tree
@@ -106,12 +108,24 @@ public class MCTSEChanceNode
      * <pre>
      *        U(i) = childrenNodes[i].value / childrenNodes[i].visits
      * </pre>
+     * @param elapsedTimer if not null, the timer with the time budget as max time (time-budgeted 
+     * 		  search). If null, the search is iteration-based.
      * @param vTable on input an array of length K+1, where K is the number of available
      * 		  moves for the root state. Contains on output {@code U(i)} in the first 
      * 		  K entries and the maximum of all {@code U(i)} in {@code vTable[K]}
      */
-    public void mctseSearch(double[] vTable) {
-    	while (iterations < m_player.getNUM_ITERS()) {
+    public void mctseSearch(ElapsedCpuTimer elapsedTimer, double[] vTable) {
+    	long startTime = System.nanoTime();
+    	double avgTimeTaken = 0;
+    	double acumTimeTaken = 0;
+    	long remaining = (elapsedTimer!=null) ? elapsedTimer.remainingTimeMillis() : 0;
+    	long remainingLimit = Math.min(5, remaining/10);
+    	int numIters = 0;
+    	while ((elapsedTimer!=null) 
+    			? (numIters==0 || (remaining > 2*avgTimeTaken && remaining > remainingLimit))	// time budget
+    			: (iterations < m_player.getNUM_ITERS())) {
+    		long iterStart = System.nanoTime();
+    		
             //select a child node
             MCTSEChanceNode selected = treePolicy();
 
@@ -141,7 +155,14 @@ public class MCTSEChanceNode
             selected.backUp(score);
 
             iterations++;
+            numIters++;
+            if (elapsedTimer!=null) {
+            	acumTimeTaken += (System.nanoTime()-iterStart)/1e6;
+            	avgTimeTaken = acumTimeTaken / numIters;
+            	remaining = elapsedTimer.remainingTimeMillis();
+            }
         }
+        long elapsedNanos = System.nanoTime() - startTime;
 
         // fill vTable
         for (int i = 0; i < so.getNumAvailableActions(); i++) {
@@ -162,7 +183,8 @@ public class MCTSEChanceNode
 					"--  iter=" + iterations + " -- (tree/chance)-nodes=(" +
 					m_player.getRootNode().numberTreeNodes+"/"+
 					m_player.getRootNode().numberChanceNodes + ") = "+ 
-					this.numDescendants(0));
+					this.numDescendants(0) + ", iter/s=" + 
+					((elapsedNanos > 0) ? Math.round(numIters*1e9/elapsedNanos) : "--"));
     }
 
     /**
@@ -8,6 +8,7 @@ import games.ZweiTausendAchtundVierzig.Heuristic.HeuristicSettings2048;
 //import params.MCTSParams;
 import params.ParMCTSE;
 import params.ParOther;
+import tools.ElapsedCpuTimer;
 import tools.Types;
 
 import java.util.ArrayList;
@@ -30,6 +31,12 @@ public class MCTSEPlayer
     private Random random;
 
     public int nRolloutFinished = 0;		// counts the number of rollouts ending with isGameOver==true
+    
+    /**
+     * number of iterations and elapsed time of the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    private transient int lastIterations = 0;
+    private transient long lastElapsedNanos = 0;
 
 	/**
 	 * Member {@link #mctsExpectimaxParams} is only needed for saving and loading the agent
@@ -97,7 +104,7 @@ public class MCTSEPlayer
     		int numIters=this.getNUM_ITERS();
     		this.mctsExpectimaxParams.setNumIter(100);
     		double[] VTable = new double[actions.size()+1];
-    		this.getRootNode().mctseSearch(VTable);
+    		this.getRootNode().mctseSearch(null, VTable);
     		double maxRolloutScore = rootNode.maxRolloutScore;
     		
     		// generate a 'fresh' rootNode and set its maxRolloutScore:
@@ -111,16 +118,21 @@ public class MCTSEPlayer
     /**
      * Runs MCTSE to decide the action to take. It does not reset the tree.
 	 *
+	 * @param elapsedTimer	if not null, the search is time-budgeted: it runs until the remaining time 
+	 * 						of this timer is (nearly) used up
 	 * @param vtable		the score for each available action (corresponding
 	 * 						to sob.getAvailableActions())
 	 *
      * @return the action to execute in the game.
      */
-    public Types.ACTIONS run(double[] vtable)
+    public Types.ACTIONS run(ElapsedCpuTimer elapsedTimer, double[] vtable)
     {
     	this.nRolloutFinished=0;
+    	long start = System.nanoTime();
 		//Do the search
-        rootNode.mctseSearch(vtable);
+        rootNode.mctseSearch(elapsedTimer, vtable);
+        lastElapsedNanos = System.nanoTime() - start;
+        lastIterations = rootNode.iterations;
 
         //Determine the best action to take and return it
 		Types.ACTIONS action = rootNode.bestAction();
@@ -137,6 +149,12 @@ public class MCTSEPlayer
     public int getNUM_ITERS() {
 		return this.mctsExpectimaxParams.getNumIter();
 	}
+    /**
+     * @return the time budget per move in ms (0: iteration-based search)
+     */
+    public int getMaxTimeMillis() {
+		return this.mctsExpectimaxParams.getMaxTimeMillis();
+	}
 	public double getK() {
 		return this.mctsExpectimaxParams.getK_UCT();
 	}
@@ -160,6 +178,18 @@ public class MCTSEPlayer
 	}
     public int getNRolloutFinished() {
         return nRolloutFinished;
+    }
+    /**
+     * @return the number of iterations of the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+    /**
+     * @return the iterations per second of the last call to {@link #run(ElapsedCpuTimer, double[])}
+     */
+    public double getLastIterationsPerSecond() {
+        return (lastElapsedNanos > 0) ? lastIterations*1e9/lastElapsedNanos : 0;
     }
 	public MCTSEChanceNode getRootNode() {
     	return rootNode;
@@ -109,23 +109,38 @@ public class MCTSExpectimaxAgt extends AgentBase implements PlayAgent
 		}
 	}
 
+	/**
+	 * @return a (wall-clock) timer with max time {@code maxTime} ms, if a time budget is set
+	 * 		({@link ParMCTSE#getMaxTimeMillis()} &gt; 0), else null (iteration-based search)
+	 */
+	private ElapsedCpuTimer budgetTimer(int maxTime) {
+		if (params.getMaxTimeMillis() <= 0) 
+			return null;
+		ElapsedCpuTimer timer = new ElapsedCpuTimer(TimerType.WALL_TIME);
+		timer.setMaxTimeMillis(Math.max(1, maxTime));
+		return timer;
+	}
+
 	/**
 	 * only one Agent, no majority Vote
 	 */
     private Types.ACTIONS actOneAgent(StateObservation stateObs, double[] vtable) {
+    	// start the timer before init, since init may include a short pre-search (2048)
+    	ElapsedCpuTimer timer = budgetTimer(params.getMaxTimeMillis());
+    	
 		//Set the state observation object as the new root of the tree.
 		player.init(stateObs);
 
 		//Determine the action using MCTS Expectimax and return it.
 		Types.ACTIONS actBest;
-		actBest = player.run(vtable); 
+		actBest = player.run(timer, vtable); 
 		actBest.setRandomSelect(false);		// the action was not a random move
 		
 		return actBest;
 	}
 
 	/**
-	 * majority vote
+	 * majority vote (if time-budgeted, each agent gets {@code 1/numAgents} of the budget)
 	 */
     private Types.ACTIONS actMultipleAgents(StateObservation stateObs, double[] vtable, int numAgents) {
 		double[] vtableIgnore = new double[vtable.length];
@@ -137,10 +152,12 @@ public class MCTSExpectimaxAgt extends AgentBase implements PlayAgent
 
 		//determine numAgents Actions and save them in the vtable
 		for(int i = 0; i < numAgents; i++) {
+			ElapsedCpuTimer timer = budgetTimer(params.getMaxTimeMillis()/numAgents);
+			
 			//Set the state observation object as the new root of the tree.
 			player.init(stateObs);
 
-			int act = player.run(vtableIgnore).toInt();
+			int act = player.run(timer, vtableIgnore).toInt();
 
 			actions[act]++;
 		}
@@ -228,12 +245,23 @@ public class MCTSExpectimaxAgt extends AgentBase implements PlayAgent
         }
 	}
 
+	/**
+	 * {@link MCTSExpectimaxAgt} is not thread-safe in {@link #getNextAction2(StateObservation, boolean, boolean)},
+	 * but a new agent with the same parameters is cheap to construct.
+	 */
+	@Override
+	public PlayAgent getThreadInstance() {
+		return new MCTSExpectimaxAgt(getName(), params, m_oPar);
+	}
+
 	public String stringDescr() {
 		String cs = getClass().getName();
 		String str = cs + ": iterations:" + getParMCTSE().getNumIter() 
 				+ ", rollout depth:" + getParMCTSE().getRolloutDepth()
 				+ ", K_UCT:"+ getParMCTSE().getK_UCT()
 				+ ", tree depth:" + getParMCTSE().getTreeDepth();
+		if (getParMCTSE().getMaxTimeMillis() > 0) 
+			str = str + ", time:" + getParMCTSE().getMaxTimeMillis() + "ms";
 		return str;
 	}
 
@@ -244,6 +272,13 @@ public class MCTSExpectimaxAgt extends AgentBase implements PlayAgent
     public int getNIterations() {
         return player.getNUM_ITERS();
     }
+
+    /**
+     * @return the iterations per second of the last move (or the last call to {@link #getScore(StateObservation)})
+     */
+    public double getLastIterationsPerSecond() {
+        return player.getLastIterationsPerSecond();
+    }
     
 	public ParMCTSE getParMCTSE() {
 		return player.getParMCTSE();
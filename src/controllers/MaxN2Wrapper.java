@@ -2,7 +2,14 @@ package controllers;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 
@@ -13,6 +20,7 @@ import games.RubiksCube.StateObserverCube;
 import gui.MessageBox;
 import params.ParOther;
 import tools.ScoreTuple;
+import tools.TranspositionTable;
 import tools.Types.ACTIONS;
 import tools.Types.ACTIONS_VT;
 
@@ -21,14 +29,24 @@ import tools.Types.ACTIONS_VT;
  * (but applies the same MaxN principles).   <br>
  * [The former, now deprecated, {@code class MaxNWrapper extends MaxNAgent} was found to be error-prone and too complicated  
  * to maintain as good and simple software.]
+ * <p>
+ * Within one search, the score tuples of visited states are stored in a {@link TranspositionTable}, so that 
+ * transpositions (the same state reached via different move orders) are searched only once. The table is
+ * cleared at the start of each search, since the wrapped agent may change between calls (e.g. by training).
  * 
  * @author Wolfgang Konen, TH Koeln, 2020
  */
 public class MaxN2Wrapper extends AgentBase implements PlayAgent, Serializable {
 	private final PlayAgent wrapped_pa;
 	
-	private final Random rand;
+	private Random rand;
 	protected int m_depth;
+	private transient TranspositionTable tt;	// created on demand, see newSearch()
+	/**
+	 * the executors for the parallel search at the root, one for each number of threads, 
+	 * shared by all {@link MaxN2Wrapper} objects (and copies)
+	 */
+	private static final HashMap<Integer, ExecutorService> executors = new HashMap<>();
 
 //	private final boolean OLDVERSION = false;  // normally false, true just for debug
 	
@@ -97,6 +115,7 @@ public class MaxN2Wrapper extends AgentBase implements PlayAgent, Serializable {
         assert so.isLegalState() : "Not a legal state"; 
         
         // this starts the recursion:
+		newSearch();
 		ACTIONS_VT act_best = getBestAction(so.clearedCopy(), random,  silent, 0, null);
 //		ACTIONS_VT act_best = OLDVERSION ?
 //				getBestAction_OLD(so.clearedCopy(), random,  silent, 0, null)
@@ -139,42 +158,27 @@ public class MaxN2Wrapper extends AgentBase implements PlayAgent, Serializable {
 		ArrayList<ACTIONS> acts = so.getAvailableActions();
         double[] VTable =  new double[acts.size()+1];
         int P = so.getPlayer();
+        boolean useTT = useTT(so, random);
+        ScoreTuple[] childTuples = null;
+        if (depth==0 && acts.size()>1 && getNumThreads()>1 && !random && getWrappedPlayAgent().isThreadSafe())
+        	childTuples = parallelChildScores(so, acts, silent, prevTuple, useTT);
 
         for(i = 0; i < acts.size(); ++i)
         {
-        	NewSO = so.copy();
-        	NewSO.advance(acts.get(i));
-        	
-    		if (NewSO.isGameOver())
-    		{
-    			boolean rgs = m_oPar.getRewardIsGameScore();
-    			currScoreTuple = NewSO.getRewardTuple(rgs);
-    			// TODO: On the long run, when for all games the final rewards are subsumed in getDeltaRewardTuple,
-				// we should return 0.0 here and let NewSO.getDeltaRewardTuple (being called below) add the final reward
-    		} else {
-				if (this.getWrappedPlayAgent() instanceof TDNTuple3Agt)
+        	if (childTuples!=null) {
+        		currScoreTuple = childTuples[i];
+        	} else {
+	        	NewSO = so.copy();
+	        	NewSO.advance(acts.get(i));
+	        	
+				if (!NewSO.isGameOver() && this.getWrappedPlayAgent() instanceof TDNTuple3Agt)
 					prevTuple = estimateGameValueTuple(NewSO, prevTuple);
 				// prevTuple is for wrappedAgent==TDNTuple3Agt and the case (N>=3): fill in the game value estimate
 				// for the player who created sob. Will be used by subsequent states as a surrogate for the
 				// then unknown value for that player.
 
-				// here is the recursion: call this method again with depth+1:
-				act_vt = getBestAction(NewSO/*.clearedCopy()*/, random, silent, depth+1, prevTuple);
-				currScoreTuple = act_vt.getScoreTuple();
-
-				currScoreTuple.combine(NewSO.getDeltaRewardTuple(false), ScoreTuple.CombineOP.SUM,0,0);
-				// NewSO.getDeltaRewardTuple returns 0.0, except for Rubik's Cube, where it returns CubeConfig.stepReward.
-				// The increment by stepReward is very important for Rubik's Cube, because there every depth level means
-				// an additional twist, thus additional costs (stepReward is negative). Otherwise MaxN2Wrapper won't work.
-				// The former implementation of the above line:
-//				     if (so instanceof StateObserverCube)
-//		  		          currScoreTuple.scTup[P] += CubeConfig.stepReward;
-				// was not so nice SW design, because we had to clutter the generic MaxN2Wrapper code with
-				// cube-specific code.]
-				// TODO: On the long run, when all games have their rewards present in getDeltaRewardTuple we should
-				// make the corresponding change to getDeltaRewardTuple also in the if (NewSO.isGameOver())
-				// branch above
-			}
+				currScoreTuple = childScore(NewSO, random, silent, depth, prevTuple, useTT);
+        	}
 
 			// only debug for RubiksCube:
 //			System.out.println(depth+": "+((StateObserverCube)NewSO).getCubeState().getTwistSeq()+", "+currScoreTuple);
@@ -209,6 +213,97 @@ public class MaxN2Wrapper extends AgentBase implements PlayAgent, Serializable {
         return act_vt;         
 	} // getBestAction
 
+	/**
+	 * @param NewSO		the state after an action in a state at {@code depth}
+	 * @return the score tuple of {@code NewSO} (searched to depth {@link #m_depth}), including the
+	 * 		delta reward of the transition to {@code NewSO}
+	 */
+	private ScoreTuple childScore(StateObservation NewSO, boolean random, boolean silent, int depth, 
+			ScoreTuple prevTuple, boolean useTT) {
+		ScoreTuple currScoreTuple;
+		if (NewSO.isGameOver())
+		{
+			boolean rgs = m_oPar.getRewardIsGameScore();
+			currScoreTuple = NewSO.getRewardTuple(rgs);
+			// TODO: On the long run, when for all games the final rewards are subsumed in getDeltaRewardTuple,
+			// we should return 0.0 here and let NewSO.getDeltaRewardTuple (being called below) add the final reward
+		} else {
+			int remaining = this.m_depth-(depth+1);		// remaining search depth below NewSO
+			long hash = 0;
+			currScoreTuple = null;
+			if (useTT) {
+				hash = NewSO.getHash();
+				currScoreTuple = tt.get(hash, remaining);
+			}
+			if (currScoreTuple==null) {
+				// here is the recursion: call getBestAction again with depth+1:
+				ACTIONS_VT act_vt = getBestAction(NewSO/*.clearedCopy()*/, random, silent, depth+1, prevTuple);
+				currScoreTuple = act_vt.getScoreTuple();
+
+				currScoreTuple.combine(NewSO.getDeltaRewardTuple(false), ScoreTuple.CombineOP.SUM,0,0);
+				if (useTT) tt.put(hash, remaining, currScoreTuple);
+			}
+			// NewSO.getDeltaRewardTuple returns 0.0, except for Rubik's Cube, where it returns CubeConfig.stepReward.
+			// The increment by stepReward is very important for Rubik's Cube, because there every depth level means
+			// an additional twist, thus additional costs (stepReward is negative). Otherwise MaxN2Wrapper won't work.
+			// The former implementation of the above line:
+//				     if (so instanceof StateObserverCube)
+//		  		          currScoreTuple.scTup[P] += CubeConfig.stepReward;
+			// was not so nice SW design, because we had to clutter the generic MaxN2Wrapper code with
+			// cube-specific code.]
+			// TODO: On the long run, when all games have their rewards present in getDeltaRewardTuple we should
+			// make the corresponding change to getDeltaRewardTuple also in the if (NewSO.isGameOver())
+			// branch above
+		}
+		return currScoreTuple;
+	}
+
+	/**
+	 * Parallel root search: the subtrees of all root actions are searched concurrently by the threads of 
+	 * a work-stealing (fork-join) pool. They share the transposition table. The wrapped agent has to be 
+	 * thread-safe.
+	 * <p>
+	 * Each task starts from the root's {@code prevTuple} (instead of the one of its left sibling, as in
+	 * the sequential search). 
+	 * 
+	 * @return the score tuples for all actions {@code acts} in state {@code so}
+	 */
+	private ScoreTuple[] parallelChildScores(StateObservation so, ArrayList<ACTIONS> acts, boolean silent, 
+			ScoreTuple prevTuple, boolean useTT) {
+		ScoreTuple[] childTuples = new ScoreTuple[acts.size()];
+		List<Callable<ScoreTuple>> callables = new ArrayList<>();
+		for (ACTIONS act : acts) {
+			callables.add(() -> {
+				StateObservation NewSO = so.copy();
+				NewSO.advance(act);
+				ScoreTuple prev = prevTuple;
+				if (!NewSO.isGameOver() && this.getWrappedPlayAgent() instanceof TDNTuple3Agt)
+					prev = estimateGameValueTuple(NewSO, prevTuple);
+				return childScore(NewSO, false, silent, 0, prev, useTT);
+			});
+		}
+		try {
+			List<Future<ScoreTuple>> futures = getExecutor(getNumThreads()).invokeAll(callables);
+			for (int i=0; i<futures.size(); i++) 
+				childTuples[i] = futures.get(i).get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+		return childTuples;
+	}
+
+	private int getNumThreads() {
+		return m_oPar.getWrapperThreads();
+	}
+
+	/**
+	 * The executors are never shut down, since another agent may still use them. Their worker 
+	 * threads are daemon threads which terminate when idle.
+	 */
+	private static synchronized ExecutorService getExecutor(int numThreads) {
+		return executors.computeIfAbsent(numThreads, Executors::newWorkStealingPool);
+	}
+
 	// This older version is plain wrong, because it had the misconception that we should use the wrapped agent's method
 	// estimateGameValueTuple. But this does not work for DAVI3Agent and RubiksCube (and it also slightly wrong in
 	// general for all games since it returns for nPly=1 just what the wrapped agent would do). The right thing is to
@@ -345,13 +440,60 @@ public class MaxN2Wrapper extends AgentBase implements PlayAgent, Serializable {
 	 */
 	@Override
 	public double getScore(StateObservation sob) {
+		newSearch();
 		return getBestAction(sob, false, true, 0, null).getScoreTuple().scTup[sob.getPlayer()];
 	}
 	@Override
 	public ScoreTuple getScoreTuple(StateObservation sob, ScoreTuple prevTuple) {
+		newSearch();
 		return getBestAction(sob, false, true, 0, null).getScoreTuple();
 	}
+
+	private synchronized void newSearch() {
+		if (tt==null) tt = new TranspositionTable();
+		tt.newSearch();
+	}
+
+	/**
+	 * The transposition table is not used if actions are selected at random, if the states are not 
+	 * cacheable ({@link StateObservation#isCacheable()}) or if the wrapped agent is a 
+	 * {@link TDNTuple3Agt} in a game with more than 2 players (then the leaf values depend on 
+	 * {@code prevTuple}, not only on the state).
+	 */
+	private boolean useTT(StateObservation so, boolean random) {
+		if (random || !so.isCacheable()) return false;
+		return !(this.getWrappedPlayAgent() instanceof TDNTuple3Agt && so.getNumPlayers()>2);
+	}
+
+	/**
+	 * @return the fraction of transposition table lookups which were hits
+	 */
+	public double getTTHitRate() {
+		return (tt==null) ? 0 : tt.getHitRate();
+	}
 	
+	/**
+	 * {@link MaxN2Wrapper} is not thread-safe: each search starts with {@link TranspositionTable#newSearch()},
+	 * which would invalidate the entries of a concurrent search. Use {@link #getThreadInstance()} instead.
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
+	/**
+	 * @return a new wrapper (with its own transposition table and random generator) around the thread instance 
+	 * 		of the wrapped agent (or {@code null}, if the wrapped agent has none)
+	 */
+	@Override
+	public PlayAgent getThreadInstance() {
+		PlayAgent pa = wrapped_pa.getThreadInstance();
+		if (pa==null) return null;
+		MaxN2Wrapper mw = new MaxN2Wrapper(pa, m_depth, new ParOther(m_oPar));
+		mw.rand = new Random(rand.nextLong());
+		return mw;
+	}
+
 	public PlayAgent getWrappedPlayAgent() {
 		return wrapped_pa;
 	}
@@ -11,6 +11,7 @@ import params.MaxNParams;
 import params.ParMaxN;
 import params.ParOther;
 import tools.ScoreTuple;
+import tools.TranspositionTable;
 import tools.Types;
 import tools.Types.ACTIONS;
 import tools.Types.ACTIONS_ST;
@@ -18,7 +19,6 @@ import tools.Types.ACTIONS_VT;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
@@ -29,7 +29,7 @@ import javax.swing.JOptionPane;
  * Max-N is the generalization of the well-known Minimax agent to N players. It works on {@link ScoreTuple}, 
  * an N-tuple of game scores. It traverses the game tree up to a prescribed 
  * depth (default: 10, see {@link ParMaxN}). To speed up calculations, already 
- * visited states are stored in a HashMap.  
+ * visited states are stored in a {@link TranspositionTable}.  
  * <p>
  * {@link MaxNAgent} is for <b>deterministic</b> games. For non-deterministic games see 
  * {@link ExpectimaxNAgent}.
@@ -49,7 +49,8 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
 	private Random rand;
 	protected int m_depth=10;
 	protected boolean m_useHashMap=false; //true;
-	private HashMap<String,ScoreTuple> hm;
+	private transient TranspositionTable tt;	// created on demand, see getTT()
+	private transient int numCutoffs;			// number of leaves evaluated at depth m_depth (not game over)
 	
 	/**
 	 * change the version ID for serialization only if a newer version is no longer 
@@ -64,7 +65,6 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
 		super.setMaxGameNum(1000);		
 		super.setGameNum(0);
         rand = new Random(System.currentTimeMillis());
-		hm = new HashMap<String, ScoreTuple>();
 		super.setAgentState(AgentState.TRAINED);
 	}
 	
@@ -87,7 +87,6 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
 		super.setMaxGameNum(1000);		
 		super.setGameNum(0);
         rand = new Random(System.currentTimeMillis());
-		hm = new HashMap<String, ScoreTuple>();
 		super.setAgentState(AgentState.TRAINED);
 		m_depth = mPar.getMaxNDepth();
 		m_useHashMap = mPar.getMaxNUseHashmap();
@@ -171,7 +170,7 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
         ACTIONS actBest = null;
         ACTIONS_VT act_vt = null;
         ArrayList<ACTIONS> bestActions = new ArrayList<>();
-        String stringRep ="";
+        long hash;
 
         assert so.isLegalState() : "Not a legal state"; 
         
@@ -197,15 +196,18 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
     			currScoreTuple = NewSO.getRewardTuple(rgs);
     		} else {
     			if (depth<this.m_depth) {
-    				stringRep = NewSO.stringDescr();
-    	        	sc = retrieveFromHashMap(m_useHashMap,stringRep);
+    				int remaining = this.m_depth-(depth+1);	// remaining search depth below NewSO
+    				boolean useTT = m_useHashMap && NewSO.isCacheable();
+    				hash = NewSO.getHash();
+    	        	sc = retrieveFromHashMap(useTT,hash,remaining);
     				if (sc==null) {
+    					int cutoffs = numCutoffs;
     					// here is the recursion: getAllScores may call getBestAction back:
     					currScoreTuple = getAllScores(NewSO,refer,depth+1, currScoreTuple);	
     					
-    					if (m_useHashMap) {
-    						hm.put(stringRep, currScoreTuple);
-    		    			//System.out.println(stringRep+":"+currScoreTuple);
+    					if (useTT) {
+    						// if no leaf below NewSO was cut off by depth, the score tuple is exact
+    						getTT().put(hash, (numCutoffs==cutoffs) ? TranspositionTable.EXACT : remaining, currScoreTuple);
     					}
     				} else {
     					currScoreTuple = sc;
@@ -214,6 +216,7 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
     			} else {
     				// this terminates the recursion:
     				// (after finishing the for-loop for every element of acts)
+    				numCutoffs++;
     				currScoreTuple = estimateGameValueTuple(NewSO, currScoreTuple);
     				// For derived class MaxNWrapper, estimateGameValueTuple returns
     				// the score tuple of the wrapped agent. 
@@ -264,17 +267,34 @@ public class MaxNAgent extends AgentBase implements PlayAgent, Serializable
         return act_vt;         
 	}
 
-	private ScoreTuple retrieveFromHashMap(boolean m_useHashMap, String stringRep) {
+	private ScoreTuple retrieveFromHashMap(boolean m_useHashMap, long hash, int remaining) {
 		ScoreTuple sc = null;
     	if (m_useHashMap) {
 			// speed up MaxNAgent for repeated calls by storing/retrieving the 
-			// scores of visited states in HashMap hm:
-			sc = hm.get(stringRep); 		// returns null if not in hm
-			//System.out.println(stringRep+":"+sc);
+			// scores of visited states in transposition table tt:
+			sc = getTT().get(hash, remaining); 		// returns null if not in tt
+			if (sc!=null && getTT().getLastDepth()!=TranspositionTable.EXACT)
+				numCutoffs++;		// sc depends on depth, so do the score tuples of the states above
     	} 
     	
     	return sc;
 	}
+
+	/**
+	 * The transposition table is kept across calls (the score tuples of {@link MaxNAgent} do not change
+	 * between moves). It is not saved with the agent.
+	 */
+	private TranspositionTable getTT() {
+		if (tt==null) tt = new TranspositionTable();
+		return tt;
+	}
+
+	/**
+	 * @return the fraction of transposition table lookups which were hits (0, if no hashmap is used)
+	 */
+	public double getTTHitRate() {
+		return (tt==null) ? 0 : tt.getHitRate();
+	}
 	
 	/**
 	 * Return the agent's score for that after state.
@@ -136,6 +136,20 @@ public interface PlayAgent {
 	 * @return true, if it is a trainable agent
 	 */
 	public boolean isTrainable();
+
+	/**
+	 * @return true, if {@link #getNextAction2(StateObservation, boolean, boolean)}, {@link #getScore(StateObservation)}
+	 * and {@link #getScoreTuple(StateObservation, ScoreTuple)} may be called concurrently from several threads  
+	 * (for the same agent object)
+	 */
+	public boolean isThreadSafe();
+	
+	/**
+	 * @return an agent which plays like this agent and may be used in another thread concurrently with it:
+	 * {@code this}, if the agent is thread-safe (see {@link #isThreadSafe()}), or a new copy, if the agent 
+	 * is cheap to copy. {@code null}, if neither is the case.
+	 */
+	public PlayAgent getThreadInstance();
 	
 	/**
 	 * @return true, if it was retrained (default: false) <br>
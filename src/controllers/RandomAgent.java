@@ -50,6 +50,11 @@ public class RandomAgent extends AgentBase implements PlayAgent {
         setAgentState(AgentState.TRAINED);
     }
 
+	@Override
+	public boolean isThreadSafe() {
+		return true;		// rand is thread-safe, no other member is modified
+	}
+
     /**
 	 * Get the best next action and return it 
 	 * (NEW version: returns ACTIONS_VT and has a recursive part for multi-moves)
@@ -2,10 +2,11 @@ package controllers.TD.ntuple2;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.Random;
 
 import games.StateObsWithBoardVector;
@@ -28,7 +29,15 @@ import params.ParNT;
  * 
  * Game states are transformed to {@code int[]} board vectors with 
  * {@link XNTupleFuncs#getBoardVector(StateObservation)} before they are passed to 
- * {@link NTuple2} methods. 
+ * {@link NTuple2} methods. <p>
+ * 
+ * Inside an {@link NTuple2ValueFunc} the LUT weights of all n-tuples live in one contiguous 
+ * weight store (see {@link NTuple2ValueFunc#packWeights()}). In this case an {@link NTuple2} object 
+ * is just a view on its slice {@code [base, base+getLutLength())} of that store. If the LUTs are 
+ * sparse (see {@link ParNT#getSparseLut()}), the store is a {@link SparseWeights} map instead and 
+ * the TC accumulators are sparse as well. If the value function is frozen for inference (see 
+ * {@link NTuple2ValueFunc#freeze(NTuple2ValueFunc.Precision)}), the LUT is a read-only slice of a 
+ * float or int16 store.
  * 
  * @author Markus Thill, Samineh Bagheri, Wolfgang Konen, TH Koeln, Sep'18
  * 
@@ -56,19 +65,34 @@ public class NTuple2 implements Serializable {
 
 	private int[] nTuple;
 	private int posVals; // # of possible values for a field of the board
-	private double lut[];
+	private double lut[];					// only used for serialization, see writeObject/readObject
+	private transient double[] store;		// the weight store holding this n-tuple's LUT ...
+	private transient int base;				// ... in store[base],...,store[base+lutLength-1]
+	private transient int lutLength;
+	private transient SparseWeights sparse;	// if not null: the sparse weight store holding this n-tuple's LUT ...
+	private transient long key0;			// ... under the keys key0|index (instead of store)
+	private transient float[] fStore;		// frozen float32 LUT in fStore[base+index] or ...
+	private transient short[] qStore;		// ... frozen int16 LUT: weight = qStore[base+index]*qScale
+	private transient float qScale;
 	private transient double tcN[] = null;
 	private transient double tcA[] = null;
 	private transient double tcFactorArray[] = null;
+	private transient SparseWeights tcNS, tcAS, tcFS;	// sparse tcN, tcA, tcFactorArray (if sparse LUT)
 	//private transient double tcDampArray[] = null;   // currently not used
 	
 	// the following elements are needed in update(): if a certain index of the LUT is 
 	// invoked more than once during a weight update for state s_k (multiple calls to updateNew(), 
 	// if there are equivalent states (symmetric to s_k)), then it is updated only *once*. This 
-	// is realized by remembering the already visited indices in indexList.
+	// is realized by remembering the already visited indices in the visited-set visKey.
 	// It ensures that an update with ALPHA=1.0 changes the LUT in such a way that a subsequent
 	// call getScoreI() returns a value identical to the target of that update.
-	private transient LinkedList indexList = new LinkedList();
+	// The visited-set is a small open-addressing int set: slot h is occupied iff 
+	// visStamp[h]==visEpoch, so that clearIndices() just increments visEpoch. It is reused 
+	// across update steps and grows only if more than visKey.length/2 indices are visited.
+	private transient int[] visKey = null;
+	private transient int[] visStamp = null;
+	private transient int visEpoch = 1;
+	private transient int visCount = 0;
 //	private transient int trainCounter[] = null;
 //	private boolean useIndexList = true;	// true: use indexList in updateNew()
 //											// false: use trainCounter in updateNew()
@@ -118,16 +142,23 @@ public class NTuple2 implements Serializable {
 		rand = new Random();
 		this.nTuple = nTuple.clone();
 		this.posVals = posVals;
-		lut = new double[(int) Math.pow(posVals, nTuple.length)];
-		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
-			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
-			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
+		lutLength = (int) Math.pow(posVals, nTuple.length);
+		base = 0;
+		if (ntPar.getSparseLut()) {
+			// store==null, NTuple2ValueFunc.packWeights will attach this n-tuple to its sparse store
+			if (TC) initSparseTc();
+		} else {
+			store = new double[lutLength];
+		}
+		if (TC && store!=null) {
+			tcN = new double[lutLength]; // matrix N in TC
+			tcA = new double[lutLength]; // matrix A in TC
+			tcFactorArray = new double[lutLength]; // tcFactor=|N|/A
+			//tcDampArray = new double[lutLength]; // /WK/ for NEW_WK
+			//dWArray = new double[lutLength];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = 0; i < lutLength; i++) {
 				tcN[i] = INIT;
 				tcA[i] = INIT;
 				tcFactorArray[i] = 1.0;
@@ -136,26 +167,158 @@ public class NTuple2 implements Serializable {
 		}
 		
 		if (DW_DBG) {
-			dWOld = new double[lut.length];
-			countP = new int[lut.length];
-			countM = new int[lut.length];
+			dWOld = new double[lutLength];
+			countP = new int[lutLength];
+			countM = new int[lutLength];
 		}
 
 //		if (useIndexList==false)
-//			trainCounter = new int[lut.length];
+//			trainCounter = new int[lutLength];
+	}
+
+	/**
+	 * Create a view on n-tuple {@code other} for a parallel training worker: the new n-tuple 
+	 * shares with {@code other} the LUT slice in the weight store and the TC arrays, but it 
+	 * has its own visited-set (so that concurrent calls to {@link #updateNew(int[], double, double, double)} do not interfere 
+	 * in their bookkeeping of already visited indices). 
+	 * 
+	 * @param other	the n-tuple of the master agent
+	 * 
+	 * @see NTupleBase#trainAgentParallel(games.StateObservation[], int)
+	 */
+	NTuple2(NTuple2 other) {
+		INIT = other.INIT;
+		TC = other.TC;
+		tcImm = other.tcImm;
+		tcAccRW = other.tcAccRW;
+		tcEXP = other.tcEXP;
+		tcBeta = other.tcBeta;
+		muDampen = other.muDampen;
+		rand = new Random();
+		nTuple = other.nTuple;
+		posVals = other.posVals;
+		store = other.store;
+		base = other.base;
+		lutLength = other.lutLength;
+		sparse = other.sparse;
+		key0 = other.key0;
+		fStore = other.fStore;
+		qStore = other.qStore;
+		qScale = other.qScale;
+		tcN = other.tcN;
+		tcA = other.tcA;
+		tcFactorArray = other.tcFactorArray;
+		tcNS = other.tcNS;
+		tcAS = other.tcAS;
+		tcFS = other.tcFS;
+		dWArray = other.dWArray;
+		dWOld = other.dWOld;
+		countP = other.countP;
+		countM = other.countM;
+	}
+
+	/**
+	 * Attach this n-tuple to the contiguous weight store {@code wStore}: copy the current LUT 
+	 * weights to {@code wStore[wBase]},...,{@code wStore[wBase+getLutLength()-1]} and use from now 
+	 * on this slice as LUT.
+	 * 
+	 * @param wStore	the weight store (usually shared by all n-tuples of a {@link NTuple2ValueFunc})
+	 * @param wBase		the offset of this n-tuple's LUT in {@code wStore}
+	 * 
+	 * @see NTuple2ValueFunc#packWeights()
+	 */
+	void attachStore(double[] wStore, int wBase) {
+		if (store!=null)		// store==null: LUT detached when loading a binary agent file
+			System.arraycopy(store, base, wStore, wBase, lutLength);
+		store = wStore;
+		base = wBase;
+	}
+	
+	/**
+	 * Attach this n-tuple to the sparse weight store {@code wSparse}: from now on LUT index {@code index}
+	 * is the key {@code wKey0|index} in {@code wSparse}.
+	 * 
+	 * @see NTuple2ValueFunc#packWeights()
+	 */
+	void attachSparse(SparseWeights wSparse, long wKey0) {
+		sparse = wSparse;
+		key0 = wKey0;
+		store = null;
+	}
+	
+	/**
+	 * Attach this n-tuple to the frozen (read-only) weight store {@code wFloat} or {@code wShort}: from now 
+	 * on the weight of LUT index {@code index} is {@code wFloat[wBase+index]} or 
+	 * {@code wShort[wBase+index]*wScale}. 
+	 * 
+	 * @see NTuple2ValueFunc#freeze(NTuple2ValueFunc.Precision)
+	 */
+	void attachFrozen(float[] wFloat, short[] wShort, float wScale, int wBase) {
+		fStore = wFloat;
+		qStore = wShort;
+		qScale = wScale;
+		base = wBase;
+		store = null;
+		sparse = null;
+	}
+	
+	private void initSparseTc() {
+		tcNS = new SparseWeights(INIT);
+		tcAS = new SparseWeights(INIT);
+		tcFS = new SparseWeights(1.0);
+	}
+	
+	private double weight(int index) {
+		if (store!=null) return store[base+index];
+		if (sparse!=null) return sparse.get(key0|index);
+		return (fStore!=null) ? fStore[base+index] : qStore[base+index]*qScale;
+	}
+	
+	private void addWeight(int index, double dW) {
+		if (store!=null) store[base+index] += dW;
+		else if (sparse!=null) sparse.add(key0|index, dW);
+		else throw new RuntimeException("[NTuple2] Weights are frozen, cannot change them");
+	}
+	
+	/**
+	 * @return the offset of this n-tuple's LUT in the weight store
+	 */
+	int getBase() {
+		return base;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// if detaching, the weights are written by agentIO.AgentBinaryIO, sparse and frozen weights by NTuple2ValueFunc:
+		if (store!=null && !NTuple2ValueFunc.isDetaching())
+			lut = Arrays.copyOfRange(store, base, base+lutLength);
+		out.defaultWriteObject();
+		lut = null;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		visEpoch = 1;
+		store = lut;
+		base = 0;
+		lutLength = (lut==null) ? (int) Math.pow(posVals, nTuple.length) : lut.length;
+		lut = null;
 	}
 
 	public boolean instantiateAfterLoading() {
-		indexList = new LinkedList();
-		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
-			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
-			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
+		visKey = visStamp = null;
+		visEpoch = 1;
+		visCount = 0;
+		if (TC && sparse!=null) {
+			initSparseTc();
+		} else if (TC) {
+			tcN = new double[lutLength]; // matrix N in TC
+			tcA = new double[lutLength]; // matrix A in TC
+			tcFactorArray = new double[lutLength]; // tcFactor=|N|/A
+			//tcDampArray = new double[lutLength]; // /WK/ for NEW_WK
+			//dWArray = new double[lutLength];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = 0; i < lutLength; i++) {
 				tcN[i] = INIT;
 				tcA[i] = INIT;
 				tcFactorArray[i] = 1.0;
@@ -241,8 +404,18 @@ public class NTuple2 implements Serializable {
 	 *            If {@code false}, all weights are set to 0.0.
 	 */
 	public void initWeights(boolean random) {
-		for (int i = 0; i < lut.length; i++)
-			lut[i] = (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0);
+		if (store==null) {		// sparse or frozen LUT
+			if (fStore!=null || qStore!=null)
+				throw new RuntimeException("[NTuple2] Weights are frozen, cannot change them");
+			if (random) 
+				throw new RuntimeException("[NTuple2] Random weight initialization is not supported for sparse LUTs");
+			if (sparse!=null) 
+				for (int i = 0; i < lutLength; i++)
+					if (weight(i)!=0.0) sparse.put(key0|i, 0.0);
+			return;
+		}
+		for (int i = 0; i < lutLength; i++)
+			store[base+i] = (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0);
 	}
 
     /**
@@ -258,7 +431,7 @@ public class NTuple2 implements Serializable {
 	 */
 	public double getScore(int[] board) {
 		int Index = getIndex(board);
-		double score = lut[Index];
+		double score = weight(Index);
 		
 //		final double MAXSCORE = 3932156; 
 //		System.out.println(Index + " ["+score*MAXSCORE+"]");  //debug
@@ -338,9 +511,14 @@ public class NTuple2 implements Serializable {
 	 * @see NTuple2ValueFunc#update(StateObsWithBoardVector, int, int, double, double, boolean, boolean)
 	 */
 	public void updateNew(int[] board, double alphaM, double delta, double e /*, double LAMBDA*/) {
-		int index = getIndex(board);
-		Integer indexI = new Integer(index);
+		updateIndex(getIndex(board), alphaM, delta, e);
+	}
 
+	/**
+	 * Same as {@link #updateNew(int[], double, double, double)}, but for the already calculated 
+	 * LUT index {@code index} of the board (see {@link #getIndex(int[])}).
+	 */
+	void updateIndex(int index, double alphaM, double delta, double e) {
 		double tcFactor = getTcFactor(index);	// returns 1 if (!TC)
 				
 		double rW = delta * e;					// recommended weight change
@@ -355,11 +533,11 @@ public class NTuple2 implements Serializable {
 		}
 
 //		if (useIndexList) {		// useIndexList==true is the recommended choice
+			boolean isNew = visitIndex(index);
 			if (!TC || (TC && tcImm)) {
-				if (!indexList.contains(indexI)) 
-					lut[index] += dW;				
+				if (isNew) 
+					addWeight(index, dW);				
 			}		
-			indexList.add(indexI);
 //		} 
 
 //		if (TC)
@@ -375,7 +553,21 @@ public class NTuple2 implements Serializable {
 	 * @return
 	 */
 	private double setTcFactor(int index, double accum) {
-		if (TC) {
+		if (TC && tcNS!=null) {
+			double n = tcNS.get(index) + accum;
+			double a = tcAS.get(index) + Math.abs(accum);
+			tcNS.put(index, n);
+			tcAS.put(index, a);
+			if (tcImm) {
+				double arg = Math.abs(n) / a;
+				if (tcEXP) {
+					arg = Math.exp(tcBeta*(arg-1));
+				}
+				tcFS.put(index, arg);
+				return arg;
+			}
+			return tcFS.get(index);
+		} else if (TC) {
 			tcN[index] += accum;
 			tcA[index] += Math.abs(accum);
 
@@ -395,8 +587,10 @@ public class NTuple2 implements Serializable {
 	// currently not used
 	@Deprecated
 	public void weightDecay(double factor) {
-		for (int k=0; k<lut.length; k++)
-			lut[k] *= factor;
+		for (int k=0; k<lutLength; k++) {
+			if (store!=null) store[base+k] *= factor;
+			else if (weight(k)!=0.0) addWeight(k, (factor-1)*weight(k));
+		}
 	}
 	
 	/**
@@ -405,8 +599,8 @@ public class NTuple2 implements Serializable {
 	 * @return the kth weight for this NTuple
 	 */
 	public double getWeight(int k) {
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
-		return lut[k];
+		assert (k >= 0 && k < lutLength) : " k is not a valid LUT index";
+		return weight(k);
 	}
 
 //	/**
@@ -430,8 +624,16 @@ public class NTuple2 implements Serializable {
 //		return tcA[k];
 //	}
 
+	/**
+	 * @return a copy of the LUT weights of this NTuple (changing it does not change the weights)
+	 */
 	public double[] getWeights() {
-		return lut;
+		if (store==null) {		// sparse or frozen LUT
+			double[] w = new double[lutLength];
+			for (int k=0; k<lutLength; k++) w[k] = weight(k);
+			return w;
+		}
+		return Arrays.copyOfRange(store, base, base+lutLength);
 	}
 	
 	public double[] getTcFactorArray() {
@@ -439,7 +641,8 @@ public class NTuple2 implements Serializable {
 	}
 	
 	public double getTcFactor(int Index) {
-		return (TC) ? tcFactorArray[Index] : 1.0;
+		if (!TC) return 1.0;
+		return (tcFS!=null) ? tcFS.get(Index) : tcFactorArray[Index];
 	}
 	
 	public boolean getTc() {
@@ -450,9 +653,56 @@ public class NTuple2 implements Serializable {
 		return tcImm;
 	}
 
+	/**
+	 * Add {@code index} to the visited-set (see {@link #clearIndices()}).
+	 * 
+	 * @param index	 index into LUT
+	 * @return true, if {@code index} was not yet in the visited-set
+	 */
+	private boolean visitIndex(int index) {
+		if (visKey==null || 2*(visCount+1) > visKey.length) growVisited();
+		int mask = visKey.length-1;
+		int h = mixIndex(index) & mask;
+		while (visStamp[h]==visEpoch) {
+			if (visKey[h]==index) return false;
+			h = (h+1) & mask;
+		}
+		visKey[h] = index;
+		visStamp[h] = visEpoch;
+		visCount++;
+		return true;
+	}
+	
+	private static int mixIndex(int index) {
+		int h = index * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	private void growVisited() {
+		int[] oldKey = visKey;
+		int[] oldStamp = visStamp;
+		int cap = (oldKey==null) ? 16 : 2*oldKey.length;
+		visKey = new int[cap];
+		visStamp = new int[cap];
+		int oldEpoch = visEpoch;
+		visEpoch = 1;
+		visCount = 0;
+		if (oldKey!=null) {
+			for (int h=0; h<oldKey.length; h++) 
+				if (oldStamp[h]==oldEpoch) visitIndex(oldKey[h]);
+		}
+	}
+
+	/**
+	 * Clear the visited-set of LUT indices in O(1) (see {@link #updateNew(int[], double, double, double)}). 
+	 */
 	public void clearIndices() {
 //		if (useIndexList) {
-			indexList.clear();			
+			visCount = 0;
+			if (++visEpoch == Integer.MAX_VALUE) {		// very rare: restart the stamps
+				if (visStamp!=null) Arrays.fill(visStamp, 0);
+				visEpoch = 1;
+			}
 //		} else {
 //			// very slow!!!
 //			for (int k=0; k<trainCounter.length; k++)
@@ -462,13 +712,13 @@ public class NTuple2 implements Serializable {
 
 	public int getCountP(int k) {
 		if (!DW_DBG) return 0;
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
+		assert (k >= 0 && k < lutLength) : " k is not a valid LUT index";
 		return countP[k];
 	}
 
 	public int getCountM(int k) {
 		if (!DW_DBG) return 0;
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
+		assert (k >= 0 && k < lutLength) : " k is not a valid LUT index";
 		return countM[k];
 	}
 
@@ -488,7 +738,7 @@ public class NTuple2 implements Serializable {
 	 * @return the length of the LUT for this NTuple
 	 */
 	public int getLutLength() {
-		return lut.length;
+		return lutLength;
 	}
 
 	public int getPosVals() {
@@ -508,10 +758,24 @@ public class NTuple2 implements Serializable {
 			//for (int i = 0; i < lut.length; i++)
 			//	tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
 
-			for (int i = 0; i < lut.length; i++) {
+			if (tcNS!=null) {
+				// sparse LUT: only the indices in tcNS have accumulators different from INIT
+				for (long key : tcNS.keys()) {
+					double tcFactor = Math.abs(tcNS.get(key)) / tcAS.get(key);
+					tcFS.put(key, tcFactor);
+					if (dWArray!=null) {
+						addWeight((int) key, tcFactor* dWArray[(int) key]);
+						dWArray[(int) key]=0.0;
+					}
+				}
+				return;
+			}
+			for (int i = 0; i < lutLength; i++) {
 				tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
-				lut[i] += tcFactorArray[i]* dWArray[i];				// ??correct to update lut here?? TODO
-				dWArray[i]=0.0;
+				if (dWArray!=null) {		// dWArray is currently not allocated (accumulating it is commented out)
+					addWeight(i, tcFactorArray[i]* dWArray[i]);				// ??correct to update lut here?? TODO
+					dWArray[i]=0.0;
+				}
 			}
 		}
 	}
@@ -562,17 +826,17 @@ public class NTuple2 implements Serializable {
 
 	public int lutHashSum() {
 		int hs=0; 
-		for (int i=0; i<lut.length; i++) if (lut[i]>0) hs += i;
+		for (int i=0; i<lutLength; i++) if (weight(i)>0) hs += i;
 		return (hs%100);
 	}
 	public double lutSum() {
 		double ls=0; 
-		for (int i=0; i<lut.length; i++) ls += lut[i];
+		for (int i=0; i<lutLength; i++) ls += weight(i);
 		return ls;
 	}
 	public double lutSumAbs() {
 		double ls=0; 
-		for (int i=0; i<lut.length; i++) ls += Math.abs(lut[i]);
+		for (int i=0; i<lutLength; i++) ls += Math.abs(weight(i));
 		return ls;
 	}
 }
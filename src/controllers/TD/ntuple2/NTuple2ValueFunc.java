@@ -2,14 +2,15 @@ package controllers.TD.ntuple2;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.commons.math3.stat.descriptive.rank.Min;
@@ -78,12 +79,45 @@ public class NTuple2ValueFunc implements Serializable {
 	// The generated n-tuples [numOutputs][numPlayers][numTuples]
 	private NTuple2 nTuples[][][];
 	
+	// The contiguous weight store holding the LUTs of all n-tuples in nTuples (see packWeights()). 
+	// The LUT of nTuples[o][p][i] starts at wStore[lutBase[(o*numPlayers+p)*numTuples+i]].
+	// tupleCells[i] holds the board cells of n-tuple i and posPow[k] = posVals^k, so that the 
+	// LUT index of n-tuple i is  sum_k posPow[k]*bvec[tupleCells[i][k]]  (see lutIndex).
+	private transient double[] wStore;
+	private transient int[] lutBase;
+	// If not null, the LUTs are sparse (see ParNT#getSparseLut): wStore and lutBase are null and the 
+	// weight for LUT index 'index' of nTuples[o][p][i] has the key (n<<32)|index with n=(o*numPlayers+p)*numTuples+i. 
+	// Unlike wStore, the sparse store is serialized by this class (and not by the n-tuples). 
+	private SparseWeights sparse;
+	// If fStore or qStore is not null, the value function is frozen for inference (see freeze): wStore is 
+	// null and the weights are float32 in fStore or int16 in qStore (weight = qStore[lutBase[n]+index]*qScale[n]), 
+	// both with the layout of wStore. They are serialized by this class (and not by the n-tuples).
+	private float[] fStore;
+	private short[] qStore;
+	private float[] qScale;
+	
+	/**
+	 * The precision of the weights of a frozen value function (see {@link NTuple2ValueFunc#freeze(Precision)})
+	 */
+	public enum Precision {FLOAT32, INT16}
+	private transient int[][] tupleCells;
+	private transient int[] posPow;
+	// The symmetry index plan (null, if xnf.symmetryPermutations() is null): symCells[i][j] holds the 
+	// cells of n-tuple i in the j-th symmetric board, expressed as cells of the original board vector. 
+	// So the LUT index of n-tuple i for symmetry j can be calculated directly from curSOWB's board 
+	// vector, without creating symmetric board vectors (see getScoreI, getQFunc).
+	private transient int[][][] symCells;
+	
+	// If not null, the value functions serialized or deserialized in the current thread are collected 
+	// in this list and their weights are not part of the object stream (see setDetachedWeights).
+	private static final ThreadLocal<List<NTuple2ValueFunc>> detached = new ThreadLocal<>();
+	
 	public XNTupleFuncs xnf;
 	
 	// elements needed for TD(lambda)-update with finite horizon, 
 	// see update(int[],int,double,double):
 	private int horizon=0;
-	private transient LinkedList<EligStates>[] eList;
+	private transient EligTrace[] eTrace;		// the eligibility traces, one per list (see update)
 
 	private final boolean PRINTNTUPLES = false;	// /WK/ control the file printout of n-tuples (when loading agents)
 	private final DecimalFormat frmS = new DecimalFormat("+0.00000;-0.00000");
@@ -129,8 +163,7 @@ public class NTuple2ValueFunc implements Serializable {
 		this.xnf = xnf;
 		this.numPlayers = xnf.getNumPlayers();
 		this.numOutputs = numOutputs;
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<EligStates>();
+		this.eTrace = new EligTrace[this.numPlayers];
 		this.tdAgt = parent;
 		
 		if (nTuplesI!=null) {
@@ -141,10 +174,54 @@ public class NTuple2ValueFunc implements Serializable {
 		}
 	}
 
+	/**
+	 * Constructor for a parallel training worker: the new value function is a view on 
+	 * {@code shared}, i.e. it reads and updates the same weight store {@code wStore} (lock-free, 
+	 * 'Hogwild' style), but it has its own eligibility lists and its own visited-sets in the 
+	 * n-tuples. ALPHA, the alpha change ratio and the horizon are copied from {@code shared}.
+	 * 
+	 * @param parent	the worker agent where {@code this} is part of
+	 * @param shared	the value function of the master agent
+	 * 
+	 * @see NTupleBase#trainAgentParallel(StateObservation[], int)
+	 */
+	NTuple2ValueFunc(NTupleAgt parent, NTuple2ValueFunc shared) {
+		this.xnf = shared.xnf;
+		this.numPlayers = shared.numPlayers;
+		this.numOutputs = shared.numOutputs;
+		this.numTuples = shared.numTuples;
+		this.tdAgt = parent;
+		this.eTrace = new EligTrace[this.numPlayers];
+		this.nTuples = new NTuple2[numOutputs][numPlayers][numTuples];
+		for (int o=0; o<numOutputs; o++) 
+			for (int k=0; k<numPlayers; k++)
+				for (int i = 0; i < numTuples; i++) 
+					this.nTuples[o][k][i] = new NTuple2(shared.nTuples[o][k][i]);
+		this.wStore = shared.wStore;
+		this.lutBase = shared.lutBase;
+		this.sparse = shared.sparse;
+		this.fStore = shared.fStore;
+		this.qStore = shared.qStore;
+		this.qScale = shared.qScale;
+		this.tupleCells = shared.tupleCells;
+		this.posPow = shared.posPow;
+		this.symCells = shared.symCells;
+		this.ALPHA = shared.ALPHA;
+		this.m_AlphaChangeRatio = shared.m_AlphaChangeRatio;
+		this.epochMax = shared.epochMax;
+		this.rpropLrn = shared.rpropLrn;
+		this.horizon = shared.horizon;
+	}
+
 	void initNTuples(int[][] nTuplesI, int posVals, boolean randInitWeights,
 			ParNT ntPar, int numCells) {
 		if (numOutputs==0) 
 			throw new RuntimeException("initNTuples: numOutputs is 0!");
+		if (ntPar.getSparseLut()) {
+			if (randInitWeights)
+				throw new RuntimeException("initNTuples: random weight initialization is not supported for sparse LUTs!");
+			sparse = new SparseWeights(0.0, (long) ntPar.getSparseLutMB() << 20);
+		}
 		this.nTuples = new NTuple2[numOutputs][numPlayers][numTuples];
 		for (int i = 0; i < numTuples; i++) {
 			for (int j=0; j<nTuplesI[i].length; j++) {
@@ -161,11 +238,235 @@ public class NTuple2ValueFunc implements Serializable {
 				}				
 			}
 		}
+		packWeights();
+	}
+
+	/**
+	 * Move the LUTs of all n-tuples into one contiguous weight store {@code wStore} and build 
+	 * the per-tuple offset and cell-index tables. Afterwards each {@link NTuple2} is only a view 
+	 * on its slice of {@code wStore}, and {@link #getScoreI(StateObsWithBoardVector, int)}, 
+	 * {@link #getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)} read the weights directly 
+	 * from {@code wStore}. If the LUTs are sparse, each {@link NTuple2} is attached to the sparse 
+	 * store instead, if the value function is frozen, to its float or int16 store.
+	 * <p>
+	 * Is called after construction and after loading from disk (see {@link #readObject(ObjectInputStream)}). 
+	 */
+	void packWeights() {
+		int maxLen = 0;
+		if (sparse!=null) {
+			wStore = null;
+			lutBase = null;
+			for (int o=0, n=0; o<numOutputs; o++) 
+				for (int k=0; k<numPlayers; k++)
+					for (int i = 0; i < numTuples; i++, n++) 
+						nTuples[o][k][i].attachSparse(sparse, (long) n << 32);
+		} else {
+			long total = getNumWeights();
+			if (total > Integer.MAX_VALUE-8)
+				throw new RuntimeException("[NTuple2ValueFunc] Too many weights ("+total+") for one weight store! "
+						+ "Consider sparse LUTs (ParNT).");
+			
+			wStore = isFrozen() ? null : new double[(int) total];
+			lutBase = new int[numOutputs*numPlayers*numTuples];
+			for (int o=0, n=0, base=0; o<numOutputs; o++) {
+				for (int k=0; k<numPlayers; k++) {
+					for (int i = 0; i < numTuples; i++, n++) {
+						NTuple2 nt = nTuples[o][k][i];
+						if (isFrozen()) 
+							nt.attachFrozen(fStore, qStore, (qScale==null) ? 0f : qScale[n], base);
+						else
+							nt.attachStore(wStore, base);
+						lutBase[n] = base;
+						base += nt.getLutLength();
+					}
+				}
+			}
+		}
+		tupleCells = new int[numTuples][];
+		for (int i = 0; i < numTuples; i++) {
+			NTuple2 nt = nTuples[0][0][i];
+			tupleCells[i] = new int[nt.getLength()];
+			for (int j=0; j<nt.getLength(); j++) tupleCells[i][j] = nt.getPosition(j);
+			maxLen = Math.max(maxLen, nt.getLength());
+		}
+		int posVals = nTuples[0][0][0].getPosVals();
+		posPow = new int[maxLen];
+		for (int j=0, P=1; j<maxLen; j++, P*=posVals) posPow[j] = P;
+		
+		int[][] perm = xnf.symmetryPermutations();
+		symCells = null;
+		if (perm!=null) {
+			symCells = new int[numTuples][perm.length][];
+			for (int i = 0; i < numTuples; i++) {
+				for (int j=0; j<perm.length; j++) {
+					int[] cells = new int[tupleCells[i].length];
+					for (int k=0; k<cells.length; k++) cells[k] = perm[j][tupleCells[i][k]];
+					symCells[i][j] = cells;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the total number of LUT weights of all n-tuples (for sparse LUTs: the number of 
+	 * 		weights a dense store would need)
+	 */
+	private long getNumWeights() {
+		long total = 0L;
+		for (int o=0; o<numOutputs; o++) 
+			for (int k=0; k<numPlayers; k++)
+				for (int i = 0; i < numTuples; i++) 
+					total += nTuples[o][k][i].getLutLength();
+		return total;
+	}
+	
+	/**
+	 * @param n		the n-tuple number in the flat order of lutBase, n = (o*numPlayers+p)*numTuples+i
+	 * @param index	the LUT index
+	 * @return the weight of {@code index} in the LUT of n-tuple {@code n}
+	 */
+	private double weight(int n, int index) {
+		if (wStore!=null) return wStore[lutBase[n] + index];
+		if (sparse!=null) return sparse.get(((long) n << 32) | index);
+		return (fStore!=null) ? fStore[lutBase[n] + index] : qStore[lutBase[n] + index]*qScale[n];
+	}
+	
+	/**
+	 * @return true, if {@link #getScoreI(StateObsWithBoardVector, int)} and 
+	 * {@link #getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)} can use the symmetry index plan 
+	 * {@code symCells}, i.e. if the game provides cell permutations and all symmetries are used 
+	 */
+	private boolean useSymPlan() {
+		int nSym = getNSym();
+		return symCells!=null && (nSym==0 || nSym>=xnf.getNumSymmetries());
+	}
+	
+	/**
+	 * @param bvec	the board vector
+	 * @param i		the n-tuple number
+	 * @return the LUT index of n-tuple {@code i} for board vector {@code bvec} (same as 
+	 * 		{@link NTuple2#getIndex(int[])}, but without object hop)
+	 */
+	private int lutIndex(int[] bvec, int i) {
+		return lutIndex(bvec, tupleCells[i]);
+	}
+	
+	private int lutIndex(int[] bvec, int[] cells) {
+		int index = 0;
+		for (int k = 0; k < cells.length; k++) 
+			index += posPow[k] * bvec[cells[k]];
+		return index;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		List<NTuple2ValueFunc> list = detached.get();
+		if (list!=null) list.add(this);
+		out.defaultWriteObject();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		List<NTuple2ValueFunc> list = detached.get();
+		if (list!=null) list.add(this);
+		in.defaultReadObject();
+		packWeights();		// if detached, wStore is all zeros and has to be filled by the caller
+	}
+	
+	/**
+	 * Switch the serialization of n-tuple value functions in the current thread to 'detached weights': 
+	 * each {@link NTuple2ValueFunc} written to or read from an object stream is appended to {@code list} 
+	 * (in stream order), but its weights are neither written nor read. The caller is responsible for storing 
+	 * and restoring the weight stores {@link #getWeightStore()} of all value functions in {@code list}.
+	 * <p>
+	 * Used by {@link agentIO.AgentBinaryIO}, which stores the weights as raw blocks outside the object stream. 
+	 * 
+	 * @param list	the list collecting the value functions, or null to switch back to normal serialization
+	 */
+	public static void setDetachedWeights(List<NTuple2ValueFunc> list) {
+		if (list==null) detached.remove();
+		else detached.set(list);
+	}
+	
+	static boolean isDetaching() {
+		return detached.get()!=null;
+	}
+	
+	/**
+	 * @return the contiguous weight store holding the LUTs of all n-tuples (not a copy), null if 
+	 * 		the LUTs are sparse or frozen
+	 */
+	public double[] getWeightStore() {
+		return wStore;
+	}
+	
+	/**
+	 * @return true, if the LUTs are stored in a {@link SparseWeights} map (see {@link ParNT#getSparseLut()})
+	 */
+	public boolean isSparse() {
+		return sparse!=null;
+	}
+	
+	/**
+	 * @return true, if the value function is frozen for inference (see {@link #freeze(Precision)})
+	 */
+	public boolean isFrozen() {
+		return fStore!=null || qStore!=null;
+	}
+	
+	/**
+	 * @return the precision of the frozen weights or null, if the value function is not frozen
+	 */
+	public Precision getPrecision() {
+		if (fStore!=null) return Precision.FLOAT32;
+		return (qStore!=null) ? Precision.INT16 : null;
+	}
+	
+	/**
+	 * Freeze this value function for inference: replace the double weight store {@code wStore} by a 
+	 * float32 store or by an int16 store with one scale factor per n-tuple LUT (the largest absolute 
+	 * weight of the LUT is mapped to 32767). This divides the memory for the weights by 2 or 4 and 
+	 * reduces the cache traffic of {@link #getScoreI(StateObsWithBoardVector, int)} and 
+	 * {@link #getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)}, at the price of rounding errors 
+	 * in the weights. A frozen value function cannot be trained any more.
+	 * 
+	 * @param prec	the precision of the frozen weights
+	 * @throws RuntimeException if the LUTs are sparse or if the value function is already frozen
+	 * 
+	 * @see NTupleInference
+	 */
+	public void freeze(Precision prec) {
+		if (sparse!=null)
+			throw new RuntimeException("[NTuple2ValueFunc] Sparse LUTs cannot be frozen!");
+		if (isFrozen())
+			throw new RuntimeException("[NTuple2ValueFunc] Value function is already frozen ("+getPrecision()+")!");
+		switch (prec) {
+		case FLOAT32: 
+			fStore = new float[wStore.length];
+			for (int k=0; k<wStore.length; k++) fStore[k] = (float) wStore[k];
+			break;
+		case INT16:
+			qStore = new short[wStore.length];
+			qScale = new float[lutBase.length];
+			for (int o=0, n=0; o<numOutputs; o++) {
+				for (int p=0; p<numPlayers; p++) {
+					for (int i = 0; i < numTuples; i++, n++) {
+						int base = lutBase[n], len = nTuples[o][p][i].getLutLength();
+						double maxAbs = 0.0;
+						for (int k=base; k<base+len; k++) maxAbs = Math.max(maxAbs, Math.abs(wStore[k]));
+						qScale[n] = (float) (maxAbs / Short.MAX_VALUE);
+						if (qScale[n]==0f) continue;			// all weights 0 (or too small for a float scale)
+						for (int k=base; k<base+len; k++) 
+							qStore[k] = (short) Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, 
+									Math.round(wStore[k] / qScale[n])));
+					}
+				}
+			}
+			break;
+		}
+		packWeights();		// drops wStore and attaches the n-tuples to the frozen store
 	}
 
 	public boolean instantiateAfterLoading() {
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<EligStates>();
+		this.eTrace = new EligTrace[this.numPlayers];
 		for (int i = 0; i < numTuples; i++) {
 			for (int o=0; o<numOutputs; o++) {
 				for (int k=0; k<numPlayers; k++) {
@@ -211,8 +512,10 @@ public class NTuple2ValueFunc implements Serializable {
 		BoardVector[] equiv;
 		int[] equivAction;
 
-		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+		boolean symPlan = getUSESYMMETRY() && useSymPlan();
+		
+		// Get equivalent boards (including self), if we cannot take them from the symmetry index plan
+		equiv = (symPlan ? null : getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()));
 		equivAction = xnf.symmetryActions(act.toInt());
 
 		for (i=0; i<equivAction.length; i++) {
@@ -223,9 +526,19 @@ public class NTuple2ValueFunc implements Serializable {
 			}
 		}
 		
-		for (i = 0; i < numTuples; i++) {
-			for (j = 0; j < equiv.length; j++) {
-				score += nTuples[equivAction[j]][player][i].getScore(equiv[j].bvec);
+		if (symPlan) {
+			int[] bvec = curSOWB.getBoardVector().bvec;
+			for (i = 0; i < numTuples; i++) {
+				int[][] sc = symCells[i];
+				for (j = 0; j < sc.length; j++) {
+					score += weight((equivAction[j]*numPlayers+player)*numTuples+i, lutIndex(bvec,sc[j]));
+				}
+			}
+		} else {
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < equiv.length; j++) {
+					score += weight((equivAction[j]*numPlayers+player)*numTuples+i, lutIndex(equiv[j].bvec,i));
+				}
 			}
 		}
 
@@ -245,15 +558,30 @@ public class NTuple2ValueFunc implements Serializable {
 		int i, j;
 		double score = 0.0; 
 		BoardVector[] equiv;
+		int off = player*numTuples;		// offset of nTuples[0][player][0] in lutBase
+
+		if (!getUSESYMMETRY()) {
+			int[] bvec = curSOWB.getBoardVector().bvec;
+			for (i = 0; i < numTuples; i++) 
+				score += weight(off+i, lutIndex(bvec,i));
+		} else if (useSymPlan()) {
+			// all numTuples*nSym LUT indices straight from curSOWB's board vector, no allocations:
+			int[] bvec = curSOWB.getBoardVector().bvec;
+			for (i = 0; i < numTuples; i++) {
+				int[][] sc = symCells[i];
+				for (j = 0; j < sc.length; j++) 
+					score += weight(off+i, lutIndex(bvec,sc[j]));
+			}
+		} else {
+			// Get equivalent boards (including self)
+			equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+			//equiv = getSymBoards2(board, false);    // DON'T, at least for TTT clearly inferior
 
-		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
-		//equiv = getSymBoards2(board, false);    // DON'T, at least for TTT clearly inferior
-
-		for (i = 0; i < numTuples; i++) {
-			for (j = 0; j < equiv.length; j++) {
-				//System.out.println("g(i,j)=("+i+","+j+"):  ");		//debug
-				score += nTuples[0][player][i].getScore(equiv[j].bvec);
+			for (i = 0; i < numTuples; i++) {
+				for (j = 0; j < equiv.length; j++) {
+					//System.out.println("g(i,j)=("+i+","+j+"):  ");		//debug
+					score += weight(off+i, lutIndex(equiv[j].bvec,i));
+				}
 			}
 		}
 		//if (getUSESYMMETRY()) score /= equiv.length; // DON'T, at least for TTT clearly inferior
@@ -279,12 +607,12 @@ public class NTuple2ValueFunc implements Serializable {
 		BoardVector[] equiv;
 		
 		assert nSym >= 0 : "Ooops, nSym="+nSym+" is negative!";
-		assert nSym <= xnf.getNumSymmetries() 
-				: "Oops, nSym="+nSym+" is larger than xnf.getNumSymmetries()="+xnf.getNumSymmetries()+"!";
 		
 		
 		if (useSymmetry) {
-			if (nSym==0) nSym=xnf.getNumSymmetries();
+			// nSym larger than xnf.getNumSymmetries() (e.g. Sim with canonical symmetries, where all symmetries
+			// are covered by one vector, see XNTupleFuncsSim#getNumSymmetries()) means: use all symmetries
+			if (nSym==0 || nSym>xnf.getNumSymmetries()) nSym=xnf.getNumSymmetries();
 			if (tdAgt instanceof SarsaAgt && nSym < xnf.getNumSymmetries())
 				// in the SarsaAgt case we can only handle the case n=getNumSymmetries() (use all symmetries). 
 				// This is because symmetryActions currently assumes that all symmetries are taken.
@@ -546,48 +874,90 @@ public class NTuple2ValueFunc implements Serializable {
 	 */
 	private void update(StateObsWithBoardVector curSOWB, int player, int output, double delta, double e, 
 						boolean QMODE, boolean ELIST_PP) {
-		int i, j, out;
+		int i, j, out, nEquiv;
 		double alphaM, lamFactor;
 
-		// Get equivalent boards (including self) and corresponding actions
-		BoardVector[] equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+		// The trace to use is either always the same one (ie=0, if ELIST_PP==false) or 
+		// the trace kept for each specific player 'player' (if ELIST_PP==true):
+		int ie = (ELIST_PP ? player : 0);
+		assert (horizon>0) : "[NTuple2ValueFunc.update] Error: horizon is 0 !";
+		if (isFrozen())
+			throw new RuntimeException("[NTuple2ValueFunc.update] Value function is frozen ("+getPrecision()+"), cannot train it!");
+		if (eTrace[ie]==null || eTrace[ie].capacity()!=horizon) eTrace[ie] = new EligTrace(horizon);
+		EligTrace trace = eTrace[ie];
+
+		// Calculate the LUT indices of all n-tuples in all equivalent boards (including self) 
+		// once and add them as new step at the head of the trace. If the trace is full, the step 
+		// 'beyond horizon' t_0 = t-horizon is overwritten. 
+		// Without Q-learning and TC, a re-occurring LUT index of an n-tuple changes its weight only 
+		// once per step (see NTuple2.updateNew), so we can remove the duplicates right here and 
+		// the update of each step in the trace is just one add per stored index (fastPath).
+		boolean fastPath = !QMODE && !getTc();
+		int[] bvec = curSOWB.getBoardVector().bvec;
+		boolean symPlan = getUSESYMMETRY() && useSymPlan();
+		BoardVector[] equiv = null;
+		if (!getUSESYMMETRY()) {
+			nEquiv = 1;
+		} else if (symPlan) {
+			nEquiv = symCells[0].length;
+		} else {
+			equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+			nEquiv = equiv.length;
+		}
 		int[] equivAction = (QMODE ? getSymActions(output, getUSESYMMETRY()) : null); 
 		// equivAction only needed for QMODE==true
+		int slot = trace.addFirst(numTuples, nEquiv, equivAction, e);
+		int[] idx = trace.idx[slot];
+		int[] cnt = trace.cnt[slot];
+		for (i = 0; i < numTuples; i++) {
+			int c = 0, off = i*nEquiv;
+			for (j = 0; j < nEquiv; j++) {
+				int index = (equiv!=null) ? lutIndex(equiv[j].bvec,i) 
+						  : (symPlan ? lutIndex(bvec,symCells[i][j]) : lutIndex(bvec,i));
+				if (fastPath) {
+					int m = 0;
+					while (m < c && idx[off+m] != index) m++;
+					if (m < c) continue;		// duplicate
+				}
+				idx[off + c++] = index;
+			}
+			cnt[i] = c;
+		}
 
-		alphaM = ALPHA / (numTuples*equiv.length); 
-
-		// construct new EligStates object, add it at head of LinkedList eList[ie] and remove 
-		// from the list the element 'beyond horizon' t_0 = t-horizon (if any).
-		// The LinkedList to use is either always the same one (ie=0, if ELIST_PP==false) or 
-		// the list kept for each specific player 'player' (if ELIST_PP==true):
-		int ie = (ELIST_PP ? player : 0);
-		EligStates elem = new EligStates(equiv,equivAction,e);
-		eList[ie].addFirst(elem);
-		assert (horizon>0) : "[NTuple2ValueFunc.update] Error: horizon is 0 !";
-		if (eList[ie].size()>horizon) eList[ie].pollLast();
-		
-		// iterate over all list elements in horizon  (at most h+1 elements from t down to t_0):
-		ListIterator<EligStates> iter = eList[ie].listIterator();		
-		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through while-loop
-		while(iter.hasNext()) {
-			elem=iter.next();
-			equiv=elem.equiv;
-			equivAction=elem.equivAction;
-//			printEquivs(equiv,equivAction);		// debug (TTT only)
-			//System.out.println(eList[ie].size()+" "+lamFactor+"   ["+ equiv[0]+"]");	// debug
+		alphaM = ALPHA / (numTuples*nEquiv); 
+
+		// iterate over all steps in the trace (at most h steps from t down to t_0+1):
+		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through the loop
+		int off = (output*numPlayers+player)*numTuples;		// offset of nTuples[output][player][0] in lutBase
+		for (int k = 0; k < trace.size(); k++) {
+			slot = trace.slot(k);
+			idx = trace.idx[slot];
+			cnt = trace.cnt[slot];
+			equivAction = trace.act[slot];
+			nEquiv = trace.nEquiv[slot];
 			assert (lamFactor >= tdAgt.getParTD().getHorizonCut()) 
 					: "Error: lamFactor < ParTD.getHorizonCut";
-			e = lamFactor*elem.sigDeriv;
-			for (i = 0; i < numTuples; i++) {
-				nTuples[output][player][i].clearIndices();
-				for (j = 0; j < equiv.length; j++) {
-					// this assertion is only valid for TicTacToe, where each action should be 
-					// on an empty field which is coded as '1' here:
-					//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
-					
-					out = (QMODE ? equivAction[j] : output);
-//					System.out.print("(i,j)=("+i+","+j+"):  ");		//debug
-					nTuples[out][player][i].updateNew(equiv[j].bvec, alphaM, delta, e);
+			e = lamFactor*trace.sigDeriv[slot];
+			if (fastPath) {
+				double dW = alphaM * (delta * e);	// as in NTuple2.updateNew with tcFactor=1 (same rounding)
+				for (i = 0; i < numTuples; i++) {
+					if (sparse==null) {
+						int base = lutBase[off+i];
+						for (j = 0; j < cnt[i]; j++) 
+							wStore[base + idx[i*nEquiv+j]] += dW;
+					} else {
+						long key0 = (long) (off+i) << 32;
+						for (j = 0; j < cnt[i]; j++) 
+							sparse.add(key0 | idx[i*nEquiv+j], dW);
+					}
+				}
+			} else {
+				for (i = 0; i < numTuples; i++) {
+					nTuples[output][player][i].clearIndices();
+					for (j = 0; j < cnt[i]; j++) {
+						out = (QMODE ? equivAction[j] : output);
+						nTuples[out][player][i].updateIndex(idx[i*nEquiv+j], alphaM, delta, e);
+					}
 				}
 			}
 			lamFactor *= getLambda(); 
@@ -696,10 +1066,14 @@ public class NTuple2ValueFunc implements Serializable {
 		this.numLearnActions = 0L;
 	}
 
+	void addNumLearnActions(long num) {
+		this.numLearnActions += num;
+	}
+
 
 	public void clearEligList() {
-		for (int ie=0; ie<eList.length; ie++)
-			eList[ie].clear();
+		for (int ie=0; ie<eTrace.length; ie++)
+			if (eTrace[ie]!=null) eTrace[ie].clear();
 	}
 	
 	public void clearEligList(NTupleAgt.EligType m_elig) {
@@ -714,16 +1088,67 @@ public class NTuple2ValueFunc implements Serializable {
 	}
 
 	
-	// class EligStates is needed in update(int[],int,int,double,double,boolean)
-	private class EligStates implements Serializable {
-		BoardVector[] equiv;
-		int[] equivAction;
-		double sigDeriv;
+	/**
+	 * The eligibility trace needed in {@link NTuple2ValueFunc#update(StateObsWithBoardVector, int, int, double, double, boolean, boolean)}: 
+	 * a ring buffer with {@code horizon} slots, each holding one update step with the precalculated 
+	 * LUT indices of all n-tuples in all equivalent boards (for n-tuple i the {@code cnt[slot][i]} indices 
+	 * {@code idx[slot][i*nEquiv+j]}, j=0,1,...), the equivalent actions (only Q-learning) and the sigmoid 
+	 * derivative. The arrays of a slot are reused, when the slot is overwritten.
+	 */
+	private static class EligTrace {
+		final int[][] idx;
+		final int[][] cnt;
+		final int[] nEquiv;
+		final int[][] act;
+		final double[] sigDeriv;
+		private int head = -1;		// the slot of the most recent step
+		private int size = 0;
+		
+		EligTrace(int capacity) {
+			idx = new int[capacity][];
+			cnt = new int[capacity][];
+			nEquiv = new int[capacity];
+			act = new int[capacity][];
+			sigDeriv = new double[capacity];
+		}
+		
+		int capacity() {
+			return sigDeriv.length;
+		}
 		
-		EligStates(BoardVector[] equiv, int[] equivAction, double sigDeriv) {
-			this.equiv=equiv.clone();
-			this.equivAction=(equivAction==null ? null : equivAction.clone());
-			this.sigDeriv=sigDeriv;
+		int size() {
+			return size;
+		}
+		
+		void clear() {
+			size = 0;
+		}
+		
+		/**
+		 * Add a new step as most recent one (overwrite the oldest step, if the trace is full). 
+		 * @return the slot of the new step, the caller fills in {@code idx[slot]} and {@code cnt[slot]}
+		 */
+		int addFirst(int numTuples, int nEquiv, int[] equivAction, double sigDeriv) {
+			head = (head + 1) % capacity();
+			if (size < capacity()) size++;
+			if (idx[head]==null || idx[head].length < numTuples*nEquiv) idx[head] = new int[numTuples*nEquiv];
+			if (cnt[head]==null || cnt[head].length != numTuples) cnt[head] = new int[numTuples];
+			this.nEquiv[head] = nEquiv;
+			if (equivAction==null) {
+				act[head] = null;
+			} else {
+				if (act[head]==null || act[head].length != equivAction.length) act[head] = new int[equivAction.length];
+				System.arraycopy(equivAction, 0, act[head], 0, equivAction.length);
+			}
+			this.sigDeriv[head] = sigDeriv;
+			return head;
+		}
+		
+		/**
+		 * @return the slot of the kth most recent step (k=0: the most recent one)
+		 */
+		int slot(int k) {
+			return (head - k + capacity()) % capacity();
 		}
 	}
 
@@ -857,17 +1282,14 @@ public class NTuple2ValueFunc implements Serializable {
 														// res[2]: quantiles of tcdat;
 		System.arraycopy(per, 0, res[0], 0, per.length);
 		
-		int count = 0;
+		long count = getNumWeights();
 		NTuple2[] ntuples = this.getNTuples();
-		for (int i=0; i<ntuples.length; i++) {
-			count += ntuples[i].getLutLength();
-		}
 		
 		// data is an array big enough to hold all LUT data. It will be filled below with all 
 		// active LUT weights (i.e. LUT  != 0.0). This distinction between active and 
 		// inactive weights works of course only, if LUTs are initialized with 0.0.
-		double[] data = new double[count];		
-		double[] tcdat = new double[count];
+		double[] data;
+		double[] tcdat;
 		double[] lut;
 		double[] tcf=null;
 		int i, pos=0;
@@ -885,13 +1307,22 @@ public class NTuple2ValueFunc implements Serializable {
 
 		// --- this is slower, but quantiles for active weights are more meaningful
 		// --- and not always 0.0 (!)
-		for (i=0; i<ntuples.length; i++) {
-			lut = ntuples[i].getWeights();
-			tcf = ntuples[i].getTcFactorArray();
-			for (int j=0; j<lut.length; j++) {
-				if (lut[j]!=0) {
-					 if (tcf!=null) tcdat[pos] = tcf[j];
-					data[pos++] = lut[j];
+		if (sparse!=null) {
+			// the active weights are (nearly) all entries of the sparse store, no tcFactorArray available
+			data = sparse.activeValues();
+			tcdat = new double[data.length];
+			pos = data.length;
+		} else {
+			data = new double[(int) count];		
+			tcdat = new double[(int) count];
+			for (i=0; i<ntuples.length; i++) {
+				lut = ntuples[i].getWeights();
+				tcf = ntuples[i].getTcFactorArray();
+				for (int j=0; j<lut.length; j++) {
+					if (lut[j]!=0) {
+						 if (tcf!=null) tcdat[pos] = tcf[j];
+						data[pos++] = lut[j];
+					}
 				}
 			}
 		}
@@ -960,19 +1391,22 @@ public class NTuple2ValueFunc implements Serializable {
 	 * @return  res[0]: number of weights, res[1]: number of active weights
 	 */
 	public int[] activeWeights() {
-		int count = 0;
-		NTuple2[] ntuples = this.getNTuples();
-		double[] lut;
-		int i, pos;
-		
-		for (i=0; i<ntuples.length; i++) {
-			count += ntuples[i].getLutLength();
-		}
+		int count, i, pos;
 		
-		for (i=0,pos=0; i<ntuples.length; i++) {
-			lut = ntuples[i].getWeights();
-			for (int j=0; j<lut.length; j++) {
-				if (lut[j]!=0) {
+		if (sparse!=null) {
+			count = (int) Math.min(getNumWeights(), Integer.MAX_VALUE);
+			pos = sparse.activeValues().length;
+		} else if (isFrozen()) {
+			count = (fStore!=null) ? fStore.length : qStore.length;
+			for (i=0,pos=0; i<count; i++) {
+				if ((fStore!=null) ? fStore[i]!=0 : qStore[i]!=0) {
+					pos++;
+				}
+			}
+		} else {
+			count = wStore.length;		// the weight store holds the LUTs of all n-tuples
+			for (i=0,pos=0; i<count; i++) {
+				if (wStore[i]!=0) {
 					pos++;
 				}
 			}
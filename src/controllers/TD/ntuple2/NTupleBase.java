@@ -6,8 +6,14 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import controllers.AgentBase;
 import controllers.RandomAgent;
@@ -157,6 +163,104 @@ abstract public class NTupleBase extends AgentBase implements NTupleAgt, Seriali
 
 	}
 
+	/**
+	 * Create a worker agent for {@link #trainAgentParallel(StateObservation[], int)}. The worker 
+	 * shares the weights with this agent (see {@link NTuple2ValueFunc#NTuple2ValueFunc(NTupleAgt, NTuple2ValueFunc)}),
+	 * but has its own random generator and its own per-episode state.
+	 * 
+	 * @param seed	seed for the worker's random generator
+	 * @return the worker agent or null, if the derived class does not support parallel training
+	 */
+	protected NTupleBase trainWorker(long seed) {
+		return null;
+	}
+	
+	/**
+	 * Train the agent for {@code soArr.length} episodes, distributed on {@code numThreads} threads.
+	 * All threads update the weights of this agent concurrently and without locks ('Hogwild' 
+	 * training). Episode {@code g} is trained with the same ALPHA and epsilon that the 
+	 * {@code g}-th sequential call of {@link #trainAgent(StateObservation)} would use. Afterwards
+	 * ALPHA, epsilon, gameNum, the number of train moves and of learn actions are advanced as if 
+	 * the episodes had been trained sequentially.
+	 * <p>
+	 * The result is not deterministic for {@code numThreads>1}. If {@code numThreads<=1}, if the 
+	 * agent does not support parallel training (see {@link #trainWorker(long)}) or if its LUTs are 
+	 * sparse (concurrent inserts into {@link SparseWeights} are not safe), the episodes 
+	 * are trained sequentially with {@link #trainAgent(StateObservation)}.
+	 * 
+	 * @param soArr			the start state for each episode
+	 * @param numThreads	number of threads
+	 * @return the move counter (see {@link #getMoveCounter()}) at the end of each episode
+	 */
+	public int[] trainAgentParallel(StateObservation[] soArr, int numThreads) {
+		final int K = soArr.length;
+		final int[] moveCounts = new int[K];
+		if (m_Net.isSparse()) numThreads = 1;
+		NTupleBase[] workers = new NTupleBase[Math.max(Math.min(numThreads, K), 1)];
+		for (int t=0; t<workers.length && workers.length>1; t++) {
+			workers[t] = trainWorker(rand.nextLong());
+			if (workers[t]==null) {
+				workers = new NTupleBase[1];
+				break;
+			}
+		}
+		if (workers.length==1) {
+			for (int g=0; g<K; g++) {
+				trainAgent(soArr[g]);
+				moveCounts[g] = getMoveCounter();
+			}
+			return moveCounts;
+		}
+		
+		final int gameNum0 = getGameNum();
+		final double alpha0 = m_Net.getAlpha();
+		final double ratio = m_Net.getAlphaChangeRatio();
+		final double eps0 = m_epsilon;
+		final AtomicInteger nextEpisode = new AtomicInteger(0);
+		List<Callable<Integer>> callables = new ArrayList<>();
+		for (NTupleBase w : workers) {
+			callables.add(() -> {
+				int g, count=0;
+				while ((g = nextEpisode.getAndIncrement()) < K) {
+					w.setGameNum(gameNum0+g);
+					w.m_Net.setAlpha(alpha0*Math.pow(ratio, g));
+					w.m_epsilon = eps0 - g*m_EpsilonChangeDelta;
+					w.trainAgent(soArr[g]);
+					moveCounts[g] = w.getMoveCounter();
+					count++;
+				}
+				return count;
+			});
+		}
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(workers.length);
+		try {
+			executorService.invokeAll(callables).stream().forEach(future -> {
+				try {
+					future.get();
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			executorService.shutdown();
+		}
+
+		for (int g=0; g<K; g++) finishUpdateWeights();		// adjust ALPHA & m_epsilon
+		setGameNum(gameNum0+K);
+		for (NTupleBase w : workers) {
+			m_numTrnMoves += w.getNumTrnMoves();
+			m_Net.addNumLearnActions(w.getNumLrnActions());
+			tieCounter += w.tieCounter;
+			winXCounter += w.winXCounter;
+			winOCounter += w.winOCounter;
+		}
+		return moveCounts;
+	}
+
 	private void print(double m_epsilon2) throws IOException {
 		PrintWriter epsilon = new PrintWriter(new FileWriter("epsilon",true));
 		epsilon.println("" +m_epsilon2);
@@ -262,7 +366,15 @@ abstract public class NTupleBase extends AgentBase implements NTupleAgt, Seriali
 	}
 	
 	@Override
-	public boolean isTrainable() { return true; }
+	public boolean isTrainable() { return !m_Net.isFrozen(); }
+
+	/**
+	 * The n-tuple agents only read their weights in {@code getNextAction2}, {@code getScore} and 
+	 * {@code getScoreTuple}, so they may be used concurrently (e.g. as wrapped agent in a parallel 
+	 * {@link controllers.MaxN2Wrapper}). This does not hold for training.
+	 */
+	@Override
+	public boolean isThreadSafe() { return true; }
 
 	public ParTD getParTD() {
 		return m_tdPar;
@@ -0,0 +1,206 @@
+package controllers.TD.ntuple2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import agentIO.AgentBinaryIO;
+import controllers.ExpectimaxWrapper;
+import controllers.MaxN2Wrapper;
+import controllers.PlayAgent;
+import controllers.PlayAgtVector;
+import games.ArenaTrain;
+import games.GBGBatch;
+import games.StateObservation;
+import games.XArenaFuncs;
+import tools.ScoreTuple;
+import tools.Types;
+
+/**
+ * Frozen inference agents from trained n-tuple agents: {@link #freeze(PlayAgent, NTuple2ValueFunc.Precision)}
+ * returns a copy of a trained agent whose n-tuple value function holds its weights in float32 or in int16 with
+ * a scale per n-tuple LUT (see {@link NTuple2ValueFunc#freeze(NTuple2ValueFunc.Precision)}). The copy is an agent
+ * of the same class (with the same wrappers), so it can be used anywhere the original is used, but it is no longer
+ * trainable.
+ * <p>
+ * {@link #report(PlayAgent, PlayAgent, StateObservation, int, int)} compares a frozen agent with its original:
+ * value differences and action agreement on random states, time per move and the result of a competition of
+ * the frozen agent against the original.
+ * <p>
+ * Command line usage:
+ * <pre>
+ *   NTupleInference gameName agentFile [nStates [competeNum]]</pre>
+ * loads {@code agentFile} from the agent directory of game {@code gameName} (as {@link GBGBatch} does), prints the
+ * report for FLOAT32 and INT16 and saves the frozen agents as {@code <agent>-float32.agt.bin} and
+ * {@code <agent>-int16.agt.bin} in the same directory.
+ */
+public class NTupleInference {
+
+	/**
+	 * @param pa	a trained n-tuple agent, possibly wrapped by {@link MaxN2Wrapper} or {@link ExpectimaxWrapper}
+	 * @param prec	the precision of the frozen weights
+	 * @return a frozen copy of {@code pa} ({@code pa} itself is not changed)
+	 * @throws RuntimeException if {@code pa} has no n-tuple network (or if it has sparse LUTs)
+	 */
+	public static PlayAgent freeze(PlayAgent pa, NTuple2ValueFunc.Precision prec) {
+		if (findNTupleAgent(pa)==null)
+			throw new RuntimeException("[NTupleInference] Agent "+pa.getName()+" has no n-tuple network!");
+		PlayAgent copy = copyAgent(pa);
+		findNTupleAgent(copy).getNTupleValueFunc().freeze(prec);
+		return copy;
+	}
+
+	/**
+	 * @return the n-tuple agent {@code pa} or the n-tuple agent wrapped by {@code pa}, null if there is none
+	 */
+	public static NTupleBase findNTupleAgent(PlayAgent pa) {
+		while (pa!=null) {
+			if (pa instanceof NTupleBase) return (NTupleBase) pa;
+			if (pa instanceof MaxN2Wrapper) pa = ((MaxN2Wrapper) pa).getWrappedPlayAgent();
+			else if (pa instanceof ExpectimaxWrapper) pa = ((ExpectimaxWrapper) pa).getWrappedPlayAgent();
+			else pa = null;
+		}
+		return null;
+	}
+
+	/**
+	 * Copy {@code pa} by serialization. The n-tuple weights are detached from the object stream (see
+	 * {@link NTuple2ValueFunc#setDetachedWeights(List)}) and copied directly, so that they are not
+	 * buffered a second time in the stream.
+	 */
+	private static PlayAgent copyAgent(PlayAgent pa) {
+		List<NTuple2ValueFunc> src = new ArrayList<>();
+		List<NTuple2ValueFunc> dst = new ArrayList<>();
+		PlayAgent copy;
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			NTuple2ValueFunc.setDetachedWeights(src);
+			try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+				oos.writeObject(pa);
+			}
+			NTuple2ValueFunc.setDetachedWeights(dst);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+				copy = (PlayAgent) ois.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("[NTupleInference] Cannot copy agent "+pa.getName()+": "+e.getMessage(), e);
+		} finally {
+			NTuple2ValueFunc.setDetachedWeights(null);
+		}
+		for (int b=0; b<src.size(); b++) {
+			double[] w = src.get(b).getWeightStore();
+			if (w!=null) System.arraycopy(w, 0, dst.get(b).getWeightStore(), 0, w.length);
+		}
+		copy.instantiateAfterLoading();
+		return copy;
+	}
+
+	/**
+	 * Compare the frozen agent {@code frozen} with its original {@code orig}:
+	 * <ul>
+	 * <li> On {@code nStates} states from random games (starting in {@code startSO}): the maximum and mean absolute
+	 * 		difference of the best values and the fraction of states where both agents choose the same action,
+	 * 		together with the mean time per call of {@link PlayAgent#getNextAction2(StateObservation, boolean, boolean)}.
+	 * <li> {@code competeNum} episodes (in all roles) from {@code startSO} of {@code frozen} against {@code orig}
+	 * 		({@link XArenaFuncs#competeNPlayerAllRoles(PlayAgtVector, StateObservation, int, int)}). For 1-player
+	 * 		games each agent plays alone and both scores are reported.
+	 * </ul>
+	 * @return the report (several lines)
+	 */
+	public static String report(PlayAgent orig, PlayAgent frozen, StateObservation startSO, int nStates,
+			int competeNum) {
+		NTuple2ValueFunc vf = findNTupleAgent(orig).getNTupleValueFunc();
+		NTuple2ValueFunc.Precision prec = findNTupleAgent(frozen).getNTupleValueFunc().getPrecision();
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.US, "[NTupleInference] %s, %s:%n", orig.getName(), prec));
+		if (vf.getWeightStore()!=null) {
+			long n = vf.getWeightStore().length;
+			int bytes = (prec==NTuple2ValueFunc.Precision.FLOAT32) ? 4 : 2;
+			sb.append(String.format(Locale.US, "  weights:   %d, %.1f MB (double) -> %.1f MB%n", n,
+					8.0*n/1e6, (double) bytes*n/1e6));
+		}
+
+		Random rand = new Random(42);
+		ArrayList<StateObservation> states = new ArrayList<>();
+		StateObservation so = startSO.copy();
+		while (states.size() < nStates) {
+			if (so.isGameOver()) so = startSO.copy();
+			states.add(so.copy());
+			so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+		}
+		for (int k=0; k<Math.min(nStates, 100); k++) {		// warm-up (JIT) for the time measurement
+			orig.getNextAction2(states.get(k), false, true);
+			frozen.getNextAction2(states.get(k), false, true);
+		}
+		double maxDiff = 0.0, sumDiff = 0.0;
+		int agree = 0;
+		long nanosOrig = 0L, nanosFrozen = 0L;
+		for (StateObservation s : states) {
+			long t0 = System.nanoTime();
+			Types.ACTIONS_VT a0 = orig.getNextAction2(s, false, true);
+			long t1 = System.nanoTime();
+			Types.ACTIONS_VT a1 = frozen.getNextAction2(s, false, true);
+			nanosFrozen += System.nanoTime() - t1;
+			nanosOrig += t1 - t0;
+			if (a0.toInt()==a1.toInt()) agree++;
+			double diff = Math.abs(a0.getVBest() - a1.getVBest());
+			maxDiff = Math.max(maxDiff, diff);
+			sumDiff += diff;
+		}
+		sb.append(String.format(Locale.US, "  values:    max |diff| = %.3e, mean |diff| = %.3e (%d random states)%n",
+				maxDiff, sumDiff/nStates, nStates));
+		sb.append(String.format(Locale.US, "  actions:   %.2f%% identical%n", 100.0*agree/nStates));
+		sb.append(String.format(Locale.US, "  time/move: %.1f us (double) -> %.1f us%n",
+				nanosOrig/1e3/nStates, nanosFrozen/1e3/nStates));
+
+		int N = startSO.getNumPlayers();
+		if (N==1) {
+			ScoreTuple scO = XArenaFuncs.competeNPlayer(new PlayAgtVector(new PlayAgent[]{orig}), startSO, competeNum, 0, null);
+			ScoreTuple scF = XArenaFuncs.competeNPlayer(new PlayAgtVector(new PlayAgent[]{frozen}), startSO, competeNum, 0, null);
+			sb.append(String.format(Locale.US, "  compete:   score %.4f (double) -> %.4f (%d episodes)%n",
+					scO.scTup[0], scF.scTup[0], competeNum));
+		} else {
+			PlayAgent[] pavec = new PlayAgent[N];
+			pavec[0] = frozen;
+			for (int k=1; k<N; k++) pavec[k] = orig;
+			ScoreTuple sc = XArenaFuncs.competeNPlayerAllRoles(new PlayAgtVector(pavec), startSO, competeNum, 0);
+			sb.append(String.format(Locale.US, "  compete:   score of frozen vs. double agent(s) %.4f (%d episodes per role)%n",
+					sc.scTup[0], competeNum));
+		}
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: NTupleInference gameName agentFile [nStates [competeNum]]");
+			return;
+		}
+		int nStates = (args.length >= 3) ? Integer.parseInt(args[2]) : 1000;
+		int competeNum = (args.length >= 4) ? Integer.parseInt(args[3]) : 10;
+		ArenaTrain arena = GBGBatch.setupSelectedGame(args[0], GBGBatch.setDefaultScaPars(args[0]));
+		String strDir = Types.GUI_DEFAULT_DIR_AGENT + "/" + arena.getGameName();
+		String subDir = arena.getGameBoard().getSubDir();
+		if (subDir != null) strDir += "/" + subDir;
+		String filePath = strDir + "/" + args[1];
+		if (!arena.loadAgent(0, filePath))
+			throw new RuntimeException("[NTupleInference] Cannot load agent " + filePath);
+		PlayAgent pa = arena.m_xfun.fetchAgent(0, arena.m_xab.getSelectedAgent(0), arena.m_xab);
+		StateObservation startSO = arena.getGameBoard().getDefaultStartState();
+
+		String stem = filePath.replaceAll("\\.agt\\.(zip|bin)$", "");
+		for (NTuple2ValueFunc.Precision prec : NTuple2ValueFunc.Precision.values()) {
+			PlayAgent frozen = freeze(pa, prec);
+			System.out.print(report(pa, frozen, startSO, nStates, competeNum));
+			String outPath = stem + "-" + prec.name().toLowerCase() + AgentBinaryIO.SUFFIX;
+			AgentBinaryIO.saveAgent(frozen, outPath);
+			System.out.println("  saved to " + outPath);
+		}
+		System.exit(0);
+	}
+}
@@ -68,7 +68,7 @@ import games.XNTupleFuncs;
  * 		symmetric (equivalent) states. 
  * <li> A change in the update formula: when looping over different equivalent
  * 		states, at most one update per index is allowed (see comment in {@link NTuple2} for 
- * 		member {@code indexList}).
+ * 		member {@code visKey}).
  * </ul>
  * 
  * @see PlayAgent
@@ -104,9 +104,6 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
 	// debug printout in collectReward:
 	public static boolean DBG_REWARD=false;
 	
-	// is set to true in getNextAction2(...), if the next action is a random selected one:
-	boolean randomSelect = false;
-	
 	// use finalAdaptAgents(...), normaly true. Set only to false if you want to test how agents behave otherwise:
 	private boolean FINALADAPTAGENTS=true;
 	
@@ -146,6 +143,38 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
 		initNet(ntPar,tdPar,oPar, nTuples, xnf, numOutputs, maxGameNum);			
 	}
 
+	/**
+	 * Create a worker agent for parallel training, which shares parameters and weights with 
+	 * {@code master} (see {@link NTupleBase#trainAgentParallel(StateObservation[], int)})
+	 * 
+	 * @param master	the agent to train
+	 * @param seed		seed for the worker's random generator
+	 */
+	private SarsaAgt(SarsaAgt master, long seed) {
+		super(master.getName());
+		this.numPlayers = master.numPlayers;
+		this.sLast = new StateObservation[numPlayers];
+		this.randLast = new boolean[numPlayers];
+		this.aLast = new Types.ACTIONS[numPlayers];
+		this.numOutputs = master.numOutputs;
+		this.actionIndexMin = master.actionIndexMin;
+		this.actionIndexMax = master.actionIndexMax;
+		m_tdPar = master.m_tdPar;
+		m_ntPar = master.m_ntPar;
+		m_oPar = master.m_oPar;
+		m_elig = master.m_elig;
+		m_EpsilonChangeDelta = master.m_EpsilonChangeDelta;
+		rand = new Random(seed);
+		m_Net = new NTuple2ValueFunc(this, master.m_Net);
+		setMaxGameNum(master.getMaxGameNum());
+		setAgentState(master.getAgentState());
+	}
+
+	@Override
+	protected NTupleBase trainWorker(long seed) {
+		return new SarsaAgt(this, seed);
+	}
+
 	/** 
 	 * Infer members actionIndexMin, actionIndexMax, numOutputs from allAvailActions
 	 * @param allAvailActions
@@ -253,7 +282,7 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
     	bestQValue = -Double.MAX_VALUE;
 		double[] VTable;		
 		
-        randomSelect = false;
+		boolean randomSelect = false;	// local (not a member), so that getNextAction2 is thread-safe
 		if (random) {
 			randomSelect = (rand.nextDouble() < m_epsilon);
 		}
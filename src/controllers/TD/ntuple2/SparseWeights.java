@@ -0,0 +1,230 @@
+package controllers.TD.ntuple2;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sparse storage for n-tuple LUT weights: an open-addressing hash map {@code long -> double} with linear
+ * probing on primitive arrays (no boxing, no entry objects). Keys which were never written have the
+ * value {@link #getDefault()} (0.0 for LUT weights), so that a sparse LUT behaves exactly like a dense
+ * LUT initialized with this value, but needs memory only for the weights that were touched in training.
+ * <p>
+ * Keys have to be non-negative. {@link NTuple2ValueFunc} uses the key {@code (n<<32)|index} for LUT
+ * index {@code index} of its {@code n}-th n-tuple, {@link NTuple2} uses the plain LUT index for its
+ * TC accumulators.
+ * <p>
+ * The map may have a memory budget {@link #getMaxBytes()}: if a new key would make the map grow beyond it,
+ * the map is full (see {@link #isFull()}): new keys are no longer inserted (they keep the value 
+ * {@link #getDefault()}), but the values of the stored keys can still be changed. A warning is printed once,
+ * training goes on with the weights stored so far. The values are double, not float, so that
+ * training with sparse and dense LUTs gives the same weights.
+ * <p>
+ * Not thread-safe for concurrent writes (inserting may rehash the arrays), therefore n-tuple agents with
+ * sparse LUTs are always trained sequentially (see {@link NTupleBase#trainAgentParallel(games.StateObservation[], int)}).
+ *
+ * @see params.ParNT#getSparseLut()
+ */
+public class SparseWeights implements Serializable {
+	private static final long EMPTY = -1L;
+	private static final int MIN_CAPACITY = 1024;
+
+	private final double defaultValue;
+	private final long maxBytes;			// the memory budget, 0: no limit
+	private transient long[] keys;
+	private transient double[] values;
+	private transient int size;
+	private transient boolean full = false;	// true, if a new key did not fit into the memory budget
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer
+	 * compatible with an older one (older .agt.zip will become unreadable or you have
+	 * to provide a special version transformation)
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param defaultValue	the value of all keys not yet written
+	 */
+	public SparseWeights(double defaultValue) {
+		this(defaultValue, 0);
+	}
+
+	/**
+	 * @param defaultValue	the value of all keys not yet written
+	 * @param maxBytes		the memory budget of the map arrays (see {@link #memoryBytes()}), 0 for no limit
+	 */
+	public SparseWeights(double defaultValue, long maxBytes) {
+		this.defaultValue = defaultValue;
+		this.maxBytes = maxBytes;
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new double[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * @return the slot of {@code key} or, if {@code key} is not in the map, the (empty) slot where it
+	 * 		would be inserted
+	 */
+	private int find(long key) {
+		int mask = keys.length-1;
+		int h = mix(key) & mask;
+		long k;
+		while ((k=keys[h])!=EMPTY && k!=key)
+			h = (h+1) & mask;
+		return h;
+	}
+
+	public double get(long key) {
+		int h = find(key);
+		return (keys[h]==EMPTY) ? defaultValue : values[h];
+	}
+
+	/**
+	 * Set the value of {@code key}. If {@code key} is new and the map is full (see {@link #isFull()}), 
+	 * nothing happens.
+	 */
+	public void put(long key, double value) {
+		int h = find(key);
+		if (keys[h]==EMPTY) {
+			if (2*(size+1) > keys.length) {			// keep the load factor <= 1/2
+				if (maxBytes>0 && 2*memoryBytes() > maxBytes) {
+					if (!full) {
+						full = true;
+						System.out.println("[SparseWeights] WARNING: "+size+" weights reach the memory budget of "
+								+ (maxBytes>>20) + " MB, new weights are no longer stored. Increase the budget (ParNT) "
+								+ "or use fewer or shorter n-tuples.");
+					}
+					return;
+				}
+				rehash(2*keys.length);
+				h = find(key);
+			}
+			keys[h] = key;
+			size++;
+		}
+		values[h] = value;
+	}
+
+	/**
+	 * Add {@code delta} to the value of {@code key} (which is {@link #getDefault()}, if {@code key} is
+	 * not yet in the map).
+	 */
+	public void add(long key, double delta) {
+		int h = find(key);
+		if (keys[h]!=EMPTY) {
+			values[h] += delta;
+		} else {
+			put(key, defaultValue + delta);
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(capacity);
+		for (int h=0; h<oldKeys.length; h++) {
+			if (oldKeys[h]!=EMPTY) {
+				int g = find(oldKeys[h]);
+				keys[g] = oldKeys[h];
+				values[g] = oldValues[h];
+				size++;
+			}
+		}
+	}
+
+	public void clear() {
+		allocate(MIN_CAPACITY);
+		full = false;
+	}
+
+	/**
+	 * @return true, if a new key was dropped since it did not fit into the memory budget (since construction 
+	 * 		or the last {@link #clear()})
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	/**
+	 * @return the number of keys stored
+	 */
+	public int size() {
+		return size;
+	}
+
+	public double getDefault() {
+		return defaultValue;
+	}
+
+	/**
+	 * @return the memory budget (bytes) of the map arrays, 0 for no limit
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the approximate memory (bytes) of the map arrays
+	 */
+	public long memoryBytes() {
+		return 16L*keys.length;
+	}
+
+	/**
+	 * @return a new array with all keys stored
+	 */
+	public long[] keys() {
+		int n = 0;
+		long[] res = new long[size];
+		for (int h=0; h<keys.length; h++)
+			if (keys[h]!=EMPTY) res[n++] = keys[h];
+		return res;
+	}
+
+	/**
+	 * @return a new array with all stored values different from {@link #getDefault()}
+	 */
+	public double[] activeValues() {
+		int n = 0;
+		double[] res = new double[size];
+		for (int h=0; h<keys.length; h++)
+			if (keys[h]!=EMPTY && values[h]!=defaultValue) res[n++] = values[h];
+		return Arrays.copyOf(res, n);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int h=0; h<keys.length; h++) {
+			if (keys[h]!=EMPTY) {
+				out.writeLong(keys[h]);
+				out.writeDouble(values[h]);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int n = in.readInt();
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2*n) capacity *= 2;
+		allocate(capacity);
+		for (int i=0; i<n; i++) {
+			long key = in.readLong();
+			put(key, in.readDouble());
+		}
+	}
+}
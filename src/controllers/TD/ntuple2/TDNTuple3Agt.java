@@ -63,7 +63,7 @@ import games.Sim.StateObserverSim;
  * 		symmetric (equivalent) states. 
  * <li> A change in the update formula: when looping over different equivalent
  * 		states, at most one update per index is allowed (see comment in {@link NTuple2} for 
- * 		member {@code indexList}).
+ * 		member {@code visKey}).
  * </ul>
  * 
  * @see PlayAgent
@@ -138,6 +138,35 @@ public class TDNTuple3Agt extends NTupleBase implements PlayAgent,NTupleAgt,Seri
 		initNet(ntPar,tdPar,oPar, nTuples, xnf, maxGameNum);			
 	}
 
+	/**
+	 * Create a worker agent for parallel training, which shares parameters and weights with 
+	 * {@code master} (see {@link NTupleBase#trainAgentParallel(StateObservation[], int)})
+	 * 
+	 * @param master	the agent to train
+	 * @param seed		seed for the worker's random generator
+	 */
+	private TDNTuple3Agt(TDNTuple3Agt master, long seed) {
+		super(master.getName());
+		this.numPlayers = master.numPlayers;
+		this.sLast = new StateObservation[numPlayers];
+		this.randLast = new boolean[numPlayers];
+		this.TERNARY = master.TERNARY;
+		m_tdPar = master.m_tdPar;
+		m_ntPar = master.m_ntPar;
+		m_oPar = master.m_oPar;
+		m_elig = master.m_elig;
+		m_EpsilonChangeDelta = master.m_EpsilonChangeDelta;
+		rand = new Random(seed);
+		m_Net = new NTuple2ValueFunc(this, master.m_Net);
+		setMaxGameNum(master.getMaxGameNum());
+		setAgentState(master.getAgentState());
+	}
+
+	@Override
+	protected NTupleBase trainWorker(long seed) {
+		return new TDNTuple3Agt(this, seed);
+	}
+
 	/**
 	 * 
 	 * @param tdPar			temporal difference parameters
@@ -267,6 +267,7 @@ abstract public class Arena implements Runnable {
 		}
 		gb.destroy();
 		m_xfun.destroy();
+		logManager.flush();			// write pending logs before System.exit
 		if (this.m_LauncherObj==null) {
 			System.exit(0);				
 		} else {
@@ -723,6 +724,7 @@ abstract public class Arena implements Runnable {
 		PStats.printPlayStats(psList, startSO, paVector, this);
 //		PStats.printHighTileStats(psList, startSO, paVector, this);
 		logManager.endLoggingSession(logSessionid);
+		logManager.flush();
 		taskState = Task.IDLE;
 		setStatusMessage("Done.");
 	} // PlayGame(TSGameDataTransfer spDT)
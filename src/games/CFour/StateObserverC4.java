@@ -8,6 +8,7 @@ import games.ObserverBase;
 import games.StateObservation;
 import tools.Types;
 import tools.Types.ACTIONS;
+import tools.ZobristHash;
 
 /**
  * Class StateObserverC4 observes the current state of the game, it has utility functions for
@@ -283,6 +284,14 @@ public class StateObserverC4 extends ObserverBase implements StateObservation {
 	public int getPlayer() {
 		return m_Player;
 	}
+
+	/**
+	 * @return a hash of the two bitboards of {@link C4Base} and the player to move
+	 */
+	@Override
+	public long getHash() {
+		return ZobristHash.mix(m_C4.fieldP1 ^ ZobristHash.mix(m_C4.fieldP2)) ^ ZobristHash.playerKey(m_Player);
+	}
 	
 	public int getNumPlayers() { return 2; }
 
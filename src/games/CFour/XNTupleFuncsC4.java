@@ -129,6 +129,16 @@ public class XNTupleFuncsC4 extends XNTupleBase implements XNTupleFuncs, Seriali
 		return equiv;
 	}
 	
+	/**
+	 * The symmetries of ConnectFour (vertical mirror flip) are pure cell permutations.
+	 * 
+	 * @return the cell permutations, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return symmetryPermutationsByProbing();
+	}
+
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
 	 * and a certain action to be taken in <b>{@code so}</b>, 
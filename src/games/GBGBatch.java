@@ -69,7 +69,7 @@ public class GBGBatch {
 	/**
 	 * Syntax:
 	 * <pre>
-	 * GBGBatch gameName n agentFile [ trainNum maxGameNum csvFile scaPar0 scaPar1 scaPar2 ] </pre>
+	 * GBGBatch gameName n agentFile [ trainNum maxGameNum csvFile scaPar0 scaPar1 scaPar2 scaPar3 ] </pre>
 	 * <p>
 	 * Examples:
 	 * <pre>
@@ -99,6 +99,7 @@ public class GBGBatch {
 	 *          [6] (optional) scaPar0: scalable parameter 0 <br>
 	 *          [7] (optional) scaPar1: scalable parameter 1 <br>
 	 *          [8] (optional) scaPar2: scalable parameter 2 <br>
+	 *          [9] (optional) scaPar3: scalable parameter 3 <br>
 	 *          <p>
 	 *          
 	 * If <b>trainNum</b> or <b>maxGameNum</b> are -1, their respective values stored in {@code agentFile} are taken.
@@ -106,8 +107,9 @@ public class GBGBatch {
 	 * Side effect: the last trained agent is stored to {@code <csvName>.agt.zip}, where
 	 * {@code <csvname>} is {@code args[5]} w/o {@code .csv}
 	 * <p>
-	 * <b>scaPar0,1,2</b> contain the scalable parameters of a game (if a game supports such parameters). Example: The game 
-	 * Hex has the board size (4,5,6,...) as scalable parameter scaPar0. If no scalable parameter is given as 
+	 * <b>scaPar0,1,2,3</b> contain the scalable parameters of a game (if a game supports such parameters). Example: The game 
+	 * Hex has the board size (4,5,6,...) as scalable parameter scaPar0, Sim has "true" as scaPar3 for canonical 
+	 * n-tuple symmetries (see {@link games.Sim.ConfigSim#CANONICAL}). If no scalable parameter is given as 
 	 * command line argument, the defaults from {@link #setDefaultScaPars(String)} apply.
 	 * 
 	 * @throws IOException if s.th. goes wrong when loading the agent or saving the csv file.
@@ -149,7 +151,7 @@ public class GBGBatch {
 
 		String selectedGame = args[0];
 		String[] scaPar = setDefaultScaPars(selectedGame);
-		for (int i = 0; i < 3; i++)
+		for (int i = 0; i < scaPar.length; i++)
 			if (args.length >= i + 7) scaPar[i] = args[i + 6];
 
 		t_Game = setupSelectedGame(selectedGame, scaPar);
@@ -223,12 +225,13 @@ public class GBGBatch {
 				ArenaTrainCube.setTwistType(scaPar[2]);
 				return new ArenaTrainCube("", false);
 			case "Sim":
-				// Set ConfigSim.{NUM_PLAYERS,NUM_NODES} *prior* to calling constructor ArenaTrainSim,
+				// Set ConfigSim.{NUM_PLAYERS,NUM_NODES,COALITION,CANONICAL} *prior* to calling constructor ArenaTrainSim,
 				// which will directly call Arena's constructor where the game board and
-				// the Arena buttons are constructed
+				// the Arena buttons are constructed (scaPar3 is optional for callers with only 3 scaPars)
 				ArenaSim.setNumPlayers(Integer.parseInt(scaPar[0]));
 				ArenaSim.setNumNodes(Integer.parseInt(scaPar[1]));
 				ArenaSim.setCoalition(scaPar[2]);
+				ArenaSim.setCanonical(scaPar.length > 3 && Boolean.parseBoolean(scaPar[3]));
 				return new ArenaTrainSim("", false);
 			case "TicTacToe":
 				return new ArenaTrainTTT("", false);
@@ -242,10 +245,10 @@ public class GBGBatch {
 	/**
 	 * Set default values for the scalable parameters.
 	 * <p>
-	 * This is for the case where GBGBatch is started without {@code args[6], args[7], args[8]}. See {@link #main(String[])}.
+	 * This is for the case where GBGBatch is started without {@code args[6], ..., args[9]}. See {@link #main(String[])}.
 	 */
 	public static String[] setDefaultScaPars(String selectedGame) {
-		String[] scaPar = new String[3];
+		String[] scaPar = new String[4];
 		switch(selectedGame) {
 		case "Hex": 
 			scaPar[0]="5";		// the initial (recommended) value	
@@ -264,6 +267,7 @@ public class GBGBatch {
 			scaPar[0]="2";		 	
 			scaPar[1]="6";			
 			scaPar[2]="None";			
+			scaPar[3]="false";			
 			break;
 		case "RubiksCube": 
 			scaPar[0]="2x2x2";		 	
@@ -752,9 +756,7 @@ public class GBGBatch {
 		gb.initialize();
 		while (pa.getGameNum()<pa.getMaxGameNum())
 		{
-			StateObservation so = soSelectStartState(gb,xab.oPar[n].getChooseStart01(), pa);
-
-			pa.trainAgent(so);
+			t_Game.m_xfun.trainEpisodes(gb, xab.oPar[n], pa, numEval, null);
 
 			gameNum = pa.getGameNum();
 			if (gameNum%numEval==0 ) { //|| gameNum==1) {
@@ -785,7 +787,7 @@ public class GBGBatch {
 				// (only self-play, excluding evaluations)
 				mTrain = new MTrain(i,gameNum,evalQ,evalT,
 						actionNum,trnMoveNum,totalTrainSec,actionNum/totalTrainSec,
-						userValue1,userValue2);
+						userValue1,userValue2,t_Game.m_xfun.trainThreads(xab.oPar[n], pa));
 				mtList.add(mTrain);
 
 				elapsedMs = (System.currentTimeMillis() - startTime);
@@ -815,16 +817,6 @@ public class GBGBatch {
 		return pa;
 	}
 
-	private StateObservation soSelectStartState(GameBoard gb, boolean chooseStart01, PlayAgent pa) {
-		StateObservation so; 
-		if (chooseStart01) {
-			so = gb.chooseStartState(pa);
-		} else {
-			so = gb.getDefaultStartState();  
-		}					
-		return so;
-	}
-	
 	protected PlayAgent wrapAgent(int n, PlayAgent pa, ParOther oPar, ParMaxN mPar, StateObservation so) 
 	{
 		PlayAgent qa;
@@ -836,7 +828,7 @@ public class GBGBatch {
 //				qa = new MaxNWrapper(pa,mPar,oPar);		// mPar has useMaxNHashMap
 //				qa = new MaxNWrapper(pa,nply);			// always maxNHashMap==false    // OLD
 			} else {
-				qa = new ExpectimaxWrapper(pa,nply);
+				qa = new ExpectimaxWrapper(pa,nply,oPar);
 			}
 		} else {
 			qa=pa;			
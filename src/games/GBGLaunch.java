@@ -44,7 +44,7 @@ import tools.Types;
  * via command line arguments (see {@link #main(String[])}) which GBG game will be started. 
  * <p>
  * For scalable games, once a game is chosen, the launcher will allow to select the scalable 
- * parameters (i.e. number of players, number of nodes for Sim). For non-scalable games (i.e. 
+ * parameters (i.e. number of players, number of nodes, coalition and canonical symmetries for Sim). For non-scalable games (i.e. 
  * TicTacToe), the scalable parameter select boxes will be disabled.
  * <p>
  * When 'Start Game' is clicked, the launcher UI becomes invisible and GBG's Arena shows up.<br>
@@ -73,9 +73,11 @@ public class GBGLaunch {
 	private JLabel scaPar0_L;
 	private JLabel scaPar1_L;
 	private JLabel scaPar2_L;
+	private JLabel scaPar3_L;
 	private JComboBox choiceScaPar0;
 	private JComboBox choiceScaPar1;
 	private JComboBox choiceScaPar2;
+	private JComboBox choiceScaPar3;
 
 	/**
 	 * Starts the  general launcher for GBG. The user may select via launcher UI or predefine  
@@ -167,13 +169,14 @@ public class GBGLaunch {
 	 */
 	private static void startGBGameTrain(String selectedGame, GBGLaunch t_Launch) {
 		String title = "General Board Game Playing";
-		String[] scaPar = new String[3];
+		String[] scaPar = new String[4];
 		if (t_Launch==null) {
 			scaPar = setDefaultScaPars();
 		} else {
 			scaPar[0] = (String) t_Launch.choiceScaPar0.getSelectedItem();
 			scaPar[1] = (String) t_Launch.choiceScaPar1.getSelectedItem();
 			scaPar[2] = (String) t_Launch.choiceScaPar2.getSelectedItem();			
+			scaPar[3] = (String) t_Launch.choiceScaPar3.getSelectedItem();			
 		}
 		boolean withUI = true;
 		switch(selectedGame) {
@@ -222,12 +225,13 @@ public class GBGLaunch {
 			t_Game = new ArenaTrainCube(title,withUI);
 			break;
 		case "Sim": 
-			// Set ConfigSim.{NUM_PLAYERS,NUM_NODES} *prior* to calling constructor ArenaTrainSim, 
+			// Set ConfigSim.{NUM_PLAYERS,NUM_NODES,COALITION,CANONICAL} *prior* to calling constructor ArenaTrainSim, 
 			// which will directly call Arena's constructor where the game board and
 			// the Arena buttons are constructed 
 			ArenaSim.setNumPlayers(Integer.parseInt(scaPar[0]));
 			ArenaSim.setNumNodes(Integer.parseInt(scaPar[1]));
 			ArenaSim.setCoalition(scaPar[2]);
+			ArenaSim.setCanonical(Boolean.parseBoolean(scaPar[3]));
 			t_Game = new ArenaTrainSim(title,withUI);
 			break;
 		case "TicTacToe": 
@@ -249,13 +253,14 @@ public class GBGLaunch {
 	 */
 	private static void startGBGamePlay(String selectedGame, GBGLaunch t_Launch) {
 		String title = "General Board Game Playing";
-		String[] scaPar = new String[3];
+		String[] scaPar = new String[4];
 		if (t_Launch==null) {
 			scaPar = setDefaultScaPars();
 		} else {
 			scaPar[0] = (String) t_Launch.choiceScaPar0.getSelectedItem();
 			scaPar[1] = (String) t_Launch.choiceScaPar1.getSelectedItem();
 			scaPar[2] = (String) t_Launch.choiceScaPar2.getSelectedItem();			
+			scaPar[3] = (String) t_Launch.choiceScaPar3.getSelectedItem();			
 		}
 		boolean withUI = true;
 		switch(selectedGame) {
@@ -303,12 +308,13 @@ public class GBGLaunch {
 			t_Game = new ArenaTrainCube(title,withUI);		// ArenaCube still missing
 			break;
 		case "Sim": 
-			// Set ConfigSim.{NUM_PLAYERS,NUM_NODES} *prior* to calling constructor ArenaSim, 
+			// Set ConfigSim.{NUM_PLAYERS,NUM_NODES,COALITION,CANONICAL} *prior* to calling constructor ArenaSim, 
 			// which will directly call Arena's constructor where the game board and
 			// the Arena buttons are constructed 
 			ArenaSim.setNumPlayers(Integer.parseInt(scaPar[0]));
 			ArenaSim.setNumNodes(Integer.parseInt(scaPar[1]));
 			ArenaSim.setCoalition(scaPar[2]);
+			ArenaSim.setCanonical(Boolean.parseBoolean(scaPar[3]));
 			t_Game = new ArenaSim(title,withUI);
 			break;
 		case "TicTacToe": 
@@ -352,6 +358,8 @@ public class GBGLaunch {
 		choiceScaPar1 = new JComboBox();
 		scaPar2_L = new JLabel("");
 		choiceScaPar2 = new JComboBox();
+		scaPar3_L = new JLabel("");
+		choiceScaPar3 = new JComboBox();
 		JPanel scaPar0Panel = new JPanel();
 		scaPar0Panel.setLayout(new GridLayout(1,0,2,2));		// rows,columns,hgap,vgap
 		scaPar0Panel.add(scaPar0_L);
@@ -364,6 +372,10 @@ public class GBGLaunch {
 		scaPar2Panel.setLayout(new GridLayout(1,0,2,2));		// rows,columns,hgap,vgap
 		scaPar2Panel.add(scaPar2_L);
 		scaPar2Panel.add(choiceScaPar2);
+		JPanel scaPar3Panel = new JPanel();
+		scaPar3Panel.setLayout(new GridLayout(1,0,2,2));		// rows,columns,hgap,vgap
+		scaPar3Panel.add(scaPar3_L);
+		scaPar3Panel.add(choiceScaPar3);
 
 		JButton StartG=new JButton("Start Game");
 		StartG.setBorder(bord);
@@ -384,6 +396,7 @@ public class GBGLaunch {
 		launcherUI.add(scaPar0Panel);
 		launcherUI.add(scaPar1Panel);
 		launcherUI.add(scaPar2Panel);
+		launcherUI.add(scaPar3Panel);
 		launcherUI.add(StartG);
 		launcherUI.add(Exit);
 		launcherUI.addWindowListener(new WindowClosingAdapter());
@@ -455,7 +468,7 @@ public class GBGLaunch {
 	 * the game directly, w/o launcher UI".
 	 */
 	public static String[] setDefaultScaPars() {
-		String[] scaPar = new String[3];
+		String[] scaPar = new String[4];
 		switch(selectedGame) {
 		case "Hex": 
 			scaPar[0]="6";		// the initial (recommended) value	
@@ -474,6 +487,7 @@ public class GBGLaunch {
 			scaPar[0]="2";		 	
 			scaPar[1]="6";			
 			scaPar[2]="None";			
+			scaPar[3]="false";			
 			break;
 		case "RubiksCube": 
 			scaPar[0]="2x2x2";		 	
@@ -498,6 +512,10 @@ public class GBGLaunch {
 	 * Adjust the scalable parameters of a game after the game selector has changed.
 	 */
 	public void adjustScaParGuiPart() {
+		// scaPar3 is only used by Sim:
+		scaPar3_L.setText("");
+		scaPar3_L.setToolTipText(null);
+		setScaPar3List(new int[]{});
 		switch(selectedGame) {
 		case "Hex": 
 			scaPar0_L.setText("Board Size");
@@ -542,6 +560,12 @@ public class GBGLaunch {
 			choiceScaPar0.setSelectedItem("2");		// 
 			choiceScaPar1.setSelectedItem("6");		// the initial (recommended) values 
 			choiceScaPar2.setSelectedItem("None");	// 
+			scaPar3_L.setText("Canonical");
+			scaPar3_L.setToolTipText("true: n-tuple symmetries map each position to its canonical representative "
+					+ "(instead of sampling nSym node permutations)");
+			choiceScaPar3.addItem("false");
+			choiceScaPar3.addItem("true");
+			choiceScaPar3.setSelectedItem("false");	// 
 			break;
 		case "RubiksCube": 
 			scaPar0_L.setText("Cube Type");
@@ -609,6 +633,12 @@ public class GBGLaunch {
 			choiceScaPar2.addItem(Integer.toString(i));
 	}
 
+	public void setScaPar3List(int[] modeList) {
+		choiceScaPar3.removeAllItems();
+		for (int i : modeList)
+			choiceScaPar3.addItem(Integer.toString(i));
+	}
+
 	public void setScaPar1Tooltip(String str) {
 		choiceScaPar0.setToolTipText(str);
 	}
@@ -0,0 +1,169 @@
+package games;
+
+import tools.Types;
+
+import java.io.*;
+
+/**
+ * The compact, append-only log format of {@link LogManager} (advanced logging): one file per logging session with
+ * <pre>
+ *   int    MAGIC ("GBGL"), int VERSION
+ *   int    length, byte[] start state       (serialized {@link StateObservation}, written once)
+ *   per move:
+ *     byte   flags                          (HAS_VTABLE, HAS_STATE)
+ *     int    action
+ *     [int n, double[n] value table]        (if HAS_VTABLE)
+ *     [int length, byte[] state]            (if HAS_STATE)
+ * </pre>
+ * For deterministic games only the action numbers (and the optional value tables) are stored, the states are
+ * reconstructed by re-advancing the start state. For nondeterministic games the state after each move is stored
+ * as well, since re-advancing would draw other random events.
+ * <p>
+ * Since the records are appended and flushed one by one, a log which was not closed (e.g. after a crash)
+ * can be read up to its last complete record.
+ *
+ * @see LogManager
+ */
+class GameLog {
+	static final int MAGIC = 0x4742474C;	// "GBGL"
+	static final int VERSION = 1;
+	private static final int HAS_VTABLE = 1;
+	private static final int HAS_STATE = 2;
+
+	/**
+	 * @return true, if {@code file} starts with the magic number of this format (otherwise it is probably an
+	 * 		old .gamelog with a serialized {@link LogSessionContainer})
+	 */
+	static boolean isGameLog(File file) {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static byte[] serialize(StateObservation so) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeObject(so);
+		}
+		return bos.toByteArray();
+	}
+
+	private static StateObservation deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (StateObservation) ois.readObject();
+		}
+	}
+
+	/**
+	 * Appends the records of one logging session to a file. Not thread-safe: {@link LogManager} calls it only
+	 * from its writer thread.
+	 */
+	static class Writer implements Closeable {
+		private final DataOutputStream out;
+		private final boolean deterministic;
+		private final String gameName;
+
+		/**
+		 * Create the log file and write the start state.
+		 */
+		Writer(File file, StateObservation startSO) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			deterministic = startSO.isDeterministicGame();
+			gameName = startSO.getName();
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			byte[] bytes = serialize(startSO);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			out.flush();
+		}
+
+		String getGameName() {
+			return gameName;
+		}
+
+		/**
+		 * Append the record for one move.
+		 *
+		 * @param action	the action (if it is an {@link Types.ACTIONS_VT} with value table, the table is stored)
+		 * @param so		the state after the move, only needed for nondeterministic games (may be null otherwise)
+		 */
+		void append(Types.ACTIONS action, StateObservation so) throws IOException {
+			double[] vtable = (action instanceof Types.ACTIONS_VT) ? ((Types.ACTIONS_VT) action).getVTable() : null;
+			byte[] bytes = deterministic ? null : serialize(so);
+			out.writeByte((vtable != null ? HAS_VTABLE : 0) | (bytes != null ? HAS_STATE : 0));
+			out.writeInt(action.toInt());
+			if (vtable != null) {
+				out.writeInt(vtable.length);
+				for (double v : vtable) out.writeDouble(v);
+			}
+			if (bytes != null) {
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read a log file and replay it into a {@link LogSessionContainer}: the states of deterministic games are
+	 * reconstructed by advancing a copy of the previous state with the logged action (after storing the
+	 * logged value table, as {@link Arena} does).
+	 *
+	 * @param file	the log file
+	 * @return the log session with all complete records of {@code file}
+	 */
+	static LogSessionContainer read(File file) throws IOException, ClassNotFoundException {
+		LogSessionContainer lsc = new LogSessionContainer();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not a binary game log");
+			int version = in.readInt();
+			if (version > VERSION)
+				throw new IOException(file + " has version " + version + ", only versions <= " + VERSION
+						+ " are supported");
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			StateObservation so = deserialize(bytes);
+			lsc.addLogEntry(null, so);
+
+			int flags;
+			while ((flags = in.read()) != -1) {
+				try {
+					int a = in.readInt();
+					Types.ACTIONS action;
+					if ((flags & HAS_VTABLE) != 0) {
+						double[] vtable = new double[in.readInt()];
+						for (int k = 0; k < vtable.length; k++) vtable[k] = in.readDouble();
+						action = new Types.ACTIONS_VT(a, false, vtable);
+					} else {
+						action = new Types.ACTIONS(a);
+					}
+					StateObservation next;
+					if ((flags & HAS_STATE) != 0) {
+						bytes = new byte[in.readInt()];
+						in.readFully(bytes);
+						next = deserialize(bytes);
+					} else {
+						next = so.copy();
+						if (action instanceof Types.ACTIONS_VT)
+							next.storeBestActionInfo(action, ((Types.ACTIONS_VT) action).getVTable());
+						next.advance(action);
+					}
+					lsc.addLogEntry(action, next);
+					so = next;
+				} catch (EOFException e) {
+					break;		// incomplete last record (log not closed)
+				}
+			}
+		}
+		return lsc;
+	}
+}
@@ -4,8 +4,13 @@ import games.ObserverBase;
 import games.StateObservation;
 import tools.Types;
 import tools.Types.ACTIONS;
+import tools.ZobristHash;
 
+import java.awt.Polygon;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static games.Hex.HexConfig.*;
 
@@ -36,7 +41,13 @@ import static games.Hex.HexConfig.*;
  * </pre>
  * Player 0 (Black) has the first move. The white borders are below the first and above the 
  * last row (rows = cells with the same 1st index). The black borders are from lowest to highest row.
- * 
+ * <p>
+ * The state is held in flat arrays: {@code cells[k]} is the owner of tile {@code k = i*BOARD_SIZE+j} and 
+ * {@code parent[]} is a union-find structure over all tiles plus four virtual edge nodes (two per player). 
+ * Each stone is joined in {@link #advance(ACTIONS)} with its neighbors of the same color and with the edges
+ * it touches, so the win check is just a comparison of the roots of the mover's two edges. {@link #copy()} 
+ * copies only these arrays. The HexTile[][] array of {@link #getBoard()} (needed by the GUI and by the 
+ * feature classes) is created on demand.
  */
 public class StateObserverHex extends ObserverBase implements StateObservation {
     /**
@@ -45,84 +56,162 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
      * become unreadable or you have to provide a special version transformation)
      */
     private static final long serialVersionUID = 12L;
+
+    /**
+     * The 6 neighbors of tile [i,j] are [i+DI[n],j+DJ[n]]
+     */
+    private static final int[] DI = {-1, -1, 0, 0, 1, 1};
+    private static final int[] DJ = {0, 1, -1, 1, -1, 0};
+
+    private static Polygon[] polys;     // tile polygons for the current BOARD_SIZE (shared by all states)
+
     private int currentPlayer;
-    private HexTile[][] board;
-    private HexTile lastUpdatedTile;
+    private byte[] cells;               // owner of each tile: PLAYER_NONE, PLAYER_ONE or PLAYER_TWO
+    private int[] parent;               // union-find parent of each tile and edge node, -(size) for roots
+    private double[] values;            // tile values from storeBestActionInfo, null if not yet set
+    private int lastMove = -1;          // tile of the last placed stone, -1 if none
+    private boolean lastMoveWins;       // true, if the last placed stone connected the mover's two edges
+    private transient long cellHash;    // Zobrist hash of cells, maintained in advance() (see getHash())
     private ArrayList<Types.ACTIONS> availableActions;
 
+    /**
+     * Only created on demand in {@link #getBoard()} and then kept in sync. It is serialized, so that
+     * older .gamelog files (which contain only this board) can be read, see {@link #readObject}.
+     */
+    private HexTile[][] board;
+
     public StateObserverHex() {
-        board = defaultGameBoard();
+        cells = new byte[HexConfig.TILE_COUNT];
+        Arrays.fill(cells, (byte) PLAYER_NONE);
+        parent = new int[HexConfig.TILE_COUNT + 4];
+        Arrays.fill(parent, -1);
         currentPlayer = HexConfig.PLAYER_ONE;
         setAvailableActions();
     }
 
-    // never used
-//  public StateObserverHex(HexTile[][] table) {
-//        int pieceCount = 0;
-//        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-//            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-//                pieceCount += (table[i][j].getPlayer() == HexConfig.PLAYER_ONE ? 1 : -1);
-//            }
-//        }
-//        currentPlayer = (pieceCount % 2 == 0 ? HexConfig.PLAYER_ONE : PLAYER_TWO);
-//        board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-//        copyTable(table);
-//        setAvailableActions();
-//  }
-
-//  public StateObserverHex(HexTile[][] table, int player, HexTile lastUpdatedTile) {
-//        board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-//        copyTable(table);
-//        currentPlayer = player;
-//        this.lastUpdatedTile = lastUpdatedTile;
-//        setAvailableActions();
-//  }
-    
     public StateObserverHex(StateObserverHex other) {	
     	super(other);
-        board = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
-        copyTable(other.board);
-        this.currentPlayer =other.currentPlayer;
-        this.lastUpdatedTile = other.lastUpdatedTile;
+        this.cells = other.cells.clone();
+        this.parent = other.parent.clone();
+        if (other.values != null)
+            this.values = other.values.clone();
+        this.currentPlayer = other.currentPlayer;
+        this.lastMove = other.lastMove;
+        this.lastMoveWins = other.lastMoveWins;
+        this.cellHash = other.cellHash;
 		if (other.availableActions!=null)	// this check is needed when loading older logs
 			this.availableActions = (ArrayList<ACTIONS>) other.availableActions.clone();
 					// note that clone does only clone the ArrayList, but not the contained ACTIONS, they are 
 					// just copied by reference. However, as far as we see, the ACTIONS are never altered, so 
 					// it should be o.k.
-//		this.setAvailableActions();		// this as replacement for clone() would be slower
     }
 
     @Override
     public StateObserverHex copy() {
-//    	StateObserverHex soh = new StateObserverHex(board, currentPlayer, lastUpdatedTile);
-//    	soh.m_counter = this.m_counter;
-//      return soh;
     	return new StateObserverHex(this);
     }
 
     /**
-     * Replaces the current game board array by a copy of the array that is passed as the parameter.
-     *
-     * @param table The game board array that is to be copied
+     * Older .gamelog files contain only the HexTile[][] board. In this case the cell array and the 
+     * union-find structure are rebuilt from it.
      */
-    private void copyTable(HexTile[][] table) {
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                board[i][j] = table[i][j].copy();
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (cells == null) {
+            cells = new byte[HexConfig.TILE_COUNT];
+            parent = new int[HexConfig.TILE_COUNT + 4];
+            values = new double[HexConfig.TILE_COUNT];
+            Arrays.fill(parent, -1);
+            for (int k = 0; k < HexConfig.TILE_COUNT; k++) {
+                HexTile tile = board[k / HexConfig.BOARD_SIZE][k % HexConfig.BOARD_SIZE];
+                cells[k] = (byte) tile.getPlayer();
+                values[k] = tile.getValue();
+                if (cells[k] != PLAYER_NONE) 
+                    connect(k);
             }
+            // only the player who moved last can have a connection between his edges
+            for (int p = PLAYER_ONE; p <= PLAYER_TWO; p++) 
+                lastMoveWins |= (find(edgeNode(p, 0)) == find(edgeNode(p, 1)));
+        }
+        cellHash = 0L;
+        for (int k = 0; k < cells.length; k++)
+            if (cells[k] != PLAYER_NONE)
+                cellHash ^= ZobristHash.key(k, cells[k]);
+    }
+
+    /**
+     * @param player the player
+     * @param edge   0 for the player's first edge, 1 for the second
+     * @return index of the edge's virtual node in {@code parent[]}
+     */
+    private static int edgeNode(int player, int edge) {
+        return HexConfig.TILE_COUNT + 2 * player + edge;
+    }
+
+    /**
+     * @return the root of {@code x}'s set (with path halving)
+     */
+    private int find(int x) {
+        while (parent[x] >= 0) {
+            int p = parent[x];
+            if (parent[p] >= 0)
+                parent[x] = parent[p];
+            x = p;
+        }
+        return x;
+    }
+
+    /**
+     * Merge the sets of {@code x} and {@code y} (union by size)
+     */
+    private void union(int x, int y) {
+        int rx = find(x), ry = find(y);
+        if (rx == ry) return;
+        if (parent[rx] > parent[ry]) {      // rx is the smaller set
+            int t = rx; rx = ry; ry = t;
+        }
+        parent[rx] += parent[ry];
+        parent[ry] = rx;
+    }
+
+    /**
+     * Join the stone on tile {@code k} with its neighbors of the same color and with the edges it touches.
+     */
+    private void connect(int k) {
+        int player = cells[k];
+        int i = k / HexConfig.BOARD_SIZE;
+        int j = k % HexConfig.BOARD_SIZE;
+        for (int n = 0; n < 6; n++) {
+            int ni = i + DI[n], nj = j + DJ[n];
+            if (HexUtils.isValidTile(ni, nj) && cells[ni * HexConfig.BOARD_SIZE + nj] == player)
+                union(k, ni * HexConfig.BOARD_SIZE + nj);
         }
+        // the edges of PLAYER_ONE are the tiles with j = 0 and j = BOARD_SIZE-1, those of PLAYER_TWO the
+        // tiles with i = 0 and i = BOARD_SIZE-1 (see HexUtils::isNextToEdge)
+        int x = (player == PLAYER_ONE) ? j : i;
+        if (x == 0)
+            union(k, edgeNode(player, 0));
+        else if (x == HexConfig.BOARD_SIZE - 1)
+            union(k, edgeNode(player, 1));
     }
 
     /**
      * @return An empty board array
      */
-    private HexTile[][] defaultGameBoard() {
+    private static HexTile[][] defaultGameBoard() {
         HexTile[][] newBoard = new HexTile[HexConfig.BOARD_SIZE][HexConfig.BOARD_SIZE];
+        if (polys == null || polys.length != HexConfig.TILE_COUNT) {
+            Polygon[] p = new Polygon[HexConfig.TILE_COUNT];
+            for (int k = 0; k < HexConfig.TILE_COUNT; k++)
+                p[k] = HexUtils.createHexPoly(k / HexConfig.BOARD_SIZE, k % HexConfig.BOARD_SIZE,
+                        HexConfig.OFFSET, HexConfig.BOARD_SIZE, HexConfig.HEX_SIZE);
+            polys = p;
+        }
 
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
+        for (int i = 0, k = 0; i < HexConfig.BOARD_SIZE; i++) {
+            for (int j = 0; j < HexConfig.BOARD_SIZE; j++, k++) {
                 newBoard[i][j] = new HexTile(i, j);
-                newBoard[i][j].setPoly(HexUtils.createHexPoly(i, j, HexConfig.OFFSET, HexConfig.BOARD_SIZE, HexConfig.HEX_SIZE));
+                newBoard[i][j].setPoly(polys[k]);
             }
         }
 
@@ -141,13 +230,13 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
 
     /**
      * Uses information about the tile on which the last stone has been placed to determine if the chain containing
-     * that stone touches both game board edges that have to be connected. Actual calculation is done in HexUtils.
+     * that stone touches both game board edges that have to be connected. This is computed incrementally in 
+     * {@link #advance(ACTIONS)}.
      *
      * @return ID of the player who won the game. ID of HexConfig.PLAYER_NONE if game is not over.
      */
     private int determineWinner() {
-        Types.WINNER winner = HexUtils.getWinner(getBoard(), getLastUpdatedTile());
-        if (winner == Types.WINNER.PLAYER_WINS) {
+        if (lastMoveWins) {
             //Reverse winners, since current player changes after the winning tile was placed
             return (this.getPlayer() == PLAYER_ONE ? PLAYER_ONE : PLAYER_TWO);
         }
@@ -169,13 +258,11 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         int playerOneTiles = 0;
         int playerTwoTiles = 0;
 
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                if (board[i][j].getPlayer() == PLAYER_ONE) {
-                    playerOneTiles++;
-                } else if (board[i][j].getPlayer() == PLAYER_TWO) {
-                    playerTwoTiles++;
-                }
+        for (byte c : cells) {
+            if (c == PLAYER_ONE) {
+                playerOneTiles++;
+            } else if (c == PLAYER_TWO) {
+                playerTwoTiles++;
             }
         }
 
@@ -194,7 +281,7 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
 //                sb.append(' ');
 //            }
             for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                switch (board[i][j].getPlayer()) {
+                switch (cells[i * HexConfig.BOARD_SIZE + j]) {
                     case HexConfig.PLAYER_ONE:
                         sb.append('B');
                         break;
@@ -243,6 +330,14 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         return "Hex";
     }
 
+    /**
+     * @return the Zobrist hash of all stones plus the player to move (maintained incrementally, O(1))
+     */
+    @Override
+    public long getHash() {
+        return cellHash ^ ZobristHash.playerKey(currentPlayer);
+    }
+
     @Override
     public void advance(Types.ACTIONS action) {
         if (action == null) {
@@ -254,14 +349,25 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         int j = actionInt % HexConfig.BOARD_SIZE;
         int i = (actionInt - j) / HexConfig.BOARD_SIZE;
 
-        if (board[i][j].getPlayer() != HexConfig.PLAYER_NONE) {
+        if (cells[actionInt] != HexConfig.PLAYER_NONE) {
             System.out.println("Tile (" + i + ", " + j + ") has already been claimed by a player.");
             return;
         }
-        board[i][j].setPlayer(currentPlayer);
-
-        lastUpdatedTile = board[i][j];
-        setAvailableActions();            // IMPORTANT: adjust the available actions (have reduced by one)
+        cells[actionInt] = (byte) currentPlayer;
+        cellHash ^= ZobristHash.key(actionInt, currentPlayer);
+        if (board != null)
+            board[i][j].setPlayer(currentPlayer);
+        connect(actionInt);
+        lastMoveWins = (find(edgeNode(currentPlayer, 0)) == find(edgeNode(currentPlayer, 1)));
+        lastMove = actionInt;
+
+        // IMPORTANT: adjust the available actions (have reduced by one)
+        for (int k = 0; k < availableActions.size(); k++) {
+            if (availableActions.get(k).toInt() == actionInt) {
+                availableActions.remove(k);
+                break;
+            }
+        }
 		super.incrementMoveCounter();
 
         // set up player for next advance()
@@ -302,12 +408,9 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
     @Override
     public void setAvailableActions() {
         availableActions = new ArrayList<>();
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                if (board[i][j].getPlayer() == HexConfig.PLAYER_NONE) {
-                    int actionInt = i * HexConfig.BOARD_SIZE + j;
-                    availableActions.add(Types.ACTIONS.fromInt(actionInt));
-                }
+        for (int actionInt = 0; actionInt < HexConfig.TILE_COUNT; actionInt++) {
+            if (cells[actionInt] == HexConfig.PLAYER_NONE) {
+                availableActions.add(Types.ACTIONS.fromInt(actionInt));
             }
         }
     }
@@ -319,30 +422,29 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
 
     @Override
     public void storeBestActionInfo(Types.ACTIONS bestAction, double[] valueTable) {
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                board[i][j].setValue(Double.NaN);
-            }
-        }
+        clearTileValues();
 
         for (int k = 0; k < getNumAvailableActions(); ++k) {
-            double val = valueTable[k];
-            int actionInt = getAction(k).toInt();
-            int j = actionInt % HexConfig.BOARD_SIZE;
-            int i = (actionInt - j) / HexConfig.BOARD_SIZE;
-            board[i][j].setValue(val);
+            values[getAction(k).toInt()] = valueTable[k];
         }
+        if (board != null)
+            setTileValues();
     }
 
     /**
      * Set all tile values to the default (Double.NaN)
      */
     protected void clearTileValues() {
-        for (int i = 0; i < HexConfig.BOARD_SIZE; i++) {
-            for (int j = 0; j < HexConfig.BOARD_SIZE; j++) {
-                board[i][j].setValue(Double.NaN);
-            }
-        }
+        if (values == null)
+            values = new double[HexConfig.TILE_COUNT];
+        Arrays.fill(values, Double.NaN);
+        if (board != null)
+            setTileValues();
+    }
+
+    private void setTileValues() {
+        for (int k = 0; k < HexConfig.TILE_COUNT; k++)
+            board[k / HexConfig.BOARD_SIZE][k % HexConfig.BOARD_SIZE].setValue(values == null ? Double.NaN : values[k]);
     }
 
     @Override
@@ -355,16 +457,36 @@ public class StateObserverHex extends ObserverBase implements StateObservation {
         return currentPlayer;
     }
 
+    /**
+     * @return the board as HexTile[][] array (with polygons and tile values, for the GUI and the features). 
+     *      It is created on the first call and should not be modified.
+     */
     public HexTile[][] getBoard() {
+        if (board == null) {
+            HexTile[][] b = defaultGameBoard();
+            for (int k = 0; k < HexConfig.TILE_COUNT; k++)
+                b[k / HexConfig.BOARD_SIZE][k % HexConfig.BOARD_SIZE].setPlayer(cells[k]);
+            board = b;
+            setTileValues();
+        }
         return board;
     }
 
+    /**
+     * @param k tile number {@code i*BOARD_SIZE+j}
+     * @return the owner of tile {@code k} (PLAYER_NONE, PLAYER_ONE or PLAYER_TWO)
+     */
+    int getCell(int k) {
+        return cells[k];
+    }
 
     /**
      * @return The tile on which the last stone was placed
      */
     HexTile getLastUpdatedTile() {
-        return lastUpdatedTile;
+        if (lastMove < 0)
+            return null;
+        return getBoard()[lastMove / HexConfig.BOARD_SIZE][lastMove % HexConfig.BOARD_SIZE];
     }
 
 }
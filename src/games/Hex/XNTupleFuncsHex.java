@@ -74,11 +74,10 @@ public class XNTupleFuncsHex extends XNTupleBase implements XNTupleFuncs, Serial
         // and any other permutation should lead after re-training to
         // identical results as well.
         StateObserverHex stateObs = (StateObserverHex) so;
-        HexTile[] boardVectorTiles = HexUtils.boardToVector(stateObs.getBoard());
-        int[] boardVectorInt = new int[boardVectorTiles.length];
+        int[] boardVectorInt = new int[HexConfig.TILE_COUNT];
 
         for (int i = 0; i < boardVectorInt.length; i++) {
-            boardVectorInt[i] = bmap[boardVectorTiles[i].getPlayer() + 1];
+            boardVectorInt[i] = bmap[stateObs.getCell(i) + 1];    // same order as HexUtils.boardToVector
         }
 
         return new BoardVector(boardVectorInt);
@@ -95,6 +94,16 @@ public class XNTupleFuncsHex extends XNTupleBase implements XNTupleFuncs, Serial
         return symmetries;
     }
 
+	/**
+	 * The symmetries of Hex (180-degree rotation) are pure cell permutations.
+	 * 
+	 * @return the cell permutations, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return symmetryPermutationsByProbing();
+	}
+
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
 	 * and a certain action to be taken in <b>{@code so}</b>, 
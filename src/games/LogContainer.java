@@ -0,0 +1,27 @@
+package games;
+
+import tools.Types;
+
+import java.io.Serializable;
+
+/**
+ * The LogContainer is used to save a log entry, a log entry is a pair of an Action and the new StateObservation
+ *
+ * @author Johannes Kutsch, 30.04.2017
+ */
+class LogContainer implements Serializable {
+    public Types.ACTIONS action;
+    public StateObservation stateObservation;
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer 
+	 * compatible with an older one (older .gamelog containing this object will become 
+	 * unreadable or you have to provide a special version transformation)
+	 */
+	private static final long serialVersionUID = 1L;
+
+    public LogContainer(Types.ACTIONS action, StateObservation stateObservation) {
+        this.action = action;
+        this.stateObservation = stateObservation;
+    }
+}
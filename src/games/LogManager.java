@@ -3,8 +3,14 @@ package games;
 import tools.Types;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is responsible for logging games
@@ -15,18 +21,21 @@ import java.util.*;
  */
 public class LogManager {
     public boolean loggingEnabled = false;  //enables or disables logging
-    public boolean advancedLogging = true; //if advancedLogging is enabled every new logEntry is saved to a temporary file
-                                           //the log is not lost when a crash occurs
-                                           //call generateLogSessionContainerFromFile(path of temp folder) to combine all temporary files and generate the log
+    public boolean advancedLogging = true; //if advancedLogging is enabled every new logEntry is appended to a temporary session log (see GameLog)
+                                           //by a writer thread, the log is not lost when a crash occurs
+                                           //call generateLogSessionContainerFromFile(path of temp log) to read the log
     public boolean verbose = true;
 
     public String filePath = "logs";
     public String tempPath = "logs\\temp";
     private String subDir = null;
 
-    private HashMap<Integer, Integer> counter = new HashMap<>(); //saves a counter for each sessionid
+    private HashMap<Integer, File> advancedSessions = new HashMap<>(); //saves the temp log file for each sessionid
     private HashMap<Integer, List<LogContainer>> simpleLoggingContainers = new HashMap<>();
 
+    private ExecutorService writer = null;  //the single writer thread for advanced logging (created on demand)
+    private final HashMap<Integer, GameLog.Writer> writers = new HashMap<>(); //only accessed by the writer thread
+
     /**
      * use this constructor when you only run one instance of LogManager
      * it uses "src\games\Logs" as default filePath
@@ -63,10 +72,8 @@ public class LogManager {
     public void addLogEntry(Types.ACTIONS action, StateObservation stateObservation, int sessionid) {
         //sessionid = -1 => session is invalid, started while logging was disabled
         if(loggingEnabled && sessionid != -1) {
-            LogContainer logContainer = new LogContainer(action, stateObservation);
-
             if(advancedLogging) {
-                if(!counter.containsKey(sessionid)) {
+                if(!advancedSessions.containsKey(sessionid)) {
                 	// this should normally not happen. It happens only if addLogEntry is
                 	// called without a prior newLoggingSession. We print out a warning and 
                 	// return. (This is less disruptive than throwing an exception.)
@@ -75,16 +82,16 @@ public class LogManager {
                     //throw new RuntimeException("Invalid sessionid, start a new  logging session to get a valid sessionid");
                 }
 
-                try {
-                    FileOutputStream fos = new FileOutputStream(tempPath + "\\temp_" + sessionid + "\\" + counter.get(sessionid) + ".temp");
-                    ObjectOutputStream oos = new ObjectOutputStream(fos);
-                    oos.writeObject(logContainer);
-                    fos.close();
-                    oos.close();
-                    counter.put(sessionid, counter.get(sessionid) + 1);
-                } catch (IOException ignore) {
-                    ignore.printStackTrace();
-                }
+                //only the nondeterministic games need the state (copied here, since the caller will advance it)
+                StateObservation so = stateObservation.isDeterministicGame() ? null : stateObservation.copy();
+                getWriter().execute(() -> {
+                    GameLog.Writer w = writers.get(sessionid);
+                    try {
+                        if (w != null) w.append(action, so);
+                    } catch (IOException ignore) {
+                        ignore.printStackTrace();
+                    }
+                });
             } else {
                 if(!simpleLoggingContainers.containsKey(sessionid)) {
                 	// this should normally not happen. It happens only if addLogEntry is
@@ -95,11 +102,44 @@ public class LogManager {
                     //throw new RuntimeException("Invalid Session ID");
                 }
 
-                simpleLoggingContainers.get(sessionid).add(logContainer);
+                simpleLoggingContainers.get(sessionid).add(new LogContainer(action, stateObservation));
             }
         }
     }
 
+    private synchronized ExecutorService getWriter() {
+        if (writer == null) {
+            //the writer thread is no daemon, so that pending log entries and logs are written before the JVM
+            //exits normally. It terminates when idle, so that it does not keep the JVM alive.
+            //Before System.exit() call flush().
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> new Thread(r, "LogManager-writer"));
+            tpe.allowCoreThreadTimeOut(true);
+            writer = tpe;
+        }
+        return writer;
+    }
+
+    /**
+     * waits until the writer thread has written all pending log entries and logs to disk
+     */
+    public void flush() {
+        ExecutorService w;
+        synchronized (this) {
+            w = writer;
+        }
+        if (w == null) return;      //nothing was logged with advanced logging
+        try {
+            w.submit(() -> {}).get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private File tempLogFile(int sessionid) {
+        return new File(tempPath + "\\temp_" + sessionid + ".glog");
+    }
+
     /**
      * starts a new logging session, for example when a new game is started
      *
@@ -113,7 +153,7 @@ public class LogManager {
         if(loggingEnabled) {
             sessionid = 0;
             if(advancedLogging) {
-                while (counter.containsKey(sessionid)) {
+                while (advancedSessions.containsKey(sessionid) || tempLogFile(sessionid).exists()) {
                     sessionid++;
                 }
             } else {
@@ -122,28 +162,23 @@ public class LogManager {
                 }
             }
 
-            LogContainer logContainer = new LogContainer(null, stateObservation.copy());
+            StateObservation startSO = stateObservation.copy();
 
             if(advancedLogging) {
-                while(tools.Utils.checkAndCreateFolder(tempPath + "\\temp_" + sessionid)) {
-                    sessionid++;
-                }
-
-                counter.put(sessionid, 0);
-
-                try {
-                    FileOutputStream fos = new FileOutputStream(tempPath + "\\temp_" + sessionid + "\\" + counter.get(sessionid) + ".temp");
-                    ObjectOutputStream oos = new ObjectOutputStream(fos);
-                    oos.writeObject(logContainer);
-                    fos.close();
-                    oos.close();
-                    counter.put(sessionid, counter.get(sessionid) + 1);
-                } catch (IOException ignore) {
-                    ignore.printStackTrace();
-                }
+                File file = tempLogFile(sessionid);
+                advancedSessions.put(sessionid, file);
+
+                int id = sessionid;
+                getWriter().execute(() -> {
+                    try {
+                        writers.put(id, new GameLog.Writer(file, startSO));
+                    } catch (IOException ignore) {
+                        ignore.printStackTrace();
+                    }
+                });
             } else {
                 simpleLoggingContainers.put(sessionid, new ArrayList<>());
-                simpleLoggingContainers.get(sessionid).add(logContainer);
+                simpleLoggingContainers.get(sessionid).add(new LogContainer(null, startSO));
             }
 
             if(verbose) {
@@ -155,7 +190,8 @@ public class LogManager {
     }
 
     /**
-     * ends a logging session, for example when a game is finished
+     * ends a logging session, for example when a game is finished. With advanced logging the log is finished
+     * by the writer thread, call {@link #flush()} to wait for it.
      *
      * @param sessionid the id of the current logsession
      */
@@ -167,12 +203,23 @@ public class LogManager {
                 System.out.println("LogManager: Ending logging session with id: " + sessionid);
             }
             if(advancedLogging) {
-                if(!counter.containsKey(sessionid)) {
+                File file = advancedSessions.remove(sessionid);
+                if(file == null) {
                     throw new RuntimeException("Invalid Session ID");
                 }
 
-                logSessionContainer = generateLogSessionContainerFromFile(tempPath + "\\temp_" + sessionid);
-                counter.remove(sessionid);
+                //close the temp log and move it to its final place (in the writer thread, after all its entries)
+                getWriter().execute(() -> {
+                    GameLog.Writer w = writers.remove(sessionid);
+                    if (w == null) return;
+                    try {
+                        w.close();
+                        Files.move(file.toPath(), newLogFile(w.getGameName()).toPath());
+                    } catch (IOException ignore) {
+                        ignore.printStackTrace();
+                    }
+                });
+                return;
             } else {
                 if(!simpleLoggingContainers.containsKey(sessionid)) {
                     throw new RuntimeException("Invalid Session ID");
@@ -190,16 +237,24 @@ public class LogManager {
     }
 
     /**
-     * generates a LogSessionContainer from a directory that contains multiple files with one LogContainer each
+     * generates a LogSessionContainer from a temp log (see {@link GameLog}) or from a directory that contains 
+     * multiple files with one LogContainer each (the temp logs of older GBG versions)
      *
-     * @param path the path of the directory
+     * @param path the path of the temp log or of the directory
      * @return the LogSessionContainer
      */
     public LogSessionContainer generateLogSessionContainerFromFile(String path) {
         LogSessionContainer logSessionContainer = new LogSessionContainer();
 
         File sessionFolder = new File(path);
-        if (sessionFolder.exists()) {
+        if (sessionFolder.isFile()) {
+            try {
+                logSessionContainer = GameLog.read(sessionFolder);
+                sessionFolder.delete();
+            } catch (IOException | ClassNotFoundException ignore) {
+                ignore.printStackTrace();
+            }
+        } else if (sessionFolder.exists()) {
             int length = sessionFolder.listFiles().length;
             for (int i = 0; i < length; i++) {
                 try {
@@ -228,25 +283,7 @@ public class LogManager {
      */
     public void saveLogSessionContainer(LogSessionContainer logSessionContainer) {
         if (logSessionContainer.stateObservations.size() > 0) {
-            String saveDirectory = filePath + "\\" + logSessionContainer.stateObservations.get(0).getName();
-            if(subDir != null && !subDir.equals("")) {
-                saveDirectory = filePath + "\\" + logSessionContainer.stateObservations.get(0).getName() + "\\" + subDir;
-                //System.out.println(saveDirectory);
-            }
-
-    		tools.Utils.checkAndCreateFolder(saveDirectory);
-
-            String sessionFolderName = saveDirectory + "\\" + logSessionContainer.stateObservations.get(0).getName() + "_" + getCurrentTimeStamp();
-            String sessionFolderNameSuffix = "";
-
-            //test if File already exists
-            int i = 1;
-            File sessionFolder = new File(sessionFolderName + sessionFolderNameSuffix + ".gamelog");
-            while (sessionFolder.exists()) {
-                sessionFolderNameSuffix = " (" + i + ")";
-                sessionFolder = new File(sessionFolderName + sessionFolderNameSuffix + ".gamelog");
-                i++;
-            }
+            File sessionFolder = newLogFile(logSessionContainer.stateObservations.get(0).getName());
 
             try {
                 FileOutputStream fos = new FileOutputStream(sessionFolder);
@@ -262,6 +299,33 @@ public class LogManager {
         }
     }
 
+    /**
+     * @param gameName the name of the game
+     * @return a new .gamelog file (not yet existing) in the log directory of the game
+     */
+    private File newLogFile(String gameName) {
+        String saveDirectory = filePath + "\\" + gameName;
+        if(subDir != null && !subDir.equals("")) {
+            saveDirectory = filePath + "\\" + gameName + "\\" + subDir;
+            //System.out.println(saveDirectory);
+        }
+
+		tools.Utils.checkAndCreateFolder(saveDirectory);
+
+        String sessionFolderName = saveDirectory + "\\" + gameName + "_" + getCurrentTimeStamp();
+        String sessionFolderNameSuffix = "";
+
+        //test if File already exists
+        int i = 1;
+        File sessionFolder = new File(sessionFolderName + sessionFolderNameSuffix + ".gamelog");
+        while (sessionFolder.exists()) {
+            sessionFolderNameSuffix = " (" + i + ")";
+            sessionFolder = new File(sessionFolderName + sessionFolderNameSuffix + ".gamelog");
+            i++;
+        }
+        return sessionFolder;
+    }
+
     /**
      * generates String containing the current timestamp
      *
@@ -285,7 +349,7 @@ public class LogManager {
 //    }
 
     public boolean running() {
-        if(counter.size() > 0 || simpleLoggingContainers.size() > 0) {
+        if(advancedSessions.size() > 0 || simpleLoggingContainers.size() > 0) {
             return true;
         } else {
             return false;
@@ -301,52 +365,3 @@ public class LogManager {
     }
 
 }
-
-/**
- * The LogContainer is used to save a log entry, a log entry is a pair of an Action and the new StateObservation
- *
- * @author Johannes Kutsch, 30.04.2017
- */
-class LogContainer implements Serializable {
-    public Types.ACTIONS action;
-    public StateObservation stateObservation;
-
-	/**
-	 * change the version ID for serialization only if a newer version is no longer 
-	 * compatible with an older one (older .gamelog containing this object will become 
-	 * unreadable or you have to provide a special version transformation)
-	 */
-	private static final long serialVersionUID = 1L;
-
-    public LogContainer(Types.ACTIONS action, StateObservation stateObservation) {
-        this.action = action;
-        this.stateObservation = stateObservation;
-    }
-}
-
-/**
- * The LogSessionContainer is used to save a logsession, a log session consists of multiple Actions and StateObservations
- *
- * @author Johannes Kutsch, 30.04.2017
- */
-class LogSessionContainer implements Serializable {
-    public List<Types.ACTIONS> actions = new ArrayList<>();
-    public List<StateObservation> stateObservations = new ArrayList<>();
-
-	/**
-	 * change the version ID for serialization only if a newer version is no longer 
-	 * compatible with an older one (older .gamelog containing this object will become 
-	 * unreadable or you have to provide a special version transformation)
-	 */
-	private static final long serialVersionUID = 1L;
-
-    public void addLogEntry(LogContainer logContainer) {
-        actions.add(logContainer.action);
-        stateObservations.add(logContainer.stateObservation);
-    }
-
-    public void addLogEntry(Types.ACTIONS action, StateObservation stateObservation) {
-        actions.add(action);
-        stateObservations.add(stateObservation);
-    }
-}
\ No newline at end of file
@@ -101,8 +101,8 @@ public class LogManagerGUI {
         {
             //compiles a temp log to .gamelog
             JFileChooser fileChooser = new JFileChooser(logManager.filePath + "\\temp");
-            fileChooser.setFileFilter(new FileNameExtensionFilter("Folder", "dir"));
-            fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Temp log", "glog"));
+            fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
             fileChooser.setAcceptAllFileFilterUsed(false);
             Action details = fileChooser.getActionMap().get("viewTypeDetails");
             details.actionPerformed(null);
@@ -163,11 +163,16 @@ public class LogManagerGUI {
             if (succes == JFileChooser.APPROVE_OPTION) {
                 File selectedFile = fileChooser.getSelectedFile();
                 try {
-                    FileInputStream fis = new FileInputStream(selectedFile);
-                    ObjectInputStream ois = new ObjectInputStream(fis);
-                    LogSessionContainer tempLog = (LogSessionContainer) ois.readObject();
-                    fis.close();
-                    ois.close();
+                    LogSessionContainer tempLog;
+                    if (GameLog.isGameLog(selectedFile)) {
+                        tempLog = GameLog.read(selectedFile);
+                    } else {
+                        FileInputStream fis = new FileInputStream(selectedFile);
+                        ObjectInputStream ois = new ObjectInputStream(fis);
+                        tempLog = (LogSessionContainer) ois.readObject();
+                        fis.close();
+                        ois.close();
+                    }
 
                     //check if gameboard and log have the same StateObserver Type
                     if(!tempLog.stateObservations.get(0).getClass().equals(gameBoard.getStateObs().getClass())) {
@@ -0,0 +1,34 @@
+package games;
+
+import tools.Types;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LogSessionContainer is used to save a logsession, a log session consists of multiple Actions and StateObservations
+ *
+ * @author Johannes Kutsch, 30.04.2017
+ */
+class LogSessionContainer implements Serializable {
+    public List<Types.ACTIONS> actions = new ArrayList<>();
+    public List<StateObservation> stateObservations = new ArrayList<>();
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer 
+	 * compatible with an older one (older .gamelog containing this object will become 
+	 * unreadable or you have to provide a special version transformation)
+	 */
+	private static final long serialVersionUID = 1L;
+
+    public void addLogEntry(LogContainer logContainer) {
+        actions.add(logContainer.action);
+        stateObservations.add(logContainer.stateObservation);
+    }
+
+    public void addLogEntry(Types.ACTIONS action, StateObservation stateObservation) {
+        actions.add(action);
+        stateObservations.add(stateObservation);
+    }
+}
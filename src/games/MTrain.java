@@ -32,14 +32,16 @@ import tools.Types;
  *  <li> {@code movesSecond}: average number of moves per second since start of this training run (counting only the time spent in trainAgent)
  *  <li> {@code userValue1}: <em>not used</em>
  *  <li> {@code userValue2}: <em>not used</em>
+ *  <li> {@code numThreads}: number of training threads (see {@link params.ParOther#getNumTrainThreads()}). 
+ *  	Comparing {@code movesSecond} of runs with different {@code numThreads} shows the speedup per core count.
  *  </ul>
  *  Example:
  *  <pre>
- *  run, gameNum, evalQ, evalT, actionNum, trnMoves, totalTrainSec, movesSecond, , 
- *  0, 100, 0.80,1.00,  900,  900, 0.667, 1349.3253373313344, 0.0, 0.0
- *  0, 200, 0.84,0.95, 1800, 1800, 1.294, 1391.035548686244, 0.0, 0.0
- *  0, 300, 0.92,1.00, 2696, 2696, 1.916, 1407.098121085595, 0.0, 0.0
- *  0, 400, 0.99,0.98, 3592, 3592, 2.536, 1416.4037854889589, 0.0, 0.0
+ *  run, gameNum, evalQ, evalT, actionNum, trnMoves, totalTrainSec, movesSecond, , , numThreads
+ *  0, 100, 0.80,1.00,  900,  900, 0.667, 1349.3253373313344, 0.0, 0.0, 1
+ *  0, 200, 0.84,0.95, 1800, 1800, 1.294, 1391.035548686244, 0.0, 0.0, 1
+ *  0, 300, 0.92,1.00, 2696, 2696, 1.916, 1407.098121085595, 0.0, 0.0, 1
+ *  0, 400, 0.99,0.98, 3592, 3592, 2.536, 1416.4037854889589, 0.0, 0.0, 1
  *  </pre>
  *  That is, after 100 episodes we have 900 training moves in 0.667 sec, accounting for 1349 moves/s.<br>
  *  After 200 episodes we have 1800 training moves conducted in 1.294 sec, leading to 1391 moves/s.<br>
@@ -65,6 +67,7 @@ public class MTrain {
 	public double movesSecond=0.0;
 	public double userValue1=0.0;
 	public double userValue2=0.0;
+	public int numThreads=1;	// number of training threads
 	//DecimalFormat frm1 = new DecimalFormat("#0.0000");
 	static String sep = ", ";
 	
@@ -93,11 +96,18 @@ public class MTrain {
 		this.userValue2=userValue2;
 	}
 	
+	public MTrain(int i, int gameNum, double evalQ, double evalT, 
+			long actionNum, long trnMoveNum, double totalTrainSec, double movesSecond,
+			double userValue1, double userValue2, int numThreads) {
+		this(i,gameNum,evalQ,evalT,actionNum,trnMoveNum,totalTrainSec,movesSecond,userValue1,userValue2);
+		this.numThreads=numThreads;
+	}
+	
 	public void print(PrintWriter mtWriter)  {
 		mtWriter.print(i + sep + gameNum + sep);
 		mtWriter.println(evalQ + sep + evalT /*+ sep + evalM */
 				+ sep + actionNum + sep + trnMoveNum + sep + totalTrainSec + sep + movesSecond
-				+ sep + userValue1 + sep + userValue2);
+				+ sep + userValue1 + sep + userValue2 + sep + numThreads);
 	}
 	
 	/**
@@ -151,7 +161,7 @@ public class MTrain {
 			mtWriter.println(pa.stringDescr2());
 			
 			mtWriter.println("run"+sep+"gameNum"+sep+"evalQ"+sep+"evalT"+sep+"actionNum"+sep
-					+"trnMoves"+sep+"totalTrainSec"+sep+"movesSecond"+sep+userTitle1+sep+userTitle2);
+					+"trnMoves"+sep+"totalTrainSec"+sep+"movesSecond"+sep+userTitle1+sep+userTitle2+sep+"numThreads");
 			ListIterator<MTrain> iter = mtList.listIterator();		
 			while(iter.hasNext()) {
 				(iter.next()).print(mtWriter);
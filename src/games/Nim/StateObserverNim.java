@@ -8,6 +8,7 @@ import games.ObserverBase;
 import games.StateObservation;
 import tools.Types;
 import tools.Types.ACTIONS;
+import tools.ZobristHash;
 
 /**
  * Class StateObserverNim observes the current state of the game Nim <b>for 2 players</b> and it is the 
@@ -249,6 +250,14 @@ public class StateObserverNim extends ObserverBase implements StateObservation {
 	public int getPlayer() {
 		return m_player;
 	}
+
+	@Override
+	public long getHash() {
+		long h = ZobristHash.playerKey(m_player);
+		for (int i=0;i<m_heap.length;i++) 
+			h = ZobristHash.mix(h + m_heap[i]);
+		return h;
+	}
 	
 	public int getNumPlayers() {
 		return 2;				// Nim is a 2-player game
@@ -6,6 +6,7 @@ import controllers.PlayAgent;
 import tools.ScoreTuple;
 import tools.Types;
 import tools.Types.ACTIONS;
+import tools.ZobristHash;
 
 /**
  * Class {@link ObserverBase} implements as an <b>abstract</b> class all elements of the interface  
@@ -280,6 +281,22 @@ abstract public class ObserverBase implements StateObservation {
 	 */
 	abstract public String stringDescr();
 
+	/**
+	 * Default implementation: hash of {@link #stringDescr()} and the player to move. This is only a 
+	 * fallback, it builds a string for each call. The games searched with a transposition table override 
+	 * it with a hash of their board representation (maintained incrementally or from bitboards).
+	 */
+	public long getHash() {
+		return ZobristHash.hash(stringDescr()) ^ ZobristHash.playerKey(getPlayer());
+	}
+
+	/**
+	 * Default implementation: true
+	 */
+	public boolean isCacheable() {
+		return true;
+	}
+
 	/**
 	 * 
 	 * @return a string representation of action {@code act}
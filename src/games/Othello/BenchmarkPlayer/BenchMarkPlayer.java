@@ -207,5 +207,10 @@ public class BenchMarkPlayer extends AgentBase implements PlayAgent, Serializabl
 		return false;
 	}
 
+	@Override
+	public boolean isThreadSafe() {
+		return true;		// the evaluation only reads the members
+	}
+
 
 }
\ No newline at end of file
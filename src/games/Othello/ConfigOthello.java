@@ -31,6 +31,12 @@ public class ConfigOthello {
 	public static int WHITE = 1;
 	public static int EMPTY = 2;
 
+	/**
+	 * If true, the game states are {@link StateObserverOthelloBB} (bitboards, fast), 
+	 * else {@link StateObserverOthello}
+	 */
+	public static boolean BITBOARD = true;
+
 	public static String[] EDAX_STRING = {"x","o","."};		// Edax coding for BLACK/WHITE/EMPTY
 	
 	/**
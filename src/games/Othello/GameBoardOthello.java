@@ -60,7 +60,7 @@ public class GameBoardOthello implements GameBoard {
 	public void initGameBoard(Arena arena)
 	{
 		m_Arena = arena;
-		m_so = new StateObserverOthello();
+		m_so = newStateObserver();
 		rand = new Random();
         if (m_Arena.hasGUI() && m_gameGui==null) {
         	m_gameGui = new GameBoardOthelloGui(this);
@@ -70,13 +70,21 @@ public class GameBoardOthello implements GameBoard {
 	@Override
 	public void initialize() {}
 
+	/**
+	 * @return a new start state, {@link StateObserverOthelloBB} or {@link StateObserverOthello} depending on 
+	 * 		{@link ConfigOthello#BITBOARD}
+	 */
+	private static StateObserverOthello newStateObserver() {
+		return ConfigOthello.BITBOARD ? new StateObserverOthelloBB() : new StateObserverOthello();
+	}
+
 	/**
 	 * Resets the game to it starting state {@link StateObserverOthello}
 	 */
 	@Override
 	public void clearBoard(boolean boardClear, boolean vClear) {
 		if(boardClear) {
-			m_so = new StateObserverOthello();
+			m_so = newStateObserver();
 		}
 							// considerable speed-up during training (!)
         if (m_gameGui!=null && m_Arena.taskState!=Arena.Task.TRAIN)
@@ -5,6 +5,7 @@ import games.StateObservation;
 import tools.Types;
 import tools.Types.ACTIONS;
 import tools.Types.WINNER;
+import tools.ZobristHash;
 
 import java.util.ArrayList;
 /**
@@ -49,6 +50,7 @@ import java.util.ArrayList;
  *
  *     col 0   1   2   3   4   5   6   7
  *  </pre>
+ *  See {@link StateObserverOthelloBB} for a faster implementation based on bitboards.
  */
 public class StateObserverOthello extends ObserverBase{
 
@@ -58,11 +60,11 @@ public class StateObserverOthello extends ObserverBase{
 	private static final double REWARD_NEGATIVE = -1, REWARD_POSITIVE = 1;
 	
 	protected int[][] currentGameState;
-	private int playerNextMove; 
-	private int countBlack, countWhite;	// probably never really needed
-	private ArrayList<ACTIONS> availableActions = new ArrayList<ACTIONS>();
-	private ArrayList<Integer> lastMoves;
-	private int turn;
+	protected int playerNextMove; 
+	protected int countBlack, countWhite;	// probably never really needed
+	protected ArrayList<ACTIONS> availableActions = new ArrayList<ACTIONS>();
+	protected ArrayList<Integer> lastMoves;
+	protected int turn;
 	
 	public StateObserverOthello()
 	{
@@ -91,8 +93,10 @@ public class StateObserverOthello extends ObserverBase{
 	{
 		super(other);		// copy members m_counter and stored*
 		this.lastMoves = (ArrayList<Integer>) other.lastMoves.clone();		// WK: bug fix, added missing .clone() 
-		this.currentGameState= new int[ConfigOthello.BOARD_SIZE][ConfigOthello.BOARD_SIZE];
-		BaseOthello.deepCopyGameState(other.currentGameState, currentGameState);
+		if (other.currentGameState!=null) {	// null for StateObserverOthelloBB, where it is created on demand
+			this.currentGameState= new int[ConfigOthello.BOARD_SIZE][ConfigOthello.BOARD_SIZE];
+			BaseOthello.deepCopyGameState(other.currentGameState, currentGameState);
+		}
 		// /WK/ wouldn't "this.currentGameState = other.currentGameState.clone();" do the same as the preceding two lines? 
 		//      No, that would not work, because it would not do a deep copy on int[][], it would only make a new int[8]
 		//      and hang the lines [0],...,[7] from other.currentGameState into this. What would work really 'deep':
@@ -128,8 +132,8 @@ public class StateObserverOthello extends ObserverBase{
      */
 	public ArrayList<ACTIONS> getAllAvailableActions(){
 		ArrayList<ACTIONS> retVal = new ArrayList<>();
-		for(int i = 0, n = 0; i < currentGameState.length; i++) {
-			for(int j = 0; j < currentGameState[i].length; j++,n++)
+		for(int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++) {
+			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++,n++)
 			{
 				if(n != 27 && n != 28 && n != 35 && n != 36) 	
 				// WK 2019-06-15: 1st fix: comment the preceding line out as bug fix for Sarsa: 
@@ -190,12 +194,13 @@ public class StateObserverOthello extends ObserverBase{
 		assert isGameOver() :"Game isn't over";
 		assert this.getPlayer()==this.playerNextMove : "Oops, this.getPlayer() differs from playerNextMove!";
 		int countPlayer = 0, countOpponent = 0;
+		int[][] cgs = getCurrentGameState();
 		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++)
 		{
 			for( int j = 0; j < ConfigOthello.BOARD_SIZE; j++)
 			{
-				if(currentGameState[i][j] == this.getPlayer()) countPlayer++;
-				if(currentGameState[i][j] == (this.getOpponent(this.getPlayer()))) countOpponent++;
+				if(cgs[i][j] == this.getPlayer()) countPlayer++;
+				if(cgs[i][j] == (this.getOpponent(this.getPlayer()))) countOpponent++;
 			}
 		}
 		if(countPlayer > countOpponent) return WINNER.PLAYER_WINS;
@@ -206,12 +211,13 @@ public class StateObserverOthello extends ObserverBase{
 	public void setPieceCounters() {
 		this.countBlack=0;
 		this.countWhite=0;
+		int[][] cgs = getCurrentGameState();
 		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++)
 		{
 			for( int j = 0; j < ConfigOthello.BOARD_SIZE; j++)
 			{
-				if(currentGameState[i][j] == 0) this.countBlack++;
-				if(currentGameState[i][j] == 1) this.countWhite++;
+				if(cgs[i][j] == 0) this.countBlack++;
+				if(cgs[i][j] == 1) this.countWhite++;
 			}
 		}
 	}
@@ -361,32 +367,49 @@ public class StateObserverOthello extends ObserverBase{
 		return 0.0;
 	}
 
+	/**
+	 * @return a hash of the board (as black and white bitboards, the same hash as in {@link StateObserverOthelloBB}) 
+	 * 		and the player to move
+	 */
+	@Override
+	public long getHash() {
+		long black = 0L, white = 0L;
+		for (int n = 0; n < 64; n++) {
+			int c = currentGameState[n / 8][n % 8];
+			if (c == ConfigOthello.BLACK) black |= 1L << n;
+			if (c == ConfigOthello.WHITE) white |= 1L << n;
+		}
+		return ZobristHash.mix(black ^ ZobristHash.mix(white)) ^ ZobristHash.playerKey(playerNextMove);
+	}
+
 	@Override
 	public String stringDescr() {
 		String sout = "";
+		int[][] cgs = getCurrentGameState();
 		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++) {
 			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++) {
-				sout += (currentGameState[i][j] == BaseOthello.getOpponent(1)) ? "O" : (currentGameState[i][j] == +1) ? "X": "-";
+				sout += (cgs[i][j] == BaseOthello.getOpponent(1)) ? "O" : (cgs[i][j] == +1) ? "X": "-";
 			}
 		}
 		return sout;
 	}
 
 	public void toString2() {
-		
+		int[][] cgs = getCurrentGameState();
 		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++) {
 			System.out.println();
 			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++) {
-				System.out.printf( currentGameState[i][j] +" ");
+				System.out.printf( cgs[i][j] +" ");
 			}
 		}
 	}
 	
 	public String toEdaxString() {
 		String sout = "";	
+		int[][] cgs = getCurrentGameState();
 		for(int i = 0; i < ConfigOthello.BOARD_SIZE; i++) {
 			for(int j = 0; j < ConfigOthello.BOARD_SIZE; j++) {
-				sout += ConfigOthello.EDAX_STRING[currentGameState[i][j]]; 
+				sout += ConfigOthello.EDAX_STRING[cgs[i][j]]; 
 			}
 		}
 		sout += ConfigOthello.EDAX_STRING[this.getPlayer()];		// last char: player to move next
@@ -404,7 +427,8 @@ public class StateObserverOthello extends ObserverBase{
 	 */
 	public String getCurrentGameState(int i, int j)
 	{
-		return currentGameState[i][j] == 0 ? "Empty" : currentGameState[i][j]  == 1 ? "White" : "Black";
+		int[][] cgs = getCurrentGameState();
+		return cgs[i][j] == 0 ? "Empty" : cgs[i][j]  == 1 ? "White" : "Black";
 	}
 	
 	// WK now needed to get the right playerNextMove for AsStateObserverOthello (!) 
@@ -0,0 +1,218 @@
+package games.Othello;
+
+import java.util.ArrayList;
+
+import tools.Types.ACTIONS;
+import tools.Types.WINNER;
+import tools.ZobristHash;
+
+/**
+ * Othello game state based on two 64-bit bitboards, one for the black and one for the white discs.
+ * Bit {@code n} of a bitboard is the board cell with action number {@code n = 8*i+j} (row {@code i},
+ * column {@code j}, see {@link StateObserverOthello}).
+ * <p>
+ * The legal moves and the discs flipped by a move are computed with shift operations on the whole bitboard
+ * (all 8 directions in parallel for all cells), instead of looping over cells and directions as in
+ * {@link BaseOthello}. This is considerably faster for agents which copy and advance many states
+ * (MCTS rollouts, Max-N, n-tuple training).
+ * <p>
+ * {@link StateObserverOthelloBB} is a {@link StateObserverOthello}: all agents, {@link XNTupleFuncsOthello}
+ * and the GUI work unchanged. The board {@code int[8][8]} of {@link #getCurrentGameState()} is only created on
+ * demand (and then kept until the next {@link #advance(ACTIONS)}).
+ *
+ * @see ConfigOthello#BITBOARD
+ */
+public class StateObserverOthelloBB extends StateObserverOthello {
+
+	public static final long serialVersionUID = 12L;
+
+	private static final long NOT_COL0 = 0xFEFEFEFEFEFEFEFEL;	// all cells except column 0
+	private static final long NOT_COL7 = 0x7F7F7F7F7F7F7F7FL;	// all cells except column 7
+
+	/**
+	 * The 8 directions: the shift of the bit index (positive: left shift) and the mask which removes the bits
+	 * which wrapped around to the other side of the board.
+	 */
+	private static final int[] DIR_SHIFT = {  +1,       -1,       +8, -8,  +9,       -9,       +7,       -7 };
+	private static final long[] DIR_MASK = { NOT_COL0, NOT_COL7, -1L, -1L, NOT_COL0, NOT_COL7, NOT_COL7, NOT_COL0 };
+
+	private long black;
+	private long white;
+
+	public StateObserverOthelloBB() {
+		super();
+		for (int n = 0; n < 64; n++) {
+			int c = currentGameState[n / 8][n % 8];
+			if (c == ConfigOthello.BLACK) black |= 1L << n;
+			if (c == ConfigOthello.WHITE) white |= 1L << n;
+		}
+		currentGameState = null;
+		setAvailableActions();		// the call in super() had no bitboards yet
+	}
+
+	public StateObserverOthelloBB(StateObserverOthelloBB other) {
+		super(other);
+		this.black = other.black;
+		this.white = other.white;
+	}
+
+	@Override
+	public StateObserverOthelloBB copy() {
+		return new StateObserverOthelloBB(this);
+	}
+
+	private static long shift(long b, int dir) {
+		int s = DIR_SHIFT[dir];
+		return ((s > 0) ? (b << s) : (b >>> -s)) & DIR_MASK[dir];
+	}
+
+	/**
+	 * @param own	bitboard of the player to move
+	 * @param opp	bitboard of the opponent
+	 * @return bitboard of all legal moves: empty cells from which a line of opponent discs in some direction
+	 * 		ends in an own disc. Per direction, the opponent lines are grown from the own discs by shifts
+	 * 		(at most 6 opponent discs fit between two cells of a line).
+	 */
+	static long legalMoves(long own, long opp) {
+		long empty = ~(own | opp);
+		long moves = 0L;
+		for (int d = 0; d < 8; d++) {
+			long x = shift(own, d) & opp;
+			x |= shift(x, d) & opp;
+			x |= shift(x, d) & opp;
+			x |= shift(x, d) & opp;
+			x |= shift(x, d) & opp;
+			x |= shift(x, d) & opp;
+			moves |= shift(x, d) & empty;
+		}
+		return moves;
+	}
+
+	/**
+	 * @param own	bitboard of the player to move
+	 * @param opp	bitboard of the opponent
+	 * @param n		the cell where the player to move places a disc
+	 * @return bitboard of the opponent discs which are flipped by this move
+	 */
+	static long flips(long own, long opp, int n) {
+		long flips = 0L;
+		for (int d = 0; d < 8; d++) {
+			long line = 0L;
+			long x = shift(1L << n, d);
+			while ((x & opp) != 0) {
+				line |= x;
+				x = shift(x, d);
+			}
+			if ((x & own) != 0) flips |= line;
+		}
+		return flips;
+	}
+
+	private long own() {
+		return (playerNextMove == ConfigOthello.BLACK) ? black : white;
+	}
+
+	private long opp() {
+		return (playerNextMove == ConfigOthello.BLACK) ? white : black;
+	}
+
+	/**
+	 * @return the actions for all bits of {@code moves}, ordered by action number (as in
+	 * 		{@link BaseOthello#possibleActions(int[][], int)})
+	 */
+	private static ArrayList<ACTIONS> toActions(long moves) {
+		ArrayList<ACTIONS> retVal = new ArrayList<ACTIONS>(Long.bitCount(moves));
+		while (moves != 0) {
+			retVal.add(new ACTIONS(Long.numberOfTrailingZeros(moves)));
+			moves &= moves - 1;		// clear the lowest bit
+		}
+		return retVal;
+	}
+
+	@Override
+	public boolean isGameOver() {
+		if (availableActions.size() == 0)
+			return legalMoves(opp(), own()) == 0;
+		return false;
+	}
+
+	@Override
+	public WINNER winStatus() {
+		assert isGameOver() :"Game isn't over";
+		int countPlayer = Long.bitCount(own()), countOpponent = Long.bitCount(opp());
+		if(countPlayer > countOpponent) return WINNER.PLAYER_WINS;
+		else if(countPlayer == countOpponent) return WINNER.TIE;
+		return WINNER.PLAYER_LOSES;
+	}
+
+	@Override
+	public void setPieceCounters() {
+		this.countBlack = Long.bitCount(black);
+		this.countWhite = Long.bitCount(white);
+	}
+
+	@Override
+	public void setAvailableActions() {
+		availableActions = toActions(legalMoves(own(), opp()));
+	}
+
+	/**
+	 * Same as {@link StateObserverOthello#advance(ACTIONS)}, but with bitboards.
+	 */
+	@Override
+	public void advance(ACTIONS action) {
+		int n = action.toInt();
+		long own = own(), opp = opp();
+		long flips = flips(own, opp, n);
+		own |= flips | (1L << n);
+		opp &= ~flips;
+		if (playerNextMove == ConfigOthello.BLACK) {
+			black = own;
+			white = opp;
+		} else {
+			white = own;
+			black = opp;
+		}
+		currentGameState = null;
+		super.incrementMoveCounter();
+
+		// Set playerNextMove: the opponent, if it has possible actions, else the opponent has to pass
+		// (see StateObserverOthello::advance)
+		long oppMoves = legalMoves(opp, own);
+		if (oppMoves != 0) {
+			playerNextMove = getOpponent(playerNextMove);
+			availableActions = toActions(oppMoves);
+		} else {
+			availableActions = toActions(legalMoves(own, opp));
+		}
+		lastMoves.add(n);
+		turn++;
+	}
+
+	/**
+	 * @return the board {@code int[8][8]} with BLACK, WHITE or EMPTY in each cell. It is created on demand
+	 * 		and should not be modified.
+	 */
+	@Override
+	public int[][] getCurrentGameState() {
+		if (currentGameState == null) {
+			int[][] cgs = new int[ConfigOthello.BOARD_SIZE][ConfigOthello.BOARD_SIZE];
+			for (int i = 0, n = 0; i < ConfigOthello.BOARD_SIZE; i++) {
+				for (int j = 0; j < ConfigOthello.BOARD_SIZE; j++, n++) {
+					cgs[i][j] = ((black >>> n) & 1L) != 0 ? ConfigOthello.BLACK
+							  : ((white >>> n) & 1L) != 0 ? ConfigOthello.WHITE : ConfigOthello.EMPTY;
+				}
+			}
+			currentGameState = cgs;
+		}
+		return currentGameState;
+	}
+
+	public long getBlack() { return black; }
+	public long getWhite() { return white; }
+
+	@Override
+	public long getHash() {
+		return ZobristHash.mix(black ^ ZobristHash.mix(white)) ^ ZobristHash.playerKey(playerNextMove);
+	}
+}
@@ -298,6 +298,16 @@ public class XNTupleFuncsOthello extends XNTupleBase implements XNTupleFuncs, Se
 //		return result;
 //	}
 
+	/**
+	 * The symmetries of Othello (4 rotations * 2 flips) are pure cell permutations.
+	 * 
+	 * @return the cell permutations, see {@link XNTupleFuncs#symmetryPermutations()}
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return symmetryPermutationsByProbing();
+	}
+
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
 	 * and a certain action to be taken in <b>{@code so}</b>, generate the array of equivalent 
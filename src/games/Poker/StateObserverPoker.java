@@ -280,6 +280,15 @@ public class StateObserverPoker extends ObserverBase implements StateObsNondeter
 		return "";
 	}
 
+	/**
+	 * Poker states have hidden information and {@link #stringDescr()} carries none, so 
+	 * {@link #getHash()} does not identify the state: no transposition tables for Poker.
+	 */
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
+
 
 	public boolean isNextActionDeterministic() {
 		return isNextActionDeterministic;
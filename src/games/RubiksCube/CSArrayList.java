@@ -2,10 +2,13 @@ package games.RubiksCube;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.UnaryOperator;
 
 import games.RubiksCube.ColorTrafoMap.ColMapType;
 import games.RubiksCube.CubeState.Twist;
@@ -17,6 +20,14 @@ import games.RubiksCube.CubeStateMap.CsMapType;
  * We use an {@link ArrayList} for the representation of distance sets (and not a {@link HashSet},
  * which may seem more natural for a distance <em>set</em> D), since only with an {@link ArrayList}
  * we can easily pick a random element via D.get(index).
+ * <p>
+ * For the pocket cube, each element added with {@link #add(CubeState)} or {@link #addAll(Collection)} is also 
+ * entered with its packed code (see {@link CubeState2x2#pack()}) into the index {@link CubeCodeMap} {@code codes}. 
+ * Then {@link #contains(Object)} and {@link #findTwin(CubeState)} are O(1) instead of a linear search over the list. 
+ * Lists with states from color transformations (whose {@code sloc} is not tracked) and lists whose elements are 
+ * removed, replaced or moved have no index and use the linear search. As a safeguard for other structural 
+ * modifications (e.g. {@link #sort(java.util.Comparator)}), the index is only used if the list was not modified 
+ * otherwise since the last indexed add (see {@link #hasIndex()}).
  */
 public class CSArrayList extends ArrayList<CubeState> {
 	public enum CSAListType {GenerateD0, GenerateD1, GenerateNext, GenerateNextColSymm};
@@ -25,6 +36,8 @@ public class CSArrayList extends ArrayList<CubeState> {
 		super();
 	}
 	private CubeStateFactory csFactory = new CubeStateFactory();
+	private CubeCodeMap codes = (CubeConfig.cubeType==CubeConfig.CubeType.POCKET) ? new CubeCodeMap() : null;
+	private int codesModCount = 0;		// the modCount of the list when codes was last updated
 
 	/**
 	 * Generate either distance set D0 or D1
@@ -86,6 +99,8 @@ public class CSArrayList extends ArrayList<CubeState> {
 	public CSArrayList(CSAListType csaType, CSArrayList D, CSArrayList Dprev, int N,
 			ArrayList tintList, boolean silent, boolean doAssert, Random rand) {
 		super();
+		if (csaType==CSAListType.GenerateNextColSymm) 
+			codes = null;		// the color-symmetric states have no valid pack()
 		// Dcopy is just a copy of D from which we can safely remove the elements 
 		// we already picked (in the for-n-loop below) without altering D:
 		CSArrayList Dcopy = (CSArrayList) D.clone();
@@ -107,8 +122,11 @@ public class CSArrayList extends ArrayList<CubeState> {
 			CubeState cS0 = (CubeState)Dcopy.get(index);
 			// Each n shall pick a random, but different element from Dcopy. 
 			// Therefore we remove from Dcopy, which starts as a clone of D, 
-			// every element which has already been picked:
-			Dcopy.remove(cS0);
+			// every element which has already been picked (by moving the last element to 
+			// position index, which is O(1) instead of Dcopy.remove(cS0)):
+			int last = Dcopy.size()-1;
+			Dcopy.set(index, Dcopy.get(last));
+			Dcopy.remove(last);
 //			System.out.println(cS0.twistSeq+"  "+n);
 			int count=0;
 			for (int i=1; i<=3; i++) {
@@ -207,6 +225,129 @@ public class CSArrayList extends ArrayList<CubeState> {
 		
 	} // CSArrayList(GenerateNext)
 	
+	/**
+	 * @return true, if the index {@code codes} is present and up to date
+	 */
+	private boolean hasIndex() {
+		if (codes!=null && codesModCount!=modCount) codes = null;
+		return codes!=null;
+	}
+
+	@Override
+	public boolean add(CubeState cs) {
+		boolean indexed = hasIndex();
+		if (indexed && !(cs instanceof CubeState2x2)) {
+			codes = null;
+			indexed = false;
+		}
+		if (indexed) codes.put(((CubeState2x2) cs).pack(), this.size());
+		boolean res = super.add(cs);
+		if (indexed) codesModCount = modCount;
+		return res;
+	}
+
+	/**
+	 * The index {@code codes} cannot shift elements, so it is dropped.
+	 */
+	@Override
+	public void add(int index, CubeState cs) {
+		codes = null;
+		super.add(index, cs);
+	}
+
+	/**
+	 * Add the elements one by one with {@link #add(CubeState)}, so that they enter the index {@code codes}.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends CubeState> c) {
+		ensureCapacity(size() + c.size());
+		for (CubeState cs : c) add(cs);
+		return !c.isEmpty();
+	}
+
+	/**
+	 * The index {@code codes} cannot shift elements, so it is dropped.
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends CubeState> c) {
+		codes = null;
+		return super.addAll(index, c);
+	}
+
+	/**
+	 * Clear the list and its index {@code codes} (a dropped index is not restored).
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		if (codes!=null) {
+			codes = new CubeCodeMap();
+			codesModCount = modCount;
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o instanceof CubeState2x2 && hasIndex()) 
+			return codes.containsKey(((CubeState2x2) o).pack());
+		return super.contains(o);
+	}
+
+	/**
+	 * The index {@code codes} cannot remove elements, so it is dropped.
+	 */
+	@Override
+	public CubeState remove(int index) {
+		codes = null;
+		return super.remove(index);
+	}
+
+	/**
+	 * The index {@code codes} cannot replace elements, so it is dropped.
+	 */
+	@Override
+	public CubeState set(int index, CubeState cs) {
+		codes = null;
+		return super.set(index, cs);
+	}
+
+	/**
+	 * The index {@code codes} cannot remove elements, so it is dropped.
+	 */
+	@Override
+	public boolean remove(Object o) {
+		codes = null;
+		return super.remove(o);
+	}
+
+	/**
+	 * The index {@code codes} cannot replace elements, so it is dropped.
+	 */
+	@Override
+	public void replaceAll(UnaryOperator<CubeState> operator) {
+		codes = null;
+		super.replaceAll(operator);
+	}
+
+	/**
+	 * A sub list may replace elements of {@code this} without notice, so the index {@code codes} is dropped.
+	 */
+	@Override
+	public List<CubeState> subList(int fromIndex, int toIndex) {
+		codes = null;
+		return super.subList(fromIndex, toIndex);
+	}
+
+	/**
+	 * The clone has no index {@code codes} (it would be shared with {@code this}).
+	 */
+	@Override
+	public Object clone() {
+		CSArrayList copy = (CSArrayList) super.clone();
+		copy.codes = null;
+		return copy;
+	}
+
 	/**
 	 * Assert for each CubeState in {@code this}, that its twist sequence applied to the 
 	 * default cube leads to its state.
@@ -229,6 +370,10 @@ public class CSArrayList extends ArrayList<CubeState> {
 	 * @return the twin in {@code this}, if it is found, else {@code null}
 	 */
 	public CubeState findTwin(CubeState other) {
+		if (other instanceof CubeState2x2 && hasIndex()) {
+			int k = codes.get(((CubeState2x2) other).pack());
+			if (k>=0) return this.get(k);
+		}
 	    Iterator it2 = this.iterator();
 	    while (it2.hasNext()) {
 		    CubeState twin = (CubeState)it2.next();
@@ -0,0 +1,130 @@
+package games.RubiksCube;
+
+import java.io.Serializable;
+
+import tools.ZobristHash;
+
+/**
+ * A compact map from packed cube codes (see {@link CubeState2x2#pack()}) to {@code int} values, e.g. the index of
+ * a state in a list or its distance (number of twists) from the solved cube.
+ * <p>
+ * The entries are stored in insertion order in the primitive arrays {@code codes[]} and {@code values[]}, so that
+ * a random element can be picked via {@link #codeAt(int)}. The hash index is an open-addressing table
+ * (linear probing) holding the entry numbers. In total an entry needs about 20 bytes, much less than a
+ * {@link CubeState} object in a {@code HashSet} or {@code Hashtable}. Entries cannot be removed.
+ *
+ * @see CSArrayList
+ */
+public class CubeCodeMap implements Serializable {
+
+	private long[] codes;
+	private int[] values;
+	private int size = 0;
+	private int[] slots;		// 0: empty slot, k>0: entry k-1
+	private int mask;			// slots.length-1
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer
+	 * compatible with an older one (older .agt.zip will become unreadable or you have
+	 * to provide a special version transformation)
+	 */
+	private static final long  serialVersionUID = 12L;
+
+	public CubeCodeMap() {
+		this(1024);
+	}
+
+	/**
+	 * @param expectedSize	the expected number of entries (the map grows if needed)
+	 */
+	public CubeCodeMap(int expectedSize) {
+		int n = Math.max(16, expectedSize);
+		codes = new long[n];
+		values = new int[n];
+		slots = new int[Integer.highestOneBit(2 * n - 1) * 2];	// load factor <= 0.5
+		mask = slots.length - 1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the slot for {@code code}: either the slot holding {@code code} or the empty slot where it would
+	 * 		be inserted
+	 */
+	private int slotOf(long code) {
+		int s = (int) ZobristHash.mix(code) & mask;
+		int k;
+		while ((k = slots[s]) != 0 && codes[k - 1] != code)
+			s = (s + 1) & mask;
+		return s;
+	}
+
+	public boolean containsKey(long code) {
+		return slots[slotOf(code)] != 0;
+	}
+
+	/**
+	 * @return the value for {@code code} or -1, if {@code code} is not in the map
+	 */
+	public int get(long code) {
+		int k = slots[slotOf(code)];
+		return (k == 0) ? -1 : values[k - 1];
+	}
+
+	/**
+	 * Put {@code (code,value)} into the map. If {@code code} is already present, its value is replaced.
+	 *
+	 * @return true, if {@code code} was not yet in the map
+	 */
+	public boolean put(long code, int value) {
+		int s = slotOf(code);
+		if (slots[s] != 0) {
+			values[slots[s] - 1] = value;
+			return false;
+		}
+		if (size == codes.length) {
+			grow();
+			s = slotOf(code);
+		}
+		codes[size] = code;
+		values[size] = value;
+		slots[s] = ++size;
+		return true;
+	}
+
+	/**
+	 * @return the code of the {@code i}th entry (in insertion order)
+	 */
+	public long codeAt(int i) {
+		return codes[i];
+	}
+
+	/**
+	 * @return the value of the {@code i}th entry (in insertion order)
+	 */
+	public int valueAt(int i) {
+		return values[i];
+	}
+
+	private void grow() {
+		int n = 2 * codes.length;
+		long[] c = new long[n];
+		int[] v = new int[n];
+		System.arraycopy(codes, 0, c, 0, size);
+		System.arraycopy(values, 0, v, 0, size);
+		codes = c;
+		values = v;
+		if (2 * n > slots.length) {
+			slots = new int[slots.length * 2];
+			mask = slots.length - 1;
+			for (int k = 0; k < size; k++) {
+				int s = (int) ZobristHash.mix(codes[k]) & mask;
+				while (slots[s] != 0)
+					s = (s + 1) & mask;
+				slots[s] = k + 1;
+			}
+		}
+	}
+}
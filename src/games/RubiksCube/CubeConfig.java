@@ -73,6 +73,13 @@ public class CubeConfig {
 	public static int replayBufferCapacity = 500;
 	public static int batchSize = 50;
 
+	/**
+	 * number of threads for a batch update from the replay buffer in {@link DAVI3Agent}. If 1, each sample is 
+	 * evaluated and updated in turn. If larger, the values of all samples in a batch are first evaluated in 
+	 * parallel (with the weights before the batch) and then the updates are made in turn (mini-batch).
+	 */
+	public static int replayThreads = 1;
+
 
 	/**
 	 * This influences the behavior in {@link GameBoardCube#selectByTwists1(int) GameBoardCube.selectByTwists1(p)} 
@@ -4,6 +4,44 @@ import games.BoardVector;
 
 public class CubeState2x2 extends CubeState {
 
+    /**
+     * The sticker locations of the 8 corner cubies a,...,h in the solved cube. (This array is found with the
+     * help of Table 3 in notes-WK-RubiksCube.docx.) Row z holds the locations for z1,z2,z3. If cubie z is
+     * twisted to corner {@code cor} with its sticker z1 on face {@code fac}, then sticker zi is at location
+     * {@code CORNER_LOC[cor][(fac+i)%3]}.
+     */
+    private static final int[][] CORNER_LOC = {{ 0,  4,  8},		// 1st row: the locations for a1,a2,a3
+                                               { 1, 11, 18},		// 2nd row: the locations for b1,b2,b3
+                                               { 2, 17, 23},		// and so on ...
+                                               { 3, 22,  5},
+                                               {12, 16, 20},
+                                               {13, 19, 10},
+                                               {14,  9,  7},
+                                               {15,  6, 21}};
+
+    /**
+     * The face colors of the solved cube
+     */
+    private static final int[] SOLVED_FCOL = {0,0,0,0,1,1,1,1,2,2,2,2,3,3,3,3,4,4,4,4,5,5,5,5};
+
+    /**
+     * {@code LOC_CODE[loc] = cor | fac<<3} for the location {@code loc = CORNER_LOC[cor][fac]}
+     */
+    private static final int[] LOC_CODE = new int[24];
+    static {
+        for (int cor=0; cor<8; cor++)
+            for (int fac=0; fac<3; fac++)
+                LOC_CODE[CORNER_LOC[cor][fac]] = cor | fac<<3;
+    }
+
+    /**
+     * {@code twistCode[3*(T-1)+times-1][c]} is the new 5-bit cubie code (see {@link #pack()}) of a cubie with code
+     * {@code c} after twist T (U=1,L=2,F=3) with {@code times} quarter turns. Created on first use, since it needs
+     * the twist transformations of {@link CubeState}. Volatile, since it is read without lock (see 
+     * {@link #generateTwistCode()}).
+     */
+    private static volatile int[][] twistCode = null;
+
     public CubeState2x2() {
         super(Type.COLOR_P);
     }
@@ -53,6 +91,89 @@ public class CubeState2x2 extends CubeState {
         }
     }
 
+    /**
+     * Construct a new cube of <b>color representation</b> type from a packed {@code code}
+     * @param code	the packed cube state, see {@link #pack()}
+     */
+    public CubeState2x2(long code) {
+        super();
+        assert (CubeConfig.cubeType== CubeConfig.CubeType.POCKET);
+        this.type = Type.COLOR_P;
+        this.sloc = new int[24];
+        for (int z=0; z<8; z++) {
+            int c = (int) (code >>> (5*z)) & 31;
+            int cor = c & 7, fac = c >>> 3;
+            for (int i=0; i<3; i++) {
+                sloc[ CORNER_LOC[z][i] ] = CORNER_LOC[cor][(fac+i)%3];
+            }
+        }
+        this.fcol = new int[24];
+        for (int i=0; i<24; i++) this.fcol[sloc[i]] = SOLVED_FCOL[i];
+    }
+
+    /**
+     * Pack the state of this cube into a {@code long}: For each corner cubie z (bits {@code 5z,...,5z+4}) we store
+     * the corner {@code cor} (3 bits) where it is now and the face {@code fac} (2 bits) on which its sticker z1 is. 
+     * This needs 40 bits.
+     * <p>
+     * The code is derived from {@link #sloc}. It is only valid for cube states generated by twists from the solved 
+     * cube (where {@link #fcol} is determined by {@link #sloc}), not for states from color transformations.
+     *
+     * @return the packed code
+     * @see #twist(long, Twist, int)
+     * @see CubeCodeMap
+     */
+    public long pack() {
+        long code = 0L;
+        for (int z=0; z<8; z++)
+            code |= (long) LOC_CODE[sloc[CORNER_LOC[z][0]]] << (5*z);
+        return code;
+    }
+
+    /**
+     * Apply a twist directly to a packed cube state (8 table lookups, no {@link CubeState} object needed).
+     * It holds {@code twist(cs.pack(),Twist.U,times) == cs.UTw(times).pack()} (and similar for L, F).
+     *
+     * @param code	the packed cube state, see {@link #pack()}
+     * @param twist	one of U, L, F
+     * @param times	number of counter-clockwise quarter turns (1,2,3)
+     * @return the packed cube state after the twist
+     */
+    public static long twist(long code, Twist twist, int times) {
+        int[][] tc = twistCode;
+        if (tc==null) tc = generateTwistCode();
+        int[] tab = tc[3*(twist.ordinal()-1) + times-1];
+        long res = 0L;
+        for (int z=0; z<8; z++)
+            res |= (long) tab[(int) (code >>> (5*z)) & 31] << (5*z);
+        return res;
+    }
+
+    /**
+     * Fill {@link #twistCode} by twisting the solved cube: its {@code sloc[loc]} is then the new location of 
+     * a sticker at location {@code loc}.
+     *
+     * @return the filled {@link #twistCode}
+     */
+    private static synchronized int[][] generateTwistCode() {
+        if (twistCode!=null) return twistCode;
+        int[][] tc = new int[9][32];
+        for (int t=0; t<3; t++) {
+            for (int times=1; times<=3; times++) {
+                CubeState cs = new CubeState2x2(Type.COLOR_P);
+                switch(t) {
+                    case 0: cs.UTw(times); break;
+                    case 1: cs.LTw(times); break;
+                    case 2: cs.FTw(times); break;
+                }
+                for (int loc=0; loc<24; loc++)
+                    tc[3*t+times-1][LOC_CODE[loc]] = LOC_CODE[cs.sloc[loc]];
+            }
+        }
+        twistCode = tc;
+        return tc;
+    }
+
     /**
      * Helper for CubeState2x2(BoardVector):
      * Given a board vector in STICKER representation, reconstruct member {@code sloc}.
@@ -61,15 +182,7 @@ public class CubeState2x2 extends CubeState {
      */
     private int[] slocFromSTICKER(int[] bvec) {
         int[] sloc = new int[24];
-        final 							// this array is found with the help of Table 3 in notes-WK-RubiksCube.docx:
-        int[][] C = {{ 0,  4,  8},		// 1st row: the locations for a1,a2,a3
-                { 1, 11, 18},		// 2nd row: the locations for b1,b2,b3
-                { 2, 17, 23},		// and so on ...
-                { 3, 22,  5},
-                {12, 16, 20},
-                {13, 19, 10},
-                {14,  9,  7},
-                {15,  6, 21}};
+        final int[][] C = CORNER_LOC;
         int cor,fac;
         for (int z=0; z<8; z++) {
             int[] corfac = getCornerAndFace(z,bvec);
@@ -1,13 +1,18 @@
 package games.RubiksCube;
 
-import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import agentIO.LoadSaveGBG;
 import controllers.PlayAgent;
 import controllers.TD.ntuple2.NTuple2ValueFunc;
 import controllers.TD.ntuple2.NTupleBase;
 import controllers.TD.ntuple2.NextState;
+import games.BoardVector;
 import games.StateObsWithBoardVector;
 import games.StateObservation;
 import games.XNTupleFuncs;
@@ -26,8 +31,8 @@ import tools.Types.ACTIONS_VT;
  *  <ul>
  *      <li> If {@link CubeConfig#REPLAYBUFFER} is false, simplify DAVI further by updating the net in each step only with
  *      the actual (state, target) pair </li>
- *      <li> If {@link CubeConfig#REPLAYBUFFER} is true, maintain a replay buffer of {@link TrainingItem}s and train the net
- *      in batches sampled from this replay buffer. </li>
+ *      <li> If {@link CubeConfig#REPLAYBUFFER} is true, maintain a {@link ReplayBuffer} of (board vector, target) pairs
+ *      and train the net in batches sampled from this replay buffer. </li>
  *  </ul>
  *  It <b>maximizes</b> the value V(s) where each step (twist) adds a negative step reward to V(s).
  *  Only the solved cube s* has V(s*)={@link StateObserverCube#REWARD_POSITIVE}.
@@ -39,7 +44,12 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 
 	private Random rand;
 
-	private transient LinkedList replayBuffer;
+	private transient ReplayBuffer replayBuffer;
+	/**
+	 * the executors for the parallel batch evaluation, one for each number of threads, shared by all 
+	 * {@link DAVI3Agent} objects
+	 */
+	private static final HashMap<Integer, ExecutorService> executors = new HashMap<>();
 
 //	private NTupleAgt.EligType m_elig;
 //	private int numPlayers;
@@ -99,7 +109,7 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 		setTDParams(tdPar, maxGameNum);
 		m_Net.setHorizon();
 
-		replayBuffer  = new LinkedList<>();
+		replayBuffer  = new ReplayBuffer(CubeConfig.replayBufferCapacity);
 
 		setAgentState(AgentState.INIT);
 	}
@@ -125,7 +135,7 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 		// initialize transient members (in case a further training should take place --> see ValidateAgentTest) 
 		this.m_Net.instantiateAfterLoading();   // instantiate transient eList and nTuples
 
-		replayBuffer  = new LinkedList<>();
+		replayBuffer  = new ReplayBuffer(CubeConfig.replayBufferCapacity);
 
 		return true;
 	}
@@ -295,17 +305,18 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 		Types.ACTIONS_VT  a_t;
 		StateObservation s_t = so.copy();
 		int epiLength = m_oPar.getEpisodeLength();
-		LinkedList<TrainingItem> episodeList = new LinkedList<>();
-		TrainingItem item;
-		int index;
+		ArrayList<BoardVector> episodeBV = new ArrayList<>();
+		ArrayList<StateObservation> episodeSO = new ArrayList<>();
+		ArrayList<Double> episodeTargets = new ArrayList<>();
+		boolean needSO = needsStates();
 
-		int curPlayer;
-		double vLast;
 		assert (epiLength != -1) : "trainAgent: Rubik's Cube should not be run with epiLength==-1 !";
 		if (so.equals(def)) {
 			System.err.println("trainAgent: cube should NOT be the default (solved) cube!");
 			return false;
 		}
+		if (replayBuffer==null || replayBuffer.capacity()!=CubeConfig.replayBufferCapacity)
+			replayBuffer = new ReplayBuffer(CubeConfig.replayBufferCapacity);
 		boolean m_finished = false;
 
 		do {
@@ -313,13 +324,10 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 
 			a_t = getNextAction2(s_t, false, true);	// choose action a_t (agent-specific behavior)
 
-			// add a new TrainingElem to episodeList
-			TrainingItem trainItem = new TrainingItem(
-					new StateObsWithBoardVector(s_t.copy(), m_Net.xnf),
-					a_t.getVBest(),
-					this.getGameNum()
-			);
-			episodeList.addFirst(trainItem);
+			// remember board vector, target and (if needed) state of this step 
+			episodeBV.add(m_Net.xnf.getBoardVector(s_t));
+			episodeSO.add(needSO ? s_t.copy() : null);
+			episodeTargets.add(a_t.getVBest());
 			//System.out.println(s_t.stringDescr()+", "+a_t.getVBest());
 
 			s_t.advance(a_t);		// advance the state
@@ -327,55 +335,35 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 			if (s_t.isGameOver()) {
 				m_finished = true;
 
-				// successful episode --> put all episodeList elements into replayBuffer
-				ListIterator<DAVI3Agent.TrainingItem> iter = episodeList.listIterator();
-				while(iter.hasNext()) {
-					replayBuffer.addFirst(iter.next());
-					if (replayBuffer.size() > CubeConfig.replayBufferCapacity) replayBuffer.pollLast();
-				}
-
+				// successful episode --> put all episode steps into replayBuffer (last step first)
+				for (int k=episodeBV.size()-1; k>=0; k--) 
+					replayBuffer.add(episodeBV.get(k), episodeSO.get(k), episodeTargets.get(k));
 			}
 			if (s_t.getMoveCounter()>=epiLength) {
 				m_finished=true;
 
-				// unsuccessful episode --> reduce the target of all elements in episodeList by 'amount'
+				// unsuccessful episode --> increase the target of all episode steps by 'amount'
 				// and put them then into replayBuffer
 				double amount = m_oPar.getIncAmount(); //-0.03;
-				ListIterator<DAVI3Agent.TrainingItem> iter = episodeList.listIterator();
-				while(iter.hasNext()) {
-//					TrainingItem ti = iter.next();
-//					ti.reduceTarget(amount);
-					replayBuffer.addFirst(iter.next().increaseTarget(amount));
-					if (replayBuffer.size() > CubeConfig.replayBufferCapacity) replayBuffer.pollLast();
-				}
-
+				for (int k=episodeBV.size()-1; k>=0; k--) 
+					replayBuffer.add(episodeBV.get(k), episodeSO.get(k), episodeTargets.get(k) + amount);
 			}
 
 		} while(!m_finished);
 		//System.out.println("Final state: "+s_t.stringDescr()+", "+a_t.getVBest());
 
 		// train network from replayBuffer ...
+		int[] batch;
 		if (replayBuffer.size() < CubeConfig.batchSize) {
 			// ... with all samples in replayBuffer
-			ListIterator<TrainingItem> iter = replayBuffer.listIterator();
-			while(iter.hasNext()) {
-				item = iter.next();
-				curPlayer = item.sowb.getStateObservation().getPlayer();
-				vLast = m_Net.getScoreI(item.sowb,curPlayer);
-				m_Net.updateWeightsTD(item.sowb, curPlayer, vLast, item.target,
-						s_t.getDeltaRewardTuple(false).scTup[0], item.sowb.getStateObservation());
-			}
+			batch = new int[replayBuffer.size()];
+			for (int i=0; i<batch.length; i++) batch[i] = i;
 		} else {
 			// ... with batchSize random samples
-			for (int i=0; i<CubeConfig.batchSize; i++) {
-				index = rand.nextInt(replayBuffer.size());
-				item = (TrainingItem)replayBuffer.get(index);
-				s_t = item.sowb.getStateObservation();
-				vLast = m_Net.getScoreI(item.sowb,s_t.getPlayer());
-				m_Net.updateWeightsTD(item.sowb, s_t.getPlayer(), vLast, item.target,
-						s_t.getDeltaRewardTuple(false).scTup[0], s_t);
-			}
+			batch = new int[CubeConfig.batchSize];
+			for (int i=0; i<batch.length; i++) batch[i] = rand.nextInt(replayBuffer.size());
 		}
+		trainBatch(batch);
 
 		incrementGameNum();
 		if (this.getGameNum() % 2000 == 0) System.out.println("gameNum: "+this.getGameNum());
@@ -383,6 +371,71 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 		return false;
 	}
 
+	/**
+	 * Update the network with the replay buffer items {@code batch[]}. If {@link CubeConfig#replayThreads}{@code >1},
+	 * the values of all items are first evaluated in parallel (the network is only read in this phase) and then 
+	 * the weight updates are made in turn.
+	 */
+	private void trainBatch(int[] batch) {
+		int numThreads = CubeConfig.replayThreads;
+		if (numThreads <= 1 || batch.length <= 1) {
+			for (int i : batch) {
+				StateObsWithBoardVector sowb = makeSOWB(i);
+				double vLast = m_Net.getScoreI(sowb,0);
+				m_Net.updateWeightsTD(sowb, 0, vLast, replayBuffer.getTarget(i), 0.0, sowb.getStateObservation());
+			}
+			return;
+		}
+
+		StateObsWithBoardVector[] sowb = new StateObsWithBoardVector[batch.length];
+		double[] vLast = new double[batch.length];
+		List<Callable<Void>> callables = new ArrayList<>();
+		int chunk = (batch.length + numThreads - 1) / numThreads;
+		for (int t = 0; t < batch.length; t += chunk) {
+			final int from = t, to = Math.min(t + chunk, batch.length);
+			callables.add(() -> {
+				for (int k = from; k < to; k++) {
+					sowb[k] = makeSOWB(batch[k]);
+					vLast[k] = m_Net.getScoreI(sowb[k],0);
+				}
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> future : getExecutor(numThreads).invokeAll(callables))
+				future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+		for (int k = 0; k < batch.length; k++)
+			m_Net.updateWeightsTD(sowb[k], 0, vLast[k], replayBuffer.getTarget(batch[k]), 0.0, sowb[k].getStateObservation());
+	}
+
+	/**
+	 * @return true, if the training needs the cube states of the replay buffer items (for the color symmetries in 
+	 * 		{@link XNTupleFuncsCube#symmetryVectors(StateObsWithBoardVector, int)} or for debug output). Otherwise 
+	 * 		the replay buffer holds only the board vectors.
+	 */
+	private boolean needsStates() {
+		return m_ntPar.getUSESYMMETRY() || NTupleBase.DBG_REWARD || NTupleBase.DBG_OLD_3P;
+	}
+
+	/**
+	 * @return the {@code i}th replay buffer item as {@link StateObsWithBoardVector}. Its cube state is null, if
+	 * 		it is not needed (see {@link #needsStates()}).
+	 */
+	private StateObsWithBoardVector makeSOWB(int i) {
+		return new StateObsWithBoardVector(replayBuffer.getState(i), replayBuffer.getBoardVector(i));
+	}
+
+	/**
+	 * The executors are never shut down, since another agent may still use them. Their worker 
+	 * threads are daemon threads which terminate when idle.
+	 */
+	private static synchronized ExecutorService getExecutor(int numThreads) {
+		return executors.computeIfAbsent(numThreads, Executors::newWorkStealingPool);
+	}
+
 	@Override
 	public double getScore(StateObservation so) {
         assert (so instanceof StateObserverCube) : "Not a StateObserverCube object";
@@ -412,7 +465,7 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 
 	@Override
 	public boolean isTrainable() {
-		return true;
+		return !m_Net.isFrozen();
 	}
 
     @Override
@@ -451,23 +504,5 @@ public class DAVI3Agent extends NTupleBase implements PlayAgent {
 	public void collectReward(NextState ns) {
 	}
 
-	// class TrainingItem is needed for replayBuffer (see trainAgent_replayBuffer(so))
-	private class TrainingItem implements Serializable {
-		StateObsWithBoardVector sowb;
-		double target;
-		int numEpisode;
-
-		TrainingItem(StateObsWithBoardVector sowb, double target, int numEpisode) {
-			this.sowb = sowb;
-			this.target = target;
-			this.numEpisode = numEpisode;
-		}
-
-		TrainingItem increaseTarget(double amount) {
-			this.target += amount;
-			return this;
-		}
-	}
-
 }
 
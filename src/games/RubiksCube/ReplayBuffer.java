@@ -0,0 +1,116 @@
+package games.RubiksCube;
+
+import games.BoardVector;
+import games.StateObservation;
+
+/**
+ * The replay buffer of {@link DAVI3Agent}: a ring buffer with fixed capacity holding the most recent training
+ * items. Each item is the board vector of a cube state (plus its auxiliary vector, the sticker locations
+ * {@code sloc}) together with its training target and, optionally, the cube state itself (only needed if the 
+ * training needs more than the board vector, e.g. for the color symmetries).
+ * <p>
+ * All items are stored in primitive arrays: the board vectors in {@code byte[]} slices of fixed length
+ * (all cube board vectors have values in 0,...,47), the targets in a {@code double[]}. Adding an item to a full
+ * buffer overwrites the oldest item. Access by index is O(1), so that uniform sampling is cheap.
+ */
+class ReplayBuffer {
+	private final int capacity;
+	private int bvecLength = -1;	// length of the board vectors (set by the first add)
+	private int auxLength;			// length of the auxiliary vectors (0 if there are none)
+	private byte[] bvecs;			// bvecs[slot*bvecLength+k] is element k of the board vector in slot
+	private byte[] auxs;
+	private double[] targets;
+	private StateObservation[] states;	// created on demand, see add(BoardVector,StateObservation,double)
+	private int next = 0;			// the slot for the next item
+	private int size = 0;
+
+	ReplayBuffer(int capacity) {
+		this.capacity = capacity;
+		this.targets = new double[capacity];
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Add a new item. If the buffer is full, the oldest item is overwritten.
+	 */
+	void add(BoardVector bv, double target) {
+		add(bv, null, target);
+	}
+
+	/**
+	 * Add a new item together with its state {@code so} (may be null). If the buffer is full, the oldest item is 
+	 * overwritten.
+	 */
+	void add(BoardVector bv, StateObservation so, double target) {
+		if (so != null && states == null) 
+			states = new StateObservation[capacity];
+		if (states != null)
+			states[next] = so;
+		if (bvecLength == -1) {
+			bvecLength = bv.bvec.length;
+			auxLength = (bv.aux == null) ? 0 : bv.aux.length;
+			bvecs = new byte[capacity * bvecLength];
+			auxs = new byte[capacity * auxLength];
+		}
+		assert (bv.bvec.length == bvecLength) : "Board vector length changed from " + bvecLength + " to " + bv.bvec.length;
+		for (int k = 0; k < bvecLength; k++)
+			bvecs[next * bvecLength + k] = (byte) bv.bvec[k];
+		for (int k = 0; k < auxLength; k++)
+			auxs[next * auxLength + k] = (byte) bv.aux[k];
+		targets[next] = target;
+		next = (next + 1) % capacity;
+		if (size < capacity) size++;
+	}
+
+	/**
+	 * @return the slot of the {@code i}th item, where i=0 is the most recently added item
+	 */
+	private int slot(int i) {
+		assert (0 <= i && i < size) : "index " + i + " out of range [0," + size + ")";
+		return (next - 1 - i + capacity) % capacity;
+	}
+
+	/**
+	 * @param i	0 for the most recently added item, 1 for the one before, ...
+	 * @return a new board vector (with auxiliary vector) for the {@code i}th item
+	 */
+	BoardVector getBoardVector(int i) {
+		int s = slot(i);
+		int[] bvec = new int[bvecLength];
+		for (int k = 0; k < bvecLength; k++)
+			bvec[k] = bvecs[s * bvecLength + k];
+		int[] aux = null;
+		if (auxLength > 0) {
+			aux = new int[auxLength];
+			for (int k = 0; k < auxLength; k++)
+				aux[k] = auxs[s * auxLength + k];
+		}
+		BoardVector bv = new BoardVector(null);
+		bv.bvec = bvec;			// no need for the clone in BoardVector(int[],int[])
+		bv.aux = aux;
+		return bv;
+	}
+
+	/**
+	 * @param i	0 for the most recently added item, 1 for the one before, ...
+	 * @return the state of the {@code i}th item (null, if it was added without state)
+	 */
+	StateObservation getState(int i) {
+		return (states == null) ? null : states[slot(i)];
+	}
+
+	/**
+	 * @param i	0 for the most recently added item, 1 for the one before, ...
+	 * @return the target of the {@code i}th item
+	 */
+	double getTarget(int i) {
+		return targets[slot(i)];
+	}
+}
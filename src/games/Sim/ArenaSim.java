@@ -73,6 +73,13 @@ public class ArenaSim extends Arena{
     	ConfigSim.NUM_NODES = val;
     }
 
+    /**
+     * set whether the n-tuple symmetries of Sim use the canonical position (see {@link ConfigSim#CANONICAL})
+     */
+    public static void setCanonical(boolean val) {
+    	ConfigSim.CANONICAL = val;
+    }
+
     /**
      * set the number of nodes for Sim
      */
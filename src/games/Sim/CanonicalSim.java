@@ -0,0 +1,214 @@
+package games.Sim;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical labeling of Sim positions: two board vectors (see {@link XNTupleFuncsSim#getBoardVector(games.StateObservation)})
+ * get the same canonical board vector if and only if one is a node permutation of the other, i.e. if they are
+ * equivalent under the K! symmetries of the edge-colored complete graph (the color of a link is its position value).
+ * <p>
+ * The canonical form is computed by individualization-refinement (as in nauty): the nodes are partitioned into
+ * ordered classes by color refinement (nodes with different numbers of links of each color into the classes are
+ * split) until the partition is stable. If classes with several nodes remain, each node of the first such class
+ * is individualized in turn and the refinement is repeated. Each leaf of this search tree orders all nodes, i.e.
+ * it is a relabeling of the graph, and the canonical form is the relabeled board whose link colors, read column by
+ * column (0,1), (0,2),(1,2), (0,3),(1,3),(2,3), ..., are lexicographically smallest. Since refinement and choice of
+ * the class do not depend on the node numbers, equivalent boards have the same set of relabeled leaves.
+ * <p>
+ * The search tree is pruned by automorphisms: twin nodes (nodes with the same link colors to all other nodes, e.g.
+ * all untouched nodes) and nodes mapped onto each other by automorphisms found from leaves with equal boards lead
+ * to equivalent subtrees, only one of them is searched.
+ * <p>
+ * The results are cached by position if the board vector fits into a {@code long} key (K &le; 8). The cache holds
+ * at most {@link #CACHE_SIZE} entries (about 200 bytes each for K=8, i.e. about 13 MB), it is cleared when full.
+ */
+final class CanonicalSim {
+	private static final int CACHE_SIZE = 1 << 16;	// the cache is cleared if it has more entries
+
+	private final int numNodes;
+	private final GraphSim graph;
+	private final boolean cached;
+	private final ConcurrentHashMap<Long, int[]> cache = new ConcurrentHashMap<>();
+
+	CanonicalSim(int numNodes) {
+		this.numNodes = numNodes;
+		this.graph = GraphSim.of(numNodes);
+		this.cached = (2*graph.numLinks <= 64);		// position values 0,...,3 need 2 bits per link
+	}
+
+	/**
+	 * @param bvec	a board vector (position values 0,...,3 for the links in action order)
+	 * @return the canonical board vector of {@code bvec} (shared with the cache, it must not be changed)
+	 */
+	int[] canonical(int[] bvec) {
+		if (!cached) return search(bvec);
+		long key = 0L;
+		for (int k=0; k < graph.numLinks; k++)
+			key = (key << 2) | bvec[k];
+		int[] c = cache.get(key);
+		if (c == null) {
+			if (cache.size() >= CACHE_SIZE) cache.clear();
+			c = search(bvec);
+			cache.put(key, c);
+		}
+		return c;
+	}
+
+	private int[] search(int[] bvec) {
+		Search s = new Search(bvec);
+		s.dfs(new int[numNodes], 1, new int[numNodes], 0);
+		int[] res = new int[graph.numLinks];
+		for (int j=1; j < numNodes; j++)
+			for (int i=0; i < j; i++)
+				res[graph.link[i][j]] = s.best[j*(j-1)/2 + i];
+		return res;
+	}
+
+	private class Search {
+		private static final int MAX_AUTOMORPHISMS = 64;
+
+		final int[][] col;				// col[u][v]: the color (position value) of link (u,v)
+		final int[] twin;				// twin[v]: the smallest node which is a twin of v
+		final ArrayList<int[]> autos = new ArrayList<>();	// automorphisms found so far
+		int[] best = null;				// the link colors of the best leaf in column order
+		int[] bestLab = null;			// bestLab[m]: the node which gets number m in the best leaf
+
+		Search(int[] bvec) {
+			col = new int[numNodes][numNodes];
+			for (int k=0; k < graph.numLinks; k++)
+				col[graph.from[k]][graph.to[k]] = col[graph.to[k]][graph.from[k]] = bvec[k];
+			twin = new int[numNodes];
+			for (int v=0; v < numNodes; v++) {
+				twin[v] = v;
+				for (int u=0; u < v; u++) {
+					if (isTwin(u, v)) {
+						twin[v] = twin[u];
+						break;
+					}
+				}
+			}
+		}
+
+		private boolean isTwin(int u, int v) {
+			for (int x=0; x < numNodes; x++)
+				if (x != u && x != v && col[u][x] != col[v][x]) return false;
+			return true;
+		}
+
+		/**
+		 * Refine the ordered partition {@code cls} (node v is in class {@code cls[v]}) until it is stable.
+		 * Classes are split by the number of links of each color into each class, the new classes are ordered
+		 * by old class and then by these numbers.
+		 *
+		 * @return the number of classes
+		 */
+		private int refine(int[] cls, int nCls) {
+			int[][] sig = new int[numNodes][];
+			int[] order = new int[numNodes];
+			while (true) {
+				for (int v=0; v < numNodes; v++) {
+					int[] sv = sig[v] = new int[1 + 4*nCls];
+					sv[0] = cls[v];
+					for (int x=0; x < numNodes; x++)
+						if (x != v) sv[1 + 4*cls[x] + col[v][x]]++;
+				}
+				for (int v=0; v < numNodes; v++) {			// insertion sort of the nodes by signature
+					int i = v;
+					for (; i > 0 && compare(sig[order[i-1]], sig[v]) > 0; i--)
+						order[i] = order[i-1];
+					order[i] = v;
+				}
+				int n = 0;
+				for (int i=0; i < numNodes; i++) {
+					if (i > 0 && compare(sig[order[i-1]], sig[order[i]]) != 0) n++;
+					cls[order[i]] = n;
+				}
+				if (n+1 == nCls) return nCls;
+				nCls = n+1;
+			}
+		}
+
+		/**
+		 * Search the subtree of the ordered partition {@code cls} with {@code nCls} classes, where the nodes
+		 * {@code path[0..depth-1]} are individualized.
+		 */
+		void dfs(int[] cls, int nCls, int[] path, int depth) {
+			nCls = refine(cls, nCls);
+			if (nCls == numNodes) {
+				leaf(cls);
+				return;
+			}
+			int[] size = new int[nCls];
+			for (int v=0; v < numNodes; v++) size[cls[v]]++;
+			int target = 0;
+			while (size[target] == 1) target++;
+
+			int[] tried = new int[size[target]];
+			int nTried = 0;
+			for (int v=0; v < numNodes; v++) {
+				if (cls[v] != target || isEquivalent(v, tried, nTried, path, depth)) continue;
+				tried[nTried++] = v;
+				int[] c = new int[numNodes];
+				for (int x=0; x < numNodes; x++)
+					c[x] = cls[x] + ((cls[x] > target || (cls[x] == target && x != v)) ? 1 : 0);
+				path[depth] = v;
+				dfs(c, nCls+1, path, depth+1);
+			}
+		}
+
+		/**
+		 * @return true, if {@code v} is a twin of a node in {@code tried} or is mapped onto one by an automorphism
+		 * 		that fixes the individualized nodes {@code path[0..depth-1]}
+		 */
+		private boolean isEquivalent(int v, int[] tried, int nTried, int[] path, int depth) {
+			for (int i=0; i < nTried; i++)
+				if (twin[tried[i]] == twin[v]) return true;
+			if (nTried == 0 || autos.isEmpty()) return false;
+			int[] orbit = new int[numNodes];			// union-find over the fixing automorphisms
+			for (int x=0; x < numNodes; x++) orbit[x] = x;
+			for (int[] g : autos) {
+				boolean fixes = true;
+				for (int d=0; d < depth && fixes; d++) fixes = (g[path[d]] == path[d]);
+				if (!fixes) continue;
+				for (int x=0; x < numNodes; x++) {
+					int a = root(orbit, x), b = root(orbit, g[x]);
+					if (a != b) orbit[Math.max(a, b)] = Math.min(a, b);
+				}
+			}
+			int r = root(orbit, v);
+			for (int i=0; i < nTried; i++)
+				if (root(orbit, tried[i]) == r) return true;
+			return false;
+		}
+
+		private int root(int[] orbit, int x) {
+			while (orbit[x] != x) x = orbit[x];
+			return x;
+		}
+
+		private void leaf(int[] cls) {
+			int[] lab = new int[numNodes];
+			for (int v=0; v < numNodes; v++) lab[cls[v]] = v;
+			int[] code = new int[graph.numLinks];
+			for (int j=1, k=0; j < numNodes; j++)
+				for (int i=0; i < j; i++, k++)
+					code[k] = col[lab[i]][lab[j]];
+			int c = (best == null) ? -1 : compare(code, best);
+			if (c < 0) {
+				best = code;
+				bestLab = lab;
+			} else if (c == 0 && autos.size() < MAX_AUTOMORPHISMS) {
+				int[] g = new int[numNodes];			// bestLab[m] -> lab[m] is an automorphism
+				for (int m=0; m < numNodes; m++) g[bestLab[m]] = lab[m];
+				autos.add(g);
+			}
+		}
+	}
+
+	private static int compare(int[] a, int[] b) {
+		for (int k=0; k < a.length; k++)
+			if (a[k] != b[k]) return a[k] - b[k];
+		return 0;
+	}
+}
@@ -18,6 +18,12 @@ public class ConfigSim {
 	 */
 	public static String COALITION = "None"; //"None"; "1-2";
 	
+	/**
+	 *  Whether newly constructed {@link XNTupleFuncsSim} objects map each position to its canonical 
+	 *  representative instead of sampling random node permutations (see {@link XNTupleFuncsSim#isCanonical()}).
+	 */
+	public static boolean CANONICAL = false;
+	
 	/**
 	 *  A dummy state, needed as reference in XNTupleFuncsSim
 	 */
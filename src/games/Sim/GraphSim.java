@@ -0,0 +1,75 @@
+package games.Sim;
+
+/**
+ * The fixed structure of the complete Sim graph with K nodes: the numbering of its links (the same numbering
+ * as the actions in {@link StateObserverSim}) and, for each link, the K-2 triangles it belongs to. The tables
+ * are built once per K (see {@link #of(int)}) and are shared by all states with K nodes.
+ * <p>
+ * Sets of links are bitmasks: link {@code k} is bit {@code k%64} of word {@code k/64} in a {@code long[]}
+ * with {@link #nWords} words (a single word for K &le; 11).
+ */
+final class GraphSim {
+	final int numNodes;
+	final int numLinks;
+	final int nWords;
+	final int[] from;			// link k connects node from[k] with node to[k] > from[k]
+	final int[] to;
+	final int[][] link;			// link[i][j] = link[j][i]: the number of the link between nodes i and j (-1 if i==j)
+	final long[] full;			// the mask of all links
+	/**
+	 * The triangles through link k are {@code t = k*(K-2),...,k*(K-2)+K-3}, ordered by their third node
+	 * {@code triNode[t]}. The words {@code triMask[t*nWords],...,triMask[t*nWords+nWords-1]} hold the mask
+	 * of the two other links of triangle {@code t}.
+	 */
+	final int[] triNode;
+	final long[] triMask;
+
+	private static GraphSim[] cache = new GraphSim[0];
+
+	/**
+	 * @param numNodes	the number of nodes K
+	 * @return the (shared) tables for the complete graph with {@code numNodes} nodes
+	 */
+	static synchronized GraphSim of(int numNodes) {
+		if (numNodes >= cache.length) {
+			GraphSim[] c = new GraphSim[numNodes+1];
+			System.arraycopy(cache, 0, c, 0, cache.length);
+			cache = c;
+		}
+		if (cache[numNodes]==null) cache[numNodes] = new GraphSim(numNodes);
+		return cache[numNodes];
+	}
+
+	private GraphSim(int numNodes) {
+		this.numNodes = numNodes;
+		this.numLinks = numNodes*(numNodes-1)/2;
+		this.nWords = Math.max(1, (numLinks+63)/64);
+		this.from = new int[numLinks];
+		this.to = new int[numLinks];
+		this.link = new int[numNodes][numNodes];
+		this.full = new long[nWords];
+		for (int i=0, k=0; i < numNodes; i++) {
+			link[i][i] = -1;
+			for (int j=i+1; j < numNodes; j++, k++) {
+				from[k] = i;
+				to[k] = j;
+				link[i][j] = link[j][i] = k;
+				full[k>>>6] |= 1L << k;
+			}
+		}
+
+		int nTri = Math.max(0, numNodes-2);
+		this.triNode = new int[numLinks*nTri];
+		this.triMask = new long[numLinks*nTri*nWords];
+		for (int k=0, t=0; k < numLinks; k++) {
+			for (int m=0; m < numNodes; m++) {
+				if (m==from[k] || m==to[k]) continue;
+				triNode[t] = m;
+				int a = link[from[k]][m], b = link[to[k]][m];
+				triMask[t*nWords + (a>>>6)] |= 1L << a;
+				triMask[t*nWords + (b>>>6)] |= 1L << b;
+				t++;
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package games.Sim;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 
@@ -16,11 +18,12 @@ import tools.Types.ACTIONS;
 import tools.Types.WINNER;
 import tools.Types;
 import tools.ValidateStateObsTest;
+import tools.ZobristHash;
 
 /**
- * This class holds any valid Sim game state. It is coded
- * as array {@link Link2}{@code [] lFrom}, where {@code lFrom[i]} carries all links from node {@code i} 
- * to all nodes with higher index than {@code i}. Each link can be 
+ * This class holds any valid Sim game state. It is coded as bitmasks over the links of the complete graph
+ * (see {@link GraphSim}): {@code links} holds for each player Pi the set of links occupied by Pi. 
+ * The player of a link (see {@link #getLinkFromTo(int, int)}) can be 
  * <ul>
  * <li>= 0 for an empty link,
  * <li>= 1 for a P0 link,
@@ -44,6 +47,9 @@ import tools.ValidateStateObsTest;
  *                             14  4
  *                                 5    </pre>
  *  The {@code lines} in {@link BoardPanel} are numbered exactly the same way as the actions.
+ *  Link number k is bit k of the bitmasks. A player loses if he completes a triangle: 
+ *  {@link #hasLost(int)} tests the K-2 precomputed triangle masks of the last link against the player's
+ *  links, and {@link #copy()} only has to clone the bitmasks.
  *  <p>
  *  This class is a completely rewritten version of the former StateObsererSim (by P. Wuensch, now in 
  *  deprecated/.../StateObserverSim_OLD.java). The new version has code easier to maintain and can be better 
@@ -56,15 +62,24 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	private int numNodes;
 	private int numPlayers;
 	private int player;			// 0,1 in 2-player variant;   0,1,2 in 3-player variant
-	private Link2[] lFrom;
 	/**
-	 * The list of available actions
+	 * The links of all players as bitmasks: the words {@code p*nWords,...,p*nWords+nWords-1} hold the 
+	 * links of player Pp ({@code nWords} from {@link GraphSim}).
 	 */
-	private ArrayList<Types.ACTIONS> availableActions = new ArrayList();
+	private long[] links;
+	private transient GraphSim graph;
 	/**
-	 * The list of last moves in an episode. Each move is stored as {@link Integer} {@code iAction}.
+	 * The Zobrist hash of {@code links}, maintained incrementally in {@link #setAction(int)} (see {@link #getHash()})
 	 */
-	private ArrayList<Integer> lastMoves;
+	private transient long linkHash = 0L;
+	/**
+	 * The list of available actions. It is built on demand from {@code links} (null if not yet built).
+	 */
+	private ArrayList<Types.ACTIONS> availableActions = null;
+	/**
+	 * The last move in an episode ({@code iAction}), -1 if there is none.
+	 */
+	private int lastMove = -1;
 	/**
 	 * This array holds the nodes involved in the last action taken. More precisely, 
 	 * {@code lastNodes[0]} and {@code lastNodes[1]} hold the node numbers connected by 
@@ -77,7 +92,7 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	private static final long serialVersionUID = 12L;	//Serial number
 	private FinalSim finalSim;
 
-	StateObserverSim() 
+	public StateObserverSim() 
 	{
 		config(ConfigSim.NUM_PLAYERS, ConfigSim.NUM_NODES);
 	}
@@ -89,16 +104,11 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		this.numPlayers = other.numPlayers;
 		this.player = other.player;
 		this.finalSim = new FinalSim(other.finalSim);
-
-		setupLinks(other.numNodes);
-		copyLinks(other.lFrom);
-		
-		this.lastMoves = (ArrayList<Integer>) other.lastMoves.clone();
-		if (other.availableActions!=null)	// this check is needed when loading older logs
-			this.availableActions = (ArrayList<ACTIONS>) other.availableActions.clone();
-				// Note that clone does only clone the ArrayList, but not the contained ACTIONS, they are 
-				// just copied by reference. However, these ACTIONS are never altered, so it is o.k.
-//		setAvailableActions();		// this as replacement for availableActions.clone() would be a bit slower
+		this.graph = other.graph;
+		this.links = other.links.clone();
+		this.linkHash = other.linkHash;
+		this.lastMove = other.lastMove;
+		// availableActions are built on demand from links
 	}
 	
 	private void config(int numberOfPlayer, int numberOfNodes)
@@ -108,9 +118,10 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		this.player = 0;
 		this.finalSim = new FinalSim(numberOfPlayer);
 		
-		setupLinks(numberOfNodes);
-		setAvailableActions();
-		this.lastMoves = new ArrayList<Integer>();
+		this.graph = GraphSim.of(numberOfNodes);
+		this.links = new long[numberOfPlayer*graph.nWords];
+		this.linkHash = 0L;
+		this.lastMove = -1;
 	}
 	
 	@Override
@@ -121,34 +132,66 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		return sos;
 	}
 
-	private void setupLinks(int numberOfNodes)
-	{
-		lFrom = new Link2[numberOfNodes];
-		for(int i = 0; i < numberOfNodes; i++)
-			lFrom[i] = new Link2(i,numberOfNodes);
+	/**
+	 * @param k	the link number (= action number)
+	 * @return the player 1,2,3 who owns link {@code k}, 0 if the link is empty
+	 */
+	int getLink(int k) {
+		int w = k>>>6;
+		long bit = 1L << k;
+		for (int p=0; p < numPlayers; p++, w += graph.nWords)
+			if ((links[w] & bit) != 0) return p+1;
+		return 0;
 	}
-	
-	private void copyLinks(Link2[] links)
-	{
-		for(int i = 0; i < numNodes; i++)
-			this.lFrom[i] = new Link2(links[i]);
+
+	/**
+	 * Set {@code board[k]} to the player 1,2,3 who owns link {@code k}. Empty links are not written, so 
+	 * {@code board} has to be all 0 initially.
+	 */
+	void fillLinks(int[] board) {
+		for (int p=0, w0=0; p < numPlayers; p++, w0 += graph.nWords) {
+			for (int w=0; w < graph.nWords; w++) {
+				for (long m = links[w0+w]; m != 0L; m &= m-1)
+					board[64*w + Long.numberOfTrailingZeros(m)] = p+1;
+			}
+		}
 	}
-	
+
+	/**
+	 * @return the number of links occupied by player {@code p}
+	 */
+	private int countLinks(int p) {
+		int count = 0;
+		for (int w=p*graph.nWords, end=w+graph.nWords; w < end; w++)
+			count += Long.bitCount(links[w]);
+		return count;
+	}
+
+	/**
+	 * @return the mask of all empty links in word {@code w}
+	 */
+	private long emptyLinks(int w) {
+		long occupied = 0L;
+		for (int p=0; p < numPlayers; p++)
+			occupied |= links[p*graph.nWords + w];
+		return graph.full[w] & ~occupied;
+	}
+
 	public boolean hasLost(int player)
 	{
 		if (lastNodes[0] != lastNodes[1]) {		// if action 'grab the link between these two nodes' is taken
-			for(int i = 0; i < lFrom.length; i++)
-				if(i == lastNodes[0] || i == lastNodes[1])
-					continue;
-				else
-				{
-					if(getLinkFromTo(i,lastNodes[0]) == player + 1 && 
-					   getLinkFromTo(i,lastNodes[1]) == player + 1) {
-						lastNodes[2] = i;
-						//System.out.println(this.stringDescr());
-						return true;
-					}
+			int nWords = graph.nWords;
+			int off = player*nWords;
+			int t = graph.link[lastNodes[0]][lastNodes[1]]*(numNodes-2);
+			for (int tEnd = t+numNodes-2; t < tEnd; t++) {
+				int w = 0;
+				for (int m = t*nWords; w < nWords; w++, m++)
+					if ((links[off+w] & graph.triMask[m]) != graph.triMask[m]) break;
+				if (w == nWords) {				// player owns both other links of triangle t
+					lastNodes[2] = graph.triNode[t];
+					return true;
 				}
+			}
 		}		
 		return false;
 	}
@@ -163,8 +206,8 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	 */
 	private boolean isFull()
 	{
-		for(Link2 link : lFrom)
-			if(link.hasSpaceLeft())
+		for (int w=0; w < graph.nWords; w++)
+			if (emptyLinks(w) != 0L)
 				return false;
 		return true;
 	}
@@ -191,31 +234,13 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
 	private boolean isLegalState2Player()
 	{
-		int count0 = 0, count1 = 0;			// counti: number of links that player i=0,1 occupies
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				if (lFrom[i].getPlayer(j) == 1)
-					count0++;
-				else if (lFrom[i].getPlayer(j) == 2)
-					count1++;
-			}
-		}	
+		int count0 = countLinks(0), count1 = countLinks(1);		// counti: number of links that player i=0,1 occupies
 		return checkIfLegal2(count0,count1);
 	}
 	
 	private boolean isLegalState3Player()
 	{
-		int count0 = 0, count1 = 0, count2 = 0;		// counti: number of links that player i=0,1,2 occupies
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				if (lFrom[i].getPlayer(j) == 1)
-					count0++;
-				else if (lFrom[i].getPlayer(j) == 2)
-					count1++;
-				else if (lFrom[i].getPlayer(j) == 3)
-					count2++;
-			}
-		}
+		int count0 = countLinks(0), count1 = countLinks(1), count2 = countLinks(2);
 		// now count0,1,2 have the # of links occupied by player P0,1,2
 		
 		if (finalSim.getLoser()==-1) 
@@ -324,43 +349,36 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
 	@Override
 	public int getNumAvailableActions() {
-		return availableActions.size();
+		return getAvailableActions().size();
 	}
 
 	@Override
 	public void setAvailableActions() {
-		availableActions.clear();
-		int action = 0;
+		availableActions = new ArrayList<>();
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				if (lFrom[i].getPlayer(j) == 0)					// all empty links are available actions
-					availableActions.add(Types.ACTIONS.fromInt(action));
-				action++;
+		for (int w=0; w < graph.nWords; w++) {
+			for (long empty = emptyLinks(w); empty != 0L; empty &= empty-1) {	// all empty links are available actions
+				availableActions.add(Types.ACTIONS.fromInt(64*w + Long.numberOfTrailingZeros(empty)));
 			}
 		}
 	}
 
 	@Override
 	public ACTIONS getAction(int i) {
-		return availableActions.get(i);
+		return getAvailableActions().get(i);
 	}
 
     @Override
 	public ArrayList<ACTIONS> getAllAvailableActions() {
-		int action = 0;
         ArrayList allActions = new ArrayList<>();
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				allActions.add(Types.ACTIONS.fromInt(action));
-				action++;
-			}
-		}       
+		for (int action=0; action < graph.numLinks; action++)
+			allActions.add(Types.ACTIONS.fromInt(action));
         return allActions;
 	}
 	
 	@Override
 	public ArrayList<ACTIONS> getAvailableActions() {
+		if (availableActions == null) setAvailableActions();
 		return availableActions;
 	}
 
@@ -370,13 +388,13 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		int iAction = action.toInt();
 		
 		setAction(iAction);
-		setAvailableActions();		// IMPORTANT: adjust the available actions (have reduced by one)
+		availableActions = null;	// IMPORTANT: the available actions have reduced by one, they are rebuilt on demand
 		
 		finalSim.checkIfPlayerLost();
 		
 		player = getNextPlayer();	// 2-player games: 0,1,0,1,...;   3-player games: 0,1,2,0,1,...
 		super.incrementMoveCounter();		
-		lastMoves.add(action.toInt());
+		lastMove = iAction;
 //		System.out.println("lastMove: "+action.toInt());
 //		System.out.println(this.stringDescr());		// only debug
 	}
@@ -414,27 +432,45 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 	}
 	
 	public int getLastMove() {
-		if (lastMoves.size() == 0) return -1;
-		return lastMoves.get(lastMoves.size()-1);
+		return lastMove;
 	}
 	
 	public void resetLastMoves() {
-		this.lastMoves = new ArrayList<Integer>();		
+		this.lastMove = -1;
 	}
 	
 	@Override
 	public String stringDescr() {
-		String sout = "";
-		String str[] = new String[4]; 
-		str[0] = "_"; str[1]="0"; str[2]="1";str[3]="2" ;
+		char str[] = {'_', '0', '1', '2'};
+		StringBuilder sout = new StringBuilder(graph.numLinks);
+		
+		for (int k=0; k < graph.numLinks; k++)
+			sout.append(str[getLink(k)]);
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++) {
-				sout = sout + str[lFrom[i].getPlayer(j)];
+ 		return sout.toString();
+	}
+
+	/**
+	 * @return the Zobrist hash of all colored links plus the player to move. The link part is maintained 
+	 * 		incrementally, so this is O(1).
+	 */
+	@Override
+	public long getHash() {
+		return linkHash ^ ZobristHash.playerKey(player);
+	}
+
+	/**
+	 * @return the Zobrist hash of all colored links, computed from scratch
+	 */
+	private long computeLinkHash() {
+		long h = 0L;
+		for (int p=0, w0=0; p < numPlayers; p++, w0 += graph.nWords) {
+			for (int w=0; w < graph.nWords; w++) {
+				for (long m = links[w0+w]; m != 0L; m &= m-1)
+					h ^= ZobristHash.key(64*w + Long.numberOfTrailingZeros(m), p+1);
 			}
 		}
-		
- 		return sout;
+		return h;
 	}
 
 	public String stringDescr2() {
@@ -442,12 +478,12 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 		String str[] = new String[4]; 
 		str[0] = "-"; str[1]="0"; str[2]="1";str[3]="2" ;
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = 0; j < lFrom.length; j++) {
-				if (j <= lFrom[i].getNode()) {
+		for(int i = 0; i < numNodes -1 ; i++) {
+			for(int j = 0; j < numNodes; j++) {
+				if (j <= i) {
 					sout = sout + " ";
 				} else {
-					sout = sout + str[lFrom[i].getPlayer(j)];
+					sout = sout + str[getLinkFromTo(i,j)];
 				}
 			}
 			sout = sout + "\n";
@@ -457,51 +493,35 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 
 	void setAction(int action)
 	{
-		int k = 0;
+		if (action < 0 || action >= graph.numLinks) return;
 		
-		for(int i = 0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++,k++) {
-				if(k == action)	{
-					lFrom[i].setPlayer(j, player + 1);
-					setLastNodes(i,j);
-					return;
-				}
-			}
+		int w = player*graph.nWords + (action>>>6);
+		if ((links[w] & (1L << action)) == 0L) {
+			links[w] |= 1L << action;
+			linkHash ^= ZobristHash.key(action, player+1);
 		}
+		setLastNodes(graph.from[action], graph.to[action]);
 	}
 
 	public boolean isLegalAction(ACTIONS act)
 	{
 		int iAction = act.toInt();
 		
-		for(int i=0, k=0; i < lFrom.length -1 ; i++) {
-			for(int j = lFrom[i].getNode()+1; j < lFrom.length; j++,k++) {
-				if(k == iAction && lFrom[i].getPlayer(j) == 0)
-					return true;
-			}
-		}
-		
-		return false;
+		return (iAction >= 0 && iAction < graph.numLinks && getLink(iAction) == 0);
 	}
 	
 	public int inputToActionInt(int n1, int n2)
 	{
-		if (n1>n2) return inputToActionInt(n2,n1);
-		
-		for(int i=0, k=0; i < lFrom.length -1 ; i++) {
-			for(int j = i+1; j < lFrom.length; j++,k++) {
-				if(n1 == i && n2 == j)
-					return k;
-			}
-		}
+		if (n1 >= 0 && n2 >= 0 && n1 < numNodes && n2 < numNodes && n1 != n2)
+			return graph.link[n1][n2];
 		
 		throw new RuntimeException("No action fits to n1="+n1+", n2="+n2+" !");
 //		return -1;
 	}
 
 	public int getLinkFromTo(int i, int j) {
-		if (i>j) return lFrom[j].getPlayer(i);
-		return lFrom[i].getPlayer(j);
+		int k = graph.link[i][j];
+		return (k < 0) ? 0 : getLink(k);
 	}
 	
 	public int getNumNodes()
@@ -525,6 +545,36 @@ public class StateObserverSim extends ObserverBase implements StateObservation {
 			lastNodes[1] = y;
 	}
 
+	/**
+	 * Older logs store the links as {@link Link2}{@code []} and the move history as list {@code lastMoves}:
+	 * they are converted to {@code links} and {@code lastMove}.
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		numNodes = fields.get("numNodes", 0);
+		numPlayers = fields.get("numPlayers", 0);
+		player = fields.get("player", 0);
+		availableActions = (ArrayList<ACTIONS>) fields.get("availableActions", null);
+		lastNodes = (int[]) fields.get("lastNodes", null);
+		finalSim = (FinalSim) fields.get("finalSim", null);
+		graph = GraphSim.of(numNodes);
+		if (fields.defaulted("links")) {
+			Link2[] lFrom = (Link2[]) fields.get("lFrom", null);
+			links = new long[numPlayers*graph.nWords];
+			for (int k=0; k < graph.numLinks; k++) {
+				int p = lFrom[graph.from[k]].getPlayer(graph.to[k]);
+				if (p != 0) links[(p-1)*graph.nWords + (k>>>6)] |= 1L << k;
+			}
+			ArrayList<Integer> lastMoves = (ArrayList<Integer>) fields.get("lastMoves", null);
+			lastMove = (lastMoves == null || lastMoves.isEmpty()) ? -1 : lastMoves.get(lastMoves.size()-1);
+		} else {
+			links = (long[]) fields.get("links", null);
+			lastMove = fields.get("lastMove", -1);
+		}
+		linkHash = computeLinkHash();
+	}
+
 	/**
 	 *  This class holds information about the final outcome of a Sim episode: is the game over or not, who is winner, 
 	 *  who is loser, what are the rewards for all players at end-of-game. 
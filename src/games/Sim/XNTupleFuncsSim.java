@@ -31,6 +31,12 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 	int [][] actions;
 	BoardVector[] symVec;
 	int nCells, nPositionValues, nPlayers;
+	/**
+	 * If true, {@link #symmetryVectors(StateObsWithBoardVector, int)} returns only the canonical 
+	 * representative of the position (see {@link #isCanonical()}).
+	 */
+	private boolean canonical = false;
+	transient private CanonicalSim canon;
 	
     transient private Random rand = new Random ();
     
@@ -49,6 +55,7 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 		nCells = cl;
 		nPositionValues = val;
 		nPlayers = pl;
+		canonical = ConfigSim.CANONICAL;
 		
 //		if (ConfigSim.NUM_NODES<5) 
 			setPermutations();			// prepare permutation iterator
@@ -98,6 +105,7 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
         List <Integer> il = new ArrayList <Integer> ();
         for (int i = 0; i < ConfigSim.NUM_NODES; i++) il.add(Integer.valueOf(i));
         pi = new PermutationIterable <Integer> (il);
+        canon = canonical ? new CanonicalSim(ConfigSim.NUM_NODES) : null;
 
         // this is the old version by Percy Wnsch. It explicitly creates all 
         // permutations in perm and therefore crashes (mem exhausted) if the 
@@ -176,10 +184,15 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 
 	/**
 	 * Sim has an astonishing large number of K! symmetries (K={@link ConfigSim#NUM_NODES}).
+	 * <p>
+	 * If {@link #isCanonical()}, the symmetries are not sampled, but each position is mapped to its canonical
+	 * representative, which uses all K! symmetries with one board vector. Therefore the number of symmetry 
+	 * vectors is then 1.
 	 * 
-	 * @return the maximum number of symmetries in this game
+	 * @return the maximum number of symmetry vectors in this game
 	 */
 	public int getNumSymmetries() {
+		if (canonical) return 1;
 		int nSym=1;
 		for (int i=1; i<= ConfigSim.NUM_NODES; i++) nSym *= i;
 		return nSym;
@@ -192,11 +205,7 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 			StateObserverSim sim = (StateObserverSim) so;
 			int [] board = new int[ConfigSim.NUM_NODES*(ConfigSim.NUM_NODES-1)/2]; 
 			
-			for(int i=0, k=0; i < sim.getNumNodes() -1 ; i++) {
-				for(int j = i+1; j <  sim.getNumNodes(); j++) {
-					board[k++] = sim.getLinkFromTo(i,j);
-				}
-			}
+			sim.fillLinks(board);		// board[k] for link k = link (i,j), i<j, in row order 
 			
 			return new BoardVector(board);			
 		} 
@@ -229,6 +238,8 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 		StateObservation so = curSOWB.getStateObservation();
 		assert so instanceof StateObserverSim : "Ooops, so is not of class StateObserverSim";
 		StateObserverSim sim = (StateObserverSim) so;
+		if (canonical) 
+			return canonicalVectors(boardVector);
 		
 		//TODO: This does not yet guarantee that all n symmetric states are different!!
 		//      Way out: make a set with exactly n-1 different numbers (if K! is large)
@@ -249,6 +260,8 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 	
 	@Override
 	public BoardVector[] symmetryVectors(BoardVector boardVector, int n) {
+		if (canonical) 
+			return canonicalVectors(boardVector);
 		
 		throw new RuntimeException("symmetryVectors(BoardVector,int) is not implemented for XNTupleFuncsSim!");
 		// Problem: this method cannot construct symmetric states if the underlying StateObserverSim is unknown.
@@ -345,6 +358,25 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 //		return vec;
 //	}
 	
+	/**
+	 * @return a length-1 array with the canonical representative of {@code boardVector} (for any {@code n} 
+	 * 		in {@code symmetryVectors})
+	 */
+	private BoardVector[] canonicalVectors(BoardVector boardVector) {
+		return new BoardVector[] { new BoardVector(canon.canonical(boardVector.bvec)) };
+	}
+
+	/**
+	 * @return true, if each position is mapped to its canonical representative under all K! node permutations
+	 * 		(see {@link CanonicalSim}) instead of sampling random permutations. Then the n-tuple network 
+	 * 		evaluates and trains (with symmetries switched on) only the canonical board vector, so that all 
+	 * 		equivalent positions share the same weights exactly. Set by {@link ConfigSim#CANONICAL} when 
+	 * 		this object is constructed. 
+	 */
+	public boolean isCanonical() {
+		return canonical;
+	}
+
 	@Override
 	public int[] symmetryActions(int actionKey) 
 	{
@@ -81,6 +81,24 @@ public interface StateObservation extends Serializable{
 	 */
 	public String stringDescr();
 
+	/**
+	 * A 64-bit hash of the current state, used as key in {@link tools.TranspositionTable}.
+	 * Equal states (the same {@link #stringDescr()}, the same player to move and the same other variables 
+	 * which the game's hash includes, e.g. the score in 2048) have the same hash, no matter by which 
+	 * sequence of moves they were reached. Different states should have different hashes with high probability.
+	 * 
+	 * @return the state hash
+	 * @see #isCacheable()
+	 */
+	public long getHash();
+
+	/**
+	 * @return true, if values of this state may be cached under {@link #getHash()} in a 
+	 * 		{@link tools.TranspositionTable}. False for states which are not identified by their hash, 
+	 * 		e.g. states with hidden information (Poker): agents do not use a transposition table for them.
+	 */
+	public boolean isCacheable();
+
 	/**
 	 * 
 	 * @return a string representation of action {@code act}
@@ -8,6 +8,7 @@ import games.StateObservation;
 import games.Othello.StateObserverOthello;
 import tools.Types;
 import tools.Types.ACTIONS;
+import tools.ZobristHash;
 
 /**
  * Class StateObservation observes the current state of the game, it has utility functions for
@@ -269,6 +270,19 @@ public class StateObserverTTT extends ObserverBase implements StateObservation {
 	public int getPlayer() {
 		return (-m_Player+1)/2;
 	}
+
+	/**
+	 * @return the board as base-3 number (9 digits) plus the player to move, mixed. Distinct states have 
+	 * 		distinct hashes.
+	 */
+	@Override
+	public long getHash() {
+		long h = 0;
+		for (int i=0;i<3;i++) 
+			for (int j=0;j<3;j++)
+				h = 3*h + (m_Table[i][j]+1);
+		return ZobristHash.mix(2*h + getPlayer());
+	}
 	
 	public int getNumPlayers() {
 		return 2;				// TicTacToe is a 2-player game
@@ -7,6 +7,7 @@ import controllers.MC.MCAgentN;
 import controllers.MCTS.MCTSAgentT;
 import controllers.MCTSExpectimax.MCTSExpectimaxAgt;
 import controllers.TD.TDAgent;
+import controllers.TD.ntuple2.NTupleBase;
 import controllers.TD.ntuple2.NTupleFactory;
 import controllers.TD.ntuple2.SarsaAgt;
 import controllers.TD.ntuple2.TDNTuple3Agt;
@@ -32,6 +33,11 @@ import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class {@link XArenaFuncs} contains several methods to train, evaluate and
@@ -487,7 +493,7 @@ public class XArenaFuncs {
 				// qa = new MaxNWrapper(pa, wrap_mPar, oPar); // wrap_mPar has useMaxNHashMap
 				// qa = new MaxNWrapper(pa,nply); // always maxNHashMap==false  // OLD
 			} else {
-				qa = new ExpectimaxWrapper(pa, nply);
+				qa = new ExpectimaxWrapper(pa, nply, oPar);
 			}
 		} else {
 			qa = pa;
@@ -596,12 +602,7 @@ public class XArenaFuncs {
 		long startTime = System.currentTimeMillis();
 		gb.initialize();
 		while (pa.getGameNum() < pa.getMaxGameNum()) {
-			StateObservation so = soSelectStartState(gb, xab.oPar[n].getChooseStart01(), pa);
-
-			pa.trainAgent(so);
-
-			if (doTrainStatistics)
-				collectTrainStats(tsList, pa, so);
+			trainEpisodes(gb, xab.oPar[n], pa, numEval, doTrainStatistics ? tsList : null);
 
 			gameNum = pa.getGameNum();
 			if (gameNum % numEval == 0) { // || gameNum==1) {
@@ -708,6 +709,51 @@ public class XArenaFuncs {
 		return pa;
 	}
 
+	/**
+	 * Train agent {@code pa} for one episode. If {@code oPar.getNumTrainThreads()>1} and {@code pa} is 
+	 * a {@link NTupleBase} agent, train instead all episodes up to the next multiple of {@code numEval}
+	 * in parallel (Hogwild training, see {@link NTupleBase#trainAgentParallel(StateObservation[], int)}).
+	 * The start states are selected here in sequence, before the parallel training starts.
+	 * 
+	 * @param gb		the game board
+	 * @param oPar		the other parameters of {@code pa}
+	 * @param pa		the agent to train
+	 * @param numEval	the evaluation interval, a batch of parallel episodes does not cross a 
+	 * 					multiple of {@code numEval}
+	 * @param tsList	if not null, add the train statistics of each episode trained to this list
+	 */
+	void trainEpisodes(GameBoard gb, ParOther oPar, PlayAgent pa, int numEval, ArrayList<TStats> tsList) {
+		int numThreads = trainThreads(oPar, pa);
+		if (numThreads > 1) {
+			int gameNum = pa.getGameNum();
+			int K = Math.min(numEval - gameNum % numEval, pa.getMaxGameNum() - gameNum);
+			// The stop test in train() runs after the first episode past a multiple 
+			// of numEval (gameNum-1 divisible by numEval). So that it sees the agent at this point 
+			// (as in sequential training), this episode is trained alone, the batch follows.
+			if (oPar.getStopTest() > 0 && oPar.getStopEval() > 0 && gameNum % numEval == 0) K = 1;
+			StateObservation[] soArr = new StateObservation[Math.max(K, 1)];
+			for (int k = 0; k < soArr.length; k++) 
+				soArr[k] = soSelectStartState(gb, oPar.getChooseStart01(), pa);
+			int[] moveCounts = ((NTupleBase) pa).trainAgentParallel(soArr, numThreads);
+			if (tsList != null) 
+				for (int k = 0; k < soArr.length; k++) 
+					collectTrainStats(tsList, pa, gameNum + k + 1, soArr[k], moveCounts[k]);
+			return;
+		}
+		StateObservation so = soSelectStartState(gb, oPar.getChooseStart01(), pa);
+		pa.trainAgent(so);
+		if (tsList != null) 
+			collectTrainStats(tsList, pa, pa.getGameNum(), so, pa.getMoveCounter());
+	}
+
+	/**
+	 * @return the number of training threads actually used for agent {@code pa} (1 for all agents
+	 * 		which are not {@link NTupleBase} agents)
+	 */
+	int trainThreads(ParOther oPar, PlayAgent pa) {
+		return (pa instanceof NTupleBase) ? Math.max(oPar.getNumTrainThreads(), 1) : 1;
+	}
+
 	private StateObservation soSelectStartState(GameBoard gb, boolean chooseStart01, PlayAgent pa) {
 		StateObservation so;
 		if (chooseStart01) {
@@ -718,10 +764,13 @@ public class XArenaFuncs {
 		return so;
 	}
 
-	private void collectTrainStats(ArrayList<TStats> tsList, PlayAgent pa, StateObservation so) {
-		int n = pa.getGameNum();
+	/**
+	 * @param n			the number of the episode (1-based)
+	 * @param so		the start state of the episode
+	 * @param moveNum	the number of moves in the episode
+	 */
+	private void collectTrainStats(ArrayList<TStats> tsList, PlayAgent pa, int n, StateObservation so, int moveNum) {
 		int p = so.getMinEpisodeLength();
-		int moveNum = pa.getMoveCounter();
 		int epiLength = pa.getParOther().getEpisodeLength();
 		if (epiLength==-1) epiLength=Integer.MAX_VALUE;
 		TStats tstats = new TStats(n, p, moveNum, epiLength);
@@ -857,9 +906,7 @@ public class XArenaFuncs {
 			long startTime = System.currentTimeMillis();
 			gb.initialize();
 			while (pa.getGameNum() < pa.getMaxGameNum()) {
-				StateObservation so = soSelectStartState(gb, xab.oPar[n].getChooseStart01(), pa);
-
-				pa.trainAgent(so);
+				trainEpisodes(gb, xab.oPar[n], pa, numEval, null);
 
 				gameNum = pa.getGameNum();
 				if (gameNum % numEval == 0) { // || gameNum==1) {
@@ -894,7 +941,7 @@ public class XArenaFuncs {
 									// average number of moves per second since start of this training run
 									// (counting only training time, excluding evaluation time)
 					mTrain = new MTrain(i, gameNum, evalQ, evalT, actionNum, trnMoveNum, totalTrainSec,
-							movesSecond, userValue1, userValue2);
+							movesSecond, userValue1, userValue2, trainThreads(xab.oPar[n], pa));
 					mtList.add(mTrain);
 					
 					System.out.println(pa.printTrainStatus() + ", " + elapsedTime + " sec, " + frm1.format(movesSecond) +" moves/s");
@@ -972,6 +1019,11 @@ public class XArenaFuncs {
 	 * Perform a competition of the agents in {@code paVector}, consisting of
 	 * {@code competeNum} episodes, starting from StateObservation
 	 * {@code startSO}.
+	 * <p>
+	 * If one of the agents has {@link ParOther#getEvalThreads()} &gt; 1 and all agents have a thread instance 
+	 * (see {@link PlayAgent#getThreadInstance()}), the episodes are played in parallel (not if {@code nextTimes} 
+	 * is given), each by its own thread instances. The score tuples are averaged in the order of the episodes, 
+	 * as in the sequential case.
 	 * 
 	 * @param paVector a vector with N agents for an N-player game
 	 * @param startSO
@@ -997,7 +1049,6 @@ public class XArenaFuncs {
 		DecimalFormat frm = new DecimalFormat("#0.000");
 		boolean nextMoveSilent = (verbose < 2);
 		StateObservation so;
-		Types.ACTIONS actBest;
 		String sMsg;
 
 		String[] pa_string = new String[numPlayers];
@@ -1035,33 +1086,30 @@ public class XArenaFuncs {
 			System.out.println("start state: " + startSO);
 		}
 
-		for (int k = 0; k < competeNum; k++) {
-
-			int player = startSO.getPlayer();
-			so = startSO.copy();
-
-			while (true) {
-				long startTNano = System.nanoTime();
-				actBest = paVector.pavec[player].getNextAction2(so, false, nextMoveSilent);
-				long endTNano = System.nanoTime();
-				if (nextTimes != null)
-					nextTimes[player].addNewTimeNS(endTNano - startTNano);
-				so.advance(actBest);
-				player = so.getPlayer();
-
-				if (so.isGameOver()) {
-					sc = so.getGameScoreTuple();
-					scMean.combine(sc, ScoreTuple.CombineOP.AVG, 0, sWeight);
-					moveCount += so.getMoveCounter();
-					if (verbose > 0)
-						System.out.println(sc.printEpisodeWinner(k));
-
-					break; // out of while
-
-				} // if (so.isGameOver())
-			} // while(true)
-
-		} // for (k)
+		int numThreads = getCompeteThreads(paVector);
+		PlayAgtVector firstVector = (numThreads > 1 && competeNum > 1 && nextTimes == null) 
+				? threadInstances(paVector) : null;
+		if (firstVector != null) {
+			// play the episodes in parallel, but combine their results in the same order as below:
+			StateObservation[] finalSO = competeParallel(paVector, firstVector, startSO, competeNum, nextMoveSilent, 
+					numThreads);
+			for (int k = 0; k < competeNum; k++) {
+				sc = finalSO[k].getGameScoreTuple();
+				scMean.combine(sc, ScoreTuple.CombineOP.AVG, 0, sWeight);
+				moveCount += finalSO[k].getMoveCounter();
+				if (verbose > 0)
+					System.out.println(sc.printEpisodeWinner(k));
+			}
+		} else {
+			for (int k = 0; k < competeNum; k++) {
+				so = playEpisode(paVector, startSO, nextMoveSilent, nextTimes);
+				sc = so.getGameScoreTuple();
+				scMean.combine(sc, ScoreTuple.CombineOP.AVG, 0, sWeight);
+				moveCount += so.getMoveCounter();
+				if (verbose > 0)
+					System.out.println(sc.printEpisodeWinner(k));
+			} // for (k)
+		}
 
 		moveCount /= competeNum;
 
@@ -1076,6 +1124,97 @@ public class XArenaFuncs {
 		return scMean;
 	}
 
+	/**
+	 * Play one episode of the agents in {@code paVector}, starting from a copy of {@code startSO}.
+	 * 
+	 * @return the final (game-over) state of the episode
+	 */
+	private static StateObservation playEpisode(PlayAgtVector paVector, StateObservation startSO, 
+			boolean nextMoveSilent, TSTimeStorage[] nextTimes) {
+		int player = startSO.getPlayer();
+		StateObservation so = startSO.copy();
+		Types.ACTIONS actBest;
+
+		while (!so.isGameOver()) {
+			long startTNano = System.nanoTime();
+			actBest = paVector.pavec[player].getNextAction2(so, false, nextMoveSilent);
+			long endTNano = System.nanoTime();
+			if (nextTimes != null)
+				nextTimes[player].addNewTimeNS(endTNano - startTNano);
+			so.advance(actBest);
+			player = so.getPlayer();
+		}
+		return so;
+	}
+
+	/**
+	 * @return the number of threads for {@link #competeNPlayer(PlayAgtVector, StateObservation, int, int, TSTimeStorage[])
+	 * 		competeNPlayer}: the largest {@link ParOther#getEvalThreads()} of the agents in {@code paVector}
+	 */
+	private static int getCompeteThreads(PlayAgtVector paVector) {
+		int numThreads = 1;
+		for (PlayAgent pa : paVector.pavec)
+			if (pa.getParOther() != null)
+				numThreads = Math.max(numThreads, pa.getParOther().getEvalThreads());
+		return numThreads;
+	}
+
+	/**
+	 * @return a vector with the thread instances (see {@link PlayAgent#getThreadInstance()}) of all agents in 
+	 * 		{@code paVector}, or {@code null}, if one of the agents has none. A thread-safe agent is its own thread 
+	 * 		instance, the others (e.g. {@link MaxN2Wrapper}, {@link ExpectimaxWrapper}) are new copies with their 
+	 * 		own random generator.
+	 */
+	private static PlayAgtVector threadInstances(PlayAgtVector paVector) {
+		PlayAgent[] qavec = new PlayAgent[paVector.pavec.length];
+		for (int i = 0; i < qavec.length; i++) {
+			qavec[i] = paVector.pavec[i].getThreadInstance();
+			if (qavec[i] == null)
+				return null;
+		}
+		return new PlayAgtVector(qavec);
+	}
+
+	/**
+	 * the executors for the parallel competitions, one for each number of threads 
+	 */
+	private static final HashMap<Integer, ExecutorService> competeExecutors = new HashMap<>();
+
+	/**
+	 * The executors are never shut down, since a concurrent competition may still use them. Their worker 
+	 * threads are daemon threads which terminate when idle.
+	 */
+	private static synchronized ExecutorService getCompeteExecutor(int numThreads) {
+		return competeExecutors.computeIfAbsent(numThreads, Executors::newWorkStealingPool);
+	}
+
+	/**
+	 * Play {@code competeNum} episodes in parallel on {@code numThreads} threads. Each episode starts from its
+	 * own copy of {@code startSO} and is played by its own thread instances of the agents in {@code paVector}
+	 * (see {@link #threadInstances(PlayAgtVector)}), the first episode by {@code firstVector}. 
+	 * 
+	 * @return the final states of all episodes (in the order of the episodes)
+	 */
+	private static StateObservation[] competeParallel(PlayAgtVector paVector, PlayAgtVector firstVector, 
+			StateObservation startSO, int competeNum, boolean nextMoveSilent, int numThreads) {
+		List<Callable<StateObservation>> callables = new ArrayList<>();
+		for (int k = 0; k < competeNum; k++) {
+			int episode = k;
+			// the thread instances are created in the task, so that they can be freed after the episode:
+			callables.add(() -> playEpisode((episode == 0) ? firstVector : threadInstances(paVector), startSO, 
+					nextMoveSilent, null));
+		}
+		StateObservation[] finalSO = new StateObservation[competeNum];
+		try {
+			List<Future<StateObservation>> futures = getCompeteExecutor(numThreads).invokeAll(callables);
+			for (int k = 0; k < competeNum; k++)
+				finalSO[k] = futures.get(k).get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+		return finalSO;
+	}
+
 	// --- the generalization of old competeBoth to arbitrary N players ---
 	/**
 	 * Perform a competition of the agents in {@code paVector}. This competition consists of
@@ -77,6 +77,36 @@ abstract public class XNTupleBase implements Serializable, XNTupleFuncs {
 	@Override
 	abstract public BoardVector[] symmetryVectors(BoardVector boardVector, int n);
 
+	/**
+	 * The default stub returns {@code null}, i.e. the symmetries are not known to be pure cell permutations. 
+	 * Games where they are may override this with {@link #symmetryPermutationsByProbing()}.
+	 */
+	@Override
+	public int[][] symmetryPermutations() {
+		return null;
+	}
+	
+	/**
+	 * Derive the cell permutations of {@link #symmetryPermutations()} by passing a board vector with 
+	 * values 0,1,...,{@code nc}-1 through {@link #symmetryVectors(BoardVector, int)}. 
+	 * This is only valid for games whose {@link #symmetryVectors(BoardVector, int)} just permutes the cells.
+	 * 
+	 * @return perm[s][nc]
+	 */
+	protected int[][] symmetryPermutationsByProbing() {
+		int nc = this.getNumCells();
+		int[] boardVec = new int[nc];
+		for(int i = 0;  i < nc; i++) {
+			boardVec[i] = i;
+		}
+		BoardVector[] equiv = symmetryVectors(new BoardVector(boardVec),0);
+		int[][] perm = new int[equiv.length][];
+		for (int j=0; j<equiv.length; j++) {
+			perm[j] = equiv[j].bvec.clone();
+		}
+		return perm;
+	}
+
 	@Override
 	abstract public int[] symmetryActions(int actionKey);
 
@@ -97,6 +97,20 @@ public interface XNTupleFuncs {
 	 */
 	public BoardVector[] symmetryVectors(StateObsWithBoardVector curSOWB, int n);
 	
+	/**
+	 * If the symmetries of a game are pure permutations of the board cells, return them as 
+	 * cell permutations {@code perm[s][numCells]} with
+	 * <pre>
+	 * 		{@link #symmetryVectors(BoardVector, int) symmetryVectors}(boardVector,0)[j].bvec[c] == boardVector.bvec[perm[j][c]] </pre>
+	 * for every board vector, every symmetry j and every cell c. This allows {@link NTuple2ValueFunc} to 
+	 * precompute the LUT indices of all symmetric boards and to evaluate them without creating the symmetric 
+	 * board vectors.
+	 * 
+	 * @return the cell permutations or {@code null}, if the symmetries of this game cannot be expressed as 
+	 * 		pure cell permutations (e.g. if they change position values or need the {@link StateObservation})
+	 */
+	public int[][] symmetryPermutations();
+	
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
 	 * and a certain action to be taken in <b>{@code so}</b>, 
@@ -51,11 +51,13 @@ public class ArenaTrain2048 extends ArenaTrain {
     	return makeEvaluator(pa, gb, stopEval, mode, verbose, this);
     }
     public Evaluator makeEvaluator(PlayAgent pa, GameBoard gb, int stopEval, int mode, int verbose, ArenaTrain ar) {
+        // the games of Evaluator2048 are played on the eval threads of the agent (see ParOther::getEvalThreads)
+        int evalThreads = (pa == null || pa.getParOther() == null) ? 1 : pa.getParOther().getEvalThreads();
         switch (mode) {
         	case -1:
-                return new Evaluator2048(pa, gb, stopEval, -1, verbose,ar);
+                return new Evaluator2048(pa, gb, stopEval, -1, verbose,ar,evalThreads);
             case 0:
-                return new Evaluator2048(pa, gb, stopEval, 0, verbose,ar);
+                return new Evaluator2048(pa, gb, stopEval, 0, verbose,ar,evalThreads);
             case 1:
                 return new Evaluator2048_BoardPositions(pa, gb, stopEval, verbose);
             case 2:
@@ -20,8 +20,10 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Base evaluator for 2048: average score from playing 50 episodes.
@@ -36,7 +38,8 @@ import java.util.concurrent.Executors;
  * @see Evaluator2048_EA
  */
 public class Evaluator2048 extends Evaluator {
-    private final ExecutorService executorService = Executors.newFixedThreadPool(6);
+    // the executors for the evaluation games, one for each number of threads, shared by all Evaluator2048 objects
+    private static final HashMap<Integer, ExecutorService> executors = new HashMap<>();
 
     private double medianScore;
     private int minScore = Integer.MAX_VALUE;
@@ -53,16 +56,24 @@ public class Evaluator2048 extends Evaluator {
     private final List<Integer> scores = new ArrayList<>();
     private final TreeMap<Integer, Integer> tiles = new TreeMap<>();
     private final int verbose;
+    private final int numThreads;	// number of threads for the evaluation games (if the agent has a thread instance)
     private final Arena ar;		// needed in eval_agent, if PStats.printPlayStats(psList, m_PlayAgent,ar) is called
     						// and needed in printEResultList
     
     public EResult eResult; // holds 2048 evaluation results in one object. EResult is a nested class of this.
 
 
-    public Evaluator2048(PlayAgent e_PlayAgent, GameBoard gb, int stopEval, int mode, int verbose, Arena ar) {
+    /**
+     * @param numThreads the number of threads for the evaluation games, usually {@link params.ParOther#getEvalThreads()} 
+     * 		of the agent (only used if the agent is thread-safe or has a thread instance, see 
+     * 		{@link PlayAgent#getThreadInstance()})
+     */
+    public Evaluator2048(PlayAgent e_PlayAgent, GameBoard gb, int stopEval, int mode, int verbose, Arena ar, 
+    		int numThreads) {
         super(e_PlayAgent, gb, mode, stopEval, verbose);
         this.verbose = verbose;
         this.ar = ar;
+        this.numThreads = numThreads;
     }
 
     @Override
@@ -72,158 +83,61 @@ public class Evaluator2048 extends Evaluator {
         if (m_mode == -1) {
             return true;
         }
-		int cumEmpty;
-		ArrayList<PStats> psList = new ArrayList<>();
         startTime = System.currentTimeMillis();
         if(verbose == 0) {
             System.out.println("Starting evaluation of " + ConfigEvaluator.NUMBEREVALUATIONS 
             		+ " games, this may take a while...");
             System.out.println("   " + pa.stringDescr() + "\n   " + pa.stringDescr2());
         }
-        List<StateObserver2048> stateObservers = new ArrayList<>();
-
-
-        if(	m_PlayAgent.getName().equals("MCTS Expectimax") ) {
-            //async for MCTS Expectimax agents 
-            List<Callable<StateObserver2048>> callables = new ArrayList<>();
+        if (m_PlayAgent instanceof MCTSExpectimaxAgt && verbose == 0) {
             MCTSExpectimaxAgt mctsExpectimaxAgt = (MCTSExpectimaxAgt) m_PlayAgent;
+            System.out.println("Detected MCTS Expectimax Agent, iterations: " + mctsExpectimaxAgt.params.getNumIter() + ", rolloutdepth: " + mctsExpectimaxAgt.params.getRolloutDepth() + ", Treedepth: " + mctsExpectimaxAgt.params.getTreeDepth() + ", k: " + mctsExpectimaxAgt.params.getK_UCT() + ", maxnodes: " + mctsExpectimaxAgt.params.getMaxNodes() + ", alternative version: " + mctsExpectimaxAgt.params.getAlternateVersion());
+        }
 
-        	if (verbose == 0) 
-        		System.out.println("Detected MCTS Expectimax Agent, iterations: " + mctsExpectimaxAgt.params.getNumIter() + ", rolloutdepth: " + mctsExpectimaxAgt.params.getRolloutDepth() + ", Treedepth: " + mctsExpectimaxAgt.params.getTreeDepth() + ", k: " + mctsExpectimaxAgt.params.getK_UCT() + ", maxnodes: " + mctsExpectimaxAgt.params.getMaxNodes() + ", alternative version: " + mctsExpectimaxAgt.params.getAlternateVersion());
-
-            //play Games
-            for(int i = 0; i < ConfigEvaluator.NUMBEREVALUATIONS; i++) {
-                int gameNumber = i+1;
-                callables.add(() -> {
-                    StateObserver2048 so = new StateObserver2048();
-                    PlayAgent playAgent;
-                    long gameStartTime = System.currentTimeMillis();
-
-                    // we need a new agent for every eval thread, since MCTSExpectimaxAgt is
-                    // not thread-safe in its method getNextAction2:
-                    playAgent = new MCTSExpectimaxAgt("MCTS Expectimax", mctsExpectimaxAgt.params);
- 
-                    while (!so.isGameOver()) {
-                        Types.ACTIONS action = playAgent.getNextAction2(so, false, true);
-                        so.advance(action);
-                        
-                        // TODO: integrate a branch for ConfigEvaluator.PLAYSTATS_CSV, if needed
-                    }
-
-                    if(verbose == 0) {
-                        System.out.print("Finished game " + gameNumber + " with scores " + so.score + 
-                        		" after " + (System.currentTimeMillis() - gameStartTime) + "ms."+
-                        		" Highest tile is " + so.getHighestTileValue() + ".\n");
-                    }
-                    return so;
-                });
-            }
-
-            //save final gameState
-            try {
-                executorService.invokeAll(callables).stream().map(future -> {
-                    try {
-                        return future.get();
-                    }
-                    catch (Exception e) {
-                        throw new IllegalStateException(e);
-                    }
-                }).forEach(stateObservers::add);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-
-        } else if (	m_PlayAgent.getName().equals("ExpectimaxWrapper") ) {
-            //async for wrapper agents (ExpectiMaxN or MaxN tree nply)
+        List<StateObserver2048> stateObservers = new ArrayList<>();
+        List<ArrayList<PStats>> psLists = new ArrayList<>();
+        // a thread-safe agent is its own thread instance, others (e.g. MCTSExpectimaxAgt, ExpectimaxWrapper) 
+        // return a new copy or null:
+        PlayAgent firstInstance = m_PlayAgent.isThreadSafe() ? m_PlayAgent : m_PlayAgent.getThreadInstance();
+        if (numThreads > 1 && firstInstance != null) {
+            //async for agents which are thread-safe or cheap to copy (see PlayAgent::getThreadInstance): 
+            //each game is a task of its own
             List<Callable<StateObserver2048>> callables = new ArrayList<>();
-
-            //play Games
-            for(int i = 0; i < ConfigEvaluator.NUMBEREVALUATIONS; i++) {
-                int gameNumber = i+1;
-                callables.add(() -> {
-                    StateObserver2048 so = new StateObserver2048();
-                    long gameStartTime = System.currentTimeMillis();
-
-                    // we can use the same m_PlayAgent in every parallel eval thread, since 
-                    // ExpectiMaxN's method getNextAction2 and the wrapped agent's method getScore* are 
-                    // thread-safe:
-                    PlayAgent playAgent = m_PlayAgent;
-
-                    while (!so.isGameOver()) {
-                        Types.ACTIONS action = playAgent.getNextAction2(so, false, true);
-                        so.advance(action);
-                        
-                        // TODO: integrate a branch for ConfigEvaluator.PLAYSTATS_CSV, if needed
-                    }
-
-                    if(verbose == 0) {
-                        System.out.print("Finished game " + gameNumber + " with scores " + so.score 
-                        		+ " after " + (System.currentTimeMillis() - gameStartTime) 
-                        		+ "ms. Highest tile is " + so.getHighestTileValue() + ".\n");
-                    }
-                    return so;
-                });
+            for (int i = 0; i < ConfigEvaluator.NUMBEREVALUATIONS; i++) {
+                int gameNum = i;
+                ArrayList<PStats> psList = new ArrayList<>();
+                psLists.add(psList);
+                // a new copy for every game (the first one is firstInstance):
+                callables.add(() -> playGame(gameNum, 
+                		(gameNum == 0) ? firstInstance : m_PlayAgent.getThreadInstance(), psList));
             }
 
-            //save final gameState
+            //save final gameStates (in the order of the games)
             try {
-                executorService.invokeAll(callables).stream().map(future -> {
-                    try {
-                        return future.get();
-                    }
-                    catch (Exception e) {
-                        throw new IllegalStateException(e);
-                    }
-                }).forEach(stateObservers::add);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                List<Future<StateObserver2048>> futures = getExecutor(numThreads).invokeAll(callables);
+                for (Future<StateObserver2048> future : futures)
+                    stateObservers.add(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
             }
-
         } else {
-            //sync for other Agents (MC Agent uses multiple cores naturally, TD agents are very fast)
+            //sync for other agents
             for (int i = 0; i < ConfigEvaluator.NUMBEREVALUATIONS; i++) {
-                long gameStartTime = System.currentTimeMillis();
-                cumEmpty=0;
-                ACTIONS_VT actBest;
-                StateObserver2048 so2048 = new StateObserver2048();
-//              moveNum=0;
-//        		pstats = new PStats(i, so2048.getMoveCounter(), so2048.getPlayer(), -1, gameScore, (double) nEmpty, (double) cumEmpty);
-//        		psList.add(pstats);
-        		psList.add(makePStats2048(i, so2048, null, cumEmpty));
-
-                while (!so2048.isGameOver()) {
-                    actBest = m_PlayAgent.getNextAction2(so2048, false, true);
-                    so2048.advance(actBest);
-//                  System.out.print("Finished move " + (so.moves) + " with score " + so.score + " after " + (System.currentTimeMillis() - gameMoveTime) + "ms.\n");
-                    
-                    // gather information for later printout to agents/gameName/csv/playStats.csv:
-                    if (ConfigEvaluator.PLAYSTATS_CSV) {
-//                        moveNum++;
-//                    	nEmpty = so2048.getNumEmptyTiles();  
-//                    	gameScore = so2048.getGameScore(so2048)*so2048.MAXSCORE;
-//                    	cumEmpty += nEmpty;
-//                		pstats = new PStats(i, moveNum, so2048.getPlayer(), actBest.toInt(), gameScore, (double) nEmpty, (double) cumEmpty);
-                		psList.add(makePStats2048(i, so2048, actBest, cumEmpty));
-                    }
-                }
-
-                if(verbose == 0) {
-                    System.out.print("Finished game " + (i + 1) + " with score " + so2048.score + 
-                    		" after " + (System.currentTimeMillis() - gameStartTime) + "ms."+ 
-                    		" Highest tile is " + so2048.getHighestTileValue() + ".\n");
-                }
-
-                stateObservers.add(so2048);
-                
+                ArrayList<PStats> psList = new ArrayList<>();
+                psLists.add(psList);
+                stateObservers.add(playGame(i, m_PlayAgent, psList));
             }
-            if (ConfigEvaluator.PLAYSTATS_CSV) {
-            	PlayAgent[] paVector = {m_PlayAgent};
-        		PStats.printPlayStats(psList, null, paVector,this.ar);
+        }
+
+        if (ConfigEvaluator.PLAYSTATS_CSV) {
+            ArrayList<PStats> psList = new ArrayList<>();
+            for (ArrayList<PStats> psl : psLists) 
+                psList.addAll(psl);
+            PlayAgent[] paVector = {m_PlayAgent};
+            PStats.printPlayStats(psList, null, paVector,this.ar);
         									//we do not hand over a startSO, since psList may have many runs, 
         									//each with a different startSO.
-            }
-            
-        } // else
+        }
 
         //evaluate games
         //Average Score
@@ -288,6 +202,47 @@ public class Evaluator2048 extends Evaluator {
 //      return lastResult;
 //  }
     
+    /**
+     * Play one evaluation game with agent {@code pa} from a new start state.
+     * 
+     * @param i			the game number (from 0)
+     * @param pa		the evaluated agent or its thread instance
+     * @param psList	the play statistics of this game are added here (moves only if 
+     * 					{@link ConfigEvaluator#PLAYSTATS_CSV})
+     * @return the final state of the game
+     */
+    private StateObserver2048 playGame(int i, PlayAgent pa, ArrayList<PStats> psList) {
+        long gameStartTime = System.currentTimeMillis();
+        int cumEmpty=0;
+        ACTIONS_VT actBest;
+        StateObserver2048 so2048 = new StateObserver2048();
+        psList.add(makePStats2048(i, so2048, null, cumEmpty));
+
+        while (!so2048.isGameOver()) {
+            actBest = pa.getNextAction2(so2048, false, true);
+            so2048.advance(actBest);
+
+            // gather information for later printout to agents/gameName/csv/playStats.csv:
+            if (ConfigEvaluator.PLAYSTATS_CSV) 
+                psList.add(makePStats2048(i, so2048, actBest, cumEmpty));
+        }
+
+        if(verbose == 0) {
+            System.out.print("Finished game " + (i + 1) + " with score " + so2048.score + 
+            		" after " + (System.currentTimeMillis() - gameStartTime) + "ms."+ 
+            		" Highest tile is " + so2048.getHighestTileValue() + ".\n");
+        }
+        return so2048;
+    }
+
+    /**
+     * The executors are never shut down, since another evaluation may still use them. Their worker 
+     * threads are daemon threads which terminate when idle.
+     */
+    private static synchronized ExecutorService getExecutor(int numThreads) {
+        return executors.computeIfAbsent(numThreads, Executors::newWorkStealingPool);
+    }
+
     private PStats makePStats2048(int i, StateObserver2048 so2048, ACTIONS_VT actBest, int cumEmpty) {
     	int moveNum = so2048.getMoveCounter();
     	int actNum = (actBest==null) ? (-1) : actBest.toInt();
@@ -425,7 +425,7 @@ public class GameBoard2048Gui extends JFrame {
 
     private void guiUpdateBoard(boolean showValueOnGameboard) {
         for (int i = 0; i < 4; i++) {
-            if (m_gb.m_so.availableMoves.contains(i)) {
+            if (m_gb.m_so.isLegalMove(i)) {
                 buttons[i].setEnabled(true);
             } else {
                 buttons[i].setEnabled(false);
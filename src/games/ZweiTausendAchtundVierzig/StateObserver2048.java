@@ -8,10 +8,19 @@ import games.StateObsNondeterministic;
 import games.ZweiTausendAchtundVierzig.Heuristic.HeuristicSettings2048;
 import tools.Types;
 import tools.Types.ACTIONS;
+import tools.ZobristHash;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Class {@link StateObserver2048} holds a 2048 game state.
@@ -44,8 +53,8 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 	public static final String[] ACTIONSTRING = {" left", "   up", "right", " down"};
     private Random random = new Random();
     protected ArrayList<Integer> emptyTiles = new ArrayList();
-    protected ArrayList<Integer> availableMoves = new ArrayList();   // 0: left, 1: up, 2: right, 3: down
-    protected ACTIONS[] actions;
+    private int moveBits = 0;		// bit mask: bit 0: left, 1: up, 2: right, 3: down
+    protected ACTIONS[] actions;		// the available actions, one of the shared arrays MOVES[moveBits]
 
     private long boardB;
 
@@ -67,6 +76,67 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
     private static final double REWARD_NEGATIVE =  0.0;		
     private static final double REWARD_POSITIVE =  1.0;		// questionable
 
+    /**
+     * the four move actions (0: left, 1: up, 2: right, 3: down)
+     */
+    private static final ACTIONS[] ACTIONS_TABLE = new ACTIONS[4];
+    /**
+     * {@code MOVES[mask]} holds the move actions whose bits are set in {@code mask} (in increasing order)
+     */
+    private static final ACTIONS[][] MOVES = new ACTIONS[16][];
+    /**
+     * {@code RANDOMS[n]} holds the 2*n random actions for a board with n empty tiles (read-only, since the
+     * lists are shared by all states)
+     */
+    private static final ArrayList<ACTIONS>[] RANDOMS = new ArrayList[17];
+
+    static {
+        for (int j=0; j<4; j++) ACTIONS_TABLE[j] = ACTIONS.fromInt(j);
+        for (int mask=0; mask<16; mask++) {
+            MOVES[mask] = new ACTIONS[Integer.bitCount(mask)];
+            for (int j=0, k=0; j<4; j++)
+                if ((mask & (1<<j))!=0) MOVES[mask][k++] = ACTIONS_TABLE[j];
+        }
+        for (int n=0; n<=16; n++) {
+            ArrayList<ACTIONS> rans = new ArrayList<>(2*n);
+            for (int i=0; i<2*n; i++) rans.add(ACTIONS.fromInt(i));
+            RANDOMS[n] = new ReadOnlyActions(rans);
+        }
+    }
+
+    /**
+     * An {@link ArrayList} of actions which throws an {@link UnsupportedOperationException} on every 
+     * modification. It is an {@link ArrayList}, since {@link StateObsNondeterministic#getAvailableRandoms()} 
+     * returns one.
+     */
+    private static final class ReadOnlyActions extends ArrayList<ACTIONS> {
+        private static final long serialVersionUID = 1L;
+
+        ReadOnlyActions(Collection<ACTIONS> c) { super(c); }
+
+        @Override public boolean add(ACTIONS a) { throw readOnly(); }
+        @Override public void add(int index, ACTIONS a) { throw readOnly(); }
+        @Override public boolean addAll(Collection<? extends ACTIONS> c) { throw readOnly(); }
+        @Override public boolean addAll(int index, Collection<? extends ACTIONS> c) { throw readOnly(); }
+        @Override public ACTIONS set(int index, ACTIONS a) { throw readOnly(); }
+        @Override public ACTIONS remove(int index) { throw readOnly(); }
+        @Override public boolean remove(Object o) { throw readOnly(); }
+        @Override public boolean removeAll(Collection<?> c) { throw readOnly(); }
+        @Override public boolean retainAll(Collection<?> c) { throw readOnly(); }
+        @Override public boolean removeIf(Predicate<? super ACTIONS> filter) { throw readOnly(); }
+        @Override protected void removeRange(int fromIndex, int toIndex) { throw readOnly(); }
+        @Override public void replaceAll(UnaryOperator<ACTIONS> operator) { throw readOnly(); }
+        @Override public void sort(Comparator<? super ACTIONS> c) { throw readOnly(); }
+        @Override public void clear() { throw readOnly(); }
+        @Override public List<ACTIONS> subList(int fromIndex, int toIndex) {
+            return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("the random actions of StateObserver2048 are shared and read-only");
+        }
+    }
+
 	/**
 	 * change the version ID for serialization only if a newer version is no longer 
 	 * compatible with an older one (older .gamelog containing this object will become 
@@ -148,9 +218,8 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
         this.winState = other.winState;
         this.winState = other.winState;
         this.highestTileValue = other.highestTileValue;
-		this.actions = other.actions.clone();
-		if (other.availableMoves!=null)	// this check is needed when loading older logs
-			this.availableMoves = (ArrayList<Integer>) other.availableMoves.clone();
+		this.moveBits = other.moveBits;
+		this.actions = MOVES[moveBits];		// MOVES arrays are shared, they are never altered
 		if (other.emptyTiles!=null)	// this check is needed when loading older logs
 			this.emptyTiles = (ArrayList<Integer>) other.emptyTiles.clone();
 				// Note that clone does only clone the ArrayList, but not the contained objects, they are 
@@ -184,12 +253,7 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
     }
     
     public boolean isGameOver() {
-        if(availableMoves.size() == 0) {
-            return true;
-        }
-        else {
-            return false;
-        }
+        return moveBits == 0;
     }
 
     public boolean isLegalState() {
@@ -625,7 +689,7 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 
     public void advance(ACTIONS action) {
         int iAction = action.toInt();
-        assert (availableMoves.contains(iAction)) : "iAction is not viable.";
+        assert isLegalAction(action) : "iAction is not viable.";
         move(iAction);				// deterministic part, contains super.incrementMoveCounter()
         updateEmptyTiles();
         addRandomTile();			// non-deterministic part
@@ -635,12 +699,14 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 //		super.incrementMoveCounter();		
     }
 
+    /**
+     * @return a new list of the available actions (built from the bit mask of available moves)
+     */
     @Override
     public ArrayList<ACTIONS> getAvailableActions() {
-        ArrayList<ACTIONS> availAct = new ArrayList<>();
-        for(int viableMove : availableMoves) {
-            availAct.add(ACTIONS.fromInt(viableMove));
-        }
+        ArrayList<ACTIONS> availAct = new ArrayList<>(actions.length);
+        for (ACTIONS act : actions)
+            availAct.add(act);
         return availAct;
     }
 
@@ -648,20 +714,22 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 	public ArrayList<ACTIONS> getAllAvailableActions() {
         ArrayList allActions = new ArrayList<>();
         for (int j = 0; j < 4; j++) 
-        	allActions.add(Types.ACTIONS.fromInt(j));
+        	allActions.add(ACTIONS_TABLE[j]);
         
         return allActions;
 	}
 	
    public int getNumAvailableActions() {
-        return availableMoves.size();
+        return actions.length;
     }
     
+	/**
+	 * @return the random actions {0,...,2*n-1} for a board with n empty tiles (see 
+	 * 		{@link #setNextNondeterministicAction()}). The list is shared by all states with 
+	 * 		n empty tiles, so it is read-only: each modification throws an {@link UnsupportedOperationException}.
+	 */
 	public ArrayList<ACTIONS> getAvailableRandoms() {
-        ArrayList<ACTIONS> availRan = new ArrayList<>();
-        for (int i=0; i<emptyTiles.size()*2; i++) 
-            availRan.add(ACTIONS.fromInt(i));
-        return availRan;	
+        return RANDOMS[emptyTiles.size()];
 	}
 
 	public int getNumAvailableRandoms() {
@@ -669,12 +737,7 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 	}
 
     public void setAvailableActions() {
-        ArrayList<ACTIONS> acts = this.getAvailableActions();
-        actions = new ACTIONS[acts.size()];
-        for(int i = 0; i < actions.length; ++i)
-        {
-            actions[i] = acts.get(i);
-        }
+        actions = MOVES[moveBits];
     }
 
     public ACTIONS getAction(int i) {
@@ -687,7 +750,7 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
         }
 
         int iAction = action.toInt();
-        assert (availableMoves.contains(iAction)) : "iAction is not viable.";
+        assert isLegalAction(action) : "iAction is not viable.";
         move(iAction);					// deterministic part, contains super.incrementMoveCounter()
         updateEmptyTiles();
 
@@ -779,6 +842,15 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
         return 1;
     }
 
+    /**
+     * @return a hash of the board, the score and whether the next action is deterministic (player or 
+     * 		environment to move)
+     */
+    @Override
+    public long getHash() {
+        return ZobristHash.mix(boardB) ^ ZobristHash.mix(2L*score + (isNextActionDeterministic ? 1 : 0));
+    }
+
     public String stringDescr() {
         return String.format("%016x", boardB);  // format as 16-hex-digit number with leading 0's (if necessary)
         //return Long.toHexString(boardB);            // no leading zeros
@@ -807,7 +879,15 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 	}
 
     public boolean isLegalAction(ACTIONS action) {
-        return availableMoves.contains(action.toInt());
+        return isLegalMove(action.toInt());
+    }
+
+    /**
+     * @param move {@literal 0 > left, 1 > up, 2 > right, 3 > down}
+     * @return true, if {@code move} changes the board
+     */
+    public boolean isLegalMove(int move) {
+        return move>=0 && move<4 && (moveBits & (1<<move))!=0;
     }
 
     public int getScore() {
@@ -913,30 +993,13 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 
     // updateAvaliableMoves is package-visible (for StateObserver2048Slow::assertSameAdvance)
     /**
-	 * Update class memeber {@code List<Integer> availableMoves}:<br>
+	 * Update class member {@code int moveBits}, the bit mask of the available moves:<br>
 	 * The possible actions are: 0: left, 1: up, 2: right, 3: down.
      */
     void updateAvailableMoves() {
-        availableMoves.clear();
-        int oldScore = score;
-        long oldCumulEmptyTiles = cumulEmptyTiles;
-        long oldBoardB = boardB;
-        if (leftAction().boardB!=oldBoardB)
-            availableMoves.add(0);
-        boardB=oldBoardB;
-        if (upAction().boardB!=oldBoardB)
-            availableMoves.add(1);
-        boardB=oldBoardB;
-        if (rightAction().boardB!=oldBoardB)
-            availableMoves.add(2);
-        boardB=oldBoardB;
-        if (downAction().boardB!=oldBoardB)
-            availableMoves.add(3);
-        boardB=oldBoardB;
-        cumulEmptyTiles = oldCumulEmptyTiles;
-        score=oldScore;
-
-        if(availableMoves.size() <= 0) {
+        moveBits = calcAvailableMoves(boardB);
+
+        if(moveBits == 0) {
             setWinState(-1);
             if (highestTileValue >= ConfigGame.WINNINGVALUE) setWinState(+1);
         }
@@ -944,6 +1007,28 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
         setAvailableActions();
     }
 
+    /**
+     * @param b	a board
+     * @return the bit mask of the moves which change board {@code b} (bit 0: left, 1: up, 2: right, 3: down)
+     */
+    private static int calcAvailableMoves(long b) {
+        long t = transpose(b);
+        return (moveRows(b, RowBitShift.tabLeft)!=b ? 1 : 0)
+             | (moveRows(t, RowBitShift.tabLeft)!=t ? 2 : 0)
+             | (moveRows(b, RowBitShift.tabRight)!=b ? 4 : 0)
+             | (moveRows(t, RowBitShift.tabRight)!=t ? 8 : 0);
+    }
+
+    /**
+     * Older logs store the available moves in a list {@code availableMoves} (which is ignored now), 
+     * so recompute {@code moveBits}.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        moveBits = calcAvailableMoves(boardB);
+        actions = MOVES[moveBits];
+    }
+
     public void printBoard() {
         System.out.println("---------------------------------");
         for(int r=3; r>=0; r--)
@@ -1014,9 +1099,13 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
 //      moves++;
         super.incrementMoveCounter();
 
-        for(int i = 0; i < 16; i++) {
-            updateHighestTile((int)(boardB >> (15-i)*4 & 0x0fL));
-        }
+        // a move can only create a new highest tile by a merge, so it is enough to look at the
+        // (precomputed) highest digit of each row of the new board:
+        long b = boardB;
+        int maxExp = 0;
+        for (int k=0; k<4; k++, b >>>= 16) 
+            maxExp = Math.max(maxExp, RowBitShift.tabMaxDigit[(int) (b & 0xffffL)]);
+        updateHighestTile(maxExp);
     }
 
     private void newBoard() {
@@ -1036,100 +1125,89 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
         updateAvailableMoves();
     }
 
+    /*
+     * The four move actions are table-driven and allocation-free: each row of the board is a 16-bit
+     * value which is looked up in the precomputed tables of RowBitShift (result row and score delta 
+     * for all 65536 rows). Column moves (up, down) transpose the board, do the corresponding row move 
+     * and transpose back.
+     */
     private StateObserver2048 rightAction() {
-        for (int k=0; k<4; k++) {
-            RowBitShift row = this.getRow(k).rAction();
-            this.putRow(row,k);
-            this.score += row.score;
-        }
+        this.score += scoreRows(boardB, RowBitShift.scoreRight);
+        boardB = moveRows(boardB, RowBitShift.tabRight);
         return this;
     }
 
     private StateObserver2048 leftAction() {
-        for (int k=0; k<4; k++) {
-            //System.out.println(String.format("Old: %04x", this.getRow(k).getRow()));
-            RowBitShift row = this.getRow(k).lAction();
-            //System.out.println(String.format("New: %04x", row.getRow()));
-            this.putRow(row,k);
-            this.score += row.score;
-        }
+        this.score += scoreRows(boardB, RowBitShift.scoreLeft);
+        boardB = moveRows(boardB, RowBitShift.tabLeft);
         return this;
     }
 
     private StateObserver2048 downAction() {
-        for (int k=0; k<4; k++) {
-            RowBitShift row = this.getCol(k).rAction();
-            this.putCol(row,k);
-            this.score += row.score;
-        }
+        long t = transpose(boardB);
+        this.score += scoreRows(t, RowBitShift.scoreRight);
+        boardB = transpose(moveRows(t, RowBitShift.tabRight));
         return this;
     }
 
     private StateObserver2048 upAction() {
-        for (int k=0; k<4; k++) {
-            RowBitShift row = this.getCol(k).lAction();
-            this.putCol(row,k);
-            this.score += row.score;
-        }
+        long t = transpose(boardB);
+        this.score += scoreRows(t, RowBitShift.scoreLeft);
+        boardB = transpose(moveRows(t, RowBitShift.tabLeft));
         return this;
     }
 
     /**
-     * Returns the {@code k}th row of the board state
-     * @param k one out of {3,2,1,0} where 0 is the lowest row
-     * @return
+     * @param b		a board
+     * @param tab	one of the row tables {@link RowBitShift#tabLeft}, {@link RowBitShift#tabRight}
+     * @return the board where each of the four rows of {@code b} is replaced by its entry in {@code tab}
      */
-    private RowBitShift getRow(int k) {
-        long r = (boardB >> (16*k)) & 0x000000000000ffffL;
-        RowBitShift row = new RowBitShift((int) r);
-        return row;
+    private static long moveRows(long b, int[] tab) {
+        return (long) tab[(int) (b & 0xffffL)]
+             | (long) tab[(int) ((b >>> 16) & 0xffffL)] << 16
+             | (long) tab[(int) ((b >>> 32) & 0xffffL)] << 32
+             | (long) tab[(int) (b >>> 48)] << 48;
     }
 
-    private StateObserver2048 putRow(RowBitShift row, int k) {
-        long[] andB = {0xffffffffffff0000L,
-                0xffffffff0000ffffL,
-                0xffff0000ffffffffL,
-                0x0000ffffffffffffL};
-        long r = ((long)row.getRow() << (16*k)) ;
-        boardB = (boardB & andB[k]) + r;
-        return this;
+    /**
+     * @param b		a board
+     * @param tab	one of the score tables {@link RowBitShift#scoreLeft}, {@link RowBitShift#scoreRight}
+     * @return the score delta of the row move on all four rows of {@code b}
+     */
+    private static int scoreRows(long b, int[] tab) {
+        return tab[(int) (b & 0xffffL)]
+             + tab[(int) ((b >>> 16) & 0xffffL)]
+             + tab[(int) ((b >>> 32) & 0xffffL)]
+             + tab[(int) (b >>> 48)];
     }
 
     /**
-     * Returns the {@code k}th column of the board state. The column returned is a
-     * 4-hex-digit number with the highest digit being the tile in the highest row.
-     * @param k one out of {3,2,1,0} where 0 is the rightmost column
+     * Transpose the board, i.e. swap rows and columns: digit {@code 4*j+k} goes to digit {@code 4*k+j}.
+     * Row {@code k} of the result is the same as column {@code k} of {@code b} (highest digit = tile in 
+     * the highest row).
+     */
+    static long transpose(long b) {
+        long a1 = b & 0xF0F00F0FF0F00F0FL;
+        long a2 = b & 0x0000F0F00000F0F0L;
+        long a3 = b & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    /**
+     * Returns the {@code k}th row of the board state
+     * @param k one out of {3,2,1,0} where 0 is the lowest row
      * @return
      */
-    private RowBitShift getCol(int k) {
-        long btemp = (boardB >> (4*k));  // shift the column to get in row 0 to digit 0
-        long r = 0L;
-        for (int j=3; j>=0; j--) {
-            r = r << 4;
-            r = r + ((btemp >> 16*j) & 0x000000000000000fL);
-        }
+    private RowBitShift getRow(int k) {
+        long r = (boardB >> (16*k)) & 0x000000000000ffffL;
         RowBitShift row = new RowBitShift((int) r);
         return row;
     }
 
-    private StateObserver2048 putCol(RowBitShift row, int k) {
-        long[] andB = {0xfff0fff0fff0fff0L,
-                0xff0fff0fff0fff0fL,
-                0xf0fff0fff0fff0ffL,
-                0x0fff0fff0fff0fffL};
-        long col = 0L;
-        for (int j=3; j>=0; j--) {
-            // shift one word (4 hex-digits) up and add the jth digit from row as lowest digit:
-            col = (col << 16) + row.d(j);
-        }
-        // shift the digits from row to the locations (the '0's in the relevant andB[k]):
-        col = col << 4*k;
-
-        // add the boardB digits on all other places:
-        boardB = (boardB & andB[k]) + col;
-        return this;
-    }
-
     /**
      * equals currently only tests if the gameboards are equal
      */
@@ -1164,11 +1242,14 @@ public class StateObserver2048 extends ObserverBase implements StateObsNondeterm
  * The hex value for each digit is {@code exp} in tile {@code 2^exp}. <p>
  * 
  * RowBitShift has methods {@link RowBitShift#lAction()} and {@link RowBitShift#rAction()} 
- * for left and right move action according to the rules of 2048. On first pass through 
- * these methods, static transposition tables {@code tabLeft} and {@code tabRight} are filled 
+ * for left and right move action according to the rules of 2048. When the class is loaded,
+ * static transposition tables {@code tabLeft} and {@code tabRight} are filled 
  * which contain for each possible row value the resulting row. <br>
  * Likewise, static transposition tables {@code scoreLeft} and {@code scoreRight} are filled 
- * which contain for each possible row value the resulting score. <p>
+ * which contain for each possible row value the resulting score, and {@code tabMaxDigit}
+ * which contains the highest digit of each row value. 
+ * {@link StateObserver2048} uses these tables directly on the 16-bit rows of its board. 
+ * Since they are filled once and never changed afterwards, they may be used by several threads. <p>
  * 
  * This speeds up the calculation in {@link StateObs2048BitShift#advance(Action)} by a 
  * factor of 10 as compared to {@link StateObserver2048Slow#advance(Action)}
@@ -1183,6 +1264,13 @@ class RowBitShift {
 	static int[] tabLeft = null; 
 	static int[] scoreRight = null;
 	static int[] scoreLeft = null; 
+	static int[] tabMaxDigit = null;
+	
+	static {
+		calcTabRight();
+		calcTabLeft();
+		calcTabMaxDigit();
+	}
 	
 	public RowBitShift(int row) {
 		this.rowB = row;
@@ -1307,12 +1395,11 @@ class RowBitShift {
 	 * @return the resulting row object
 	 */
 	public RowBitShift rAction( ) {
-		if (tabRight==null) calcTabRight();
 		this.score = scoreRight[rowB];
 		this.rowB = tabRight[rowB];
 		return this;
 	}
-	private void calcTabRight() {
+	private static void calcTabRight() {
 		int sz = (1 << 16);
 		tabRight = new int[sz];
 		scoreRight = new int[sz];
@@ -1343,12 +1430,11 @@ class RowBitShift {
 	 * @return the resulting row object
 	 */
 	public RowBitShift lAction( ) {
-		if (tabLeft==null) calcTabLeft();
 		this.score = scoreLeft[rowB];
 		this.rowB = tabLeft[rowB];
 		return this;
 	}
-	private void calcTabLeft() {
+	private static void calcTabLeft() {
 		int sz = (1 << 16);
 		tabLeft = new int[sz];
 		scoreLeft = new int[sz];
@@ -1360,6 +1446,16 @@ class RowBitShift {
 			scoreLeft[i]=rbs.score;
 		}
 	}
+	private static void calcTabMaxDigit() {
+		int sz = (1 << 16);
+		tabMaxDigit = new int[sz];
+		for (int i=0; i<sz; i++) {
+			int m = 0;
+			for (int r=i; r>0; r>>=4) 
+				m = Math.max(m, r & 0x0F);
+			tabMaxDigit[i]=m;
+		}
+	}
 	private RowBitShift lActionSlow( ) {
 		// remove the 'holes' (0-tiles) from right to left:
 		for (int k=1; k<4; k++)
@@ -128,7 +128,7 @@ public class StateObserver2048Slow extends ObserverBase implements StateObsNonde
     		return false;
     	}
     	for (Integer iVal : sot.availableMoves) {
-    		if (!sbs.availableMoves.contains(iVal)) {
+    		if (!sbs.isLegalMove(iVal)) {
     			return false;
     		}
     	}
@@ -24,6 +24,7 @@ import java.io.Serializable;
  * <li> <b>Rollout Depth</b>[150] MCTSE rollout depth  
  * <li> <b>Max Nodes</b>	[500] max number of nodes that expand() can create  
  * <li> <b>Number Agents</b>[  1] number of agents for majority vote  
+ * <li> <b>Time [ms]</b>	[  0] time budget per move (0: use Iterations instead)  
  * </ul>
  * The defaults are defined in {@link ParMCTSE}. 
  * 
@@ -40,6 +41,8 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	private static final String TIPNORMALIZEL = "<html>Normalize rollout value q(reward) to range [0,1]<br>"
 			+ "(special online normalization for 2048)</html>";
 	private static final String TIPSELECTORL = "Which selector to use in tree policy";
+	private static final String TIPMAXTIMEL = "<html>Time budget per move in ms: search until budget is used up,<br>"
+			+ "ignoring Iterations (0: iteration-based search)</html>";
 	private static final String TIPVERBOSET = "<html>0: print nothing,<br>"
 			+ "1: one line per MCTS call, <br>"
 			+ "2: for each child (=action) one line, <br>"
@@ -58,6 +61,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	private JLabel rollout_L;
 	private JLabel maxNodes_L;
 	private JLabel numAgents_L;
+	private JLabel maxTime_L;
 	private JLabel verbose_L;
 	private JTextField numIter_T;
 	private JTextField kUCT_T;
@@ -67,6 +71,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	private JTextField rollout_T;
 	private JTextField maxNodes_T;
 	private JTextField numAgents_T;
+	private JTextField maxTime_T;
 	private JTextField verbose_T;
 	private JCheckBox alternateVersion_CB;
 	private JCheckBox enableHeuristics_CB;
@@ -107,6 +112,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		
 		maxNodes_L = new JLabel("Max Nodes");
 		numAgents_L = new JLabel("Number Agents");
+		maxTime_L = new JLabel("Time [ms]");
 		alternateVersion_CB = new JCheckBox("alternate Version (~4% faster)", ParMCTSE.DEFAULT_ALTERNATEVERSION);
 		enableHeuristics_CB = new JCheckBox("enable Heuristics", ParMCTSE.DEFAULT_ENABLEHEURISTICS);
 		numIter_T = new JTextField(ParMCTSE.DEFAULT_ITERATIONS+"");
@@ -116,6 +122,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		rollout_T = new JTextField(ParMCTSE.DEFAULT_ROLLOUTDEPTH+"");
 		maxNodes_T = new JTextField(ParMCTSE.DEFAULT_MAXNODES+"");
 		numAgents_T = new JTextField(ParMCTSE.DEFAULT_NUMAGENTS+ "");
+		maxTime_T = new JTextField(ParMCTSE.DEFAULT_MAX_TIME_MILLIS+"");
 		verbose_T = new JTextField(ParMCTSE.DEFAULT_VERBOSITY+"");		 
 		normalize = new JCheckBox();
 		mPanel = new JPanel();		// put the inner buttons into panel oPanel. This panel
@@ -133,6 +140,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		normalize_L.setToolTipText(TIPNORMALIZEL);
 		maxNodes_L.setToolTipText("Max number of tree nodes");
 		numAgents_L.setToolTipText("Number of agents for majority Vote");
+		maxTime_L.setToolTipText(TIPMAXTIMEL);
 
 
 		setLayout(new BorderLayout(10,0));				// rows,columns,hgap,vgap
@@ -188,7 +196,12 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		naPanel.add(numAgents_T);
 		mPanel.add(naPanel);
 
-//		mPanel.add(new Canvas());
+		JPanel mtPanel = new JPanel(new GridLayout(0,2,10,10));
+		mtPanel.add(maxTime_L);
+		mtPanel.add(maxTime_T);
+		mPanel.add(mtPanel);
+
+		mPanel.add(new Canvas());
 		
 		mPanel.add(alternateVersion_CB);
 		mPanel.add(enableHeuristics_CB);	
@@ -244,6 +257,9 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	public int getNumAgents()  {
 		return Integer.valueOf(numAgents_T.getText());
 	}
+	public int getMaxTimeMillis() {
+		return Integer.valueOf(maxTime_T.getText()).intValue();
+	}
 	public int getVerbosity() {
 		return Integer.valueOf(verbose_T.getText()).intValue();
 	}
@@ -286,6 +302,9 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 	public void setNumAgents(int value) { 
 		numAgents_T.setText(value+""); 
 	}
+	public void setMaxTimeMillis(int value) {
+		maxTime_T.setText(value+"");
+	}
 	public void setAlternateVersion(boolean value) {
 		alternateVersion_CB.setSelected(value);
 	}
@@ -310,6 +329,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		setNormalize(tp.getNormalize());
 		setMaxNodes(tp.getMaxNodes());						
 		setNumAgents(tp.getNumAgents());					
+		setMaxTimeMillis(tp.getMaxTimeMillis());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
 		setSelectMode(tp.getSelectMode());
@@ -330,6 +350,7 @@ public class MCTSExpectimaxParams extends Frame implements Serializable
 		setNormalize(tp.getNormalize());
 		setMaxNodes(tp.getMaxNodes());					
 		setNumAgents(tp.getNumAgents());					
+		setMaxTimeMillis(tp.getMaxTimeMillis());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
 		setSelectMode(tp.getSelectMode());
@@ -31,6 +31,10 @@ import controllers.MCTS.SingleMCTSPlayer;
  * <li> <b>K (UCT)</b>: 	[1.414] parameter K in UCT rule  
  * <li> <b>Tree Depth</b>: 	[ 10] MCTS tree depth 
  * <li> <b>Rollout Depth</b>[200] MCTS rollout depth  
+ * <li> <b>Parallel</b>: 	[none] parallelization of the MCTS search: none, root or tree 
+ * <li> <b>Threads</b>: 	[  1] number of threads for parallel search 
+ * <li> <b>Time [ms]</b>: 	[  0] time budget per move (0: use Iterations instead) 
+ * <li> <b>Reuse Nodes</b>: 	[  0] max. number of nodes retained from the previous search (0: no tree reuse) 
  * </ul>
  * The defaults are defined in {@link ParMCTS}. 
  * 
@@ -47,6 +51,15 @@ public class MCTSParams extends Frame implements Serializable
 	private static final String TIPROLLOUTL = "maximum rollout depth (random moves from a leaf)";
 	private static final String TIPNORMALIZEL = "Normalize rollout value q(reward) to range [0,1]";
 	private static final String TIPSELECTORL = "Which selector to use in tree policy";
+	private static final String TIPPARALLELL = "<html>none: sequential search,<br>"
+			+ "root: independent trees per thread, merged by visit counts,<br>"
+			+ "tree: one shared tree with virtual loss"
+			+ "</html>";
+	private static final String TIPTHREADSL = "Number of threads for root or tree parallel search";
+	private static final String TIPMAXTIMEL = "<html>Time budget per move in ms: search until budget is used up,<br>"
+			+ "ignoring Iterations (0: iteration-based search)</html>";
+	private static final String TIPREUSEL = "<html>Tree reuse: keep the subtree of the previous search for the new state,<br>"
+			+ "if it has at most this many nodes (0: no tree reuse)</html>";
 	private static final String TIPVERBOSET = "<html>0: print nothing,<br>"
 			+ "1: one line per MCTS call, <br>"
 			+ "2: for each child (=action) one line, <br>"
@@ -55,6 +68,7 @@ public class MCTSParams extends Frame implements Serializable
 	// use "<html> ... <br> ... </html>" to get multi-line tooltip text
 	
 	private static String[] selTypeString = { "UCT","eps-greedy","roulette wheel" };
+	private static String[] parTypeString = { "none","root","tree" };
 	
 	JLabel numIter_L;
 	JLabel selector_L;
@@ -64,14 +78,22 @@ public class MCTSParams extends Frame implements Serializable
 	JLabel rollout_L;
 	JLabel verbose_L;
 	JLabel normalize_L;
+	JLabel parallel_L;
+	JLabel threads_L;
+	JLabel maxTime_L;
+	JLabel reuse_L;
 	JTextField numIter_T;
 	JTextField kUCT_T;
 	JTextField epsGreedy_T;
 	JTextField treedep_T;
 	JTextField rollout_T;
 	JTextField verbose_T;
+	JTextField threads_T;
+	JTextField maxTime_T;
+	JTextField reuse_T;
 	JCheckBox normalize;
 	JComboBox choiceSelector;
+	JComboBox<String> choiceParallel;
 	JPanel mPanel;
 
 	/**
@@ -91,12 +113,20 @@ public class MCTSParams extends Frame implements Serializable
 		kUCT_L = new JLabel("K (UCT)");
 		epsGreedy_L = new JLabel("epsilon (greedy)");
 		normalize_L = new JLabel("Normalize: ");
+		parallel_L = new JLabel("Parallel: ");
+		threads_L = new JLabel("Threads");
+		maxTime_L = new JLabel("Time [ms]");
+		reuse_L = new JLabel("Reuse Nodes");
 		numIter_T = new JTextField(ParMCTS.DEFAULT_NUM_ITERS+"");			
 		treedep_T = new JTextField(ParMCTS.DEFAULT_TREE_DEPTH+"");		 
 		rollout_T = new JTextField(ParMCTS.DEFAULT_ROLLOUT_DEPTH+"");		 
 		verbose_T = new JTextField(ParMCTS.DEFAULT_VERBOSITY+"");		 
 		kUCT_T = new JTextField(ParMCTS.DEFAULT_K+"");					// 
 		epsGreedy_T = new JTextField(ParMCTS.DEFAULT_EPSILONGREEDY+"");					// 
+		threads_T = new JTextField(ParMCTS.DEFAULT_NUM_THREADS+"");
+		maxTime_T = new JTextField(ParMCTS.DEFAULT_MAX_TIME_MILLIS+"");
+		reuse_T = new JTextField(ParMCTS.DEFAULT_REUSE_NODES+"");
+		choiceParallel = new JComboBox<>(parTypeString);
 		normalize = new JCheckBox();
 		choiceSelector = new JComboBox(selTypeString);
 		choiceSelector.addActionListener(new ActionListener(){
@@ -120,6 +150,10 @@ public class MCTSParams extends Frame implements Serializable
 		epsGreedy_L.setToolTipText(TIPEPSILONGREEDY);
 		normalize_L.setToolTipText(TIPNORMALIZEL);
 		selector_L.setToolTipText(TIPSELECTORL);
+		parallel_L.setToolTipText(TIPPARALLELL);
+		threads_L.setToolTipText(TIPTHREADSL);
+		maxTime_L.setToolTipText(TIPMAXTIMEL);
+		reuse_L.setToolTipText(TIPREUSEL);
 		
 		setLayout(new BorderLayout(10,0));				// rows,columns,hgap,vgap
 		mPanel.setLayout(new GridLayout(0,4,10,10));		
@@ -147,10 +181,15 @@ public class MCTSParams extends Frame implements Serializable
 //		mPanel.add(new Canvas());
 //		mPanel.add(new Canvas());
 
-		mPanel.add(new Canvas());	// add empty row to balance height of fields
-		mPanel.add(new Canvas());
-		mPanel.add(new Canvas());
-		mPanel.add(new Canvas());
+		mPanel.add(parallel_L);
+		mPanel.add(choiceParallel);
+		mPanel.add(threads_L);
+		mPanel.add(threads_T);
+
+		mPanel.add(maxTime_L);
+		mPanel.add(maxTime_T);
+		mPanel.add(reuse_L);
+		mPanel.add(reuse_T);
 
 		add(mPanel,BorderLayout.CENTER);
 		
@@ -203,6 +242,21 @@ public class MCTSParams extends Frame implements Serializable
 	public boolean getNormalize() {
 		return normalize.isSelected();
 	}
+	/**
+	 * @return 0: "none", 1: "root", 2: "tree" 
+	 */
+	public int getParallelMode() {
+		return this.choiceParallel.getSelectedIndex();
+	}
+	public int getNumThreads() {
+		return Integer.valueOf(threads_T.getText()).intValue();
+	}
+	public int getMaxTimeMillis() {
+		return Integer.valueOf(maxTime_T.getText()).intValue();
+	}
+	public int getReuseNodes() {
+		return Integer.valueOf(reuse_T.getText()).intValue();
+	}
 	public void setNumIter(int value) {
 		numIter_T.setText(value+"");
 	}
@@ -227,6 +281,18 @@ public class MCTSParams extends Frame implements Serializable
 	public void setNormalize(boolean state) {
 		normalize.setSelected(state);
 	}
+	public void setParallelMode(int value) {
+		this.choiceParallel.setSelectedIndex(value);
+	}
+	public void setNumThreads(int value) {
+		threads_T.setText(value+"");
+	}
+	public void setMaxTimeMillis(int value) {
+		maxTime_T.setText(value+"");
+	}
+	public void setReuseNodes(int value) {
+		reuse_T.setText(value+"");
+	}
 	
 	/**
 	 * Needed to restore the param tab with the parameters from a re-loaded agent
@@ -241,6 +307,10 @@ public class MCTSParams extends Frame implements Serializable
 		setVerbosity(tp.getVerbosity());
 		setNormalize(tp.getNormalize());
 		setSelectMode(tp.getSelectMode());
+		setParallelMode(tp.getParallelMode());
+		setNumThreads(tp.getNumThreads());
+		setMaxTimeMillis(tp.getMaxTimeMillis());
+		setReuseNodes(tp.getReuseNodes());
 //		System.out.println("numIter= "+tp.getNumIter());
 //		System.out.println("k_UCT= "+tp.getK_UCT());
 		enableUCTPart();
@@ -259,6 +329,10 @@ public class MCTSParams extends Frame implements Serializable
 		setVerbosity(tp.getVerbosity());
 		setNormalize(tp.getNormalize());
 		setSelectMode(tp.getSelectMode());
+		setParallelMode(tp.getParallelMode());
+		setNumThreads(tp.getNumThreads());
+		setMaxTimeMillis(tp.getMaxTimeMillis());
+		setReuseNodes(tp.getReuseNodes());
 		enableUCTPart();
 	}
 	
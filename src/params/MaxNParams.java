@@ -25,7 +25,7 @@ import controllers.MaxNAgent;
  * {@link MaxNAgent}, {@link ExpectimaxNAgent}.
  * These parameters and their [defaults] are: <ul>
  * <li> <b>tree depth</b>: 	[10] initial strength of learning parameter 
- * <li> <b>useHashMap</b>: 	[true] (only MaxN) whether to store calculated values in a hash map or not 
+ * <li> <b>useHashMap</b>: 	[true] (MaxN and Expectimax-N) whether to store calculated values in a transposition table or not 
  * </ul> 
  * The defaults are defined in {@link ParMaxN}. 
  * 
@@ -55,7 +55,7 @@ public class MaxNParams extends Frame
 									// (see class XArenaTabs)
 		
 		maxnDepth_L.setToolTipText("Tree depth (for MaxN or ExpectimaxN)");
-		maxnUseHm_L.setToolTipText("MaxN: use hashmap to save values of visited states");
+		maxnUseHm_L.setToolTipText("MaxN, ExpectimaxN: use transposition table to save values of visited states");
 		
 		setLayout(new BorderLayout(10,0));				// rows,columns,hgap,vgap
 		mPanel.setLayout(new GridLayout(0,4,10,10));		
@@ -45,6 +45,8 @@ public class NTParams extends Frame implements Serializable {
 	private static final String TIPUSESYMMETRY = "If checked, use symmetries when training n-tuple agent";
 	private static final String TIPAFTERSTATE = "If checked, use afterstate logic [Jaskowski16] when training n-tuple agent";
 	private static final String TIPNSYMMETRY = "number of symmetries to use (0: all symmetries)";
+	private static final String TIPSPARSELUT = "If checked, store only the LUT weights touched in training (hash maps instead of dense arrays)";
+	private static final String TIPSPARSEMB = "Memory budget (MB) of the sparse LUT weights, if exceeded, new weights are no longer stored (0: no limit)";
 
 	private static String[] tcFactorString = { "Immediate", "Accumulating" };
 	private static String[] tcTransferString = { "id", "TC EXP" };
@@ -76,6 +78,8 @@ public class NTParams extends Frame implements Serializable {
 	JLabel UseSymmetryL;
 	JLabel NSymL;
 	JLabel AfterStateL;
+	JLabel SparseLutL;
+	JLabel SparseMBL;
 
 	public JTextField tcInitT;
 	public JTextField tcIntervalT;
@@ -83,11 +87,13 @@ public class NTParams extends Frame implements Serializable {
 	public JTextField NTupleNumT;
 	public JTextField NTupleSizeT;
 	public JTextField NSymT;
+	public JTextField SparseMBT;
 
 	public JCheckBox TempCoC;
 	public JCheckBox RandomnessC;
 	public JCheckBox UseSymmetryC;
 	public JCheckBox AfterStateC;
+	public JCheckBox SparseLutC;
 
 	public JComboBox tcFactorType;
 	public JComboBox tcTransferType;
@@ -132,6 +138,10 @@ public class NTParams extends Frame implements Serializable {
 		AfterStateL.setToolTipText(TIPAFTERSTATE);
 		NSymL = new JLabel("nSym");
 		NSymL.setToolTipText(TIPNSYMMETRY);
+		SparseLutL = new JLabel("SPARSE LUT");
+		SparseLutL.setToolTipText(TIPSPARSELUT);
+		SparseMBL = new JLabel("Sparse MB");
+		SparseMBL.setToolTipText(TIPSPARSEMB);
 		
 		// These are the initial defaults 
 		// (Other game- and agent-specific defaults are in setParamDefaults, which is called
@@ -176,6 +186,8 @@ public class NTParams extends Frame implements Serializable {
 		NSymT = new JTextField(0+"");
 		NSymT.setEnabled(false);
 		AfterStateC = new JCheckBox();
+		SparseLutC = new JCheckBox();
+		SparseMBT = new JTextField(ParNT.DEFAULT_SPARSE_LUT_MB+"");
 		
 		tcFactorType = new JComboBox(tcFactorString);
 		tcFactorType.addActionListener(new ActionListener(){
@@ -254,8 +266,12 @@ public class NTParams extends Frame implements Serializable {
 		ntPanel.add(NTupleSizeT);
 		ntPanel.add(NSymL);
 		ntPanel.add(NSymT);
-//		ntPanel.add(new Canvas());
-//		ntPanel.add(new Canvas());
+
+		// eighth row
+		ntPanel.add(SparseLutL);
+		ntPanel.add(SparseLutC);
+		ntPanel.add(SparseMBL);
+		ntPanel.add(SparseMBT);
 		
 		add(ntPanel,BorderLayout.CENTER);
 	
@@ -292,6 +308,8 @@ public class NTParams extends Frame implements Serializable {
 		NSymT.setEnabled(enable);
 		AfterStateC.setEnabled(enable);
 		AfterStateL.setEnabled(true);
+		SparseLutC.setEnabled(enable);
+		SparseMBT.setEnabled(enable);
 
 	}
 	
@@ -455,6 +473,14 @@ public class NTParams extends Frame implements Serializable {
 		return AfterStateC.isSelected();
 	}
 	
+	public boolean getSparseLut() {
+		return SparseLutC.isSelected();
+	}
+	
+	public int getSparseLutMB() {
+		return Integer.parseInt(SparseMBT.getText());
+	}
+	
 	public int getNtupleNumber() {
 		return Integer.parseInt(NTupleNumT.getText());
 	}
@@ -528,6 +554,14 @@ public class NTParams extends Frame implements Serializable {
 	public void setAFTERSTATE(boolean useAfterstate) {
 		AfterStateC.setSelected(useAfterstate);
 	}
+
+	public void setSparseLut(boolean sparseLut) {
+		SparseLutC.setSelected(sparseLut);
+	}
+
+	public void setSparseLutMB(int sparseLutMB) {
+		SparseMBT.setText(""+sparseLutMB);
+	}
 	
 	public void setNtupleNumber(int numTuple) {
 		NTupleNumT.setText(""+numTuple);
@@ -571,6 +605,8 @@ public class NTParams extends Frame implements Serializable {
 		setFixedNtupleMode(nt.getFixedNtupleMode());
 		setUSESYMMETRY(nt.getUSESYMMETRY());
 		setAFTERSTATE(nt.getAFTERSTATE());
+		setSparseLut(nt.getSparseLut());
+		setSparseLutMB(nt.getSparseLutMB());
 
 		enableAfterState(nt.getAFTERSTATE());
 		enableTcTransferPart();
@@ -598,6 +634,8 @@ public class NTParams extends Frame implements Serializable {
 		setUSESYMMETRY(nt.getUSESYMMETRY());
 		setNSym(nt.getNSym());
 		setAFTERSTATE(nt.getAFTERSTATE());
+		setSparseLut(nt.getSparseLut());
+		setSparseLutMB(nt.getSparseLutMB());
 		
 		enableAfterState(nt.getAFTERSTATE());
 		enableTcTransferPart();
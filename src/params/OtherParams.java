@@ -2,7 +2,6 @@ package params;
 
 import java.awt.BorderLayout;
 import java.awt.Button;
-import java.awt.Canvas;
 import java.awt.Checkbox;
 import java.awt.Frame;
 import java.awt.GridLayout;
@@ -70,6 +69,10 @@ public class OtherParams extends Frame {
 	JLabel learnRM_L;
 	JLabel rgs_L;
 	JLabel wNply_L;
+	JLabel nThreads_L;
+	JLabel wThreads_L;
+	JLabel eThreads_L;
+	JLabel cCutoff_L;
 	JLabel pMax_L;
 	JLabel rBuf_L;
 	public JTextField numEval_T;
@@ -77,6 +80,10 @@ public class OtherParams extends Frame {
 	public JTextField stopTest_T;
 	public JTextField stopEval_T;
 	public JTextField wNply_T;
+	public JTextField nThreads_T;
+	public JTextField wThreads_T;
+	public JTextField eThreads_T;
+	public JTextField cCutoff_T;
 	public JTextField pMax_T;
 	public Checkbox chooseS01;
 	public Checkbox learnRM;
@@ -103,6 +110,10 @@ public class OtherParams extends Frame {
 		stopTest_T = new JTextField("0"); 	//
 		stopEval_T = new JTextField("-1"); 	// the defaults
 		wNply_T = new JTextField("0"); 		//
+		nThreads_T = new JTextField("1"); 	//
+		wThreads_T = new JTextField("1"); 	//
+		eThreads_T = new JTextField("1"); 	//
+		cCutoff_T = new JTextField("0"); 	//
 		pMax_T = new JTextField("6");		//	
 		numEval_L = new JLabel("numEval");
 		epiLeng_L = new JLabel("Episode Length");
@@ -112,6 +123,10 @@ public class OtherParams extends Frame {
 		learnRM_L = new JLabel("Learn from RM");
 		rgs_L = new JLabel("Reward = Score");
 		wNply_L = new JLabel("Wrapper nPly");
+		nThreads_L = new JLabel("Train Threads");
+		wThreads_L = new JLabel("Wrapper Threads");
+		eThreads_L = new JLabel("Eval Threads");
+		cCutoff_L = new JLabel("Chance Cutoff");
 		pMax_L = new JLabel("pMax");
 		rBuf_L = new JLabel("Replay buffer");
 		chooseS01 = new Checkbox("", false);
@@ -139,6 +154,14 @@ public class OtherParams extends Frame {
 		rgs_L.setToolTipText("Use game score as reward (def.) or use some other, game specific reward");
 		wNply_L.setToolTipText(
 				"Wrapper n-ply look ahead (for play, compete, eval). CAUTION: Numbers >5 can take VERY long!");
+		nThreads_L.setToolTipText(
+				"TD n-tuple agents: number of parallel training threads (lock-free weight updates). 1: single-threaded, deterministic");
+		wThreads_L.setToolTipText(
+				"Wrapper n-ply: number of threads for the parallel root search (only for thread-safe agents, e.g. TD n-tuple)");
+		eThreads_L.setToolTipText(
+				"Number of threads for the episodes of competitions and evaluations (only if all agents are thread-safe or cheap to copy)");
+		cCutoff_L.setToolTipText(
+				"Expectimax-N, Expectimax wrapper: do not expand chance nodes reached with a probability below this value. 0: no cutoff");
 		pMax_L.setToolTipText(
 				"RubiksCube: number of initial twists (during traing and eval)");
 		rBuf_L.setToolTipText(
@@ -197,8 +220,8 @@ public class OtherParams extends Frame {
 
 		oPanel.add(wNply_L);
 		oPanel.add(wNply_T);
-		oPanel.add(new Canvas());
-		oPanel.add(new Canvas());
+		oPanel.add(nThreads_L);
+		oPanel.add(nThreads_T);
 
 		if (m_arena.getGameName().equals("RubiksCube")) {
 			oPanel.add(pMax_L);
@@ -214,8 +237,13 @@ public class OtherParams extends Frame {
 
 		oPanel.add(rgs_L);
 		oPanel.add(rewardIsGameScore);
-		oPanel.add(new Canvas());
-		oPanel.add(new Canvas());
+		oPanel.add(wThreads_L);
+		oPanel.add(wThreads_T);
+
+		oPanel.add(eThreads_L);
+		oPanel.add(eThreads_T);
+		oPanel.add(cCutoff_L);
+		oPanel.add(cCutoff_T);
 
 		add(oPanel, BorderLayout.CENTER);
 		add(ok, BorderLayout.SOUTH);
@@ -271,6 +299,22 @@ public class OtherParams extends Frame {
 		return Integer.valueOf(wNply_T.getText()).intValue();
 	}
 
+	public int getNumTrainThreads() {
+		return Integer.valueOf(nThreads_T.getText()).intValue();
+	}
+
+	public int getWrapperThreads() {
+		return Integer.valueOf(wThreads_T.getText()).intValue();
+	}
+
+	public int getEvalThreads() {
+		return Integer.valueOf(eThreads_T.getText()).intValue();
+	}
+
+	public double getChanceCutoff() {
+		return Double.valueOf(cCutoff_T.getText()).doubleValue();
+	}
+
 	public int getpMaxRubiks() {
 		return Integer.valueOf(pMax_T.getText()).intValue();
 	}
@@ -354,6 +398,22 @@ public class OtherParams extends Frame {
 		wNply_T.setText(value + "");
 	}
 
+	public void setNumTrainThreads(int value) {
+		nThreads_T.setText(value + "");
+	}
+
+	public void setWrapperThreads(int value) {
+		wThreads_T.setText(value + "");
+	}
+
+	public void setEvalThreads(int value) {
+		eThreads_T.setText(value + "");
+	}
+
+	public void setChanceCutoff(double value) {
+		cCutoff_T.setText(value + "");
+	}
+
 	public void setpMaxRubiks(int value) {
 		pMax_T.setText(value + "");
 	}
@@ -395,6 +455,10 @@ public class OtherParams extends Frame {
 		this.setStopEval(op.getStopEval());
 		this.setWrapperNPly(op.getWrapperNPly());
 		this.setpMaxRubiks(op.getpMaxRubiks());
+		this.setNumTrainThreads(op.getNumTrainThreads());
+		this.setWrapperThreads(op.getWrapperThreads());
+		this.setEvalThreads(op.getEvalThreads());
+		this.setChanceCutoff(op.getChanceCutoff());
 		this.chooseS01.setState(op.getChooseStart01());
 		this.learnRM.setState(op.getLearnFromRM());
 		this.replayBuf.setState(op.getReplayBuffer());
@@ -21,6 +21,13 @@ public class ParMCTS implements Serializable {
     public static final double DEFAULT_EPSILONGREEDY = 0.05;
     public static final int DEFAULT_VERBOSITY = 0;
     public static final int DEFAULT_SELECT_MODE = 0;	// 0:[UCT], 1:[eps-greedy], 2:[roulette wheel]
+    public static final int PARALLEL_NONE = 0;
+    public static final int PARALLEL_ROOT = 1;
+    public static final int PARALLEL_TREE = 2;
+    public static final int DEFAULT_PARALLEL_MODE = PARALLEL_NONE;	// 0:[none], 1:[root], 2:[tree]
+    public static final int DEFAULT_NUM_THREADS = 1;
+    public static final int DEFAULT_MAX_TIME_MILLIS = 0;
+    public static final int DEFAULT_REUSE_NODES = 0;
     private int numIters = DEFAULT_NUM_ITERS;
 	private int rolloutDepth = DEFAULT_ROLLOUT_DEPTH;
     private int treeDepth = DEFAULT_TREE_DEPTH;
@@ -29,6 +36,10 @@ public class ParMCTS implements Serializable {
     private int verbose = DEFAULT_VERBOSITY; 
     private boolean useNormalize = true;
     private int selectMode = DEFAULT_SELECT_MODE;
+    private int parallelMode = DEFAULT_PARALLEL_MODE;
+    private int numThreads = DEFAULT_NUM_THREADS;		// values <= 1 (incl. 0 for older agents): sequential search
+    private int maxTimeMillis = DEFAULT_MAX_TIME_MILLIS;	// values <= 0 (incl. older agents): iteration-based search
+    private int reuseNodes = DEFAULT_REUSE_NODES;		// values <= 0 (incl. older agents): no tree reuse
 
     /**
      * This member is only constructed when the constructor {@link #ParMCTS(boolean) ParMCTS(boolean withUI)} 
@@ -67,6 +78,10 @@ public class ParMCTS implements Serializable {
 		this.verbose = tp.getVerbosity();
 		this.useNormalize = tp.getNormalize();
 		this.selectMode = tp.getSelectMode();
+		this.parallelMode = tp.getParallelMode();
+		this.numThreads = tp.getNumThreads();
+		this.maxTimeMillis = tp.getMaxTimeMillis();
+		this.reuseNodes = tp.getReuseNodes();
 		
 		if (msparams!=null)
 			msparams.setFrom(this);
@@ -81,6 +96,10 @@ public class ParMCTS implements Serializable {
 		this.verbose = tp.getVerbosity();
 		this.useNormalize = tp.getNormalize();
 		this.selectMode = tp.getSelectMode();
+		this.parallelMode = tp.getParallelMode();
+		this.numThreads = tp.getNumThreads();
+		this.maxTimeMillis = tp.getMaxTimeMillis();
+		this.reuseNodes = tp.getReuseNodes();
 		
 		if (msparams!=null)
 			msparams.setFrom(this);
@@ -124,6 +143,30 @@ public class ParMCTS implements Serializable {
 	public boolean getNormalize() {
 		return useNormalize;
 	}
+	/**
+	 * @return {@link #PARALLEL_NONE}, {@link #PARALLEL_ROOT} or {@link #PARALLEL_TREE} (only relevant 
+	 * 		if {@link #getNumThreads()} &gt; 1)
+	 */
+	public int getParallelMode() {
+		return parallelMode;
+	}
+	public int getNumThreads() {
+		return numThreads;
+	}
+	/**
+	 * @return the time budget per move in ms. If &gt; 0, the search runs until the budget is 
+	 * 		(nearly) used up and {@link #getNumIter()} is ignored. If 0, the search is iteration-based.
+	 */
+	public int getMaxTimeMillis() {
+		return maxTimeMillis;
+	}
+	/**
+	 * @return the maximum number of nodes retained from the previous search, if the subtree for 
+	 * 		the new root state is reused. If 0, no tree reuse.
+	 */
+	public int getReuseNodes() {
+		return reuseNodes;
+	}
 
 	public void setNumIter(int numIters) {
 		this.numIters = numIters;
@@ -167,6 +210,30 @@ public class ParMCTS implements Serializable {
 			msparams.setVerbosity(verbose);
 	}
 	
+	public void setParallelMode(int parallelMode) {
+		this.parallelMode = parallelMode;
+		if (msparams!=null)
+			msparams.setParallelMode(parallelMode);
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+		if (msparams!=null)
+			msparams.setNumThreads(numThreads);
+	}
+
+	public void setMaxTimeMillis(int maxTimeMillis) {
+		this.maxTimeMillis = maxTimeMillis;
+		if (msparams!=null)
+			msparams.setMaxTimeMillis(maxTimeMillis);
+	}
+
+	public void setReuseNodes(int reuseNodes) {
+		this.reuseNodes = reuseNodes;
+		if (msparams!=null)
+			msparams.setReuseNodes(reuseNodes);
+	}
+	
 	public void setNormalize(boolean bNorm) {
 		this.useNormalize=bNorm;
 		if (msparams!=null)
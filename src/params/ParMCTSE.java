@@ -20,6 +20,7 @@ import java.io.Serializable;
  * <li> <b>Rollout Depth</b>[150] MCTSE rollout depth  
  * <li> <b>Max Nodes</b>	[500] max number of nodes that expand() can create  
  * <li> <b>Number Agents</b>[  1] number of agents for majority vote  
+ * <li> <b>Time [ms]</b>	[  0] time budget per move (0: use Iterations instead)  
  * </ul>
  * The defaults are defined in this class. 
  * 
@@ -45,6 +46,7 @@ public class ParMCTSE implements Serializable
     public static final boolean DEFAULT_NORMALIZE = true;
     public static final int DEFAULT_NUMAGENTS = 1;                      //number Agents for majority vote
     public static final int DEFAULT_SELECT_MODE = 0;	// 0:[UCT], 1:[eps-greedy], 2:[roulette wheel]
+    public static final int DEFAULT_MAX_TIME_MILLIS = 0;				//time budget per move, 0: iteration-based search
     private int numIters = DEFAULT_ITERATIONS;
 	private int rolloutDepth = DEFAULT_ROLLOUTDEPTH;
     private int treeDepth = DEFAULT_TREEDEPTH;
@@ -57,6 +59,7 @@ public class ParMCTSE implements Serializable
     private int numAgents = DEFAULT_NUMAGENTS;
     private boolean alternateVersion = DEFAULT_ALTERNATEVERSION;
     private boolean enableHeuristics = DEFAULT_ENABLEHEURISTICS;
+    private int maxTimeMillis = DEFAULT_MAX_TIME_MILLIS;	// values <= 0 (incl. older agents): iteration-based search
 
 	private HeuristicSettings2048 heuristicSettings2048;
 
@@ -106,6 +109,7 @@ public class ParMCTSE implements Serializable
 		this.setEpsGreedy(tp.getEpsGreedy());
 		setMaxNodes(tp.getMaxNodes());						
 		setNumAgents(tp.getNumAgents());					
+		setMaxTimeMillis(tp.getMaxTimeMillis());
 		setVerbosity(tp.getVerbosity());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
@@ -129,6 +133,7 @@ public class ParMCTSE implements Serializable
 		this.setEpsGreedy(tp.getEpsGreedy());
 		setMaxNodes(tp.getMaxNodes());						
 		setNumAgents(tp.getNumAgents());					
+		setMaxTimeMillis(tp.getMaxTimeMillis());
 		setVerbosity(tp.getVerbosity());
 		setAlternateVersion(tp.getAlternateVersion());	
 		setEnableHeuristics(tp.getEnableHeuristics());
@@ -157,6 +162,13 @@ public class ParMCTSE implements Serializable
 	public int getNumIter() {
 		return this.numIters;
 	}
+	/**
+	 * @return the time budget per move in ms. If &gt; 0, the search runs until the budget is 
+	 * 		(nearly) used up and {@link #getNumIter()} is ignored. If 0, the search is iteration-based.
+	 */
+	public int getMaxTimeMillis() {
+		return this.maxTimeMillis;
+	}
 	public int getSelectMode() {
 		return selectMode;
 	}
@@ -199,6 +211,11 @@ public class ParMCTSE implements Serializable
 		if (meparams!=null)
 			meparams.setNumIter(value);
 	}
+	public void setMaxTimeMillis(int value) {
+		maxTimeMillis = value;
+		if (meparams!=null)
+			meparams.setMaxTimeMillis(value);
+	}
 	public void setK_UCT(double value) {
 		kUCT = value;
 		if (meparams!=null)
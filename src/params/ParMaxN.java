@@ -11,7 +11,7 @@ import controllers.MaxNAgent;
  * Parameters for {@link MaxNAgent}, {@link ExpectimaxNAgent}
  * <ul>
  * <li> <b> Tree Depth</b>: [10] depth of search tree
- * <li> <b> Max-N Hashmap</b>: [true] (only MaxN) whether to hash already visited states or not
+ * <li> <b> Max-N Hashmap</b>: [true] (MaxN and Expectimax-N) whether to store already visited states in a transposition table or not
  * </ul>
  *  <p>
  *  Game- and agent-specific parameters are set with {@link #setParamDefaults(String, String, int)}.
@@ -28,6 +28,7 @@ public class ParNT implements Serializable {
     public static int DEFAULT_NTUPLE_NUM=10;  
     public static int DEFAULT_NTUPLE_LEN=6;  
     public static int DEFAULT_FIXED_NTUPLE=1;  
+    public static int DEFAULT_SPARSE_LUT_MB=1024;	// memory budget of sparse LUT weights (agents from older versions: 0)
     
     private double tcInit = DEFAULT_TC_INIT;
     private boolean tc = false;
@@ -44,6 +45,8 @@ public class ParNT implements Serializable {
     private boolean useSymmetry = true;
     private int nSym= 0;							// 0: use all symmetries, if useSymmetry==true
     private boolean afterState = false;
+    private boolean sparseLut = false;				// true: LUT weights in hash maps (see SparseWeights)
+    private int sparseLutMB = DEFAULT_SPARSE_LUT_MB;	// memory budget of the sparse LUT weights (0: no limit)
     
     /**
      * This member is only constructed when the constructor {@link #ParNT(boolean) ParNT(boolean withUI)} 
@@ -89,6 +92,8 @@ public class ParNT implements Serializable {
 		this.useSymmetry = nt.getUSESYMMETRY();
 		this.nSym = nt.getNSym();
 		this.afterState = nt.getAFTERSTATE();
+		this.sparseLut = nt.getSparseLut();
+		this.sparseLutMB = nt.getSparseLutMB();
 
 		if (ntparams!=null)
 			ntparams.setFrom(this);
@@ -110,6 +115,8 @@ public class ParNT implements Serializable {
 		this.useSymmetry = nt.getUSESYMMETRY();
 		this.nSym = nt.getNSym();
 		this.afterState = nt.getAFTERSTATE();
+		this.sparseLut = nt.getSparseLut();
+		this.sparseLutMB = nt.getSparseLutMB();
 
 		if (ntparams!=null)
 			ntparams.setFrom(this);
@@ -198,6 +205,28 @@ public class ParNT implements Serializable {
 		return afterState;
 	}
 
+	/**
+	 * @return true, if the LUT weights (and TC accumulators) of the n-tuples are stored in hash maps 
+	 * 		which hold only the entries touched in training, false for dense arrays of length 
+	 * 		posVals^n. The sparse storage allows longer n-tuples and larger n-tuple sets within the 
+	 * 		same heap, at the price of slower weight access. It does not support random weight 
+	 * 		initialization and parallel training.
+	 * 
+	 * @see controllers.TD.ntuple2.SparseWeights
+	 */
+	public boolean getSparseLut() {
+		return sparseLut;
+	}
+
+	/**
+	 * @return the memory budget (MB) of the sparse LUT weights (see {@link #getSparseLut()}), 0 for no limit. 
+	 * 		If the weights touched need more, training goes on, but new weights are no longer stored. With TC, 
+	 * 		the accumulators need up to three times this memory in addition.
+	 */
+	public int getSparseLutMB() {
+		return sparseLutMB;
+	}
+
 	public int getPlotWeightMethod() {
 		if (ntparams!=null)
 			return ntparams.getPlotWeightMethod();
@@ -285,6 +314,18 @@ public class ParNT implements Serializable {
 		this.afterState = afterState;
 	}
 
+	public void setSparseLut(boolean sparseLut) {
+		this.sparseLut = sparseLut;
+		if (ntparams!=null)
+			ntparams.setSparseLut(sparseLut);
+	}
+
+	public void setSparseLutMB(int sparseLutMB) {
+		this.sparseLutMB = sparseLutMB;
+		if (ntparams!=null)
+			ntparams.setSparseLutMB(sparseLutMB);
+	}
+
 	/**
 	 * Set sensible parameters for a specific agent and specific game. By "sensible
 	 * parameters" we mean parameter producing good results.
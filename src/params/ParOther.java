@@ -26,6 +26,10 @@ public class ParOther implements Serializable {
     public static int DEFAULT_STOP_EVAL = 100;
     public static int DEFAULT_WRAPPER_NPLY = 0;
     public static int DEFAULT_PMAX_RUBIKS = 6;
+    public static int DEFAULT_NUM_TRAIN_THREADS = 1;
+    public static int DEFAULT_WRAPPER_THREADS = 1;
+    public static int DEFAULT_EVAL_THREADS = 1;
+    public static double DEFAULT_CHANCE_CUTOFF = 0.0;
 
     private int quickEvalMode = DEFAULT_QUICK_EVAL_MODE;
     private int trainEvalMode = DEFAULT_TRAIN_EVAL_MODE;
@@ -35,6 +39,10 @@ public class ParOther implements Serializable {
     private int stopEval = DEFAULT_STOP_EVAL; 		// new meaning: max episode length during eval
     private int wrapperNply = DEFAULT_WRAPPER_NPLY; 
     private int pMaxRubiks = DEFAULT_PMAX_RUBIKS;	// only relevant for RubiksCube, see CubeConfig.pMax
+    private int numTrainThreads = DEFAULT_NUM_TRAIN_THREADS;	// only relevant for TDNTuple3Agt, SarsaAgt
+    private int wrapperThreads = DEFAULT_WRAPPER_THREADS;	// only relevant for MaxN2Wrapper, ExpectimaxWrapper
+    private int evalThreads = DEFAULT_EVAL_THREADS;		// only relevant for agents with a thread instance
+    private double chanceCutoff = DEFAULT_CHANCE_CUTOFF;	// only relevant for ExpectimaxNAgent, ExpectimaxWrapper
 	private boolean chooseStart01 = false;
     private boolean learnFromRM = false;
 	private boolean bReplayBuf = false;	// only relevant for RubiksCube: whether to use a replay buffer or not
@@ -79,6 +87,10 @@ public class ParOther implements Serializable {
 		this.stopEval = op.getStopEval();
 		this.wrapperNply = op.getWrapperNPly();
 		this.pMaxRubiks = op.getpMaxRubiks();
+		this.numTrainThreads = op.getNumTrainThreads();
+		this.wrapperThreads = op.getWrapperThreads();
+		this.evalThreads = op.getEvalThreads();
+		this.chanceCutoff = op.getChanceCutoff();
 		this.chooseStart01 = op.getChooseStart01();
 		this.learnFromRM = op.getLearnFromRM();
 		this.bReplayBuf = op.getReplayBuffer();
@@ -98,6 +110,10 @@ public class ParOther implements Serializable {
 		this.stopEval = op.getStopEval();
 		this.wrapperNply = op.getWrapperNPly();
 		this.pMaxRubiks = op.getpMaxRubiks();
+		this.numTrainThreads = op.getNumTrainThreads();
+		this.wrapperThreads = op.getWrapperThreads();
+		this.evalThreads = op.getEvalThreads();
+		this.chanceCutoff = op.getChanceCutoff();
 		this.chooseStart01 = op.getChooseStart01();
 		this.learnFromRM = op.getLearnFromRM();
 		this.bReplayBuf = op.getReplayBuffer();
@@ -165,6 +181,46 @@ public class ParOther implements Serializable {
 
     public int getpMaxRubiks() { return pMaxRubiks;	}
 
+	/**
+	 * @return the number of threads for training n-tuple agents (Hogwild training, see 
+	 * 		{@link controllers.TD.ntuple2.NTupleBase#trainAgentParallel(games.StateObservation[], int)}). 
+	 * 		Values &le; 1 (including 0 from older agents) mean single-threaded training.
+	 */
+	public int getNumTrainThreads() {
+		return numTrainThreads;
+	}
+
+	/**
+	 * @return the number of threads for the parallel root search of the n-ply wrappers ({@link controllers.MaxN2Wrapper},
+	 * 		{@link controllers.ExpectimaxWrapper}). Only used if the wrapped agent is thread-safe (see 
+	 * 		{@link controllers.PlayAgent#isThreadSafe()}). Values &le; 1 (including 0 from older agents) 
+	 * 		mean sequential search.
+	 */
+	public int getWrapperThreads() {
+		return wrapperThreads;
+	}
+
+	/**
+	 * @return the number of threads for playing the episodes of a competition (and thus of the evaluators)
+	 * 		in parallel, see {@link games.XArenaFuncs#competeNPlayer(controllers.PlayAgtVector, games.StateObservation, 
+	 * 		int, int, TournamentSystem.TSTimeStorage[]) competeNPlayer}, and the games of 
+	 * 		{@link games.ZweiTausendAchtundVierzig.Evaluator2048}. Only used if all agents have a thread instance 
+	 * 		(see {@link controllers.PlayAgent#getThreadInstance()}). Values &le; 1 (including 0 from older agents) 
+	 * 		mean sequential episodes.
+	 */
+	public int getEvalThreads() {
+		return evalThreads;
+	}
+
+	/**
+	 * @return the probability cutoff of {@link controllers.ExpectimaxNAgent} (and thus of 
+	 * 		{@link controllers.ExpectimaxWrapper}): chance nodes which are reached from the root with a probability 
+	 * 		below this value are not expanded, but evaluated like leaves. 0 (also for older agents) means no cutoff.
+	 */
+	public double getChanceCutoff() {
+		return chanceCutoff;
+	}
+
 	public double getIncAmount() { return incAmount; }
 
 	public boolean getChooseStart01() {
@@ -246,6 +302,30 @@ public class ParOther implements Serializable {
 			otparams.setpMaxRubiks(pMaxRubiks);
 	}
 
+	public void setEvalThreads(int numThreads) {
+		this.evalThreads = numThreads;
+		if (otparams!=null)
+			otparams.setEvalThreads(numThreads);
+	}
+
+	public void setChanceCutoff(double cutoff) {
+		this.chanceCutoff = cutoff;
+		if (otparams!=null)
+			otparams.setChanceCutoff(cutoff);
+	}
+
+	public void setWrapperThreads(int numThreads) {
+		this.wrapperThreads = numThreads;
+		if (otparams!=null)
+			otparams.setWrapperThreads(numThreads);
+	}
+
+	public void setNumTrainThreads(int numThreads) {
+		this.numTrainThreads = numThreads;
+		if (otparams!=null)
+			otparams.setNumTrainThreads(numThreads);
+	}
+
 	public void setChooseStart01(boolean bChooseStart01) {
 		this.chooseStart01=bChooseStart01;
 		if (otparams!=null)
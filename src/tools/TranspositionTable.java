@@ -0,0 +1,153 @@
+package tools;
+
+import controllers.ExpectimaxNAgent;
+import controllers.MaxN2Wrapper;
+import controllers.MaxNAgent;
+import games.StateObservation;
+
+/**
+ * A fixed-size transposition table which maps 64-bit state hashes ({@link StateObservation#getHash()}) to
+ * {@link ScoreTuple}s. Used by the tree search agents {@link MaxNAgent}, {@link MaxN2Wrapper} and
+ * {@link ExpectimaxNAgent} to avoid searching the same state more than once.
+ * <p>
+ * Each entry stores the full hash (to detect index collisions), the score tuple and the remaining search
+ * depth with which the score tuple was obtained. A lookup succeeds only if the stored depth is at least the
+ * requested depth. Score tuples from a search which reached game-over states only get the depth {@link #EXACT}.
+ * When two states map to the same slot, the one with the larger depth is kept (replace-by-depth).
+ * <p>
+ * {@link #newSearch()} invalidates all entries in O(1) by incrementing a generation counter. Agents whose
+ * leaf values may change between calls (e.g. wrappers around trainable agents) call it before each search.
+ * <p>
+ * The table may be shared by several search threads (as in the parallel root search of {@link MaxN2Wrapper}):
+ * each slot holds an immutable entry, so a lookup sees either the old or the new entry of a slot, never a 
+ * mixture of both. {@link #newSearch()} must not be called while other threads use the table. The counters
+ * are not synchronized, they are only approximate under concurrent use.
+ */
+public class TranspositionTable {
+	/**
+	 * depth stored for score tuples which do not depend on the search depth (all leaves were game over)
+	 */
+	public static final int EXACT = Integer.MAX_VALUE;
+	public static final int DEFAULT_LOG2_SIZE = 18;
+
+	private static class Entry {
+		final long key;
+		final ScoreTuple value;
+		final int depth;
+		final int generation;
+
+		Entry(long key, ScoreTuple value, int depth, int generation) {
+			this.key = key;
+			this.value = value;
+			this.depth = depth;
+			this.generation = generation;
+		}
+	}
+
+	private final Entry[] entries;
+	private final int mask;
+	private volatile int generation = 1;
+	private final ThreadLocal<int[]> lastDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+	private long lookups = 0;
+	private long hits = 0;
+	private long stores = 0;
+
+	public TranspositionTable() {
+		this(DEFAULT_LOG2_SIZE);
+	}
+
+	/**
+	 * @param log2Size	the table has {@code 2^log2Size} entries
+	 */
+	public TranspositionTable(int log2Size) {
+		int size = 1 << log2Size;
+		entries = new Entry[size];
+		mask = size - 1;
+	}
+
+	private int index(long hash) {
+		return (int) (ZobristHash.mix(hash) & mask);
+	}
+
+	/**
+	 * @param hash		the state hash
+	 * @param depth		the remaining search depth needed
+	 * @return the stored score tuple, if there is one for {@code hash} with a depth &ge; {@code depth},
+	 * 		else {@code null}. The score tuple is the stored object, it should not be modified.
+	 */
+	public ScoreTuple get(long hash, int depth) {
+		lookups++;
+		Entry e = entries[index(hash)];
+		if (e != null && e.generation == generation && e.key == hash && e.depth >= depth) {
+			hits++;
+			lastDepth.get()[0] = e.depth;
+			return e.value;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the stored depth of the entry returned by the last successful {@link #get(long, int)} 
+	 * 		of the calling thread
+	 */
+	public int getLastDepth() {
+		return lastDepth.get()[0];
+	}
+
+	/**
+	 * Store {@code sc} for {@code hash}, unless the slot holds a valid entry of another state with a larger depth.
+	 *
+	 * @param hash	the state hash
+	 * @param depth	the remaining search depth with which {@code sc} was obtained (or {@link #EXACT})
+	 * @param sc	the score tuple (stored by reference, it should not be modified afterwards)
+	 */
+	public void put(long hash, int depth, ScoreTuple sc) {
+		int i = index(hash);
+		int gen = generation;
+		Entry e = entries[i];
+		if (e != null && e.generation == gen && e.key != hash && e.depth > depth)
+			return;
+		entries[i] = new Entry(hash, sc, depth, gen);
+		stores++;
+	}
+
+	/**
+	 * Invalidate all entries (O(1)).
+	 */
+	public void newSearch() {
+		if (generation == Integer.MAX_VALUE) {	// overflow: clear explicitly
+			java.util.Arrays.fill(entries, null);
+			generation = 0;
+		}
+		generation++;
+	}
+
+	public long getLookups() {
+		return lookups;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getStores() {
+		return stores;
+	}
+
+	/**
+	 * @return the fraction of lookups which were hits (0, if there were no lookups)
+	 */
+	public double getHitRate() {
+		return (lookups == 0) ? 0 : hits / (double) lookups;
+	}
+
+	public void resetCounters() {
+		lookups = hits = stores = 0;
+	}
+
+	public String toString() {
+		return "TT: lookups=" + lookups + ", hits=" + hits + String.format(" (%.1f%%)", 100 * getHitRate())
+				+ ", stores=" + stores;
+	}
+}
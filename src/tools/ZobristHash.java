@@ -0,0 +1,63 @@
+package tools;
+
+import games.StateObservation;
+
+/**
+ * Helpers for the 64-bit state hashes returned by {@link StateObservation#getHash()}.
+ * <p>
+ * The Zobrist keys {@link #key(int, int)} are pseudo-random 64-bit numbers, one for each combination
+ * (cell, piece). A state observer may maintain its hash incrementally by XOR-ing the key of each
+ * piece placed on (or removed from) a cell in {@code advance} (as Sim and Hex do). The keys are derived 
+ * from the indices by {@link #mix(long)}, so they need no table and are the same in every run.
+ * <p>
+ * Games whose board fits into a few {@code long}s (bitboards of ConnectFour, Othello and 2048, the 
+ * base-3 board of TicTacToe, the heaps of Nim) hash them directly with {@link #mix(long)}, which is 
+ * as cheap as an incremental update. {@link #hash(String)} is only the fallback of 
+ * {@link games.ObserverBase#getHash()} for the other games.
+ *
+ * @see TranspositionTable
+ */
+public class ZobristHash {
+
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	private ZobristHash() { }
+
+	/**
+	 * The SplitMix64 finalizer: a bijective function of {@code x} which spreads every input bit over
+	 * all output bits. Distinct inputs give distinct outputs.
+	 */
+	public static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+	/**
+	 * @param cell	the cell (or link, heap, ...) index
+	 * @param piece	the piece (or player, ...) on this cell
+	 * @return the Zobrist key for {@code piece} on {@code cell}
+	 */
+	public static long key(int cell, int piece) {
+		return mix(((long) cell << 8 | piece) * GOLDEN + GOLDEN);
+	}
+
+	/**
+	 * @return the key to XOR with a board hash so that it differs for the player to move
+	 */
+	public static long playerKey(int player) {
+		return mix(GOLDEN * (player + 1) ^ 0x5DEECE66DL);
+	}
+
+	/**
+	 * @return a 64-bit hash (FNV-1a) of {@code s}, for states which have no other compact description
+	 */
+	public static long hash(String s) {
+		long h = 0xCBF29CE484222325L;
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		return h;
+	}
+}
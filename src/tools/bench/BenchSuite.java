@@ -0,0 +1,322 @@
+package tools.bench;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import controllers.MaxNAgent;
+import controllers.PlayAgtVector;
+import controllers.RandomAgent;
+import controllers.MCTS.MCTSAgentT;
+import controllers.TD.ntuple2.NTuple2ValueFunc;
+import controllers.TD.ntuple2.NTupleFactory;
+import controllers.TD.ntuple2.TDNTuple3Agt;
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.XArenaFuncs;
+import games.XNTupleFuncs;
+import games.CFour.StateObserverC4;
+import games.CFour.XNTupleFuncsC4;
+import games.Hex.StateObserverHex;
+import games.Hex.XNTupleFuncsHex;
+import games.Nim.StateObserverNim;
+import games.Nim.StateObserverNim3P;
+import games.Nim.XNTupleFuncsNim2P;
+import games.Nim.XNTupleFuncsNim3P;
+import games.Othello.StateObserverOthello;
+import games.Othello.StateObserverOthelloBB;
+import games.Othello.XNTupleFuncsOthello;
+import games.RubiksCube.CubeState;
+import games.RubiksCube.CubeStateFactory;
+import games.RubiksCube.StateObserverCube;
+import games.RubiksCube.XNTupleFuncsCube;
+import games.Sim.ConfigSim;
+import games.Sim.StateObserverSim;
+import games.Sim.XNTupleFuncsSim;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.ZweiTausendAchtundVierzig.StateObserver2048;
+import games.ZweiTausendAchtundVierzig.XNTupleFuncs2048;
+import params.ParMCTS;
+import params.ParNT;
+import params.ParOther;
+import params.ParTD;
+import tools.ScoreTuple;
+import tools.Types;
+
+/**
+ * The microbenchmark suite for the hot paths of GBG (run with {@link MicroBench}):
+ * <ul>
+ * <li> {@code copy()}, {@code copy()+advance()}, {@code getAvailableActions()} and {@code getBoardVector()}
+ * 		for the {@link StateObservation} of each game, measured on a pool of states from seeded random playouts
+ * <li> {@link NTuple2ValueFunc#getScoreI(StateObsWithBoardVector, int)} and
+ * 		{@link NTuple2ValueFunc#updateWeightsTD(StateObsWithBoardVector, int, double, double, double, StateObservation)}
+ * 		for TicTacToe and ConnectFour
+ * <li> one MCTS iteration ({@link MCTSAgentT}), one {@link MaxNAgent} search and one episode of
+ * 		{@link XArenaFuncs#competeNPlayer(PlayAgtVector, StateObservation, int, int, TournamentSystem.tools.TSTimeStorage[])}
+ * </ul>
+ * Usage:
+ * <pre>
+ *   BenchSuite [-quick] [-filter regex] [-out results.txt] [-baseline resources/bench/baseline.txt] [-tol 0.25]
+ * </pre>
+ * The results are compared with the baseline file (if it exists): a benchmark slower than the baseline by more
+ * than the tolerance {@code tol} is reported as REGRESSION and the exit code is 1. The baseline has to come from
+ * the same machine; to renew it, run the suite with {@code -out resources/bench/baseline.txt}.
+ * <p>
+ * All random choices of the suite use fixed seeds. (Exceptions are the chance events inside
+ * {@code StateObserver2048} and the random number generators inside MCTS, which have no seed parameter.)
+ */
+public class BenchSuite {
+	public static final long SEED = 42;
+	private static final int POOL_SIZE = 256;
+	private static final int MCTS_ITERS = 1000;
+
+	private final MicroBench bench;
+	private final String filter;
+	private final List<MicroBench.Result> results = new ArrayList<>();
+
+	public BenchSuite(MicroBench bench, String filter) {
+		this.bench = bench;
+		this.filter = filter;
+	}
+
+	private void run(String name, int opsPerCall, MicroBench.Op op) {
+		if (filter != null && !name.matches(filter)) return;
+		MicroBench.Result r = bench.run(name, opsPerCall, op);
+		System.out.println(r);
+		results.add(r);
+	}
+
+	private void run(String name, MicroBench.Op op) {
+		run(name, 1, op);
+	}
+
+	/**
+	 * @return {@code size} non-terminal states visited by random playouts from {@code start} (seeded with
+	 * 		{@link #SEED}), each playout is cut after {@code maxPlies} moves
+	 */
+	static StateObservation[] statePool(StateObservation start, int size, int maxPlies) {
+		Random rand = new Random(SEED);
+		StateObservation[] pool = new StateObservation[size];
+		StateObservation so = start.copy();
+		int plies = 0;
+		for (int k = 0; k < size; ) {
+			if (so.isGameOver() || plies >= maxPlies) {
+				so = start.copy();
+				plies = 0;
+			}
+			pool[k++] = so.copy();
+			so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+			plies++;
+		}
+		return pool;
+	}
+
+	public void benchStateObs(String game, StateObservation start, XNTupleFuncs xnf, int maxPlies) {
+		StateObservation[] pool = statePool(start, POOL_SIZE, maxPlies);
+		Types.ACTIONS[] acts = new Types.ACTIONS[pool.length];
+		Random rand = new Random(SEED);
+		for (int k = 0; k < pool.length; k++)
+			acts[k] = pool[k].getAction(rand.nextInt(pool[k].getNumAvailableActions()));
+		int mask = POOL_SIZE - 1;
+
+		run("copy[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) s += pool[i & mask].copy().getMoveCounter();
+			return s;
+		});
+		run("copy+advance[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) {
+				StateObservation so = pool[i & mask].copy();
+				so.advance(acts[i & mask]);
+				s += so.getMoveCounter();
+			}
+			return s;
+		});
+		run("getAvailableActions[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) s += pool[i & mask].getAvailableActions().size();
+			return s;
+		});
+		run("getBoardVector[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) s += xnf.getBoardVector(pool[i & mask]).bvec[0];
+			return s;
+		});
+	}
+
+	public void benchNTuple(String game, StateObservation start, XNTupleFuncs xnf, int maxPlies) {
+		ParTD tdPar = new ParTD();
+		ParNT ntPar = new ParNT();
+		tdPar.setParamDefaults("TD-Ntuple-3", start.getName());
+		ntPar.setParamDefaults("TD-Ntuple-3", start.getName());
+		ntPar.setRandomness(false);		// fixed n-tuples: the same network in each run
+		int[][] nTuples;
+		try {
+			nTuples = new NTupleFactory().makeNTupleSet(ntPar, xnf);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		TDNTuple3Agt pa = new TDNTuple3Agt("TD-Ntuple-3", tdPar, ntPar, new ParOther(), nTuples, xnf, 1000);
+		NTuple2ValueFunc vf = pa.getNTupleValueFunc();
+
+		StateObservation[] pool = statePool(start, POOL_SIZE, maxPlies);
+		StateObsWithBoardVector[] sowb = new StateObsWithBoardVector[pool.length];
+		for (int k = 0; k < pool.length; k++) sowb[k] = new StateObsWithBoardVector(pool[k], xnf);
+		int mask = POOL_SIZE - 1;
+
+		run("getScoreI[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++)
+				s += Double.doubleToLongBits(vf.getScoreI(sowb[i & mask], pool[i & mask].getPlayer()));
+			return s;
+		});
+		run("updateWeightsTD[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) {
+				StateObservation so = pool[i & mask];
+				vf.updateWeightsTD(sowb[i & mask], so.getPlayer(), 0.0, 0.1, 0.0, so);
+				s += so.getPlayer();
+			}
+			return s;
+		});
+	}
+
+	public void benchMCTS(String game, StateObservation start) {
+		ParMCTS mcPar = new ParMCTS();
+		mcPar.setParamDefaults("MCTS", start.getName(), start.getNumPlayers());
+		mcPar.setNumIter(MCTS_ITERS);
+		MCTSAgentT pa = new MCTSAgentT("MCTS", start, mcPar);
+		run("mctsIteration[" + game + "]", MCTS_ITERS, n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) s += pa.getNextAction2(start, false, true).toInt();
+			return s;
+		});
+	}
+
+	public void benchMaxN(String game, StateObservation start, int depth) {
+		MaxNAgent pa = new MaxNAgent("Max-N", depth, false);
+		run("maxNSearch[" + game + "]", n -> {
+			long s = 0;
+			for (int i = 0; i < n; i++) s += pa.getNextAction2(start, false, true).toInt();
+			return s;
+		});
+	}
+
+	public void benchCompete(String game, StateObservation start) {
+		run("competeNPlayerEpisode[" + game + "]", n -> {
+			PlayAgtVector paVector = new PlayAgtVector(new RandomAgent("Random", SEED),
+					new RandomAgent("Random", SEED + 1));
+			ScoreTuple sc = XArenaFuncs.competeNPlayer(paVector, start, n, 0, null);
+			return Double.doubleToLongBits(sc.scTup[0]);
+		});
+	}
+
+	public void runAll() {
+		benchStateObs("TicTacToe", new StateObserverTTT(), new XNTupleFuncsTTT(), 9);
+		benchStateObs("ConnectFour", new StateObserverC4(), new XNTupleFuncsC4(), 42);
+		benchStateObs("Hex", new StateObserverHex(), new XNTupleFuncsHex(), 100);
+		benchStateObs("Nim", new StateObserverNim(), new XNTupleFuncsNim2P(), 100);
+		benchStateObs("Nim3P", new StateObserverNim3P(), new XNTupleFuncsNim3P(), 100);
+		benchStateObs("Othello", new StateObserverOthello(), new XNTupleFuncsOthello(), 60);
+		benchStateObs("OthelloBB", new StateObserverOthelloBB(), new XNTupleFuncsOthello(), 60);
+		CubeStateFactory.generateInverseTs();		// as in ArenaTrainCube
+		CubeState.generateForwardTs();
+		benchStateObs("RubiksCube", new StateObserverCube(), new XNTupleFuncsCube(), 20);
+		benchStateObs("Sim", new StateObserverSim(), new XNTupleFuncsSim(
+				ConfigSim.NUM_NODES * (ConfigSim.NUM_NODES - 1) / 2, ConfigSim.NUM_PLAYERS + 1, ConfigSim.NUM_PLAYERS), 100);
+		benchStateObs("2048", new StateObserver2048(), new XNTupleFuncs2048(), 200);
+
+		benchNTuple("TicTacToe", new StateObserverTTT(), new XNTupleFuncsTTT(), 9);
+		benchNTuple("ConnectFour", new StateObserverC4(), new XNTupleFuncsC4(), 42);
+
+		benchMCTS("ConnectFour", new StateObserverC4());
+		StateObservation ttt = new StateObserverTTT();
+		ttt.advance(ttt.getAction(0));
+		benchMaxN("TicTacToe", ttt, 9);
+		benchCompete("TicTacToe", new StateObserverTTT());
+	}
+
+	public List<MicroBench.Result> getResults() {
+		return results;
+	}
+
+	public static void writeResults(List<MicroBench.Result> results, String fileName) throws IOException {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(fileName))) {
+			pw.println("# GBG BenchSuite results: name <TAB> ns/op <TAB> stddev (ns)");
+			pw.println("# java " + System.getProperty("java.version") + ", " + System.getProperty("os.name") + " "
+					+ System.getProperty("os.arch") + ", " + Runtime.getRuntime().availableProcessors() + " cores");
+			for (MicroBench.Result r : results)
+				pw.println(String.format(Locale.US, "%s\t%.1f\t%.1f", r.name, r.nsPerOp, r.stdDev));
+		}
+	}
+
+	public static LinkedHashMap<String, Double> readBaseline(String fileName) throws IOException {
+		LinkedHashMap<String, Double> base = new LinkedHashMap<>();
+		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.startsWith("#") || line.trim().isEmpty()) continue;
+				String[] f = line.split("\t");
+				base.put(f[0], Double.parseDouble(f[1]));
+			}
+		}
+		return base;
+	}
+
+	/**
+	 * Compare {@code results} with {@code baseline} and print the ratio for each benchmark.
+	 *
+	 * @return the number of regressions (benchmarks slower than the baseline by more than {@code tol})
+	 */
+	public static int compare(List<MicroBench.Result> results, LinkedHashMap<String, Double> baseline, double tol) {
+		int regressions = 0;
+		System.out.println("\nComparison with baseline (ratio = now / baseline):");
+		for (MicroBench.Result r : results) {
+			Double b = baseline.get(r.name);
+			if (b == null) {
+				System.out.println(String.format(Locale.US, "%-40s   (not in baseline)", r.name));
+				continue;
+			}
+			double ratio = r.nsPerOp / b;
+			boolean regression = ratio > 1 + tol;
+			if (regression) regressions++;
+			System.out.println(String.format(Locale.US, "%-40s %6.2f %s", r.name, ratio,
+					regression ? "REGRESSION" : (ratio < 1 - tol ? "faster" : "")));
+		}
+		return regressions;
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean quick = false;
+		String filter = null, out = null, baseline = "resources/bench/baseline.txt";
+		double tol = 0.25;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-quick": quick = true; break;
+			case "-filter": filter = args[++i]; break;
+			case "-out": out = args[++i]; break;
+			case "-baseline": baseline = args[++i]; break;
+			case "-tol": tol = Double.parseDouble(args[++i]); break;
+			default:
+				System.out.println("Usage: BenchSuite [-quick] [-filter regex] [-out file] [-baseline file] [-tol 0.25]");
+				return;
+			}
+		}
+		MicroBench bench = quick ? new MicroBench(2, 3, 100) : new MicroBench();
+		BenchSuite suite = new BenchSuite(bench, filter);
+		suite.runAll();
+
+		if (out != null)
+			writeResults(suite.getResults(), out);
+		if (new File(baseline).exists() && !baseline.equals(out)) {
+			int regressions = compare(suite.getResults(), readBaseline(baseline), tol);
+			System.out.println(regressions + " regression(s)");
+			if (regressions > 0) System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package tools.bench;
+
+import java.util.Locale;
+
+/**
+ * A small microbenchmark harness in the spirit of JMH (which is not part of GBG's libraries): each benchmark is
+ * an {@link Op} which performs {@code n} operations. The harness calibrates {@code n} so that one iteration takes
+ * about {@link #iterMillis} ms, runs {@link #warmupIters} warmup iterations (to let the JIT compile the hot
+ * paths) and then {@link #measureIters} measured iterations. The result is the mean time per operation and its
+ * standard deviation over the measured iterations.
+ * <p>
+ * To keep the JIT from eliminating the benchmarked code as dead code, each {@link Op} has to return a value
+ * which depends on all its operations; the harness accumulates it in a volatile sink.
+ *
+ * @see BenchSuite
+ */
+public class MicroBench {
+
+	/**
+	 * A benchmarked operation.
+	 */
+	public interface Op {
+		/**
+		 * @param n	the number of operations to perform
+		 * @return a value depending on the results of all operations (sink against dead code elimination)
+		 */
+		long run(int n);
+	}
+
+	public static class Result {
+		public final String name;
+		public final double nsPerOp;
+		public final double stdDev;
+
+		public Result(String name, double nsPerOp, double stdDev) {
+			this.name = name;
+			this.nsPerOp = nsPerOp;
+			this.stdDev = stdDev;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%-40s %14.1f ns/op  +- %5.1f%%", name, nsPerOp, 100*stdDev/nsPerOp);
+		}
+	}
+
+	public int warmupIters = 5;
+	public int measureIters = 10;
+	public long iterMillis = 200;
+
+	private static volatile long sink;
+
+	public MicroBench() { }
+
+	public MicroBench(int warmupIters, int measureIters, long iterMillis) {
+		this.warmupIters = warmupIters;
+		this.measureIters = measureIters;
+		this.iterMillis = iterMillis;
+	}
+
+	public Result run(String name, Op op) {
+		return run(name, 1, op);
+	}
+
+	/**
+	 * Run benchmark {@code op}.
+	 *
+	 * @param name			the benchmark name
+	 * @param opsPerCall	the number of (smaller) operations done by one operation of {@code op}, e.g. the
+	 * 						number of MCTS iterations per search. The result is the time per smaller operation.
+	 * @param op			the benchmark
+	 * @return the mean time (ns) per operation and its standard deviation
+	 */
+	public Result run(String name, int opsPerCall, Op op) {
+		long iterNanos = iterMillis * 1000000L;
+
+		// calibrate n: grow it until one call takes at least a quarter of an iteration, then scale
+		int n = 1;
+		while (true) {
+			long t = System.nanoTime();
+			sink += op.run(n);
+			long d = Math.max(System.nanoTime() - t, 1);
+			if (d >= iterNanos / 4 || n >= (1 << 28)) {
+				n = (int) Math.max(1, Math.min(1 << 28, (double) n * iterNanos / d));
+				break;
+			}
+			n *= 4;
+		}
+
+		for (int i = 0; i < warmupIters; i++)
+			sink += op.run(n);
+
+		System.gc();
+		double[] ns = new double[measureIters];
+		for (int i = 0; i < measureIters; i++) {
+			long t = System.nanoTime();
+			sink += op.run(n);
+			ns[i] = (System.nanoTime() - t) / ((double) n * opsPerCall);
+		}
+		double mean = 0, var = 0;
+		for (double x : ns) mean += x;
+		mean /= measureIters;
+		for (double x : ns) var += (x - mean) * (x - mean);
+		double stdDev = (measureIters > 1) ? Math.sqrt(var / (measureIters - 1)) : 0.0;
+		return new Result(name, mean, stdDev);
+	}
+}
@@ -0,0 +1,93 @@
+package agentIO;
+
+import controllers.PlayAgent;
+import controllers.TD.ntuple2.NTuple2ValueFunc;
+import controllers.TD.ntuple2.NTupleBase;
+import games.GBGBatch;
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AgentBinaryIOTest extends GBGBatch {
+    String selectedGame = "TicTacToe";
+    String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+
+    /**
+     * An agent saved and loaded as {@code .agt.bin} (see {@link AgentBinaryIO}) should have the same weights and
+     * values as the same agent saved and loaded as {@code .agt.zip}. Check this for a trained TicTacToe
+     * TD-Ntuple-3 agent via {@link LoadSaveGBG}, for the conversion between both formats and for float weights
+     * (nearly the same values).
+     */
+    @Test
+    public void roundTripTest() throws Exception {
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);
+        PlayAgent pa = t_Game.m_xfun.constructAgent(0, "TD-Ntuple-3", t_Game.m_xab);
+        for (int n = 0; n < 300; n++)
+            pa.trainAgent(new StateObserverTTT());
+        double[] w = ((NTupleBase) pa).getNTupleValueFunc().getWeightStore();
+
+        File dir = new File(System.getProperty("java.io.tmpdir"));
+        File zip = File.createTempFile("agt", ".agt.zip", dir);
+        File bin = File.createTempFile("agt", AgentBinaryIO.SUFFIX, dir);
+        File binConv = File.createTempFile("agt", AgentBinaryIO.SUFFIX, dir);
+        File zipConv = File.createTempFile("agt", ".agt.zip", dir);
+        File binFloat = File.createTempFile("agt", AgentBinaryIO.SUFFIX, dir);
+        try {
+            t_Game.tdAgentIO.saveGBGAgent(pa, zip.getPath());
+            t_Game.tdAgentIO.saveGBGAgent(pa, bin.getPath());
+            AgentBinaryIO.convertToBinary(zip.getPath(), binConv.getPath(), false, true);
+            AgentBinaryIO.convertToZip(bin.getPath(), zipConv.getPath());
+            AgentBinaryIO.saveAgent(pa, binFloat.getPath(), true, false);
+
+            NTuple2ValueFunc vZip = load(zip);
+            assertArrayEquals(w, vZip.getWeightStore(), 0.0);
+            ArrayList<StateObservation> sos = randomStatesTTT(500);
+            for (File f : new File[]{bin, binConv, zipConv}) {
+                NTuple2ValueFunc vf = load(f);
+                assertArrayEquals(f.getName() + ": weights differ", vZip.getWeightStore(), vf.getWeightStore(), 0.0);
+                assertScores(f.getName(), vZip, vf, sos, 0.0);
+            }
+            assertScores(binFloat.getName(), vZip, load(binFloat), sos, 1e-6);
+        } finally {
+            for (File f : new File[]{zip, bin, binConv, zipConv, binFloat})
+                f.delete();
+        }
+    }
+
+    private NTuple2ValueFunc load(File f) throws Exception {
+        PlayAgent qa = t_Game.tdAgentIO.loadGBGAgent(f.getPath());
+        assertNotNull(f.getName() + ": no agent loaded", qa);
+        return ((NTupleBase) qa).getNTupleValueFunc();
+    }
+
+    private static void assertScores(String msg, NTuple2ValueFunc expected, NTuple2ValueFunc actual,
+                                     ArrayList<StateObservation> sos, double delta) {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        for (StateObservation s : sos) {
+            StateObsWithBoardVector sowb = new StateObsWithBoardVector(s, xnf);
+            assertEquals(msg + ": getScoreI differs for " + s.stringDescr(), expected.getScoreI(sowb, s.getPlayer()),
+                    actual.getScoreI(sowb, s.getPlayer()), delta);
+        }
+    }
+
+    private static ArrayList<StateObservation> randomStatesTTT(int n) {
+        ArrayList<StateObservation> sos = new ArrayList<>();
+        Random r = new Random(42);
+        StateObservation so = new StateObserverTTT();
+        while (sos.size() < n) {
+            if (so.isGameOver()) so = new StateObserverTTT();
+            sos.add(so.copy());
+            so.advance(so.getAction(r.nextInt(so.getNumAvailableActions())));
+        }
+        return sos;
+    }
+}
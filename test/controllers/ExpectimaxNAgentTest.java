@@ -0,0 +1,55 @@
+package controllers;
+
+import games.StateObservation;
+import games.ZweiTausendAchtundVierzig.StateObserver2048;
+import org.junit.Test;
+import params.ParMaxN;
+import params.ParOther;
+import tools.Types;
+
+import static org.junit.Assert.*;
+
+public class ExpectimaxNAgentTest {
+
+    /**
+     * The parallel root search with 2 and 4 wrapper threads should give the same action values and the same best
+     * value as the sequential search, and the same best action if it is unique. Check this for fixed 2048 positions (with and without transposition table).
+     * The 2048 board has 4 bits per cell, the lowest nibble is the lower right cell.
+     */
+    @Test
+    public void rootParallelTest() {
+        long[] boards = {0x0000_0100_0210_1232L, 0x1200_0310_0021_2000L, 0x2341_0123_0012_0001L};
+        for (boolean useTT : new boolean[]{false, true}) {
+            for (long board : boards) {
+                Types.ACTIONS_VT seq = search(new StateObserver2048(board), 1, useTT);
+                for (int numThreads : new int[]{2, 4}) {
+                    Types.ACTIONS_VT par = search(new StateObserver2048(board), numThreads, useTT);
+                    String msg = Long.toHexString(board) + ", " + numThreads + " threads, useTT=" + useTT;
+                    assertArrayEquals(msg, seq.getVTable(), par.getVTable(), 1e-10);
+                    assertEquals(msg, seq.getVBest(), par.getVBest(), 1e-10);
+                    if (isUniqueBest(seq))
+                        assertEquals(msg, seq.toInt(), par.toInt());
+                }
+            }
+        }
+    }
+
+    private static Types.ACTIONS_VT search(StateObservation so, int numThreads, boolean useTT) {
+        ParMaxN mPar = new ParMaxN();
+        mPar.setMaxNDepth(3);
+        mPar.setMaxNUseHashmap(useTT);
+        ParOther oPar = new ParOther();
+        oPar.setWrapperThreads(numThreads);
+        return new ExpectimaxNAgent("Expectimax", mPar, oPar).getNextAction2(so, false, true);
+    }
+
+    /**
+     * @return true, if only one action has the best value (otherwise ties are broken randomly)
+     */
+    static boolean isUniqueBest(Types.ACTIONS_VT act) {
+        int n = 0;
+        for (int i = 0; i < act.getVTable().length - 1; i++)
+            if (act.getVTable()[i] == act.getVBest()) n++;
+        return n == 1;
+    }
+}
@@ -0,0 +1,158 @@
+package controllers.MCTS;
+
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import org.junit.Test;
+import params.ParMCTS;
+import tools.ElapsedCpuTimer;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SingleMCTSPlayerTest {
+
+    /**
+     * Tree-parallel search (see {@link SingleTreeNode#mctsSearchParallel}) with 1, 2 and 4 threads should
+     * return a legal action and should merge the visits of all threads into the shared tree: the root is visited
+     * once per iteration and each root visit passes through one of the root children.
+     */
+    @Test
+    public void treeParallelTest() {
+        int numIters = 2000;
+        for (int numThreads : new int[]{1, 2, 4}) {
+            ParMCTS par = new ParMCTS();
+            par.setNumIter(numIters);
+            par.setParallelMode(ParMCTS.PARALLEL_TREE);
+            par.setNumThreads(numThreads);
+            par.setReuseNodes(0);
+            StateObservation so = new StateObserverTTT();
+            SingleMCTSPlayer player = new SingleMCTSPlayer(new MCTSAgentT("MCTS", so, par), new Random(42), par);
+            for (int m = 0; m < 3; m++) {
+                player.initActions(so);
+                player.init(so);
+                double[] vtable = new double[so.getNumAvailableActions() + 1];
+                int action = player.run(timer(), vtable);
+                assertTrue("illegal action " + action, action >= 0 && action < so.getNumAvailableActions());
+                assertEquals(so.getAction(action).toInt(), player.actions[action].toInt());
+
+                SingleTreeNode root = player.m_root;
+                assertEquals(numIters, player.getLastIterations());
+                assertEquals(numIters, root.getNVisits());
+                int childVisits = 0;
+                for (SingleTreeNode c : root.children)
+                    if (c != null) childVisits += c.getNVisits();
+                assertEquals(root.getNVisits(), childVisits);
+
+                so.advance(player.actions[action]);
+            }
+        }
+    }
+
+    /**
+     * With tree reuse, {@link SingleMCTSPlayer#init(StateObservation)} should promote the node reached by our
+     * last move and the opponent's reply to the new root, with all visit counts of its subtree. The next search
+     * adds its iterations to them. Check this for sequential and root-parallel search (where all trees are reused).
+     */
+    @Test
+    public void reuseTest() {
+        int numIters = 2000;
+        for (int mode : new int[]{ParMCTS.PARALLEL_NONE, ParMCTS.PARALLEL_ROOT}) {
+            ParMCTS par = new ParMCTS();
+            par.setNumIter(numIters);
+            par.setReuseNodes(100000);
+            par.setParallelMode(mode);
+            par.setNumThreads(mode == ParMCTS.PARALLEL_NONE ? 1 : 2);
+            StateObservation so = new StateObserverTTT();
+            SingleMCTSPlayer player = new SingleMCTSPlayer(new MCTSAgentT("MCTS", so, par), new Random(42), par);
+            player.initActions(so);
+            player.init(so);
+            int action = player.run(timer(), new double[so.getNumAvailableActions() + 1]);
+            assertEquals(0, player.getLastReusedNodes());
+
+            SingleTreeNode reply = mostVisitedChild(player.m_root.children[action]);
+            int[] childVisits = new int[reply.children.length];
+            int visits = 0;
+            for (int i = 0; i < childVisits.length; i++) {
+                childVisits[i] = (reply.children[i] == null) ? 0 : reply.children[i].getNVisits();
+                visits += childVisits[i];
+            }
+            assertEquals(countNodes(reply), reply.numDescendants());
+            int nodes = reply.numDescendants();
+
+            so.advance(player.actions[action]);
+            so.advance(reply.m_act);
+            player.initActions(so);
+            player.init(so);
+            assertSame(reply, player.m_root);
+            assertNull(reply.parent);
+            assertEquals(visits, reply.getNVisits());
+            for (int i = 0; i < childVisits.length; i++)
+                assertEquals(childVisits[i], (reply.children[i] == null) ? 0 : reply.children[i].getNVisits());
+            if (mode == ParMCTS.PARALLEL_NONE)
+                assertEquals(nodes, player.getLastReusedNodes());
+            else
+                assertTrue(player.getLastReusedNodes() > nodes);      // the subtrees of both trees
+
+            player.run(timer(), new double[so.getNumAvailableActions() + 1]);
+            if (mode == ParMCTS.PARALLEL_NONE) {
+                assertEquals(visits + numIters, player.m_root.getNVisits());
+                assertEquals(countNodes(player.m_root), player.m_root.numDescendants());
+            }
+        }
+    }
+
+    /**
+     * Without tree reuse (the default), each search should start with a new tree: a player which searches all moves
+     * of a game gives the same actions and values as a new player for each move (with the same random numbers).
+     */
+    @Test
+    public void noReuseTest() {
+        int numIters = 500;
+        assertEquals(0, new ParMCTS().getReuseNodes());
+        ParMCTS par = new ParMCTS();
+        par.setNumIter(numIters);
+        Random rndA = new Random(7), rndB = new Random(7);
+        StateObservation so = new StateObserverTTT();
+        SingleMCTSPlayer playerA = new SingleMCTSPlayer(new MCTSAgentT("MCTS", so, par), rndA, par);
+        while (!so.isGameOver()) {
+            SingleMCTSPlayer playerB = new SingleMCTSPlayer(new MCTSAgentT("MCTS", so, par), rndB, par);
+            double[] vtableA = new double[so.getNumAvailableActions() + 1];
+            double[] vtableB = new double[so.getNumAvailableActions() + 1];
+            playerA.initActions(so);
+            playerA.init(so);
+            int actionA = playerA.run(timer(), vtableA);
+            playerB.initActions(so);
+            playerB.init(so);
+            int actionB = playerB.run(timer(), vtableB);
+            assertEquals(actionB, actionA);
+            assertArrayEquals("move " + so.getMoveCounter(), vtableB, vtableA, 0.0);
+            assertEquals(0, playerA.getLastReusedNodes());
+            assertEquals(numIters, playerA.m_root.getNVisits());
+            so.advance(playerA.actions[actionA]);
+        }
+    }
+
+    private static SingleTreeNode mostVisitedChild(SingleTreeNode node) {
+        SingleTreeNode best = null;
+        for (SingleTreeNode c : node.children)
+            if (c != null && (best == null || c.getNVisits() > best.getNVisits())) best = c;
+        return best;
+    }
+
+    private static int countNodes(SingleTreeNode node) {
+        int n = 1;
+        for (SingleTreeNode c : node.children)
+            if (c != null) n += countNodes(c);
+        return n;
+    }
+
+    /**
+     * @return a timer as in {@link MCTSAgentT} for an iteration-based search
+     */
+    private static ElapsedCpuTimer timer() {
+        ElapsedCpuTimer timer = new ElapsedCpuTimer();
+        timer.setMaxTimeMillis(40);
+        return timer;
+    }
+}
@@ -4,8 +4,17 @@ import games.GBGBatch;
 import games.RubiksCube.GameBoardCube;
 import games.StateObservation;
 import org.junit.Test;
+import params.ParOther;
 import tools.Types;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
 public class MaxN2WrapperTest extends GBGBatch {
     String selectedGame = "RubiksCube";
     String[] agtFile = {"davi2-p11-2000k.agt.zip","davi3-p11-2000k-120-7t-BASE.agt.zip"};
@@ -54,6 +63,74 @@ public class MaxN2WrapperTest extends GBGBatch {
         } // for (k)
     }
 
+    /**
+     * The parallel root search of MaxN2Wrapper (2 and 4 wrapper threads) should give the same action values and
+     * the same best value as the sequential search. Check this for a TicTacToe TD-Ntuple-3 agent (thread-safe)
+     * trained for a few episodes, on all positions of a fixed game.
+     */
+    @Test
+    public void rootParallelTest() {
+        String game = "TicTacToe";
+        t_Game = GBGBatch.setupSelectedGame(game, GBGBatch.setDefaultScaPars(game));
+        PlayAgent pa = t_Game.m_xfun.constructAgent(0, "TD-Ntuple-3", t_Game.m_xab);
+        StateObservation start = t_Game.getGameBoard().getDefaultStartState();
+        for (int i = 0; i < 300; i++) pa.trainAgent(start.copy());
+        assert pa.isThreadSafe() : "wrapped agent is not thread-safe";
+
+        int[] moves = {4, 0, 8, 2};
+        StateObservation so = start.copy();
+        for (int m = 0; m <= moves.length; m++) {
+            Types.ACTIONS_VT seq = wrap(pa, 1).getNextAction2(so.copy(), false, true);
+            for (int numThreads : new int[]{2, 4}) {
+                Types.ACTIONS_VT par = wrap(pa, numThreads).getNextAction2(so.copy(), false, true);
+                String msg = "move " + m + ", " + numThreads + " threads";
+                assertArrayEquals(msg, seq.getVTable(), par.getVTable(), 1e-10);
+                assertEquals(msg, seq.getVBest(), par.getVBest(), 1e-10);
+                if (ExpectimaxNAgentTest.isUniqueBest(seq))
+                    assertEquals(msg, seq.toInt(), par.toInt());
+            }
+            if (m < moves.length) so.advance(new Types.ACTIONS(moves[m]));
+        }
+    }
+
+    /**
+     * MaxN2Wrapper is not thread-safe (each search starts a new search in its transposition table), but has a
+     * thread instance, if the wrapped agent has one. Concurrent searches of thread instances should give the same
+     * values as the sequential search.
+     */
+    @Test
+    public void threadInstanceTest() throws Exception {
+        String game = "TicTacToe";
+        t_Game = GBGBatch.setupSelectedGame(game, GBGBatch.setDefaultScaPars(game));
+        PlayAgent pa = t_Game.m_xfun.constructAgent(0, "TD-Ntuple-3", t_Game.m_xab);
+        StateObservation start = t_Game.getGameBoard().getDefaultStartState();
+        for (int i = 0; i < 100; i++) pa.trainAgent(start.copy());
+        MaxN2Wrapper qa = wrap(pa, 1);
+        assertFalse(qa.isThreadSafe());
+        assertNotNull(qa.getThreadInstance());
+        assertNotSame(qa, qa.getThreadInstance());
+
+        double[] vtable = qa.getNextAction2(start.copy(), false, true).getVTable();
+        ExecutorService ex = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                PlayAgent qt = qa.getThreadInstance();
+                futures.add(ex.submit(() -> qt.getNextAction2(start.copy(), false, true).getVTable()));
+            }
+            for (Future<double[]> f : futures)
+                assertArrayEquals(vtable, f.get(), 1e-10);
+        } finally {
+            ex.shutdown();
+        }
+    }
+
+    private static MaxN2Wrapper wrap(PlayAgent pa, int numThreads) {
+        ParOther oPar = new ParOther(pa.getParOther());
+        oPar.setWrapperThreads(numThreads);
+        return new MaxN2Wrapper(pa, 3, oPar);
+    }
+
 
 
 }
\ No newline at end of file
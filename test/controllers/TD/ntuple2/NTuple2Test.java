@@ -0,0 +1,59 @@
+package controllers.TD.ntuple2;
+
+import org.junit.Test;
+import params.ParNT;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class NTuple2Test {
+
+    /**
+     * Within one update step (between two calls of {@link NTuple2#clearIndices()}) each LUT index may be
+     * changed only once by {@link NTuple2#updateNew(int[], double, double, double)}, even if it is visited
+     * several times (equivalent boards). Check this against a reference with a {@link HashSet} of the visited
+     * indices on random update sequences. The steps visit up to all 81 indices, so that the visited-set has to grow.
+     */
+    @Test
+    public void visitedSetTest() {
+        int[] nTuple = {0, 1, 2, 3};
+        int posVals = 3;
+        NTuple2 nt = new NTuple2(nTuple, posVals, new ParNT());
+        double[] ref = new double[nt.getWeights().length];
+        Random rand = new Random(42);
+
+        for (int step = 0; step < 200; step++) {
+            Set<Integer> visited = new HashSet<>();
+            int nVisits = 1 + rand.nextInt(step % 10 == 0 ? 400 : 20);
+            double delta = rand.nextDouble() - 0.5;
+            for (int v = 0; v < nVisits; v++) {
+                int[] board = new int[nTuple.length];
+                for (int i = 0; i < board.length; i++) board[i] = rand.nextInt(posVals);
+                nt.updateNew(board, 0.1, delta, 1.0);
+                if (visited.add(nt.getIndex(board)))
+                    ref[nt.getIndex(board)] += 0.1 * delta;
+            }
+            nt.clearIndices();
+            assertArrayEquals("step " + step, ref, nt.getWeights(), 0.0);
+        }
+    }
+
+    /**
+     * An update with ALPHA=1 for a board visited twice in one step should change its weight only once,
+     * after {@link NTuple2#clearIndices()} the next update changes it again.
+     */
+    @Test
+    public void clearIndicesTest() {
+        NTuple2 nt = new NTuple2(new int[]{0, 1, 2}, 3, new ParNT());
+        int[] board = {2, 0, 1};
+        nt.updateNew(board, 1.0, 0.5, 1.0);
+        nt.updateNew(board, 1.0, 0.5, 1.0);
+        assertEquals(0.5, nt.getWeights()[nt.getIndex(board)], 0.0);
+        nt.clearIndices();
+        nt.updateNew(board, 1.0, 0.5, 1.0);
+        assertEquals(1.0, nt.getWeights()[nt.getIndex(board)], 0.0);
+    }
+}
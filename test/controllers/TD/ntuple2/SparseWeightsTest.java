@@ -0,0 +1,71 @@
+package controllers.TD.ntuple2;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SparseWeightsTest {
+
+    /**
+     * {@link SparseWeights} should behave like a map with default value for random puts and adds (including
+     * keys of the form {@code (n<<32)|index}), also while it grows.
+     */
+    @Test
+    public void mapTest() {
+        SparseWeights sw = new SparseWeights(0.5);
+        HashMap<Long, Double> ref = new HashMap<>();
+        Random rand = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = ((long) rand.nextInt(8) << 32) | rand.nextInt(3000);
+            double v = rand.nextDouble();
+            if (rand.nextBoolean()) {
+                sw.put(key, v);
+                ref.put(key, v);
+            } else {
+                sw.add(key, v);
+                ref.put(key, ref.getOrDefault(key, 0.5) + v);
+            }
+        }
+        assertEquals(ref.size(), sw.size());
+        assertEquals(ref.size(), sw.keys().length);
+        for (long key : sw.keys())
+            assertEquals(ref.get(key), sw.get(key), 0.0);
+        assertEquals(0.5, sw.get(4711L << 32), 0.0);
+    }
+
+    /**
+     * A map with a memory budget should grow up to the budget. New keys which would exceed it should be dropped
+     * (they keep the default value, the map is full); existing keys can still be changed. {@link SparseWeights#clear()}
+     * makes the map usable again.
+     */
+    @Test
+    public void budgetTest() {
+        SparseWeights sw = new SparseWeights(0.0, 32 * 1024);      // up to 2048 slots of 16 bytes
+        for (long key = 0; key < 100000; key++) {
+            sw.add(key, 1.0);
+            assertEquals("key " + key, key < 1024, !sw.isFull());      // load factor <= 1/2
+        }
+        assertEquals(1024, sw.size());
+        assertTrue(sw.memoryBytes() <= sw.getMaxBytes());
+        assertEquals(1.0, sw.get(1023), 0.0);
+        assertEquals(0.0, sw.get(1024), 0.0);
+        sw.put(5000, 3.0);
+        assertEquals(0.0, sw.get(5000), 0.0);
+        sw.add(7, 1.0);
+        assertEquals(2.0, sw.get(7), 0.0);
+        sw.clear();
+        assertFalse(sw.isFull());
+        sw.put(5000, 3.0);
+        assertEquals(3.0, sw.get(5000), 0.0);
+        long key;
+
+        SparseWeights unbounded = new SparseWeights(0.0);
+        for (key = 0; key < 100000; key++)
+            unbounded.add(key, 1.0);
+        assertEquals(100000, unbounded.size());
+        assertEquals(0, unbounded.getMaxBytes());
+    }
+}
@@ -2,12 +2,24 @@ package controllers.TD.ntuple2;
 
 import controllers.MaxN2Wrapper;
 import controllers.PlayAgent;
+import games.BoardVector;
 import games.GBGBatch;
 import games.RubiksCube.GameBoardCube;
+import games.StateObsWithBoardVector;
 import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
 import org.junit.Test;
+import params.ParNT;
+import params.ParOther;
+import params.ParTD;
 import tools.Types;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class TDNTuple3AgtTest extends GBGBatch {
@@ -64,4 +76,220 @@ public class TDNTuple3AgtTest extends GBGBatch {
         } // for (k)
     }
 
+    /**
+     * Training with sparse LUTs (see {@link ParNT#getSparseLut()}) should result in exactly the same weights and
+     * values as training with dense LUTs. Check this for TicTacToe with TD(lambda) updates on random states,
+     * with and without TC.
+     */
+    @Test
+    public void sparseLutTest() throws Exception {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        ArrayList<StateObservation> sos = randomStatesTTT(2000);
+        for (boolean tc : new boolean[]{false, true}) {
+            double[][] values = new double[2][sos.size()];
+            for (int sp = 0; sp < 2; sp++) {
+                NTuple2ValueFunc vf = trainTTT(tc, sp == 1, sos).getNTupleValueFunc();
+                assertEquals(sp == 1, vf.isSparse());
+                for (int k = 0; k < sos.size(); k++)
+                    values[sp][k] = vf.getScoreI(new StateObsWithBoardVector(sos.get(k), xnf), sos.get(k).getPlayer());
+            }
+            assertArrayEquals("tc=" + tc + ": sparse and dense LUT values differ", values[0], values[1], 0.0);
+        }
+    }
+
+    /**
+     * The TC accumulators of sparse LUTs (see {@link NTuple2}) are updated with every weight update (immediate TC).
+     * Training episodes with TC through {@link TDNTuple3Agt#trainAgent(StateObservation)} (with exploration, both
+     * agents with the same random generator) should then give the same values with sparse and dense LUTs.
+     */
+    @Test
+    public void sparseTrainTCTest() throws Exception {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        ArrayList<StateObservation> sos = randomStatesTTT(2000);
+        double[][] values = new double[2][sos.size()];
+        for (int sp = 0; sp < 2; sp++) {
+            TDNTuple3Agt pa = trainTTT(true, sp == 1, sos);
+            pa.rand = new Random(42);
+            for (int i = 0; i < 200; i++)
+                pa.trainAgent(new StateObserverTTT());
+            NTuple2ValueFunc vf = pa.getNTupleValueFunc();
+            assertTrue(vf.getTcImm());
+            for (int k = 0; k < sos.size(); k++)
+                values[sp][k] = vf.getScoreI(new StateObsWithBoardVector(sos.get(k), xnf), sos.get(k).getPlayer());
+        }
+        assertArrayEquals("sparse and dense LUT values differ", values[0], values[1], 0.0);
+    }
+
+    /**
+     * A frozen copy (see {@link NTupleInference#freeze(PlayAgent, NTuple2ValueFunc.Precision)}) should return nearly
+     * the same values as the original agent, should not be trainable and should leave the original unchanged.
+     * <p>
+     * For INT16 each frozen weight should be within half a scale step of the original weight (the scale of a LUT is
+     * its largest absolute weight / 32767), so that each value is within the sum of these bounds over all weights it
+     * adds up. Whenever the best action of the original agent is better than the second best by more than twice this
+     * quantization error, the frozen agent should choose the same action.
+     */
+    @Test
+    public void freezeTest() throws Exception {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        ArrayList<StateObservation> sos = randomStatesTTT(2000);
+        TDNTuple3Agt pa = trainTTT(false, false, sos);
+        NTuple2ValueFunc vp = pa.getNTupleValueFunc();
+        for (NTuple2ValueFunc.Precision prec : NTuple2ValueFunc.Precision.values()) {
+            PlayAgent qa = NTupleInference.freeze(pa, prec);
+            NTuple2ValueFunc vq = NTupleInference.findNTupleAgent(qa).getNTupleValueFunc();
+            assertEquals(prec, vq.getPrecision());
+            assertFalse(qa.isTrainable());
+            assertTrue(pa.isTrainable());
+
+            // the error bound of each frozen weight and, added up over the weights of a value, of each value:
+            NTuple2[] ntp = vp.getNTuples(), ntq = vq.getNTuples();
+            double valueErr = 0.0;
+            for (int n = 0; n < ntp.length; n++) {
+                double[] w = ntp[n].getWeights();
+                double maxAbs = 0.0;
+                for (double x : w) maxAbs = Math.max(maxAbs, Math.abs(x));
+                double weightErr = (prec == NTuple2ValueFunc.Precision.INT16) ? maxAbs / Short.MAX_VALUE / 2 : 0.0;
+                weightErr = weightErr * (1 + 1e-6) + 1e-7 * maxAbs;        // float rounding of weights and scale
+                for (int k = 0; k < w.length; k++) {
+                    double wq = ntq[n].getWeight(k);
+                    assertTrue(prec + ": weight exceeds the LUT scale", Math.abs(wq) <= maxAbs * (1 + 1e-6));
+                    assertEquals(prec + ": weight " + k + " of n-tuple " + n, w[k], wq, weightErr);
+                }
+                valueErr = Math.max(valueErr, weightErr);
+            }
+            valueErr *= (ntp.length / xnf.getNumPlayers()) * xnf.getNumSymmetries();
+
+            int numChecked = 0;
+            for (StateObservation s : sos) {
+                StateObsWithBoardVector sowb = new StateObsWithBoardVector(s, xnf);
+                assertEquals(prec + ": values differ", vp.getScoreI(sowb, s.getPlayer()),
+                        vq.getScoreI(sowb, s.getPlayer()), valueErr);
+                if (s.isGameOver()) continue;
+                double[] vtp = pa.getNextAction2(s, false, true).getVTable();
+                Types.ACTIONS_VT actQ = qa.getNextAction2(s, false, true);
+                double[] vtq = actQ.getVTable();
+                int best = 0;
+                double second = -Double.MAX_VALUE;
+                for (int i = 0; i < vtp.length; i++) {
+                    assertEquals(prec + ": action values differ", vtp[i], vtq[i], valueErr);
+                    if (vtp[i] > vtp[best]) best = i;
+                }
+                for (int i = 0; i < vtp.length; i++)
+                    if (i != best) second = Math.max(second, vtp[i]);
+                if (vtp[best] - second > 2 * valueErr) {
+                    assertEquals(prec + ": frozen agent chooses another action", s.getAction(best).toInt(),
+                            actQ.toInt());
+                    numChecked++;
+                }
+            }
+            assertTrue(prec + ": no state with a clear best action", numChecked > 0);
+        }
+    }
+
+    /**
+     * The TD(lambda) update with the cached LUT indices of the eligibility trace (see {@code NTuple2ValueFunc.update})
+     * should result in exactly the same weights as the update without cache, which recalculates the equivalent
+     * boards of each trace step and updates each n-tuple with {@link NTuple2#updateNew(int[], double, double, double)}.
+     * Check this for TicTacToe with all symmetries, with nSym=2 and without symmetries, each with and without TC.
+     */
+    @Test
+    public void eligTraceTest() throws Exception {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        ArrayList<StateObservation> sos = randomStatesTTT(2000);
+        for (int nSym : new int[]{0, 2, -1}) {         // -1: no symmetries
+            for (boolean tc : new boolean[]{false, true}) {
+                NTuple2ValueFunc vf = newAgentTTT(tc, false, nSym).getNTupleValueFunc();
+                NTuple2ValueFunc vr = newAgentTTT(tc, false, nSym).getNTupleValueFunc();
+                NTuple2[] nt = vr.getNTuples();
+                int numPlayers = xnf.getNumPlayers(), numTuples = nt.length / numPlayers;
+                ArrayList<LinkedList<BoardVector[]>> traces = new ArrayList<>();
+                for (int p = 0; p < numPlayers; p++) traces.add(new LinkedList<>());
+                for (int k = 0; k < sos.size(); k++) {
+                    StateObservation s = sos.get(k);
+                    StateObsWithBoardVector sowb = new StateObsWithBoardVector(s, xnf);
+                    double target = 0.3 * (k % 3 - 1);
+                    vf.updateWeightsTD(sowb, s.getPlayer(), 0.0, target, 0.0, s);
+
+                    // the update without cache (vLast=0: delta=target, sigmoid derivative 1):
+                    BoardVector[] equiv = (nSym < 0) ? new BoardVector[]{sowb.getBoardVector()}
+                            : xnf.symmetryVectors(sowb, nSym == 0 ? xnf.getNumSymmetries() : nSym);
+                    LinkedList<BoardVector[]> trace = traces.get(s.getPlayer());
+                    trace.addFirst(equiv);
+                    if (trace.size() > vr.getHorizon()) trace.removeLast();
+                    double alphaM = vr.getAlpha() / (numTuples * equiv.length);
+                    double lamFactor = 1;
+                    for (BoardVector[] eq : trace) {
+                        for (int i = 0; i < numTuples; i++) {
+                            NTuple2 t = nt[i * numPlayers + s.getPlayer()];
+                            t.clearIndices();
+                            for (BoardVector bv : eq)
+                                t.updateNew(bv.bvec, alphaM, target, lamFactor);
+                        }
+                        lamFactor *= vr.getLambda();
+                    }
+
+                    if (k % 7 == 0) {
+                        vf.clearEligList();
+                        for (LinkedList<BoardVector[]> tr : traces) tr.clear();
+                    }
+                }
+                assertArrayEquals("nSym=" + nSym + ", tc=" + tc + ": weights differ", vr.getWeightStore(),
+                        vf.getWeightStore(), 0.0);
+            }
+        }
+    }
+
+    private static ArrayList<StateObservation> randomStatesTTT(int n) {
+        ArrayList<StateObservation> sos = new ArrayList<>();
+        Random r = new Random(42);
+        StateObservation so = new StateObserverTTT();
+        while (sos.size() < n) {
+            if (so.isGameOver()) so = new StateObserverTTT();
+            sos.add(so.copy());
+            so.advance(so.getAction(r.nextInt(so.getNumAvailableActions())));
+        }
+        return sos;
+    }
+
+    /**
+     * @param tc      temporal coherence
+     * @param sparse  sparse LUTs (see {@link ParNT#getSparseLut()})
+     * @param nSym    the number of symmetries used (0: all, -1: no symmetries)
+     * @return an untrained TicTacToe agent with TD(lambda) and a horizon
+     */
+    private static TDNTuple3Agt newAgentTTT(boolean tc, boolean sparse, int nSym) throws Exception {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        ParTD tdPar = new ParTD();
+        ParNT ntPar = new ParNT();
+        tdPar.setParamDefaults("TD-Ntuple-3", "TicTacToe");
+        ntPar.setParamDefaults("TD-Ntuple-3", "TicTacToe");
+        tdPar.setLambda(0.8);
+        ntPar.setRandomness(false);
+        ntPar.setTc(tc);
+        ntPar.setSparseLut(sparse);
+        ntPar.setUSESYMMETRY(nSym >= 0);
+        ntPar.setNSym(Math.max(nSym, 0));
+        int[][] nTuples = new NTupleFactory().makeNTupleSet(ntPar, xnf);
+        TDNTuple3Agt pa = new TDNTuple3Agt("TD-Ntuple-3", tdPar, ntPar, new ParOther(), nTuples, xnf, 1000);
+        pa.getNTupleValueFunc().setHorizon();
+        return pa;
+    }
+
+    /**
+     * @return a TicTacToe agent (all symmetries) trained with TD(lambda) updates on the states {@code sos} (with
+     *         artificial rewards)
+     */
+    private static TDNTuple3Agt trainTTT(boolean tc, boolean sparse, ArrayList<StateObservation> sos) throws Exception {
+        XNTupleFuncs xnf = new XNTupleFuncsTTT();
+        TDNTuple3Agt pa = newAgentTTT(tc, sparse, 0);
+        NTuple2ValueFunc vf = pa.getNTupleValueFunc();
+        for (int k = 0; k < sos.size(); k++) {
+            StateObservation s = sos.get(k);
+            vf.updateWeightsTD(new StateObsWithBoardVector(s, xnf), s.getPlayer(), 0.0, 0.3 * (k % 3 - 1), 0.0, s);
+            if (k % 7 == 0) vf.clearEligList();
+        }
+        return pa;
+    }
+
 }
\ No newline at end of file
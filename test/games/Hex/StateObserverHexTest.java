@@ -0,0 +1,50 @@
+package games.Hex;
+
+import org.junit.Test;
+import tools.Types;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StateObserverHexTest {
+
+    /**
+     * Play random games on several board sizes and check after each move that the incremental (union-find)
+     * win detection of {@link StateObserverHex} agrees with the chain search of
+     * {@link HexUtils#getWinner(HexTile[][], HexTile)} on the board of {@link StateObserverHex#getBoard()}.
+     * Since Hex has no draws, each game has to end with a win.
+     */
+    @Test
+    public void testWinnerSameAsChainSearch() {
+        int boardSize = HexConfig.BOARD_SIZE;
+        Random rand = new Random(42);
+        try {
+            for (int n = 2; n <= 7; n++) {
+                HexConfig.BOARD_SIZE = n;
+                HexConfig.TILE_COUNT = n * n;
+                for (int g = 0; g < 100; g++) {
+                    StateObserverHex so = new StateObserverHex();
+                    while (true) {
+                        StateObserverHex ref = so.copy();       // a copy, so that so itself stays without board
+                        HexTile last = ref.getLastUpdatedTile();
+                        boolean chainWins = (last != null
+                                && HexUtils.getWinner(ref.getBoard(), last) == Types.WINNER.PLAYER_WINS);
+                        assertEquals(chainWins || so.getNumAvailableActions() == 0, so.isGameOver());
+                        if (so.isGameOver()) {
+                            assertTrue(chainWins);
+                            assertEquals(HexConfig.REWARD_NEGATIVE, so.getGameScore(so), 0.0);
+                            break;
+                        }
+                        so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+                        assertTrue(so.isLegalState());
+                        assertEquals(ref.getNumAvailableActions() - 1, so.getNumAvailableActions());
+                    }
+                }
+            }
+        } finally {
+            HexConfig.BOARD_SIZE = boardSize;
+            HexConfig.TILE_COUNT = boardSize * boardSize;
+        }
+    }
+}
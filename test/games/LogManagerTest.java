@@ -0,0 +1,118 @@
+package games;
+
+import games.TicTacToe.StateObserverTTT;
+import games.ZweiTausendAchtundVierzig.StateObserver2048;
+import org.junit.Test;
+import tools.Types;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class LogManagerTest {
+
+    /**
+     * With advanced logging, ending a session and calling {@link LogManager#flush()} should leave one final
+     * .gamelog file (and no temp log) which holds the start state and all moves of the game. Check this for a
+     * deterministic game (TicTacToe, the states are reconstructed from the actions) and a nondeterministic game
+     * (2048, the states are stored).
+     */
+    @Test
+    public void advancedLoggingTest() throws Exception {
+        File dir = Files.createTempDirectory("gbglogs").toFile();
+        try {
+            LogManager lm = new LogManager(dir.getPath() + "/logs", dir.getPath() + "/temp");
+            lm.loggingEnabled = true;
+            lm.advancedLogging = true;
+            lm.verbose = false;
+            checkLog(lm, dir, new StateObserverTTT());
+            checkLog(lm, dir, new StateObserver2048());
+            assertFalse(lm.running());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * The writer thread should not be a daemon (pending logs are written before a normal JVM exit), but it should
+     * terminate when idle, so that it does not keep the JVM alive.
+     */
+    @Test
+    public void writerThreadTest() throws Exception {
+        File dir = Files.createTempDirectory("gbglogs").toFile();
+        try {
+            LogManager lm = new LogManager(dir.getPath() + "/logs", dir.getPath() + "/temp");
+            lm.loggingEnabled = true;
+            lm.verbose = false;
+            int id = lm.newLoggingSession(new StateObserverTTT());
+            List<Thread> writers = writerThreads();
+            assertFalse(writers.isEmpty());
+            for (Thread t : writers)
+                assertFalse(t.isDaemon());
+            lm.endLoggingSession(id);
+            lm.flush();
+            for (Thread t : writers)
+                t.join(10000);
+            assertTrue("writer thread still alive when idle", writerThreads().isEmpty());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void checkLog(LogManager lm, File dir, StateObservation so) throws Exception {
+        Random rand = new Random(42);
+        ArrayList<Integer> actions = new ArrayList<>();
+        ArrayList<String> states = new ArrayList<>();
+        int id = lm.newLoggingSession(so);
+        states.add(so.stringDescr());
+        while (!so.isGameOver()) {
+            Types.ACTIONS act = so.getAction(rand.nextInt(so.getNumAvailableActions()));
+            so.advance(act);
+            lm.addLogEntry(act, so, id);
+            actions.add(act.toInt());
+            states.add(so.stringDescr());
+        }
+        lm.endLoggingSession(id);
+        lm.flush();
+
+        List<File> logs = findFiles(dir, so.getName(), ".gamelog");
+        assertEquals(so.getName() + ": number of .gamelog files", 1, logs.size());
+        assertTrue(so.getName() + ": temp log left", findFiles(dir, "", ".glog").isEmpty());
+        LogSessionContainer lsc = GameLog.read(logs.get(0));
+        assertEquals(actions.size() + 1, lsc.actions.size());
+        assertNull(lsc.actions.get(0));
+        for (int i = 0; i < actions.size(); i++)
+            assertEquals(so.getName() + ": move " + i, (int) actions.get(i), lsc.actions.get(i + 1).toInt());
+        for (int i = 0; i < states.size(); i++)
+            assertEquals(so.getName() + ": state " + i, states.get(i), lsc.stateObservations.get(i).stringDescr());
+    }
+
+    private static List<File> findFiles(File dir, String prefix, String suffix) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            return paths.map(Path::toFile)
+                    .filter(f -> f.isFile() && f.getName().endsWith(suffix) && f.getName().contains(prefix))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Thread> writerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("LogManager-writer") && t.isAlive())
+                .collect(Collectors.toList());
+    }
+
+    private static void deleteRecursively(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
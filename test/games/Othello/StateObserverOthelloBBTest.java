@@ -0,0 +1,59 @@
+package games.Othello;
+
+import org.junit.Test;
+import tools.Types.ACTIONS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StateObserverOthelloBBTest {
+
+    /**
+     * Play random games with {@link StateObserverOthello} and {@link StateObserverOthelloBB} in parallel and
+     * check that both have after each move the same board, the same player to move and the same available
+     * actions (in the same order). At the end, both have to report the same result.
+     */
+    @Test
+    public void testSameAsArrayBoard() {
+        Random rand = new Random(42);
+        for (int g = 0; g < 200; g++) {
+            StateObserverOthello so = new StateObserverOthello();
+            StateObserverOthelloBB sbb = new StateObserverOthelloBB();
+            assertSameState(so, sbb);
+            while (!so.isGameOver()) {
+                assertFalse(sbb.isGameOver());
+                ACTIONS act = so.getAction(rand.nextInt(so.getNumAvailableActions()));
+                StateObserverOthelloBB sbbPrev = sbb.copy();
+                so.advance(act);
+                sbb.advance(act);
+                assertSameState(so, sbb);
+                // the copy is not affected by advance:
+                assertEquals(sbbPrev.getMoveCounter() + 1, sbb.getMoveCounter());
+                assertFalse(Arrays.deepEquals(sbbPrev.getCurrentGameState(), sbb.getCurrentGameState()));
+            }
+            assertTrue(sbb.isGameOver());
+            assertEquals(so.winStatus(), sbb.winStatus());
+            assertEquals(so.getGameScore(so), sbb.getGameScore(sbb), 0.0);
+            so.setPieceCounters();
+            sbb.setPieceCounters();
+            assertEquals(so.getCountBlack(), sbb.getCountBlack());
+            assertEquals(so.getCountWhite(), sbb.getCountWhite());
+        }
+    }
+
+    private void assertSameState(StateObserverOthello so, StateObserverOthelloBB sbb) {
+        assertTrue(Arrays.deepEquals(so.getCurrentGameState(), sbb.getCurrentGameState()));
+        assertEquals(so.stringDescr(), sbb.stringDescr());
+        assertEquals(so.getPlayer(), sbb.getPlayer());
+        assertEquals(actionList(so.getAvailableActions()), actionList(sbb.getAvailableActions()));
+    }
+
+    private ArrayList<Integer> actionList(ArrayList<ACTIONS> acts) {
+        ArrayList<Integer> list = new ArrayList<>();
+        for (ACTIONS a : acts) list.add(a.toInt());
+        return list;
+    }
+}
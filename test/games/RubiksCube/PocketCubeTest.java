@@ -159,6 +159,107 @@ public class PocketCubeTest {
 
     }
 
+    /**
+     *    Test for randomly twisted CubeStates: Does CubeState2x2.twist() on the packed code give the same code
+     *    as twisting the CubeState? Does the packed code unpack to the original CubeState? Does CubeCodeMap
+     *    find all codes put into it?
+     */
+    @Test
+    public void testPackedCode() {
+        init();
+
+        Twist[] twist = {Twist.U,Twist.L,Twist.F};
+        CubeCodeMap codeMap = new CubeCodeMap(16);      // small, so that it has to grow
+        HashSet<Long> codeSet = new HashSet<>();
+        for (int r=0; r<2000; r++) {
+            CubeState cS = csFactory.makeCubeState();
+            long code = ((CubeState2x2) cS).pack();
+            int p = 1 + rand.nextInt(15);
+            for (int k=0; k<p; k++) {
+                int times = 1 + rand.nextInt(3);
+                Twist T = twist[rand.nextInt(3)];
+                switch(T) {
+                    case U: cS.UTw(times); break;
+                    case L: cS.LTw(times); break;
+                    case F: cS.FTw(times); break;
+                }
+                code = CubeState2x2.twist(code, T, times);
+                assert (code==((CubeState2x2) cS).pack()) : "twist on packed code differs from twist on CubeState!";
+            }
+            assert (new CubeState2x2(code).isEqual(cS)) : "unpacked CubeState differs!";
+            assert (codeMap.put(code, r) == codeSet.add(code)) : "CubeCodeMap.put differs from HashSet.add!";
+        }
+        assert (codeMap.size()==codeSet.size()) : "CubeCodeMap and HashSet differ in size!";
+        for (Long code : codeSet)
+            assert (codeMap.containsKey(code)) : "code not found in CubeCodeMap!";
+        System.out.println("Packed codes: OK");
+    }
+
+    /**
+     *    Test for the index of CSArrayList: Do contains() and findTwin() give the same results as the linear search
+     *    of an ArrayList, also after add(int,E), addAll, clear, sort and set (which drop or rebuild the index)?
+     */
+    @Test
+    public void testCSArrayListIndex() {
+        init();
+
+        Twist[] twist = {Twist.U,Twist.L,Twist.F};
+        ArrayList<CubeState> states = new ArrayList<>();
+        for (int r=0; r<300; r++) {
+            CubeState cS = csFactory.makeCubeState();
+            int p = 1 + rand.nextInt(6);
+            for (int k=0; k<p; k++) {
+                int times = 1 + rand.nextInt(3);
+                switch(twist[rand.nextInt(3)]) {
+                    case U: cS.UTw(times); break;
+                    case L: cS.LTw(times); break;
+                    case F: cS.FTw(times); break;
+                }
+            }
+            states.add(cS);
+        }
+        CSArrayList csList = new CSArrayList();
+        ArrayList<CubeState> refList = new ArrayList<>();
+        csList.addAll(states.subList(0, 100));
+        refList.addAll(states.subList(0, 100));
+        assertSameLookup(csList, refList, states, "addAll");
+        csList.add(0, states.get(150));
+        refList.add(0, states.get(150));
+        assertSameLookup(csList, refList, states, "add(int,E)");
+        csList.clear();
+        refList.clear();
+        assertSameLookup(csList, refList, states, "clear");
+
+        csList = new CSArrayList();
+        refList = new ArrayList<>();
+        for (int r=0; r<200; r++) {
+            csList.add(states.get(r));
+            refList.add(states.get(r));
+        }
+        csList.sort((a, b) -> a.toString().compareTo(b.toString()));
+        refList.sort((a, b) -> a.toString().compareTo(b.toString()));
+        assertSameLookup(csList, refList, states, "sort");
+        csList.set(0, states.get(250));
+        refList.set(0, states.get(250));
+        assertSameLookup(csList, refList, states, "set");
+        csList.clear();
+        refList.clear();
+        csList.addAll(states.subList(200, 300));
+        refList.addAll(states.subList(200, 300));
+        assertSameLookup(csList, refList, states, "clear+addAll");
+        System.out.println("CSArrayList index: OK");
+    }
+
+    private void assertSameLookup(CSArrayList csList, ArrayList<CubeState> refList, ArrayList<CubeState> states,
+                                  String op) {
+        for (CubeState cS : states) {
+            boolean inList = refList.contains(cS);
+            assert (csList.contains(cS) == inList) : "contains() differs from ArrayList after " + op + "!";
+            if (inList)
+                assert (csList.findTwin(cS).isEqual(cS)) : "findTwin() returns wrong state after " + op + "!";
+        }
+    }
+
     /**
      * (Older) CubeStateMap- and ColorTrafoMap-tests and color symmetry tests
      */
@@ -0,0 +1,136 @@
+package games.RubiksCube;
+
+import controllers.PlayAgent;
+import games.BoardVector;
+import games.GBGBatch;
+import games.StateObservation;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReplayBufferTest extends GBGBatch {
+
+    /**
+     * The ring buffer should hold the same items in the same order as the former replay memory of
+     * {@link DAVI3Agent} (a {@link LinkedList} where each new item is added first and the last item is removed, if
+     * the capacity is exceeded): item 0 is the most recent one. Check this while the buffer fills and wraps around
+     * several times, for board vectors with and without auxiliary vector.
+     */
+    @Test
+    public void ringBufferTest() {
+        Random rand = new Random(42);
+        for (boolean withAux : new boolean[]{false, true}) {
+            int capacity = 7;
+            ReplayBuffer buffer = new ReplayBuffer(capacity);
+            LinkedList<BoardVector> refBV = new LinkedList<>();
+            LinkedList<Double> refTarget = new LinkedList<>();
+            for (int n = 0; n < 30; n++) {
+                int[] bvec = new int[24];
+                for (int k = 0; k < bvec.length; k++) bvec[k] = rand.nextInt(48);
+                int[] aux = null;
+                if (withAux) {
+                    aux = new int[24];
+                    for (int k = 0; k < aux.length; k++) aux[k] = rand.nextInt(24);
+                }
+                BoardVector bv = new BoardVector(bvec, aux);
+                double target = rand.nextDouble() - 1.0;
+                buffer.add(bv, target);
+                refBV.addFirst(bv);
+                refTarget.addFirst(target);
+                if (refBV.size() > capacity) {
+                    refBV.removeLast();
+                    refTarget.removeLast();
+                }
+
+                assertEquals(capacity, buffer.capacity());
+                assertEquals(refBV.size(), buffer.size());
+                for (int i = 0; i < buffer.size(); i++) {
+                    BoardVector bi = buffer.getBoardVector(i);
+                    assertArrayEquals("n=" + n + ", i=" + i, refBV.get(i).bvec, bi.bvec);
+                    if (withAux)
+                        assertArrayEquals("n=" + n + ", i=" + i, refBV.get(i).aux, bi.aux);
+                    else
+                        assertNull(bi.aux);
+                    assertEquals(refTarget.get(i), buffer.getTarget(i), 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cube states stored in the replay buffer together with their board vectors (as {@link DAVI3Agent} does, if it
+     * needs the states) should come back unchanged, and items added without state should have none.
+     */
+    @Test
+    public void cubeRoundTripTest() {
+        String selectedGame = "RubiksCube";
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, GBGBatch.setDefaultScaPars(selectedGame));
+        GameBoardCube gb = new GameBoardCube(t_Game);
+        XNTupleFuncsCube xnf = new XNTupleFuncsCube();
+        ReplayBuffer buffer = new ReplayBuffer(10);
+        StateObservation[] states = new StateObservation[10];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = gb.chooseStartState(1 + i % 5);
+            buffer.add(xnf.getBoardVector(states[i]), states[i].copy(), -i);
+        }
+        for (int i = 0; i < states.length; i++) {
+            StateObserverCube so = (StateObserverCube) buffer.getState(states.length - 1 - i);
+            assertTrue("state " + i, so.getCubeState().isEqual(((StateObserverCube) states[i]).getCubeState()));
+            assertArrayEquals(xnf.getBoardVector(states[i]).bvec,
+                    buffer.getBoardVector(states.length - 1 - i).bvec);
+            assertEquals(-i, buffer.getTarget(states.length - 1 - i), 0.0);
+        }
+        buffer.add(xnf.getBoardVector(states[0]), 1.0);
+        assertNull(buffer.getState(0));
+    }
+
+    /**
+     * Training of {@link DAVI3Agent} from the replay buffer in mini-batch mode ({@link CubeConfig#replayThreads}
+     * {@code >1}, parallel evaluation of the batch items) should work like the sequential mode: the weights change
+     * and stay finite, and the agent learns the 1-twist states (their mean value is higher than the one of the
+     * 3-twist states, which are not trained).
+     */
+    @Test
+    public void miniBatchTest() {
+        String selectedGame = "RubiksCube";
+        int replayThreads = CubeConfig.replayThreads;
+        boolean replayBuffer = CubeConfig.REPLAYBUFFER;
+        try {
+            t_Game = GBGBatch.setupSelectedGame(selectedGame, GBGBatch.setDefaultScaPars(selectedGame));
+            GameBoardCube gb = new GameBoardCube(t_Game);
+            CubeConfig.REPLAYBUFFER = true;
+            for (int numThreads : new int[]{1, 4}) {
+                CubeConfig.replayThreads = numThreads;
+                t_Game.m_xab.oPar[0].setEpisodeLength(6);
+                PlayAgent pa = t_Game.m_xfun.constructAgent(0, "DAVI3", t_Game.m_xab);
+                assertTrue(pa instanceof DAVI3Agent);
+                double[] w0 = ((DAVI3Agent) pa).getNTupleValueFunc().getWeightStore().clone();
+                for (int n = 0; n < 300; n++)
+                    pa.trainAgent(gb.chooseStartState(1 + n % 2));
+                assertEquals(300, pa.getGameNum());
+
+                double[] w = ((DAVI3Agent) pa).getNTupleValueFunc().getWeightStore();
+                boolean changed = false;
+                for (int k = 0; k < w.length; k++) {
+                    assertFalse("weight " + k + " not finite", Double.isNaN(w[k]) || Double.isInfinite(w[k]));
+                    if (w[k] != w0[k]) changed = true;
+                }
+                assertTrue(numThreads + " threads: no weight changed", changed);
+
+                double v1 = 0, v3 = 0;
+                for (int i = 0; i < 20; i++) {
+                    v1 += pa.getScore(gb.chooseStartState(1)) / 20;
+                    v3 += pa.getScore(gb.chooseStartState(3)) / 20;
+                }
+                assertTrue(numThreads + " threads: mean value " + v1 + " of 1-twist states is not above " + v3
+                        + " of 3-twist states", v1 > v3);
+            }
+        } finally {
+            CubeConfig.replayThreads = replayThreads;
+            CubeConfig.REPLAYBUFFER = replayBuffer;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package games.Sim;
+
+import org.junit.Test;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+public class StateObserverSimTest {
+
+    /**
+     * A 2-player state on K=6 nodes after the moves (0,1), (3,4), (0,2), serialized by the former
+     * {@link StateObserverSim} which stored the links as {@code Link2[]} (before the bitmask version).
+     */
+    private static final String OLD_STATE_2P =
+            "rO0ABXNyABpnYW1lcy5TaW0uU3RhdGVPYnNlcnZlclNpbQAAAAAAAAAMAgAISQAIbnVtTm9kZXNJAApudW1QbGF5ZXJzSQAGcGxh" +
+            "eWVyTAAQYXZhaWxhYmxlQWN0aW9uc3QAFUxqYXZhL3V0aWwvQXJyYXlMaXN0O0wACGZpbmFsU2ltdAAlTGdhbWVzL1NpbS9TdGF0" +
+            "ZU9ic2VydmVyU2ltJEZpbmFsU2ltO1sABWxGcm9tdAASW0xnYW1lcy9TaW0vTGluazI7TAAJbGFzdE1vdmVzcQB+AAFbAAlsYXN0" +
+            "Tm9kZXN0AAJbSXhyABJnYW1lcy5PYnNlcnZlckJhc2WE8lzPEs396wIABkkADmNyZWF0aW5nUGxheWVySQAJbV9jb3VudGVyRAAO" +
+            "c3RvcmVkTWF4U2NvcmVMAA1zdG9yZWRBY3RCZXN0dAAVTHRvb2xzL1R5cGVzJEFDVElPTlM7WwANc3RvcmVkQWN0aW9uc3QAFltM" +
+            "dG9vbHMvVHlwZXMkQUNUSU9OUztbAAxzdG9yZWRWYWx1ZXN0AAJbRHhwAAAAAAAAAAMAAAAAAAAAAHBwcAAAAAYAAAACAAAAAXNy" +
+            "ABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAAMdwQAAAAMc3IAE3Rvb2xzLlR5cGVzJEFDVElPTlMA" +
+            "AAAAAAAADAIAAkkAA2tleVoADHJhbmRvbVNlbGVjdHhwAAAAAgBzcQB+AAwAAAADAHNxAH4ADAAAAAQAc3EAfgAMAAAABQBzcQB+" +
+            "AAwAAAAGAHNxAH4ADAAAAAcAc3EAfgAMAAAACABzcQB+AAwAAAAJAHNxAH4ADAAAAAoAc3EAfgAMAAAACwBzcQB+AAwAAAANAHNx" +
+            "AH4ADAAAAA4AeHNyACNnYW1lcy5TaW0uU3RhdGVPYnNlcnZlclNpbSRGaW5hbFNpbSKalb9VXKgmAgAESQAFbG9zZXJJAAZ3aW5u" +
+            "ZXJbAAphbGxSZXdhcmRzcQB+AARMAAZ0aGlzJDB0ABxMZ2FtZXMvU2ltL1N0YXRlT2JzZXJ2ZXJTaW07eHD//////////nVyAAJb" +
+            "SU26YCZ26rKlAgAAeHAAAAACAAAAAAAAAABxAH4ACXVyABJbTGdhbWVzLlNpbS5MaW5rMjvZNLfLUb4vjgIAAHhwAAAABnNyAA9n" +
+            "YW1lcy5TaW0uTGluazIAAAAAAAAADAIAAkkABW5Gcm9tWwADbFRvcQB+AAR4cAAAAAB1cQB+ABwAAAAGAAAAAAAAAAEAAAABAAAA" +
+            "AAAAAAAAAAAAc3EAfgAgAAAAAXVxAH4AHAAAAAYAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAABzcQB+ACAAAAACdXEAfgAcAAAABgAA" +
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAHNxAH4AIAAAAAN1cQB+ABwAAAAGAAAAAAAAAAAAAAAAAAAAAAAAAAIAAAAAc3EAfgAgAAAA" +
+            "BHVxAH4AHAAAAAYAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAABzcQB+ACAAAAAFdXEAfgAcAAAABgAAAAAAAAAAAAAAAAAAAAAAAAAA" +
+            "AAAAAHNxAH4ACgAAAAN3BAAAAANzcgARamF2YS5sYW5nLkludGVnZXIS4qCk94GHOAIAAUkABXZhbHVleHIAEGphdmEubGFuZy5O" +
+            "dW1iZXKGrJUdC5TgiwIAAHhwAAAAAHNxAH4ALgAAAAxzcQB+AC4AAAABeHVxAH4AHAAAAAMAAAAAAAAAAv////8=";
+
+    /**
+     * A 3-player state on K=6 nodes (coalition "None") after the moves (0,1), (3,4), (1,5), (0,2), (3,5), (2,5),
+     * (1,2), serialized by the former {@link StateObserverSim} with {@code Link2[]} links. Player 0 has lost.
+     */
+    private static final String OLD_STATE_3P =
+            "rO0ABXNyABpnYW1lcy5TaW0uU3RhdGVPYnNlcnZlclNpbQAAAAAAAAAMAgAISQAIbnVtTm9kZXNJAApudW1QbGF5ZXJzSQAGcGxh" +
+            "eWVyTAAQYXZhaWxhYmxlQWN0aW9uc3QAFUxqYXZhL3V0aWwvQXJyYXlMaXN0O0wACGZpbmFsU2ltdAAlTGdhbWVzL1NpbS9TdGF0" +
+            "ZU9ic2VydmVyU2ltJEZpbmFsU2ltO1sABWxGcm9tdAASW0xnYW1lcy9TaW0vTGluazI7TAAJbGFzdE1vdmVzcQB+AAFbAAlsYXN0" +
+            "Tm9kZXN0AAJbSXhyABJnYW1lcy5PYnNlcnZlckJhc2WE8lzPEs396wIABkkADmNyZWF0aW5nUGxheWVySQAJbV9jb3VudGVyRAAO" +
+            "c3RvcmVkTWF4U2NvcmVMAA1zdG9yZWRBY3RCZXN0dAAVTHRvb2xzL1R5cGVzJEFDVElPTlM7WwANc3RvcmVkQWN0aW9uc3QAFltM" +
+            "dG9vbHMvVHlwZXMkQUNUSU9OUztbAAxzdG9yZWRWYWx1ZXN0AAJbRHhwAAAAAAAAAAcAAAAAAAAAAHBwcAAAAAYAAAADAAAAAXNy" +
+            "ABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAAIdwQAAAAIc3IAE3Rvb2xzLlR5cGVzJEFDVElPTlMA" +
+            "AAAAAAAADAIAAkkAA2tleVoADHJhbmRvbVNlbGVjdHhwAAAAAgBzcQB+AAwAAAADAHNxAH4ADAAAAAQAc3EAfgAMAAAABgBzcQB+" +
+            "AAwAAAAHAHNxAH4ADAAAAAkAc3EAfgAMAAAACgBzcQB+AAwAAAAOAHhzcgAjZ2FtZXMuU2ltLlN0YXRlT2JzZXJ2ZXJTaW0kRmlu" +
+            "YWxTaW0impW/VVyoJgIABEkABWxvc2VySQAGd2lubmVyWwAKYWxsUmV3YXJkc3EAfgAETAAGdGhpcyQwdAAcTGdhbWVzL1NpbS9T" +
+            "dGF0ZU9ic2VydmVyU2ltO3hwAAAAAP////51cgACW0lNumAmduqypQIAAHhwAAAAA/////8AAAAAAAAAAHEAfgAJdXIAEltMZ2Ft" +
+            "ZXMuU2ltLkxpbmsyO9k0t8tRvi+OAgAAeHAAAAAGc3IAD2dhbWVzLlNpbS5MaW5rMgAAAAAAAAAMAgACSQAFbkZyb21bAANsVG9x" +
+            "AH4ABHhwAAAAAHVxAH4AGAAAAAYAAAAAAAAAAQAAAAEAAAAAAAAAAAAAAABzcQB+ABwAAAABdXEAfgAYAAAABgAAAAAAAAAAAAAA" +
+            "AQAAAAAAAAAAAAAAA3NxAH4AHAAAAAJ1cQB+ABgAAAAGAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAADc3EAfgAcAAAAA3VxAH4AGAAA" +
+            "AAYAAAAAAAAAAAAAAAAAAAAAAAAAAgAAAAJzcQB+ABwAAAAEdXEAfgAYAAAABgAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAHNxAH4A" +
+            "HAAAAAV1cQB+ABgAAAAGAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAc3EAfgAKAAAAB3cEAAAAB3NyABFqYXZhLmxhbmcuSW50ZWdl" +
+            "chLioKT3gYc4AgABSQAFdmFsdWV4cgAQamF2YS5sYW5nLk51bWJlcoaslR0LlOCLAgAAeHAAAAAAc3EAfgAqAAAADHNxAH4AKgAA" +
+            "AAhzcQB+ACoAAAABc3EAfgAqAAAADXNxAH4AKgAAAAtzcQB+ACoAAAAFeHVxAH4AGAAAAAMAAAABAAAAAgAAAAA=";
+
+    /**
+     * 2 players, K=6: player 0 closes the triangle 0-1-2 and loses. Check the state before and after the losing
+     * move. A state where player 0 has more links than player 1, but is to move, is illegal.
+     */
+    @Test
+    public void twoPlayerTest() {
+        runWithConfig(6, 2, "None", () -> {
+            StateObserverSim so = new StateObserverSim();
+            play(so, 0, 1, 3, 4, 0, 2, 3, 5);
+            assertTrue(so.isLegalState());
+            assertFalse(so.isGameOver());
+            assertEquals(0, so.getPlayer());
+            assertArrayEquals(new int[]{0, 0}, so.getAllRewards());
+            assertFalse(so.hasLost(1));
+
+            play(so, 1, 2);
+            assertTrue(so.isGameOver());
+            assertTrue(so.hasLost(0));
+            assertArrayEquals(new int[]{1, 2, 0}, so.getLastNodes());
+            assertEquals(so.inputToActionInt(1, 2), so.getLastMove());
+            assertEquals("00___0______11_", so.stringDescr());
+            assertArrayEquals(new int[]{-1, 1}, so.getAllRewards());
+            assertEquals(-1.0, so.getGameScore(0), 0.0);
+            assertEquals(1.0, so.getGameScore(1), 0.0);
+            assertTrue(so.isLegalState());
+
+            StateObserverSim illegal = new StateObserverSim();
+            illegal.setAction(illegal.inputToActionInt(0, 1));
+            assertFalse(illegal.isLegalState());
+        });
+    }
+
+    /**
+     * 2 players, K=5: player 0 takes the pentagon, player 1 the pentagram. Nobody has a monochromatic triangle and
+     * the game ends in a draw, when all links are taken.
+     */
+    @Test
+    public void drawTest() {
+        runWithConfig(5, 2, "None", () -> {
+            StateObserverSim so = new StateObserverSim();
+            play(so, 0, 1, 0, 2, 1, 2, 0, 3, 2, 3, 1, 3, 3, 4, 1, 4, 0, 4, 2, 4);
+            assertTrue(so.isGameOver());
+            assertFalse(so.hasLost(1));
+            assertEquals(0, so.getNumAvailableActions());
+            assertArrayEquals(new int[]{0, 0}, so.getAllRewards());
+            assertTrue(so.isLegalState());
+        });
+    }
+
+    /**
+     * 3 players, K=6, no coalition: player 0 closes the triangle 0-1-2 and loses, but the game goes on with
+     * players 1 and 2 (player 0 is skipped). Player 1 closes the triangle 3-4-5 and loses, player 2 wins.
+     */
+    @Test
+    public void threePlayerTest() {
+        runWithConfig(6, 3, "None", () -> {
+            StateObserverSim so = new StateObserverSim();
+            play(so, 0, 1, 3, 4, 1, 5, 0, 2, 3, 5, 2, 5);
+            assertFalse(so.isGameOver());
+            assertArrayEquals(new int[]{0, 0, 0}, so.getAllRewards());
+
+            play(so, 1, 2);
+            assertFalse(so.isGameOver());
+            assertArrayEquals(new int[]{1, 2, 0}, so.getLastNodes());
+            assertArrayEquals(new int[]{-1, 0, 0}, so.getAllRewards());
+            assertEquals(1, so.getPlayer());
+            assertTrue(so.isLegalState());
+
+            play(so, 0, 3, 0, 4);
+            assertEquals("player 0 has lost and is skipped", 1, so.getPlayer());
+            assertTrue(so.isLegalState());
+            assertFalse(so.isGameOver());
+
+            play(so, 4, 5);
+            assertTrue(so.isGameOver());
+            assertTrue(so.hasLost(1));
+            assertArrayEquals(new int[]{4, 5, 3}, so.getLastNodes());
+            assertArrayEquals(new int[]{-1, -1, 1}, so.getAllRewards());
+        });
+    }
+
+    /**
+     * 3 players, K=6, coalition "1-2": the game ends with the first loser. If player 0 loses, players 1 and 2
+     * win, and if player 1 (or 2) loses, player 0 wins.
+     */
+    @Test
+    public void coalitionTest() {
+        runWithConfig(6, 3, "1-2", () -> {
+            StateObserverSim so = new StateObserverSim();
+            play(so, 0, 1, 3, 4, 1, 5, 0, 2, 3, 5, 2, 5, 1, 2);
+            assertTrue(so.isGameOver());
+            assertTrue(so.hasLost(0));
+            assertArrayEquals(new int[]{1, 2, 0}, so.getLastNodes());
+            assertArrayEquals(new int[]{-1, 1, 1}, so.getAllRewards());
+
+            so = new StateObserverSim();
+            play(so, 0, 1, 3, 4, 0, 5, 0, 2, 3, 5, 1, 5, 2, 4);
+            assertFalse(so.isGameOver());
+            assertTrue(so.isLegalState());
+            play(so, 4, 5);
+            assertTrue(so.isGameOver());
+            assertTrue(so.hasLost(1));
+            assertArrayEquals(new int[]{4, 5, 3}, so.getLastNodes());
+            assertArrayEquals(new int[]{1, -1, -1}, so.getAllRewards());
+        });
+    }
+
+    /**
+     * A state logged with the former {@code Link2[]} links should be read via {@code readObject} into the same
+     * state as the one reached by the same moves now, and it should play on in the same way.
+     */
+    @Test
+    public void readOldLogTest() {
+        runWithConfig(6, 2, "None", () -> {
+            StateObserverSim old = deserialize(OLD_STATE_2P);
+            StateObserverSim so = new StateObserverSim();
+            play(so, 0, 1, 3, 4, 0, 2);
+            assertEquals("00__________1__", old.stringDescr());
+            assertSameState(so, old);
+            play(so, 3, 5, 1, 2);
+            play(old, 3, 5, 1, 2);
+            assertSameState(so, old);
+            assertArrayEquals(new int[]{-1, 1}, old.getAllRewards());
+        });
+        runWithConfig(6, 3, "None", () -> {
+            StateObserverSim old = deserialize(OLD_STATE_3P);
+            StateObserverSim so = new StateObserverSim();
+            play(so, 0, 1, 3, 4, 1, 5, 0, 2, 3, 5, 2, 5, 1, 2);
+            assertEquals("00___0__2__211_", old.stringDescr());
+            assertSameState(so, old);
+            assertArrayEquals(new int[]{-1, 0, 0}, old.getAllRewards());
+            play(so, 0, 3, 0, 4, 4, 5);
+            play(old, 0, 3, 0, 4, 4, 5);
+            assertSameState(so, old);
+            assertArrayEquals(new int[]{-1, -1, 1}, old.getAllRewards());
+        });
+    }
+
+    private static void assertSameState(StateObserverSim expected, StateObserverSim actual) {
+        assertEquals(expected.stringDescr(), actual.stringDescr());
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getPlayer(), actual.getPlayer());
+        assertEquals(expected.getLastMove(), actual.getLastMove());
+        assertEquals(expected.getMoveCounter(), actual.getMoveCounter());
+        assertEquals(expected.isLegalState(), actual.isLegalState());
+        assertEquals(expected.isGameOver(), actual.isGameOver());
+        assertArrayEquals(expected.getAllRewards(), actual.getAllRewards());
+        assertArrayEquals(expected.getLastNodes(), actual.getLastNodes());
+        assertEquals(expected.getNumAvailableActions(), actual.getNumAvailableActions());
+    }
+
+    /**
+     * Advance {@code so} with the links given by the node pairs {@code nodes[0],nodes[1]}, {@code nodes[2],nodes[3]},
+     * ... (one move per pair, the players take turns).
+     */
+    private static void play(StateObserverSim so, int... nodes) {
+        for (int i = 0; i < nodes.length; i += 2) {
+            Types.ACTIONS act = new Types.ACTIONS(so.inputToActionInt(nodes[i], nodes[i + 1]));
+            assertTrue("illegal move " + nodes[i] + "-" + nodes[i + 1], so.isLegalAction(act));
+            so.advance(act);
+        }
+    }
+
+    private static StateObserverSim deserialize(String base64) {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(base64)))) {
+            return (StateObserverSim) ois.readObject();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void runWithConfig(int numNodes, int numPlayers, String coalition, Runnable test) {
+        int K = ConfigSim.NUM_NODES, P = ConfigSim.NUM_PLAYERS;
+        String C = ConfigSim.COALITION;
+        try {
+            ConfigSim.NUM_NODES = numNodes;
+            ConfigSim.NUM_PLAYERS = numPlayers;
+            ConfigSim.COALITION = coalition;
+            test.run();
+        } finally {
+            ConfigSim.NUM_NODES = K;
+            ConfigSim.NUM_PLAYERS = P;
+            ConfigSim.COALITION = C;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package games.Sim;
+
+import games.Arena;
+import games.BoardVector;
+import games.GBGBatch;
+import games.StateObsWithBoardVector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class XNTupleFuncsSimTest {
+
+    /**
+     * Play random games and check for each position that the canonical board vector of
+     * {@link XNTupleFuncsSim#symmetryVectors(StateObsWithBoardVector, int)} (with {@link ConfigSim#CANONICAL})
+     * is the same for randomly relabeled copies of the position and that it is canonical itself.
+     * For K=5, check that it is the same for all 120 relabelings and that it is one of them.
+     */
+    @Test
+    public void testCanonicalSymmetry() {
+        int numNodes = ConfigSim.NUM_NODES, numPlayers = ConfigSim.NUM_PLAYERS;
+        boolean canonical = ConfigSim.CANONICAL;
+        Random rand = new Random(42);
+        try {
+            ConfigSim.CANONICAL = true;
+            for (int K : new int[]{5, 6, 10}) {
+                for (int P = 2; P <= 3; P++) {
+                    ConfigSim.NUM_NODES = K;
+                    ConfigSim.NUM_PLAYERS = P;
+                    XNTupleFuncsSim xnf = new XNTupleFuncsSim(K * (K - 1) / 2, P + 1, P);
+                    assertTrue(xnf.isCanonical());
+                    for (int g = 0; g < 20; g++) {
+                        StateObserverSim so = new StateObserverSim();
+                        while (!so.isGameOver()) {
+                            BoardVector[] equiv = xnf.symmetryVectors(new StateObsWithBoardVector(so, xnf), 0);
+                            assertEquals(1, equiv.length);
+                            int[] canon = equiv[0].bvec;
+                            assertArrayEquals(canon, xnf.symmetryVectors(new BoardVector(canon), 0)[0].bvec);
+                            int[] bvec = xnf.getBoardVector(so).bvec;
+                            if (K == 5) {
+                                Set<String> forms = new HashSet<>();
+                                boolean found = false;
+                                for (int[] perm : allPermutations(K)) {
+                                    int[] rel = relabel(so, bvec, perm);
+                                    forms.add(Arrays.toString(xnf.symmetryVectors(new BoardVector(rel), 0)[0].bvec));
+                                    found |= Arrays.equals(rel, canon);
+                                }
+                                assertEquals(1, forms.size());
+                                assertTrue(found);
+                            } else {
+                                for (int r = 0; r < 5; r++) {
+                                    int[] rel = relabel(so, bvec, randomPermutation(K, rand));
+                                    assertArrayEquals(canon, xnf.symmetryVectors(new BoardVector(rel), 0)[0].bvec);
+                                }
+                            }
+                            so.advance(so.getAction(rand.nextInt(so.getNumAvailableActions())));
+                        }
+                    }
+                }
+            }
+        } finally {
+            ConfigSim.NUM_NODES = numNodes;
+            ConfigSim.NUM_PLAYERS = numPlayers;
+            ConfigSim.CANONICAL = canonical;
+        }
+    }
+
+    /**
+     * The scalable parameter scaPar3 of Sim should switch the canonical symmetries on and off (see
+     * {@link GBGBatch#setupSelectedGame(String, String[])}). In canonical mode the n-tuple functions should report
+     * one symmetry vector instead of K!, for any requested number of symmetries.
+     */
+    @Test
+    public void canonicalScaParTest() {
+        boolean canonical = ConfigSim.CANONICAL;
+        try {
+            String[] scaPar = GBGBatch.setDefaultScaPars("Sim");
+            assertEquals("false", scaPar[3]);
+            Arena arena = GBGBatch.setupSelectedGame("Sim", scaPar);
+            XNTupleFuncsSim xnf = (XNTupleFuncsSim) arena.makeXNTupleFuncs();
+            assertFalse(xnf.isCanonical());
+            assertEquals(720, xnf.getNumSymmetries());      // K=6: 6!
+
+            scaPar[3] = "true";
+            arena = GBGBatch.setupSelectedGame("Sim", scaPar);
+            xnf = (XNTupleFuncsSim) arena.makeXNTupleFuncs();
+            assertTrue(ConfigSim.CANONICAL);
+            assertTrue(xnf.isCanonical());
+            assertEquals(1, xnf.getNumSymmetries());
+            StateObsWithBoardVector sowb = new StateObsWithBoardVector(new StateObserverSim(), xnf);
+            assertEquals(1, xnf.symmetryVectors(sowb, 10).length);
+
+            arena = GBGBatch.setupSelectedGame("Sim", new String[]{"2", "6", "None"});     // without scaPar3
+            assertFalse(((XNTupleFuncsSim) arena.makeXNTupleFuncs()).isCanonical());
+        } finally {
+            ConfigSim.CANONICAL = canonical;
+        }
+    }
+
+    /**
+     * @return the board vector {@code bvec} of {@code so} with node {@code perm[i]} renamed to node {@code i}
+     */
+    private static int[] relabel(StateObserverSim so, int[] bvec, int[] perm) {
+        int K = perm.length;
+        int[] rel = new int[bvec.length];
+        for (int i = 0; i < K; i++)
+            for (int j = i + 1; j < K; j++)
+                rel[so.inputToActionInt(i, j)] = bvec[so.inputToActionInt(perm[i], perm[j])];
+        return rel;
+    }
+
+    private static int[] randomPermutation(int K, Random rand) {
+        int[] perm = new int[K];
+        for (int i = 0; i < K; i++) perm[i] = i;
+        for (int i = K - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1), t = perm[i];
+            perm[i] = perm[j];
+            perm[j] = t;
+        }
+        return perm;
+    }
+
+    private static List<int[]> allPermutations(int K) {
+        List<int[]> list = new ArrayList<>();
+        permute(new int[K], new boolean[K], 0, list);
+        return list;
+    }
+
+    private static void permute(int[] perm, boolean[] used, int m, List<int[]> list) {
+        if (m == perm.length) {
+            list.add(perm.clone());
+            return;
+        }
+        for (int v = 0; v < perm.length; v++) {
+            if (used[v]) continue;
+            used[v] = true;
+            perm[m] = v;
+            permute(perm, used, m + 1, list);
+            used[v] = false;
+        }
+    }
+}
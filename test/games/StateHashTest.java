@@ -0,0 +1,121 @@
+package games;
+
+import games.CFour.StateObserverC4;
+import games.Hex.StateObserverHex;
+import games.Nim.StateObserverNim;
+import games.Othello.StateObserverOthello;
+import games.Othello.StateObserverOthelloBB;
+import games.Sim.ConfigSim;
+import games.Sim.StateObserverSim;
+import games.TicTacToe.StateObserverTTT;
+import org.junit.Test;
+import src.games.Poker.StateObserverPoker;
+import tools.Types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class StateHashTest {
+
+    /**
+     * Play random games and check that {@link StateObservation#getHash()} is a function of the state: positions
+     * reached by different move orders (transpositions) have equal hashes, different positions have different
+     * hashes. The state is identified by {@link StateObservation#stringDescr()} and the player to move. Check also
+     * that copies and deserialized states have the same hash (Sim and Hex maintain their hash incrementally).
+     */
+    @Test
+    public void hashTest() throws Exception {
+        checkHash("TicTacToe", StateObserverTTT::new, 2000);
+        checkHash("ConnectFour", StateObserverC4::new, 300);
+        checkHash("Nim", StateObserverNim::new, 500);
+        checkHash("Othello", StateObserverOthello::new, 300);
+        checkHash("OthelloBB", StateObserverOthelloBB::new, 300);
+        checkHash("Hex", StateObserverHex::new, 200);
+        int numPlayers = ConfigSim.NUM_PLAYERS, numNodes = ConfigSim.NUM_NODES;
+        try {
+            ConfigSim.NUM_NODES = 5;
+            for (int P = 2; P <= 3; P++) {
+                ConfigSim.NUM_PLAYERS = P;
+                checkHash("Sim " + P + "P", StateObserverSim::new, 2000);
+            }
+        } finally {
+            ConfigSim.NUM_PLAYERS = numPlayers;
+            ConfigSim.NUM_NODES = numNodes;
+        }
+    }
+
+    /**
+     * The same position reached by two different move orders should have the same hash (TicTacToe and Sim).
+     */
+    @Test
+    public void moveOrderTest() {
+        assertEquals(play(new StateObserverTTT(), 0, 4, 8, 2).getHash(), play(new StateObserverTTT(), 8, 2, 0, 4).getHash());
+        assertNotEquals(play(new StateObserverTTT(), 0, 4, 8, 2).getHash(), play(new StateObserverTTT(), 0, 4, 2, 8).getHash());
+        assertEquals(play(new StateObserverSim(), 0, 5, 9, 3, 1).getHash(), play(new StateObserverSim(), 9, 3, 1, 5, 0).getHash());
+        assertEquals(play(new StateObserverC4(), 0, 1, 2, 3).getHash(), play(new StateObserverC4(), 2, 3, 0, 1).getHash());
+    }
+
+    /**
+     * Poker states are not identified by their hash, so they should not be cached.
+     */
+    @Test
+    public void cacheableTest() {
+        assertFalse(new StateObserverPoker().isCacheable());
+        assertTrue(new StateObserverTTT().isCacheable());
+    }
+
+    private static StateObservation play(StateObservation so, int... actions) {
+        for (int a : actions) so.advance(new Types.ACTIONS(a));
+        return so;
+    }
+
+    private static void checkHash(String game, Supplier<StateObservation> start, int numGames) throws Exception {
+        Random rand = new Random(42);
+        HashMap<String, Long> hashOf = new HashMap<>();
+        HashMap<Long, String> stateOf = new HashMap<>();
+        HashMap<String, String> pathOf = new HashMap<>();
+        int transpositions = 0;
+        for (int g = 0; g < numGames; g++) {
+            StateObservation so = start.get();
+            StringBuilder path = new StringBuilder();
+            while (true) {
+                String key = so.stringDescr() + "/" + so.getPlayer();
+                long h = so.getHash();
+                Long h0 = hashOf.putIfAbsent(key, h);
+                if (h0 != null) {
+                    assertEquals(game + ": hash differs for " + key, (long) h0, h);
+                    if (!pathOf.get(key).equals(path.toString())) transpositions++;
+                } else {
+                    pathOf.put(key, path.toString());
+                }
+                String key0 = stateOf.putIfAbsent(h, key);
+                assertEquals(game + ": hash collision", key, key0 == null ? key : key0);
+                assertEquals(game + ": copy", h, so.copy().getHash());
+                if (g % 10 == 0) assertEquals(game + ": deserialized", h, deserialize(so).getHash());
+                if (so.isGameOver()) break;
+                Types.ACTIONS act = so.getAction(rand.nextInt(so.getNumAvailableActions()));
+                path.append(act.toInt()).append(',');
+                so.advance(act);
+            }
+        }
+        assertTrue(game + ": no transpositions", transpositions > 0);
+    }
+
+    private static StateObservation deserialize(StateObservation so) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(so);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            return (StateObservation) ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package games;
+
+import controllers.PlayAgent;
+import controllers.PlayAgtVector;
+import controllers.RandomAgent;
+import games.TicTacToe.StateObserverTTT;
+import org.junit.Test;
+import params.ParOther;
+import tools.ScoreTuple;
+import tools.Types;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+public class XArenaFuncsTest extends GBGBatch {
+    String selectedGame = "TicTacToe";
+    String[] scaPar = GBGBatch.setDefaultScaPars(selectedGame);
+
+    /**
+     * {@link XArenaFuncs#trainEpisodes(GameBoard, ParOther, PlayAgent, int, ArrayList)} should add the train
+     * statistics of every episode, also if the episodes of a batch are trained in parallel. Check this for a
+     * TicTacToe TD-Ntuple-3 agent with 1 and 3 train threads: each episode up to {@code maxGameNum} is numbered
+     * once and has a TicTacToe game length (5 to 9 moves).
+     */
+    @Test
+    public void trainStatsTest() {
+        t_Game = GBGBatch.setupSelectedGame(selectedGame, scaPar);
+        GameBoard gb = t_Game.getGameBoard();
+        int numEval = 10, maxGameNum = 35;
+        for (int numThreads : new int[]{1, 3}) {
+            PlayAgent pa = t_Game.m_xfun.constructAgent(0, "TD-Ntuple-3", t_Game.m_xab);
+            ParOther oPar = t_Game.m_xab.oPar[0];
+            oPar.setNumTrainThreads(numThreads);
+            pa.setMaxGameNum(maxGameNum);
+            pa.setGameNum(0);
+            ArrayList<TStats> tsList = new ArrayList<>();
+            while (pa.getGameNum() < pa.getMaxGameNum()) {
+                int gameNum = pa.getGameNum();
+                t_Game.m_xfun.trainEpisodes(gb, oPar, pa, numEval, tsList);
+                assertEquals(pa.getGameNum(), tsList.size());
+                assertTrue("batch crosses a multiple of numEval", (pa.getGameNum() - 1) / numEval == gameNum / numEval);
+            }
+            assertEquals(maxGameNum, tsList.size());
+            for (int k = 0; k < tsList.size(); k++) {
+                assertEquals(k + 1, tsList.get(k).n);
+                assertTrue("moveNum=" + tsList.get(k).moveNum, tsList.get(k).moveNum >= 5 && tsList.get(k).moveNum <= 9);
+            }
+        }
+    }
+
+    /**
+     * With {@link ParOther#getEvalThreads()} &gt; 1, {@link XArenaFuncs#competeNPlayer} should play the episodes in
+     * parallel also for agents which are not thread-safe, but have a thread instance: each episode is played by its
+     * own thread instances (with their own random generator), the original agents do not play. With 1 eval thread,
+     * the original agents play all episodes sequentially.
+     */
+    @Test
+    public void competeParallelTest() {
+        int competeNum = 40;
+        for (int numThreads : new int[]{1, 4}) {
+            Map<PlayAgent, Set<String>> threadsOf = new ConcurrentHashMap<>();
+            ParOther oPar = new ParOther();
+            oPar.setEvalThreads(numThreads);
+            CopyAgent a0 = new CopyAgent(1, oPar, threadsOf), a1 = new CopyAgent(2, oPar, threadsOf);
+            ScoreTuple sc = XArenaFuncs.competeNPlayer(new PlayAgtVector(a0, a1), new StateObserverTTT(),
+                    competeNum, 0, null);
+            assertEquals(0.0, sc.scTup[0] + sc.scTup[1], 1e-10);
+            if (numThreads == 1) {
+                assertEquals(2, threadsOf.size());
+                assertEquals(Set.of(Thread.currentThread().getName()), threadsOf.get(a0));
+            } else {
+                assertEquals("one instance of each agent per episode", 2 * competeNum, threadsOf.size());
+                assertFalse(threadsOf.containsKey(a0) || threadsOf.containsKey(a1));
+                Set<String> allThreads = ConcurrentHashMap.newKeySet();
+                for (Set<String> names : threadsOf.values()) {
+                    assertEquals("an instance plays in one thread only", 1, names.size());
+                    allThreads.addAll(names);
+                }
+                assertTrue("episodes in " + allThreads.size() + " threads", allThreads.size() > 1);
+            }
+        }
+    }
+
+    /**
+     * A random agent which is not thread-safe, but has a thread instance. It records the threads in which each
+     * instance plays.
+     */
+    private static class CopyAgent extends RandomAgent {
+        private final Map<PlayAgent, Set<String>> threadsOf;
+
+        CopyAgent(long seed, ParOther oPar, Map<PlayAgent, Set<String>> threadsOf) {
+            super("Random", seed);
+            this.m_oPar = oPar;
+            this.threadsOf = threadsOf;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return false;
+        }
+
+        @Override
+        public PlayAgent getThreadInstance() {
+            return new CopyAgent(System.nanoTime(), m_oPar, threadsOf);
+        }
+
+        @Override
+        public Types.ACTIONS_VT getNextAction2(StateObservation so, boolean random, boolean silent) {
+            threadsOf.computeIfAbsent(this, k -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(1);        // let the episodes overlap
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.getNextAction2(so, random, silent);
+        }
+    }
+}
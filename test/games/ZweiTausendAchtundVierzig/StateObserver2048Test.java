@@ -0,0 +1,158 @@
+package games.ZweiTausendAchtundVierzig;
+
+import org.junit.Test;
+import tools.Types.ACTIONS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StateObserver2048Test {
+
+    /**
+     * The table-driven moves of {@link StateObserver2048} should give the same available moves, boards, scores and
+     * highest tiles as the tile-based moves of {@link StateObserver2048Slow}. Check this for all four moves on
+     * random boards (with varying fraction of empty cells).
+     */
+    @Test
+    public void movesTest() {
+        Random rand = new Random(42);
+        for (int n = 0; n < 5000; n++) {
+            int pEmpty = rand.nextInt(8);
+            long board = 0;
+            for (int k = 0; k < 16; k++)
+                if (rand.nextInt(8) >= pEmpty) board |= (long) (1 + rand.nextInt(11)) << (4 * k);
+            StateObserver2048 so = new StateObserver2048(board, 0, 0, 0, true);
+            StateObserver2048Slow slow = new StateObserver2048Slow(toValues(so), 0, 0);
+            String msg = so.stringDescr();
+
+            assertEquals(msg, toInts(slow.getAvailableActions()), toInts(so.getAvailableActions()));
+            assertEquals(msg, slow.getNumAvailableActions(), so.getNumAvailableActions());
+            assertEquals(msg, slow.isGameOver(), so.isGameOver());
+            for (int i = 0; i < so.getNumAvailableActions(); i++)
+                assertEquals(msg, so.getAvailableActions().get(i).toInt(), so.getAction(i).toInt());
+
+            for (int m = 0; m < 4; m++) {
+                assertEquals(msg + ", move " + m, slow.isLegalAction(new ACTIONS(m)), so.isLegalMove(m));
+                if (!so.isLegalMove(m)) continue;
+                StateObserver2048 so2 = so.copy();
+                StateObserver2048Slow slow2 = slow.copy();
+                so2.advanceDeterministic(new ACTIONS(m));
+                slow2.move(m);
+                assertArrayEquals(msg + ", move " + m, flatten(slow2.toArray()), flatten(toValues(so2)));
+                assertEquals(msg + ", move " + m, slow2.getScore(), so2.getScore());
+                assertEquals(msg + ", move " + m, maxValue(slow2.toArray()), so2.getHighestTileValue());
+            }
+        }
+    }
+
+    /**
+     * {@link StateObserver2048#getAvailableRandoms()} returns the random actions 0,...,2*n-1 for n empty tiles
+     * from a shared list (no allocation), their probabilities sum up to 1.
+     */
+    @Test
+    public void availableRandomsTest() {
+        StateObserver2048 so = new StateObserver2048(0x0000_0100_0210_1232L);
+        so.advanceDeterministic(so.getAction(0));
+        StateObserver2048 so2 = new StateObserver2048(0x1231_2310_0000_0000L);   // 9 empty tiles as well
+        assertEquals(so.getNumEmptyTiles(), so2.getNumEmptyTiles());
+
+        ArrayList<ACTIONS> rans = so.getAvailableRandoms();
+        assertSame(rans, so2.getAvailableRandoms());
+        assertEquals(2 * so.getNumEmptyTiles(), rans.size());
+        assertEquals(so.getNumAvailableRandoms(), rans.size());
+        double sum = 0;
+        for (int i = 0; i < rans.size(); i++) {
+            assertEquals(i, rans.get(i).toInt());
+            sum += so.getProbability(rans.get(i));
+        }
+        assertEquals(1.0, sum, 1e-10);
+    }
+
+    /**
+     * The shared list of {@link StateObserver2048#getAvailableRandoms()} is read-only: each modification should
+     * throw an {@link UnsupportedOperationException} and leave the list unchanged.
+     */
+    @Test
+    public void availableRandomsReadOnlyTest() {
+        ArrayList<ACTIONS> rans = new StateObserver2048(0x1231_2310_0000_0000L).getAvailableRandoms();
+        List<Runnable> modifications = Arrays.asList(
+                () -> rans.add(ACTIONS.fromInt(99)),
+                () -> rans.remove(0),
+                () -> rans.set(0, ACTIONS.fromInt(99)),
+                () -> rans.clear(),
+                () -> rans.removeIf(a -> a.toInt() == 0),
+                () -> rans.sort(null),
+                () -> rans.subList(0, 2).clear(),
+                () -> { Iterator<ACTIONS> it = rans.iterator(); it.next(); it.remove(); });
+        for (int k = 0; k < modifications.size(); k++) {
+            try {
+                modifications.get(k).run();
+                fail("modification " + k + " did not throw");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+        assertEquals(18, rans.size());
+        for (int i = 0; i < rans.size(); i++)
+            assertEquals(i, rans.get(i).toInt());
+    }
+
+    /**
+     * A deserialized state has the same available moves (they are recomputed in readObject).
+     */
+    @Test
+    public void serializeTest() throws Exception {
+        StateObserver2048 so = new StateObserver2048(0x0000_0100_0210_1232L);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(so);
+        }
+        StateObserver2048 so2;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            so2 = (StateObserver2048) ois.readObject();
+        }
+        assertEquals(toInts(so.getAvailableActions()), toInts(so2.getAvailableActions()));
+        for (int m = 0; m < 4; m++)
+            assertEquals(so.isLegalMove(m), so2.isLegalMove(m));
+    }
+
+    /**
+     * @return the tile values of {@code so} as in {@link StateObserver2048Slow#toArray()} (0 for an empty tile)
+     */
+    private static int[][] toValues(StateObserver2048 so) {
+        int[][] values = so.toArray();
+        for (int[] row : values)
+            for (int c = 0; c < row.length; c++)
+                if (row[c] == 1) row[c] = 0;
+        return values;
+    }
+
+    private static int[] flatten(int[][] values) {
+        int[] flat = new int[16];
+        for (int r = 0, n = 0; r < 4; r++)
+            for (int c = 0; c < 4; c++, n++)
+                flat[n] = values[r][c];
+        return flat;
+    }
+
+    private static int maxValue(int[][] values) {
+        int max = 0;
+        for (int v : flatten(values)) max = Math.max(max, v);
+        return max;
+    }
+
+    private static ArrayList<Integer> toInts(ArrayList<ACTIONS> acts) {
+        ArrayList<Integer> ints = new ArrayList<>();
+        for (ACTIONS a : acts) ints.add(a.toInt());
+        return ints;
+    }
+}
@@ -0,0 +1,72 @@
+package tools;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    /**
+     * A stored score tuple should be found for its hash and for all depths up to its own depth (for all depths, if
+     * it is {@link TranspositionTable#EXACT}), but not for other hashes and not after {@link TranspositionTable#newSearch()}.
+     */
+    @Test
+    public void storeLookupTest() {
+        TranspositionTable tt = new TranspositionTable(10);
+        ScoreTuple sc = new ScoreTuple(new double[]{0.5, -0.5});
+        ScoreTuple sx = new ScoreTuple(new double[]{1.0, -1.0});
+        tt.put(4711L, 3, sc);
+        tt.put(42L, TranspositionTable.EXACT, sx);
+        assertSame(sc, tt.get(4711L, 3));
+        assertEquals(3, tt.getLastDepth());
+        assertSame(sc, tt.get(4711L, 0));
+        assertNull(tt.get(4711L, 4));
+        assertNull(tt.get(4712L, 0));
+        assertSame(sx, tt.get(42L, 1000));
+        assertEquals(TranspositionTable.EXACT, tt.getLastDepth());
+        assertEquals(5, tt.getLookups());
+        assertEquals(3, tt.getHits());
+
+        tt.newSearch();
+        assertNull(tt.get(4711L, 0));
+        assertNull(tt.get(42L, 0));
+    }
+
+    /**
+     * If two states map to the same slot, the one with the larger depth is kept. An entry of the same state or an
+     * entry from a previous search is always replaced.
+     */
+    @Test
+    public void depthReplacementTest() {
+        TranspositionTable tt = new TranspositionTable(2);
+        long h1 = 1, h2 = 2;
+        while (slot(h2) != slot(h1)) h2++;          // find a second hash for the slot of h1
+        ScoreTuple s1 = new ScoreTuple(new double[]{1});
+        ScoreTuple s2 = new ScoreTuple(new double[]{2});
+        ScoreTuple s3 = new ScoreTuple(new double[]{3});
+
+        tt.put(h1, 5, s1);
+        tt.put(h2, 3, s2);                          // smaller depth: h1 is kept
+        assertSame(s1, tt.get(h1, 5));
+        assertNull(tt.get(h2, 0));
+        tt.put(h2, 7, s2);                          // larger depth: h2 replaces h1
+        assertSame(s2, tt.get(h2, 7));
+        assertNull(tt.get(h1, 0));
+        tt.put(h2, 1, s3);                          // same state: always replaced
+        assertSame(s3, tt.get(h2, 1));
+        assertNull(tt.get(h2, 2));
+
+        tt.put(h2, TranspositionTable.EXACT, s2);
+        tt.newSearch();
+        tt.put(h1, 1, s1);                          // the entry of the previous search is invalid
+        assertSame(s1, tt.get(h1, 1));
+        assertNull(tt.get(h2, 0));
+    }
+
+    /**
+     * @return the slot of {@code hash} in a table with 4 entries
+     */
+    private static int slot(long hash) {
+        return (int) (ZobristHash.mix(hash) & 3);
+    }
+}
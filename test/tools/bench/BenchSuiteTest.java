@@ -0,0 +1,108 @@
+package tools.bench;
+
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BenchSuiteTest {
+
+    /**
+     * {@link MicroBench} should call the operation with the calibrated {@code n} for all warmup and measured
+     * iterations and report the time per (smaller) operation.
+     */
+    @Test
+    public void microBenchTest() {
+        MicroBench bench = new MicroBench(2, 3, 5);
+        long[] calls = new long[1];
+        MicroBench.Op op = n -> {
+            calls[0]++;
+            long s = 0;
+            for (int i = 0; i < n; i++) s += Long.numberOfTrailingZeros(i * 31L + s);
+            return s;
+        };
+        MicroBench.Result r1 = bench.run("op", op);
+        assertEquals("op", r1.name);
+        assertTrue(r1.nsPerOp > 0 && !Double.isInfinite(r1.nsPerOp));
+        assertTrue(r1.stdDev >= 0);
+        assertTrue("too few calls: " + calls[0], calls[0] >= 2 + 3 + 1);
+
+        MicroBench.Result r10 = new MicroBench(2, 3, 5).run("op10", 10, op);
+        assertTrue("time per smaller operation", r10.nsPerOp < r1.nsPerOp);
+    }
+
+    /**
+     * The state pool should be the same in each run (seeded) and hold only non-terminal states.
+     */
+    @Test
+    public void statePoolTest() {
+        StateObservation[] p1 = BenchSuite.statePool(new StateObserverTTT(), 100, 9);
+        StateObservation[] p2 = BenchSuite.statePool(new StateObserverTTT(), 100, 9);
+        assertEquals(100, p1.length);
+        for (int k = 0; k < p1.length; k++) {
+            assertFalse(p1[k].isGameOver());
+            assertEquals(p1[k].stringDescr(), p2[k].stringDescr());
+        }
+    }
+
+    /**
+     * Results written with {@link BenchSuite#writeResults(List, String)} should be read back as baseline, and
+     * {@link BenchSuite#compare(List, LinkedHashMap, double)} should count only the benchmarks slower than the
+     * baseline by more than the tolerance.
+     */
+    @Test
+    public void baselineCompareTest() throws Exception {
+        List<MicroBench.Result> results = Arrays.asList(
+                new MicroBench.Result("a[TicTacToe]", 100.0, 1.0),
+                new MicroBench.Result("b[TicTacToe]", 2000.0, 5.0),
+                new MicroBench.Result("c[TicTacToe]", 3.5, 0.1));
+        File f = File.createTempFile("bench", ".txt");
+        try {
+            BenchSuite.writeResults(results, f.getPath());
+            LinkedHashMap<String, Double> base = BenchSuite.readBaseline(f.getPath());
+            assertEquals(Arrays.asList("a[TicTacToe]", "b[TicTacToe]", "c[TicTacToe]"), new ArrayList<>(base.keySet()));
+            assertEquals(100.0, base.get("a[TicTacToe]"), 0.0);
+            assertEquals(3.5, base.get("c[TicTacToe]"), 0.0);
+            assertEquals(0, BenchSuite.compare(results, base, 0.25));
+
+            List<MicroBench.Result> now = Arrays.asList(
+                    new MicroBench.Result("a[TicTacToe]", 124.0, 1.0),     // within tolerance
+                    new MicroBench.Result("b[TicTacToe]", 2600.0, 5.0),    // regression
+                    new MicroBench.Result("c[TicTacToe]", 1.0, 0.1),       // faster
+                    new MicroBench.Result("d[TicTacToe]", 9.0, 0.1));      // not in baseline
+            assertEquals(1, BenchSuite.compare(now, base, 0.25));
+        } finally {
+            f.delete();
+        }
+    }
+
+    /**
+     * A (very short) run of the whole suite should produce exactly the benchmarks of the checked-in baseline
+     * resources/bench/baseline.txt, with finite positive times. With a filter only the matching benchmarks run.
+     */
+    @Test
+    public void runAllTest() throws Exception {
+        BenchSuite suite = new BenchSuite(new MicroBench(0, 1, 1), null);
+        suite.runAll();
+        LinkedHashMap<String, Double> base = BenchSuite.readBaseline("resources/bench/baseline.txt");
+        List<String> names = new ArrayList<>();
+        for (MicroBench.Result r : suite.getResults()) {
+            names.add(r.name);
+            assertTrue(r.name + ": " + r.nsPerOp, r.nsPerOp > 0 && !Double.isInfinite(r.nsPerOp));
+        }
+        assertEquals(new ArrayList<>(base.keySet()), names);
+
+        suite = new BenchSuite(new MicroBench(0, 1, 1), "copy\\[.*");
+        suite.runAll();
+        for (MicroBench.Result r : suite.getResults())
+            assertTrue(r.name, r.name.startsWith("copy["));
+        assertEquals(base.keySet().stream().filter(k -> k.startsWith("copy[")).count(), suite.getResults().size());
+    }
+}